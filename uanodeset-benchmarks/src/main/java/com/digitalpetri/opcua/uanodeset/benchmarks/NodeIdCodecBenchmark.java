@@ -0,0 +1,106 @@
+package com.digitalpetri.opcua.uanodeset.benchmarks;
+
+import com.digitalpetri.opcua.uanodeset.NodeSet;
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
+import com.digitalpetri.opcua.uanodeset.util.NodeIdCodec;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opcfoundation.ua.Reference;
+import org.opcfoundation.ua.UANode;
+import org.opcfoundation.ua.UANodeSet;
+
+/**
+ * Compares {@link NodeIdCodec} with Milo's {@link NodeId#parse(String)} and {@link
+ * NodeId#toParseableString()}, the conversions {@code NodeIdUtil} used before it.
+ *
+ * <p>Each operation converts every NodeId and reference string of the bundled OPC UA base NodeSet,
+ * so the mix of numeric, string, and namespace-qualified NodeIds matches a real model. Run with
+ * {@code -prof gc} to compare allocation rates as well as time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class NodeIdCodecBenchmark {
+
+  private String[] nodeIdStrings;
+  private NodeId[] nodeIds;
+
+  private final StringBuilder sb = new StringBuilder();
+
+  @Setup
+  public void setup() throws Exception {
+    UANodeSet nodeSet;
+    try (InputStream inputStream =
+        NodeSet.class.getClassLoader().getResourceAsStream("1.05/Opc.Ua.NodeSet2.xml")) {
+
+      nodeSet = UANodeSetParser.parse(inputStream);
+    }
+
+    var strings = new ArrayList<String>();
+    for (UANode node : nodeSet.getUAObjectOrUAVariableOrUAMethod()) {
+      strings.add(node.getNodeId());
+      if (node.getReferences() != null) {
+        for (Reference reference : node.getReferences().getReference()) {
+          // reference types are often aliases, which are not NodeIds
+          strings.add(reference.getValue());
+        }
+      }
+    }
+
+    nodeIdStrings = strings.toArray(String[]::new);
+    nodeIds = strings.stream().map(NodeId::parse).toArray(NodeId[]::new);
+  }
+
+  @Benchmark
+  public void parseMilo(Blackhole blackhole) {
+    for (String s : nodeIdStrings) {
+      blackhole.consume(NodeId.parse(s));
+    }
+  }
+
+  @Benchmark
+  public void parseCodec(Blackhole blackhole) {
+    for (String s : nodeIdStrings) {
+      blackhole.consume(NodeIdCodec.parse(s));
+    }
+  }
+
+  @Benchmark
+  public void formatMilo(Blackhole blackhole) {
+    for (NodeId nodeId : nodeIds) {
+      String s = nodeId.toParseableString();
+      blackhole.consume(s.startsWith("ns=0;") ? s.substring(s.indexOf(';') + 1) : s);
+    }
+  }
+
+  @Benchmark
+  public void formatCodec(Blackhole blackhole) {
+    for (NodeId nodeId : nodeIds) {
+      blackhole.consume(NodeIdCodec.format(nodeId));
+    }
+  }
+
+  @Benchmark
+  public void formatCodecReusedBuilder(Blackhole blackhole) {
+    for (NodeId nodeId : nodeIds) {
+      sb.setLength(0);
+      blackhole.consume(NodeIdCodec.appendTo(nodeId, sb).length());
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.digitalpetri.opcua.uanodeset.benchmarks;
+
+import com.digitalpetri.opcua.uanodeset.NodeSet;
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetMerger;
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opcfoundation.ua.UANodeSet;
+
+/**
+ * Measures how {@link NodeSet} index construction scales with the requested parallelism.
+ *
+ * <p>The bundled OPC UA base NodeSet is always indexed. Additional companion NodeSets can be merged
+ * in by passing a comma-separated list of file paths in the {@code uanodeset.benchmark.nodesets}
+ * system property, e.g. {@code java -Duanodeset.benchmark.nodesets=Opc.Ua.Di.NodeSet2.xml -jar
+ * target/benchmarks.jar NodeSetConstruction}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class NodeSetConstructionBenchmark {
+
+  @Param({"1", "2", "4", "8"})
+  public int parallelism;
+
+  private UANodeSet mergedNodeSet;
+
+  @Setup
+  public void setup() throws Exception {
+    try (InputStream inputStream =
+        NodeSet.class.getClassLoader().getResourceAsStream("1.05/Opc.Ua.NodeSet2.xml")) {
+
+      mergedNodeSet = UANodeSetParser.parse(inputStream);
+    }
+
+    String paths = System.getProperty("uanodeset.benchmark.nodesets", "");
+    for (String path : paths.split(",")) {
+      if (!path.isBlank()) {
+        try (InputStream inputStream = Files.newInputStream(Path.of(path.strip()))) {
+          mergedNodeSet = UANodeSetMerger.merge(mergedNodeSet, UANodeSetParser.parse(inputStream));
+        }
+      }
+    }
+
+    // Construction normalizes the JAXB model in place; normalizing an already-normalized model is
+    // idempotent, so each invocation re-indexes the same merged model.
+    new NodeSet(mergedNodeSet);
+  }
+
+  @Benchmark
+  public NodeSet construct() {
+    return new NodeSet(mergedNodeSet, parallelism);
+  }
+}
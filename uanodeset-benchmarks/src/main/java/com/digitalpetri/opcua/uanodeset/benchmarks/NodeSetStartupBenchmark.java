@@ -0,0 +1,106 @@
+package com.digitalpetri.opcua.uanodeset.benchmarks;
+
+import com.digitalpetri.opcua.uanodeset.NodeSet;
+import com.digitalpetri.opcua.uanodeset.OffHeapNodeSet;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares loading a merged model from NodeSet XML with opening a precompiled snapshot of it.
+ *
+ * <p>Companion NodeSets are passed as in {@link NodeSetConstructionBenchmark}, through the {@code
+ * uanodeset.benchmark.nodesets} system property. Both benchmarks end with the same queries: they
+ * get all four type trees, which a {@link NodeSet} builds together and a snapshot reads from its
+ * stored records, and look up the hierarchy of ServerType.
+ *
+ * <p>{@link #openSnapshotAsNodeSet()} measures what a {@code NodeSetAddressSpace} loading a
+ * snapshot does at startup: it opens the snapshot and converts it with {@link
+ * OffHeapNodeSet#toNodeSet()}, which materializes and indexes every node on the heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class NodeSetStartupBenchmark {
+
+  private final List<Path> nodeSetFiles = new ArrayList<>();
+
+  private Path snapshot;
+
+  @Setup
+  public void setup() throws Exception {
+    String paths = System.getProperty("uanodeset.benchmark.nodesets", "");
+    for (String path : paths.split(",")) {
+      if (!path.isBlank()) {
+        nodeSetFiles.add(Path.of(path.strip()));
+      }
+    }
+
+    snapshot = Files.createTempFile("uanodeset", ".snapshot");
+    OffHeapNodeSet.create(load()).save(snapshot);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    Files.deleteIfExists(snapshot);
+  }
+
+  @Benchmark
+  public Object loadXml() throws Exception {
+    NodeSet nodeSet = load();
+    nodeSet.getReferenceTypeTree();
+    nodeSet.getVariableTypeTree();
+    nodeSet.getDataTypeTree();
+    return nodeSet.getObjectTypeTree().getTypeHierarchy(NodeIds.ServerType);
+  }
+
+  @Benchmark
+  public Object openSnapshot() throws Exception {
+    OffHeapNodeSet nodeSet = OffHeapNodeSet.open(snapshot);
+    nodeSet.getReferenceTypeTree();
+    nodeSet.getVariableTypeTree();
+    nodeSet.getDataTypeTree();
+    return nodeSet.getObjectTypeTree().getTypeHierarchy(NodeIds.ServerType);
+  }
+
+  @Benchmark
+  public Object openSnapshotAsNodeSet() throws Exception {
+    NodeSet nodeSet = OffHeapNodeSet.open(snapshot).toNodeSet();
+    nodeSet.getReferenceTypeTree();
+    nodeSet.getVariableTypeTree();
+    nodeSet.getDataTypeTree();
+    return nodeSet.getObjectTypeTree().getTypeHierarchy(NodeIds.ServerType);
+  }
+
+  private NodeSet load() throws Exception {
+    var inputStreams = new ArrayList<InputStream>();
+    try {
+      for (Path file : nodeSetFiles) {
+        inputStreams.add(Files.newInputStream(file));
+      }
+      return NodeSet.load(inputStreams);
+    } finally {
+      for (InputStream inputStream : inputStreams) {
+        inputStream.close();
+      }
+    }
+  }
+}
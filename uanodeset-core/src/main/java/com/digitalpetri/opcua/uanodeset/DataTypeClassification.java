@@ -0,0 +1,63 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import org.eclipse.milo.opcua.stack.core.OpcUaDataType;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * How a datatype in a {@link DataTypeInfoTree} is represented and encoded.
+ *
+ * <p>Classifications are computed once for every datatype when the tree is built, so code
+ * generators can branch on {@link #kind()} instead of asking the tree a series of hierarchy
+ * questions. The {@link DataTypeInfoTree} predicates such as {@link
+ * DataTypeInfoTree#isStructure(NodeId)} are answered from the same records.
+ *
+ * @param dataTypeId the NodeId of the datatype.
+ * @param kind the category the datatype belongs to.
+ * @param opcUaDataType the built-in datatype values are encoded as: the datatype itself if it is
+ *     built in, {@code Int32} for enumerations, otherwise that of the nearest built-in ancestor.
+ * @param backingClass the Java class Milo uses for values of the datatype, or {@code null} if the
+ *     datatype cannot be traced to a supported ancestor.
+ * @param optionalFields whether any declared or inherited field is optional.
+ * @param subtypedValues whether any declared or inherited field allows subtype values.
+ */
+public record DataTypeClassification(
+    NodeId dataTypeId,
+    Kind kind,
+    @Nullable OpcUaDataType opcUaDataType,
+    @Nullable Class<?> backingClass,
+    boolean optionalFields,
+    boolean subtypedValues) {
+
+  /**
+   * Check whether values of the datatype are structures, including unions and {@code OptionSet}
+   * structures.
+   *
+   * @return {@code true} if the datatype is {@code Structure} or one of its descendants.
+   */
+  public boolean isStructure() {
+    return kind == Kind.STRUCTURE || kind == Kind.UNION || kind == Kind.OPTION_SET;
+  }
+
+  /** The categories a datatype is generated and encoded as. */
+  public enum Kind {
+
+    /** {@code Structure} or a descendant that is not a union or {@code OptionSet} structure. */
+    STRUCTURE,
+
+    /** A descendant of {@code Union} whose definition is marked as a union. */
+    UNION,
+
+    /** A descendant of {@code OptionSet} whose definition is marked as an option set. */
+    OPTION_SET,
+
+    /** {@code Enumeration} or one of its descendants. */
+    ENUMERATION,
+
+    /** A descendant of {@code UInteger} whose definition is marked as an option set. */
+    OPTION_SET_UINTEGER,
+
+    /** Any other datatype, represented as a scalar value of its built-in ancestor. */
+    SIMPLE
+  }
+}
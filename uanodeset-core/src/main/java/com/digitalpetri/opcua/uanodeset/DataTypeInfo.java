@@ -16,11 +16,14 @@ import org.opcfoundation.ua.UADataType;
  * expose the fields declared directly on the datatype and the fields inherited from ancestor
  * datatypes. Code generators and namespace loaders use this wrapper when they need to interpret a
  * structure, union, enumeration, option set, or simple subtype from the same public tree API.
+ *
+ * <p>Field lists are computed on first use and are immutable, so instances may be read from
+ * multiple threads.
  */
 public class DataTypeInfo extends TypeInfo<UADataType> {
 
-  private List<DataTypeField> fields;
-  private List<DataTypeField> inheritedFields;
+  private volatile @Nullable List<DataTypeField> fields;
+  private volatile @Nullable List<DataTypeField> inheritedFields;
 
   /**
    * Create a datatype hierarchy node.
@@ -48,6 +51,7 @@ public class DataTypeInfo extends TypeInfo<UADataType> {
    * @return the declared fields, or an empty list when the datatype has no definition.
    */
   public List<DataTypeField> getFields() {
+    List<DataTypeField> fields = this.fields;
     if (fields == null) {
       DataTypeDefinition definition = getTypeNode().getDefinition();
       if (definition != null) {
@@ -55,6 +59,7 @@ public class DataTypeInfo extends TypeInfo<UADataType> {
       } else {
         fields = Collections.emptyList();
       }
+      this.fields = fields;
     }
 
     return fields;
@@ -69,6 +74,7 @@ public class DataTypeInfo extends TypeInfo<UADataType> {
    * @return the inherited fields visible before this datatype's own declared fields.
    */
   public List<DataTypeField> getInheritedFields() {
+    List<DataTypeField> inheritedFields = this.inheritedFields;
     if (inheritedFields == null) {
       var parentTypeInfos = new ArrayList<TypeInfo<UADataType>>();
 
@@ -92,6 +98,7 @@ public class DataTypeInfo extends TypeInfo<UADataType> {
           });
 
       inheritedFields = List.copyOf(fields.values());
+      this.inheritedFields = inheritedFields;
     }
 
     return inheritedFields;
@@ -1,13 +1,21 @@
 package com.digitalpetri.opcua.uanodeset;
 
 import com.digitalpetri.opcua.uanodeset.util.NodeIdUtil;
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import org.eclipse.milo.opcua.stack.core.NodeIds;
 import org.eclipse.milo.opcua.stack.core.OpcUaDataType;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UNumber;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.StructureType;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.DataTypeDefinition;
 import org.opcfoundation.ua.DataTypeField;
 import org.opcfoundation.ua.UADataType;
+import org.opcfoundation.ua.UANode;
 
 /**
  * Public datatype hierarchy built from {@code BaseDataType}.
@@ -16,19 +24,198 @@ import org.opcfoundation.ua.UADataType;
  * categories. It is useful both for code generation and for namespace tools that need to answer
  * questions such as whether a datatype is a structure, enum, option set, union, builtin-compatible
  * simple type, or a subtype of another datatype.
+ *
+ * <p>Every datatype in the tree is classified once, when the tree is built, into a {@link
+ * DataTypeClassification}. The category predicates and the backing class and built-in datatype
+ * lookups are answered from those records rather than by walking the hierarchy on each call.
+ * Structured datatypes also get a {@link StructureLayout}, computed at the same time.
  */
 public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
 
+  private final Map<NodeId, DataTypeClassification> classifications = new HashMap<>();
+  private final Map<NodeId, StructureLayout> structureLayouts = new HashMap<>();
+
   /**
    * Create a datatype tree from a linked root node.
    *
    * <p>Most callers should use {@link #create(NodeSetContext)} so the hierarchy is built from a
    * normalized {@link NodeSetContext}.
    *
+   * <p>Without a context, the {@link StructureLayout}s of this tree have no encoding NodeIds.
+   *
    * @param rootTypeInfo the {@code BaseDataType} node.
    */
   public DataTypeInfoTree(DataTypeInfo rootTypeInfo) {
-    super(rootTypeInfo);
+    this(rootTypeInfo, null);
+  }
+
+  DataTypeInfoTree(DataTypeInfo rootTypeInfo, @Nullable NodeSetContext context) {
+    super(rootTypeInfo, NodeIdInterner.parserOf(context));
+
+    classify(rootTypeInfo, null, context, NodeIdInterner.parserOf(context));
+  }
+
+  private void classify(
+      TypeInfo<UADataType> typeInfo,
+      @Nullable DataTypeClassification parent,
+      @Nullable NodeSetContext context,
+      Function<String, NodeId> nodeIds) {
+
+    NodeId dataTypeId = nodeIds.apply(typeInfo.getTypeNode().getNodeId());
+    DataTypeClassification classification = classify(dataTypeId, (DataTypeInfo) typeInfo, parent);
+    classifications.put(dataTypeId, classification);
+
+    if (classification.isStructure()) {
+      structureLayouts.put(
+          dataTypeId, layout(classification, (DataTypeInfo) typeInfo, parent, context, nodeIds));
+    }
+
+    for (TypeInfo<UADataType> child : typeInfo.getChildren()) {
+      classify(child, classification, context, nodeIds);
+    }
+  }
+
+  private static StructureLayout layout(
+      DataTypeClassification classification,
+      DataTypeInfo typeInfo,
+      @Nullable DataTypeClassification parent,
+      @Nullable NodeSetContext context,
+      Function<String, NodeId> nodeIds) {
+
+    boolean union = classification.kind() == DataTypeClassification.Kind.UNION;
+
+    StructureType structureType;
+    if (union) {
+      structureType =
+          classification.subtypedValues()
+              ? StructureType.UnionWithSubtypedValues
+              : StructureType.Union;
+    } else if (classification.optionalFields()) {
+      structureType = StructureType.StructureWithOptionalFields;
+    } else if (classification.subtypedValues()) {
+      structureType = StructureType.StructureWithSubtypedValues;
+    } else {
+      structureType = StructureType.Structure;
+    }
+
+    var fields = new ArrayList<StructureLayout.Field>();
+    int optionalBit = 0;
+    List<DataTypeField> inheritedFields = typeInfo.getInheritedFields();
+    for (List<DataTypeField> declared : List.of(inheritedFields, typeInfo.getFields())) {
+      for (DataTypeField field : declared) {
+        boolean masked =
+            structureType == StructureType.StructureWithOptionalFields && field.isIsOptional();
+
+        fields.add(
+            new StructureLayout.Field(
+                field,
+                nodeIds.apply(field.getDataType()),
+                masked ? optionalBit++ : -1,
+                union ? fields.size() + 1 : 0));
+      }
+    }
+
+    NodeId dataTypeId = classification.dataTypeId();
+    var encodingIds = new NodeId[3];
+    if (context != null) {
+      context.forEachReference(
+          dataTypeId,
+          reference ->
+              reference.isIsForward()
+                  && NodeIds.HasEncoding.equals(nodeIds.apply(reference.getReferenceType())),
+          reference -> {
+            UANode encoding = context.getNode(reference.getValue());
+            if (encoding != null) {
+              int index =
+                  switch (NodeSetIndexes.normalizeBrowseName(encoding.getBrowseName())) {
+                    case "Default Binary" -> 0;
+                    case "Default XML" -> 1;
+                    case "Default JSON" -> 2;
+                    default -> -1;
+                  };
+              if (index >= 0 && encodingIds[index] == null) {
+                encodingIds[index] = nodeIds.apply(encoding.getNodeId());
+              }
+            }
+          });
+    }
+
+    return new StructureLayout(
+        dataTypeId,
+        parent != null && !NodeIds.Structure.equals(dataTypeId) ? parent.dataTypeId() : null,
+        structureType,
+        fields,
+        encodingIds[0],
+        encodingIds[1],
+        encodingIds[2]);
+  }
+
+  private DataTypeClassification classify(
+      NodeId dataTypeId, DataTypeInfo typeInfo, @Nullable DataTypeClassification parent) {
+
+    OpcUaDataType opcUaDataType = directOpcUaDataType(dataTypeId);
+    if (opcUaDataType == null && parent != null) {
+      opcUaDataType = parent.opcUaDataType();
+    }
+
+    Class<?> backingClass = directBackingClass(dataTypeId);
+    if (backingClass == null && parent != null) {
+      backingClass = parent.backingClass();
+    }
+
+    DataTypeDefinition definition = typeInfo.getTypeNode().getDefinition();
+    boolean optionSet = definition != null && definition.isIsOptionSet();
+    boolean union = definition != null && definition.isIsUnion();
+
+    DataTypeClassification.Kind kind;
+    if (isTypeOrSubtypeOf(dataTypeId, NodeIds.Enumeration)) {
+      kind = DataTypeClassification.Kind.ENUMERATION;
+    } else if (optionSet && isSubtypeOf(dataTypeId, NodeIds.UInteger)) {
+      kind = DataTypeClassification.Kind.OPTION_SET_UINTEGER;
+    } else if (isTypeOrSubtypeOf(dataTypeId, NodeIds.Structure)) {
+      if (union && isSubtypeOf(dataTypeId, NodeIds.Union)) {
+        kind = DataTypeClassification.Kind.UNION;
+      } else if (optionSet && isSubtypeOf(dataTypeId, NodeIds.OptionSet)) {
+        kind = DataTypeClassification.Kind.OPTION_SET;
+      } else {
+        kind = DataTypeClassification.Kind.STRUCTURE;
+      }
+    } else {
+      kind = DataTypeClassification.Kind.SIMPLE;
+    }
+
+    boolean optionalFields = false;
+    boolean subtypedValues = false;
+    List<DataTypeField> inheritedFields = typeInfo.getInheritedFields();
+    for (List<DataTypeField> fields : List.of(typeInfo.getFields(), inheritedFields)) {
+      for (DataTypeField field : fields) {
+        optionalFields |= field.isIsOptional();
+        subtypedValues |= field.isAllowSubTypes();
+      }
+    }
+
+    return new DataTypeClassification(
+        dataTypeId, kind, opcUaDataType, backingClass, optionalFields, subtypedValues);
+  }
+
+  /**
+   * Get the classification of a datatype.
+   *
+   * @param dataTypeId the NodeId of the datatype.
+   * @return the datatype's classification, or {@code null} if it is not part of this tree.
+   */
+  public @Nullable DataTypeClassification getClassification(NodeId dataTypeId) {
+    return classifications.get(dataTypeId);
+  }
+
+  /**
+   * Get the classification of a datatype.
+   *
+   * @param dataTypeId the NodeId of the datatype.
+   * @return the datatype's classification, or {@code null} if it is not part of this tree.
+   */
+  public @Nullable DataTypeClassification getClassification(String dataTypeId) {
+    return getClassification(NodeIdUtil.parse(dataTypeId));
   }
 
   /**
@@ -38,7 +225,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    * @return {@code true} if the datatype is built in.
    */
   public boolean isBuiltinType(String nodeId) {
-    return OpcUaDataType.isBuiltin(NodeId.parse(nodeId));
+    return OpcUaDataType.isBuiltin(NodeIdUtil.parse(nodeId));
   }
 
   /**
@@ -63,7 +250,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    *     ancestor.
    */
   public Class<?> getBackingClass(String dataTypeId) {
-    return getBackingClass(NodeId.parse(dataTypeId));
+    return getBackingClass(NodeIdUtil.parse(dataTypeId));
   }
 
   /**
@@ -78,6 +265,19 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    *     ancestor.
    */
   public Class<?> getBackingClass(NodeId dataTypeId) {
+    DataTypeClassification classification = classifications.get(dataTypeId);
+
+    Class<?> backingClass =
+        classification != null ? classification.backingClass() : directBackingClass(dataTypeId);
+
+    if (backingClass != null) {
+      return backingClass;
+    } else {
+      throw new IllegalArgumentException("no parent TypeInfo for dataTypeId: " + dataTypeId);
+    }
+  }
+
+  private static @Nullable Class<?> directBackingClass(NodeId dataTypeId) {
     if (OpcUaDataType.isBuiltin(dataTypeId)) {
       OpcUaDataType builtinDataType = OpcUaDataType.fromNodeId(dataTypeId);
       return builtinDataType != null ? builtinDataType.getBackingClass() : null;
@@ -88,12 +288,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
     } else if (NodeIds.UInteger.equals(dataTypeId)) {
       return UNumber.class;
     } else {
-      DataTypeInfo typeInfo = getTypeInfo(NodeIdUtil.get(dataTypeId));
-      if (typeInfo != null && typeInfo.getParent() != null) {
-        return getBackingClass(typeInfo.getParent().getTypeNode().getNodeId());
-      } else {
-        throw new IllegalArgumentException("no parent TypeInfo for dataTypeId: " + dataTypeId);
-      }
+      return null;
     }
   }
 
@@ -109,7 +304,26 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    *     ancestor.
    */
   public OpcUaDataType getOpcUaDataType(NodeId dataTypeId) {
-    return getOpcUaDataType(NodeIdUtil.get(dataTypeId));
+    DataTypeClassification classification = classifications.get(dataTypeId);
+
+    OpcUaDataType opcUaDataType =
+        classification != null ? classification.opcUaDataType() : directOpcUaDataType(dataTypeId);
+
+    if (opcUaDataType != null) {
+      return opcUaDataType;
+    } else {
+      throw new IllegalArgumentException("no parent TypeInfo for dataTypeId: " + dataTypeId);
+    }
+  }
+
+  private static @Nullable OpcUaDataType directOpcUaDataType(NodeId dataTypeId) {
+    if (OpcUaDataType.isBuiltin(dataTypeId)) {
+      return OpcUaDataType.fromNodeId(dataTypeId);
+    } else if (NodeIds.Enumeration.equals(dataTypeId)) {
+      return OpcUaDataType.Int32;
+    } else {
+      return null;
+    }
   }
 
   /**
@@ -124,20 +338,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    *     ancestor.
    */
   public OpcUaDataType getOpcUaDataType(String dataTypeId) {
-    NodeId nodeId = NodeId.parse(dataTypeId);
-
-    if (OpcUaDataType.isBuiltin(nodeId)) {
-      return OpcUaDataType.fromNodeId(nodeId);
-    } else if (NodeIds.Enumeration.equals(nodeId)) {
-      return OpcUaDataType.Int32;
-    } else {
-      DataTypeInfo typeInfo = getTypeInfo(dataTypeId);
-      if (typeInfo != null && typeInfo.getParent() != null) {
-        return getOpcUaDataType(typeInfo.getParent().getTypeNode().getNodeId());
-      } else {
-        throw new IllegalArgumentException("no parent TypeInfo for dataTypeId: " + dataTypeId);
-      }
-    }
+    return getOpcUaDataType(NodeIdUtil.parse(dataTypeId));
   }
 
   /**
@@ -147,7 +348,11 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    * @return {@code true} if the datatype is an enumeration.
    */
   public boolean isEnumeration(NodeId nodeId) {
-    return isEnumeration(NodeIdUtil.get(nodeId));
+    DataTypeClassification classification = classifications.get(nodeId);
+
+    return classification != null
+        ? classification.kind() == DataTypeClassification.Kind.ENUMERATION
+        : NodeIds.Enumeration.equals(nodeId);
   }
 
   /**
@@ -157,11 +362,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    * @return {@code true} if the datatype is an enumeration.
    */
   public boolean isEnumeration(String nodeId) {
-    if (NodeIdUtil.equals(NodeIds.Enumeration, nodeId)) {
-      return true;
-    } else {
-      return isSubtypeOf(nodeId, NodeIdUtil.get(NodeIds.Enumeration));
-    }
+    return isEnumeration(NodeIdUtil.parse(nodeId));
   }
 
   /**
@@ -171,7 +372,9 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    * @return {@code true} if the datatype is a structure.
    */
   public boolean isStructure(NodeId nodeId) {
-    return isStructure(NodeIdUtil.get(nodeId));
+    DataTypeClassification classification = classifications.get(nodeId);
+
+    return classification != null ? classification.isStructure() : NodeIds.Structure.equals(nodeId);
   }
 
   /**
@@ -181,15 +384,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    * @return {@code true} if the datatype is a structure.
    */
   public boolean isStructure(String nodeId) {
-    if (NodeIdUtil.equals(NodeIds.Structure, nodeId)) {
-      return true;
-    } else {
-      TypeInfo<UADataType> typeInfo = getTypeInfo(nodeId);
-
-      return typeInfo != null
-          && typeInfo.getParent() != null
-          && isStructure(typeInfo.getParent().getTypeNode().getNodeId());
-    }
+    return isStructure(NodeIdUtil.parse(nodeId));
   }
 
   /**
@@ -200,7 +395,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    * @return {@code true} if the datatype should be treated as a simple value type.
    */
   public boolean isSimpleType(NodeId nodeId) {
-    return isSimpleType(NodeIdUtil.get(nodeId));
+    return hasKind(nodeId, DataTypeClassification.Kind.SIMPLE);
   }
 
   /**
@@ -211,12 +406,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    * @return {@code true} if the datatype should be treated as a simple value type.
    */
   public boolean isSimpleType(String nodeId) {
-    DataTypeInfo typeInfo = getTypeInfo(nodeId);
-
-    return typeInfo != null
-        && !isStructure(nodeId)
-        && !isEnumeration(nodeId)
-        && !isOptionSetUInteger(nodeId);
+    return isSimpleType(NodeIdUtil.parse(nodeId));
   }
 
   /**
@@ -226,7 +416,9 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    * @return {@code true} if the datatype has at least one optional field.
    */
   public boolean isStructureWithOptionalFields(NodeId nodeId) {
-    return isStructureWithOptionalFields(NodeIdUtil.get(nodeId));
+    DataTypeClassification classification = classifications.get(nodeId);
+
+    return classification != null && classification.optionalFields();
   }
 
   /**
@@ -236,16 +428,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    * @return {@code true} if the datatype has at least one optional field.
    */
   public boolean isStructureWithOptionalFields(String nodeId) {
-    DataTypeInfo typeInfo = getTypeInfo(nodeId);
-
-    if (typeInfo == null) {
-      return false;
-    } else {
-      Stream<DataTypeField> fields =
-          Stream.concat(typeInfo.getFields().stream(), typeInfo.getInheritedFields().stream());
-
-      return fields.anyMatch(DataTypeField::isIsOptional);
-    }
+    return isStructureWithOptionalFields(NodeIdUtil.parse(nodeId));
   }
 
   /**
@@ -255,7 +438,9 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    * @return {@code true} if the datatype has at least one field with subtype values enabled.
    */
   public boolean isStructureWithSubtypedValues(NodeId nodeId) {
-    return isStructureWithSubtypedValues(NodeIdUtil.get(nodeId));
+    DataTypeClassification classification = classifications.get(nodeId);
+
+    return classification != null && classification.subtypedValues();
   }
 
   /**
@@ -265,16 +450,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    * @return {@code true} if the datatype has at least one field with subtype values enabled.
    */
   public boolean isStructureWithSubtypedValues(String nodeId) {
-    DataTypeInfo typeInfo = getTypeInfo(nodeId);
-
-    if (typeInfo == null) {
-      return false;
-    } else {
-      Stream<DataTypeField> fields =
-          Stream.concat(typeInfo.getFields().stream(), typeInfo.getInheritedFields().stream());
-
-      return fields.anyMatch(DataTypeField::isAllowSubTypes);
-    }
+    return isStructureWithSubtypedValues(NodeIdUtil.parse(nodeId));
   }
 
   /**
@@ -285,7 +461,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    *     {@code OptionSet}.
    */
   public boolean isOptionSet(NodeId nodeId) {
-    return isOptionSet(NodeIdUtil.get(nodeId));
+    return hasKind(nodeId, DataTypeClassification.Kind.OPTION_SET);
   }
 
   /**
@@ -296,12 +472,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    *     {@code OptionSet}.
    */
   public boolean isOptionSet(String nodeId) {
-    TypeInfo<UADataType> typeInfo = getTypeInfo(nodeId);
-
-    return typeInfo != null
-        && typeInfo.getTypeNode().getDefinition() != null
-        && typeInfo.getTypeNode().getDefinition().isIsOptionSet()
-        && isSubtypeOf(nodeId, NodeIds.OptionSet);
+    return isOptionSet(NodeIdUtil.parse(nodeId));
   }
 
   /**
@@ -315,7 +486,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    *     {@code UInteger}.
    */
   public boolean isOptionSetUInteger(NodeId nodeId) {
-    return isOptionSetUInteger(NodeIdUtil.get(nodeId));
+    return hasKind(nodeId, DataTypeClassification.Kind.OPTION_SET_UINTEGER);
   }
 
   /**
@@ -329,12 +500,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    *     {@code UInteger}.
    */
   public boolean isOptionSetUInteger(String nodeId) {
-    TypeInfo<UADataType> typeInfo = getTypeInfo(nodeId);
-
-    return typeInfo != null
-        && typeInfo.getTypeNode().getDefinition() != null
-        && typeInfo.getTypeNode().getDefinition().isIsOptionSet()
-        && isSubtypeOf(nodeId, NodeIds.UInteger);
+    return isOptionSetUInteger(NodeIdUtil.parse(nodeId));
   }
 
   /**
@@ -345,7 +511,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    *     Union}.
    */
   public boolean isUnion(NodeId nodeId) {
-    return isUnion(NodeIdUtil.get(nodeId));
+    return hasKind(nodeId, DataTypeClassification.Kind.UNION);
   }
 
   /**
@@ -356,12 +522,7 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    *     Union}.
    */
   public boolean isUnion(String nodeId) {
-    TypeInfo<UADataType> typeInfo = getTypeInfo(nodeId);
-
-    return typeInfo != null
-        && typeInfo.getTypeNode().getDefinition() != null
-        && typeInfo.getTypeNode().getDefinition().isIsUnion()
-        && isSubtypeOf(nodeId, NodeIds.Union);
+    return isUnion(NodeIdUtil.parse(nodeId));
   }
 
   /**
@@ -372,7 +533,11 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    *     enabled.
    */
   public boolean isUnionWithSubtypedValues(NodeId nodeId) {
-    return isUnionWithSubtypedValues(NodeIdUtil.get(nodeId));
+    DataTypeClassification classification = classifications.get(nodeId);
+
+    return classification != null
+        && classification.kind() == DataTypeClassification.Kind.UNION
+        && classification.subtypedValues();
   }
 
   /**
@@ -383,19 +548,35 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
    *     enabled.
    */
   public boolean isUnionWithSubtypedValues(String nodeId) {
-    DataTypeInfo typeInfo = getTypeInfo(nodeId);
+    return isUnionWithSubtypedValues(NodeIdUtil.parse(nodeId));
+  }
 
-    if (typeInfo == null) {
-      return false;
-    } else {
-      Stream<DataTypeField> fields =
-          Stream.concat(typeInfo.getFields().stream(), typeInfo.getInheritedFields().stream());
+  /**
+   * Get the encoded layout of a structured datatype.
+   *
+   * @param dataTypeId the NodeId of the datatype.
+   * @return the datatype's layout, or {@code null} if it is not {@code Structure} or a descendant
+   *     of it in this tree.
+   */
+  public @Nullable StructureLayout getStructureLayout(NodeId dataTypeId) {
+    return structureLayouts.get(dataTypeId);
+  }
 
-      return typeInfo.getTypeNode().getDefinition() != null
-          && typeInfo.getTypeNode().getDefinition().isIsUnion()
-          && isSubtypeOf(nodeId, NodeIds.Union)
-          && fields.anyMatch(DataTypeField::isAllowSubTypes);
-    }
+  /**
+   * Get the encoded layout of a structured datatype.
+   *
+   * @param dataTypeId the NodeId of the datatype.
+   * @return the datatype's layout, or {@code null} if it is not {@code Structure} or a descendant
+   *     of it in this tree.
+   */
+  public @Nullable StructureLayout getStructureLayout(String dataTypeId) {
+    return getStructureLayout(NodeIdUtil.parse(dataTypeId));
+  }
+
+  private boolean hasKind(NodeId nodeId, DataTypeClassification.Kind kind) {
+    DataTypeClassification classification = classifications.get(nodeId);
+
+    return classification != null && classification.kind() == kind;
   }
 
   /**
@@ -410,6 +591,21 @@ public class DataTypeInfoTree extends TypeInfoTree<UADataType, DataTypeInfo> {
     DataTypeInfo rootTypeInfo =
         TypeInfoTreeBuilder.build(
             context, NodeIds.BaseDataType, UADataType.class, DataTypeInfo::new);
-    return new DataTypeInfoTree(rootTypeInfo);
+    return new DataTypeInfoTree(rootTypeInfo, context);
+  }
+
+  /**
+   * Build a datatype tree from type nodes already collected from {@code context}.
+   *
+   * @param context the context that supplies resolved references.
+   * @param typeNodes the type nodes collected from {@code context}.
+   * @return a datatype tree rooted at {@code BaseDataType}.
+   * @throws IllegalStateException as for {@link #create(NodeSetContext)}.
+   */
+  static DataTypeInfoTree create(NodeSetContext context, TypeInfoTreeBuilder.TypeNodes typeNodes) {
+    DataTypeInfo rootTypeInfo =
+        TypeInfoTreeBuilder.build(
+            context, typeNodes, NodeIds.BaseDataType, UADataType.class, DataTypeInfo::new);
+    return new DataTypeInfoTree(rootTypeInfo, context);
   }
 }
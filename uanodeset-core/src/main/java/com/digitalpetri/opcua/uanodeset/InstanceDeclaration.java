@@ -0,0 +1,121 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.util.List;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.UANode;
+
+/**
+ * An Object, Variable, or Method that a type declares for its instances.
+ *
+ * <p>An InstanceDeclaration is reached from its declaring type through hierarchical references
+ * and has a {@code HasModellingRule} reference. Its browse path is relative to the type, so the
+ * same declaration is found by the same path on every subtype that inherits it.
+ */
+public final class InstanceDeclaration {
+
+  private final List<String> browsePath;
+  private final UANode node;
+  private final NodeId nodeId;
+  private final NodeId declaringTypeId;
+  private final NodeId referenceTypeId;
+  private final NodeId modellingRuleId;
+  private final @Nullable NodeId typeDefinitionId;
+
+  InstanceDeclaration(
+      List<String> browsePath,
+      UANode node,
+      NodeId nodeId,
+      NodeId declaringTypeId,
+      NodeId referenceTypeId,
+      NodeId modellingRuleId,
+      @Nullable NodeId typeDefinitionId) {
+
+    this.browsePath = browsePath;
+    this.node = node;
+    this.nodeId = nodeId;
+    this.declaringTypeId = declaringTypeId;
+    this.referenceTypeId = referenceTypeId;
+    this.modellingRuleId = modellingRuleId;
+    this.typeDefinitionId = typeDefinitionId;
+  }
+
+  /**
+   * Get the BrowseNames from the declaring type to this declaration.
+   *
+   * <p>Namespace-zero BrowseNames have no prefix; other BrowseNames use the UANodeSet {@code
+   * index:name} spelling.
+   *
+   * @return the immutable, non-empty browse path.
+   */
+  public List<String> getBrowsePath() {
+    return browsePath;
+  }
+
+  /**
+   * Get the node that declares this InstanceDeclaration.
+   *
+   * @return the declaration node.
+   */
+  public UANode getNode() {
+    return node;
+  }
+
+  /**
+   * Get the NodeId of the declaration node.
+   *
+   * @return the declaration NodeId.
+   */
+  public NodeId getNodeId() {
+    return nodeId;
+  }
+
+  /**
+   * Get the type whose InstanceDeclaration hierarchy contains this declaration.
+   *
+   * @return the NodeId of the declaring ObjectType or VariableType.
+   */
+  public NodeId getDeclaringTypeId() {
+    return declaringTypeId;
+  }
+
+  /**
+   * Get the hierarchical ReferenceType from the parent, e.g. {@code HasComponent}.
+   *
+   * @return the NodeId of the ReferenceType.
+   */
+  public NodeId getReferenceTypeId() {
+    return referenceTypeId;
+  }
+
+  /**
+   * Get the ModellingRule of this declaration, e.g. {@code Mandatory} or {@code Optional}.
+   *
+   * @return the NodeId of the ModellingRule.
+   */
+  public NodeId getModellingRuleId() {
+    return modellingRuleId;
+  }
+
+  /**
+   * Get the TypeDefinition of this declaration.
+   *
+   * @return the NodeId of the TypeDefinition, or {@code null} for Methods and declarations without
+   *     one.
+   */
+  public @Nullable NodeId getTypeDefinitionId() {
+    return typeDefinitionId;
+  }
+
+  @Override
+  public String toString() {
+    return "InstanceDeclaration{"
+        + "browsePath="
+        + browsePath
+        + ", nodeId="
+        + nodeId
+        + ", declaringTypeId="
+        + declaringTypeId
+        + '}';
+  }
+}
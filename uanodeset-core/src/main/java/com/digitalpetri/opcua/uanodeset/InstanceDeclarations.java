@@ -0,0 +1,203 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.util.*;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.UANode;
+
+/**
+ * The flattened InstanceDeclaration hierarchy of an ObjectType or VariableType.
+ *
+ * <p>Declarations are keyed by browse path relative to the type. A type shares its supertype's
+ * {@link InstanceDeclarations} rather than copying them: {@link #getDeclaration(List)} consults the
+ * type's own declarations first and then the supertype chain, so a declaration with the same browse
+ * path on a subtype overrides the inherited one while nested declarations that are not overridden
+ * remain inherited.
+ *
+ * <p>Instances are immutable and safe to share between threads. Obtain them from {@link
+ * NodeSet#getInstanceDeclarations(NodeId)}, which computes each type once.
+ */
+public final class InstanceDeclarations {
+
+  private final NodeId typeId;
+  private final @Nullable InstanceDeclarations supertype;
+  private final Map<List<String>, InstanceDeclaration> declared;
+
+  private volatile @Nullable List<InstanceDeclaration> flattened;
+
+  private InstanceDeclarations(
+      NodeId typeId,
+      @Nullable InstanceDeclarations supertype,
+      Map<List<String>, InstanceDeclaration> declared) {
+
+    this.typeId = typeId;
+    this.supertype = supertype;
+    this.declared = declared;
+  }
+
+  /**
+   * Get the NodeId of the type these declarations belong to.
+   *
+   * @return the ObjectType or VariableType NodeId.
+   */
+  public NodeId getTypeId() {
+    return typeId;
+  }
+
+  /**
+   * Get the declarations of the supertype, which this type inherits.
+   *
+   * @return the supertype's declarations, or {@code null} for a root type.
+   */
+  public @Nullable InstanceDeclarations getSupertype() {
+    return supertype;
+  }
+
+  /**
+   * Get the declarations this type declares itself, including overrides of inherited declarations.
+   *
+   * @return an immutable map from browse path to declaration, in declaration order.
+   */
+  public Map<List<String>, InstanceDeclaration> getDeclaredDeclarations() {
+    return declared;
+  }
+
+  /**
+   * Get the declaration at a browse path, looking through the supertype chain.
+   *
+   * @param browsePath the BrowseNames from this type to the declaration.
+   * @return the most-derived declaration at {@code browsePath}, or {@code null} if there is none.
+   */
+  public @Nullable InstanceDeclaration getDeclaration(List<String> browsePath) {
+    InstanceDeclarations current = this;
+    while (current != null) {
+      InstanceDeclaration declaration = current.declared.get(browsePath);
+      if (declaration != null) {
+        return declaration;
+      }
+      current = current.supertype;
+    }
+    return null;
+  }
+
+  /**
+   * Get the declaration at a browse path, looking through the supertype chain.
+   *
+   * @param browsePath the BrowseNames from this type to the declaration.
+   * @return the most-derived declaration at {@code browsePath}, or {@code null} if there is none.
+   */
+  public @Nullable InstanceDeclaration getDeclaration(String... browsePath) {
+    return getDeclaration(List.of(browsePath));
+  }
+
+  /**
+   * Get every declaration of this type and its supertypes, with overrides applied.
+   *
+   * <p>Inherited declarations come first, in supertype order; an override takes the position of
+   * the declaration it overrides.
+   *
+   * @return an immutable list of declarations.
+   */
+  public List<InstanceDeclaration> getDeclarations() {
+    List<InstanceDeclaration> declarations = flattened;
+    if (declarations == null) {
+      var byPath = new LinkedHashMap<List<String>, InstanceDeclaration>();
+      if (supertype != null) {
+        supertype.getDeclarations().forEach(d -> byPath.put(d.getBrowsePath(), d));
+      }
+      byPath.putAll(declared);
+
+      flattened = declarations = List.copyOf(byPath.values());
+    }
+    return declarations;
+  }
+
+  static InstanceDeclarations build(
+      NodeSet nodeSet, NodeId typeId, @Nullable InstanceDeclarations supertype) {
+
+    NodeSetGraph graph = nodeSet.getGraph();
+    int typeOrdinal = graph.ordinal(typeId);
+    if (typeOrdinal < 0) {
+      return new InstanceDeclarations(typeId, supertype, Map.of());
+    }
+
+    BitSet hierarchical =
+        graph.referenceTypeMask(
+            nodeSet.getReferenceTypeTree(), List.of(NodeIds.HierarchicalReferences), true);
+    int hasSubtype = graph.referenceTypeIndex(NodeIds.HasSubtype);
+    int hasModellingRule = graph.referenceTypeIndex(NodeIds.HasModellingRule);
+    int hasTypeDefinition = graph.referenceTypeIndex(NodeIds.HasTypeDefinition);
+
+    var declared = new LinkedHashMap<List<String>, InstanceDeclaration>();
+    var visited = new HashSet<Integer>();
+    visited.add(typeOrdinal);
+
+    // frames of (ordinal, browse path), walked depth-first in reference order
+    Deque<Map.Entry<Integer, List<String>>> stack = new ArrayDeque<>();
+    stack.push(Map.entry(typeOrdinal, List.of()));
+
+    while (!stack.isEmpty()) {
+      Map.Entry<Integer, List<String>> frame = stack.pop();
+      int parent = frame.getKey();
+
+      var children = new ArrayList<Map.Entry<Integer, List<String>>>();
+
+      for (int e = graph.offsets[parent]; e < graph.offsets[parent + 1]; e++) {
+        int edge = graph.edges[e];
+        int referenceType = NodeSetGraph.edgeReferenceType(edge);
+        if (!NodeSetGraph.edgeIsForward(edge)
+            || !hierarchical.get(referenceType)
+            || referenceType == hasSubtype) {
+          continue;
+        }
+
+        int child = graph.targets[e];
+        int modellingRule = findTarget(graph, child, hasModellingRule);
+        if (modellingRule < 0 || !visited.add(child)) {
+          continue;
+        }
+
+        UANode node = graph.nodes[child];
+        var path = new ArrayList<>(frame.getValue());
+        path.add(NodeSetIndexes.normalizeBrowseName(node.getBrowseName()));
+        List<String> browsePath = List.copyOf(path);
+
+        int typeDefinition = findTarget(graph, child, hasTypeDefinition);
+
+        declared.putIfAbsent(
+            browsePath,
+            new InstanceDeclaration(
+                browsePath,
+                node,
+                graph.nodeIds[child],
+                typeId,
+                graph.referenceTypes[referenceType],
+                graph.nodeIds[modellingRule],
+                typeDefinition >= 0 ? graph.nodeIds[typeDefinition] : null));
+
+        children.add(Map.entry(child, browsePath));
+      }
+
+      for (int i = children.size() - 1; i >= 0; i--) {
+        stack.push(children.get(i));
+      }
+    }
+
+    return new InstanceDeclarations(typeId, supertype, Collections.unmodifiableMap(declared));
+  }
+
+  private static int findTarget(NodeSetGraph graph, int node, int referenceType) {
+    if (referenceType < 0) {
+      return -1;
+    }
+    for (int e = graph.offsets[node]; e < graph.offsets[node + 1]; e++) {
+      int edge = graph.edges[e];
+      if (NodeSetGraph.edgeIsForward(edge)
+          && NodeSetGraph.edgeReferenceType(edge) == referenceType) {
+        return graph.targets[e];
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,409 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetMerger;
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
+import jakarta.xml.bind.JAXBException;
+import java.io.InputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.AliasTable;
+import org.opcfoundation.ua.ModelTable;
+import org.opcfoundation.ua.Reference;
+import org.opcfoundation.ua.UANode;
+import org.opcfoundation.ua.UANodeSet;
+import org.opcfoundation.ua.UriTable;
+
+/**
+ * A {@link NodeSetContext} made of an immutable parent model and an extension layer on top of it.
+ *
+ * <p>{@link #load(List)} and {@link #from(Collection)} layer extension models over the standard OPC
+ * UA model, which is parsed and indexed once per JVM and shared by reference between every layered
+ * context built from it. Each layer holds only what its models add: namespaces, models, aliases,
+ * nodes, and the inverse references that its nodes' declarations synthesize on nodes of the layers
+ * below. Layers can be stacked with {@link #extend(Collection)}.
+ *
+ * <p>Queries fall through the layers, so a layered context answers the same as a {@link NodeSet}
+ * loaded from the same models: its namespace table is the merged table, its node list is the parent
+ * nodes followed by the layer's nodes, and references are combined across layers. As with {@link
+ * UANodeSetMerger}, a node whose NodeId is already defined by a lower layer is ignored.
+ *
+ * <p>{@link #asNodeSet()} presents the merged model as a {@link NodeSet}, for consumers such as
+ * node loaders that require one, without parsing or indexing the layers below again.
+ *
+ * <p>Layers are never modified after construction and may be queried from multiple threads.
+ */
+public final class LayeredNodeSet implements NodeSetContext {
+
+  private static final String STANDARD_NODE_SET = "1.05/Opc.Ua.NodeSet2.xml";
+
+  private static volatile @Nullable NodeSet standardNodeSet;
+
+  private final Map<NodeId, List<Reference>> combinedReferences = new ConcurrentHashMap<>();
+
+  private final NodeSetContext parent;
+  private final NodeSet layer;
+  private final UANodeSet nodeSet;
+  private final NodeSet merged;
+
+  private LayeredNodeSet(
+      NodeSetContext parent, NodeSet parentNodeSet, Collection<UANodeSet> nodeSets) {
+
+    this.parent = parent;
+
+    UANodeSet merged = copyHeader(parent.getNodeSet());
+    for (UANodeSet incoming : nodeSets) {
+      merged = UANodeSetMerger.merge(merged, incoming);
+    }
+
+    merged
+        .getUAObjectOrUAVariableOrUAMethod()
+        .removeIf(
+            node -> {
+              if (parent.getNode(node.getNodeId()) != null) {
+                System.err.println("Duplicate node, defined by a lower layer: " + node.getNodeId());
+                return true;
+              }
+              return false;
+            });
+
+    this.layer = new NodeSet(merged);
+    this.nodeSet =
+        new UANodeSetView(
+            layer.getNodeSet(),
+            new ConcatenatedList(
+                parent.getNodeSet().getUAObjectOrUAVariableOrUAMethod(),
+                layer.getNodeSet().getUAObjectOrUAVariableOrUAMethod()));
+    this.merged = new NodeSet(parentNodeSet, layer, nodeSet);
+  }
+
+  /**
+   * Get the standard OPC UA NodeSet shared by every {@link LayeredNodeSet} in this JVM.
+   *
+   * <p>The bundled model is parsed and indexed on first use. The returned NodeSet is shared by
+   * every layered context and must be treated as read-only, so it is not exposed outside this
+   * package; {@link #asNodeSet()} gives callers a NodeSet of their own.
+   *
+   * @return the shared, normalized standard NodeSet.
+   * @throws JAXBException if the bundled NodeSet cannot be parsed.
+   */
+  static NodeSet getStandardNodeSet() throws JAXBException {
+    NodeSet nodeSet = standardNodeSet;
+    if (nodeSet == null) {
+      synchronized (LayeredNodeSet.class) {
+        nodeSet = standardNodeSet;
+        if (nodeSet == null) {
+          InputStream inputStream =
+              LayeredNodeSet.class.getClassLoader().getResourceAsStream(STANDARD_NODE_SET);
+
+          nodeSet = new NodeSet(UANodeSetParser.parse(inputStream));
+          standardNodeSet = nodeSet;
+        }
+      }
+    }
+    return nodeSet;
+  }
+
+  /**
+   * Parse a NodeSet stream and layer it over the shared standard NodeSet.
+   *
+   * @param inputStream the XML stream to parse.
+   * @return the layered context.
+   * @throws JAXBException if the stream or the bundled NodeSet cannot be parsed.
+   */
+  public static LayeredNodeSet load(InputStream inputStream) throws JAXBException {
+    return load(Collections.singletonList(inputStream));
+  }
+
+  /**
+   * Parse NodeSet streams and layer them, merged in order, over the shared standard NodeSet.
+   *
+   * @param inputStreams the XML streams to parse.
+   * @return the layered context.
+   * @throws JAXBException if any stream or the bundled NodeSet cannot be parsed.
+   */
+  public static LayeredNodeSet load(List<InputStream> inputStreams) throws JAXBException {
+    var nodeSets = new ArrayList<UANodeSet>();
+    for (InputStream inputStream : inputStreams) {
+      nodeSets.add(UANodeSetParser.parse(inputStream));
+    }
+
+    return from(nodeSets);
+  }
+
+  /**
+   * Layer an already-parsed extension NodeSet over the shared standard NodeSet.
+   *
+   * @param nodeSet the parsed extension NodeSet. It is reindexed and normalized in place.
+   * @return the layered context.
+   * @throws JAXBException if the bundled NodeSet cannot be parsed.
+   */
+  public static LayeredNodeSet from(UANodeSet nodeSet) throws JAXBException {
+    return from(Collections.singletonList(nodeSet));
+  }
+
+  /**
+   * Layer already-parsed extension NodeSets, merged in order, over the shared standard NodeSet.
+   *
+   * @param nodeSets the parsed extension NodeSets. They are reindexed and normalized in place.
+   * @return the layered context.
+   * @throws JAXBException if the bundled NodeSet cannot be parsed.
+   */
+  public static LayeredNodeSet from(Collection<UANodeSet> nodeSets) throws JAXBException {
+    NodeSet standard = getStandardNodeSet();
+    return new LayeredNodeSet(standard, standard, nodeSets);
+  }
+
+  /**
+   * Create a new layer on top of this context.
+   *
+   * <p>This context is shared by reference and is not modified.
+   *
+   * @param nodeSets the parsed extension NodeSets. They are reindexed and normalized in place.
+   * @return the layered context.
+   */
+  public LayeredNodeSet extend(Collection<UANodeSet> nodeSets) {
+    return new LayeredNodeSet(this, merged, nodeSets);
+  }
+
+  /**
+   * Get the context this layer was built on: the shared standard NodeSet or another layer.
+   *
+   * @return the parent context.
+   */
+  public NodeSetContext getParent() {
+    return parent;
+  }
+
+  /**
+   * Get the NodeSet holding only this layer's nodes and references.
+   *
+   * <p>Its URI, model, and alias tables are the merged tables of every layer up to this one.
+   *
+   * @return this layer's NodeSet.
+   */
+  public NodeSet getLayer() {
+    return layer;
+  }
+
+  /**
+   * Get a {@link NodeSet} view of the merged model, for consumers that require a NodeSet.
+   *
+   * <p>The view is created together with this layer. It shares the node and reference maps of the
+   * layers below and holds only this layer's entries on top, so creating it costs time in
+   * proportion to the layer, and type trees of kinds the layer adds no types to are shared with
+   * the layers below. Queries answer the same as on this context, and deltas can be applied to the
+   * view like to any other NodeSet.
+   *
+   * @return the merged model as a NodeSet.
+   */
+  public NodeSet asNodeSet() {
+    return merged;
+  }
+
+  /**
+   * Get the merged model: the merged header tables and every node from every layer.
+   *
+   * <p>The node list is an unmodifiable view over the layers' node lists.
+   *
+   * @return the merged UANodeSet view.
+   */
+  @Override
+  public UANodeSet getNodeSet() {
+    return nodeSet;
+  }
+
+  @Override
+  public @Nullable UANode getNode(String nodeId) {
+    return getNode(layer.resolveNodeId(nodeId));
+  }
+
+  @Override
+  public @Nullable UANode getNode(NodeId nodeId) {
+    UANode node = layer.getNode(nodeId);
+    return node != null ? node : parent.getNode(nodeId);
+  }
+
+  @Override
+  public List<Reference> getReferences(String nodeId) {
+    return getReferences(layer.resolveNodeId(nodeId));
+  }
+
+  @Override
+  public List<Reference> getReferences(NodeId nodeId) {
+    NodeSetContext source = getReferenceSource(nodeId);
+    if (source != null) {
+      return source.getReferences(nodeId);
+    }
+
+    return combinedReferences.computeIfAbsent(
+        nodeId,
+        id -> {
+          var combined = new LinkedHashMap<ReferenceKey, Reference>();
+          parent.getReferences(id).forEach(r -> combined.putIfAbsent(key(r), r));
+          layer.getReferences(id).forEach(r -> combined.putIfAbsent(key(r), r));
+          return List.copyOf(combined.values());
+        });
+  }
+
+  @Override
+  public void forEachReference(
+      NodeId nodeId, Predicate<? super Reference> filter, Consumer<? super Reference> action) {
+
+    NodeSetContext source = getReferenceSource(nodeId);
+    if (source != null) {
+      source.forEachReference(nodeId, filter, action);
+    } else {
+      NodeSetContext.super.forEachReference(nodeId, filter, action);
+    }
+  }
+
+  @Override
+  public boolean anyReference(NodeId nodeId, Predicate<? super Reference> predicate) {
+    NodeSetContext source = getReferenceSource(nodeId);
+    return source != null
+        ? source.anyReference(nodeId, predicate)
+        : parent.anyReference(nodeId, predicate) || layer.anyReference(nodeId, predicate);
+  }
+
+  @Override
+  public Optional<Reference> findReference(NodeId nodeId, Predicate<? super Reference> predicate) {
+    NodeSetContext source = getReferenceSource(nodeId);
+    if (source != null) {
+      return source.findReference(nodeId, predicate);
+    }
+
+    // the combined list keeps the parent's references first
+    Optional<Reference> reference = parent.findReference(nodeId, predicate);
+    return reference.isPresent() ? reference : layer.findReference(nodeId, predicate);
+  }
+
+  /**
+   * Get the context that holds every reference of a node, when only one of the parent and the
+   * layer has references for it.
+   *
+   * @param nodeId the NodeId of the node to inspect.
+   * @return the parent or the layer, or {@code null} if both have references for the node.
+   */
+  private @Nullable NodeSetContext getReferenceSource(NodeId nodeId) {
+    if (layer.getExplicitReferences(nodeId).isEmpty()
+        && layer.getImplicitReferences(nodeId).isEmpty()) {
+
+      return parent;
+    }
+
+    if (parent.getNode(nodeId) == null && parent.getImplicitReferences(nodeId).isEmpty()) {
+      return layer;
+    }
+
+    return null;
+  }
+
+  @Override
+  public List<Reference> getExplicitReferences(String nodeId) {
+    return getExplicitReferences(layer.resolveNodeId(nodeId));
+  }
+
+  @Override
+  public List<Reference> getExplicitReferences(NodeId nodeId) {
+    // a node is defined by exactly one layer, which holds all of its explicit references
+    List<Reference> references = layer.getExplicitReferences(nodeId);
+    return references.isEmpty() ? parent.getExplicitReferences(nodeId) : references;
+  }
+
+  @Override
+  public List<Reference> getImplicitReferences(String nodeId) {
+    return getImplicitReferences(layer.resolveNodeId(nodeId));
+  }
+
+  @Override
+  public List<Reference> getImplicitReferences(NodeId nodeId) {
+    List<Reference> layerReferences = layer.getImplicitReferences(nodeId);
+    List<Reference> parentReferences = parent.getImplicitReferences(nodeId);
+
+    if (layerReferences.isEmpty()) {
+      return parentReferences;
+    } else if (parentReferences.isEmpty()) {
+      return layerReferences;
+    } else {
+      var references = new ArrayList<Reference>(parentReferences.size() + layerReferences.size());
+      references.addAll(parentReferences);
+      references.addAll(layerReferences);
+      return Collections.unmodifiableList(references);
+    }
+  }
+
+  /**
+   * Copy the header tables of a parent model into a new, node-less {@link UANodeSet} that extension
+   * models can be merged into without modifying the parent.
+   */
+  static UANodeSet copyHeader(UANodeSet source) {
+    var header = new UANodeSet();
+
+    var namespaceUris = new UriTable();
+    if (source.getNamespaceUris() != null) {
+      namespaceUris.getUri().addAll(source.getNamespaceUris().getUri());
+    }
+    header.setNamespaceUris(namespaceUris);
+
+    var models = new ModelTable();
+    if (source.getModels() != null) {
+      models.getModel().addAll(source.getModels().getModel());
+    }
+    header.setModels(models);
+
+    var aliases = new AliasTable();
+    if (source.getAliases() != null) {
+      aliases.getAlias().addAll(source.getAliases().getAlias());
+    }
+    header.setAliases(aliases);
+
+    header.setServerUris(source.getServerUris());
+    header.setLastModified(source.getLastModified());
+
+    return header;
+  }
+
+  private ReferenceKey key(Reference reference) {
+    return new ReferenceKey(
+        merged.parseNodeId(reference.getReferenceType()),
+        merged.parseNodeId(reference.getValue()),
+        reference.isIsForward());
+  }
+
+  private record ReferenceKey(NodeId referenceTypeId, NodeId targetId, boolean forward) {}
+
+  private static final class ConcatenatedList extends AbstractList<UANode>
+      implements RandomAccess {
+
+    private final List<UANode> first;
+    private final List<UANode> second;
+
+    private ConcatenatedList(List<UANode> first, List<UANode> second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public UANode get(int index) {
+      int size = first.size();
+      return index < size ? first.get(index) : second.get(index - size);
+    }
+
+    @Override
+    public int size() {
+      return first.size() + second.size();
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import com.digitalpetri.opcua.uanodeset.util.NodeIdCodec;
+import com.digitalpetri.opcua.uanodeset.util.NodeIdUtil;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Parses the NodeId strings of one NodeSet, keeping a single {@link NodeId} instance per string.
+ *
+ * <p>An interner is owned by the NodeSet that created it and becomes unreachable together with it.
+ * A NodeSet derived with {@link NodeSet#apply(NodeSetDelta)} gets a {@link #derive() derived}
+ * interner that looks strings up in its parent but adds new ones only to itself, so a delta never
+ * grows the interner of the snapshot it was applied to.
+ *
+ * <p>Strings read from the model are added with {@link #intern(String)}; lookups of other strings,
+ * such as NodeIds supplied by callers, use {@link #parse(String)}, which falls back to the bounded
+ * JVM-wide cache in {@link NodeIdUtil} without growing the interner.
+ *
+ * <p>Instances are safe for concurrent use, so partitions of a NodeSet may be indexed in parallel.
+ */
+final class NodeIdInterner {
+
+  /** Derived interners deeper than this are collapsed onto their root by {@link #derive()}. */
+  private static final int MAX_DEPTH = 8;
+
+  private final ConcurrentMap<String, NodeId> nodeIds = new ConcurrentHashMap<>();
+
+  private final @Nullable NodeIdInterner parent;
+  private final int depth;
+
+  NodeIdInterner() {
+    this(null);
+  }
+
+  private NodeIdInterner(@Nullable NodeIdInterner parent) {
+    this.parent = parent;
+    this.depth = parent != null ? parent.depth + 1 : 0;
+  }
+
+  /**
+   * Create an interner that shares the strings interned so far without adding to them.
+   *
+   * <p>Lookups walk the chain of parents, so once the chain is {@value #MAX_DEPTH} deep the
+   * interners between the root and this one are collapsed into one; the root, which holds the
+   * strings of the original model, is never copied.
+   *
+   * @return a new interner whose parent holds every string interned by this one.
+   */
+  NodeIdInterner derive() {
+    if (depth < MAX_DEPTH) {
+      return new NodeIdInterner(this);
+    }
+
+    NodeIdInterner root = this;
+    while (root.parent != null) {
+      root = root.parent;
+    }
+
+    var collapsed = new NodeIdInterner(root);
+    for (NodeIdInterner interner = this; interner != root; interner = interner.parent) {
+      interner.nodeIds.forEach(collapsed.nodeIds::putIfAbsent);
+    }
+    return new NodeIdInterner(collapsed);
+  }
+
+  /**
+   * Create a derived interner that also holds the strings interned by {@code layer}, the interner
+   * of a model layered over this one.
+   *
+   * @param layer the interner of the layer.
+   * @return a new interner whose parent holds every string interned by this one.
+   */
+  NodeIdInterner derive(NodeIdInterner layer) {
+    NodeIdInterner derived = derive();
+    for (NodeIdInterner interner = layer; interner != null; interner = interner.parent) {
+      interner.nodeIds.forEach(
+          (nodeId, parsed) -> {
+            if (lookup(nodeId) == null) {
+              derived.nodeIds.putIfAbsent(nodeId, parsed);
+            }
+          });
+    }
+    return derived;
+  }
+
+  /**
+   * Parse a NodeId string that belongs to the model, remembering the result.
+   *
+   * @param nodeId the NodeId string to parse.
+   * @return the parsed NodeId; the same instance for every call with an equal string.
+   */
+  NodeId intern(String nodeId) {
+    NodeId parsed = lookup(nodeId);
+    if (parsed == null) {
+      parsed = nodeIds.computeIfAbsent(nodeId, NodeIdCodec::parse);
+    }
+    return parsed;
+  }
+
+  /**
+   * Parse a NodeId string without adding it to the interner.
+   *
+   * @param nodeId the NodeId string to parse.
+   * @return the interned NodeId if {@code nodeId} was interned, otherwise a parsed NodeId.
+   */
+  NodeId parse(String nodeId) {
+    NodeId parsed = lookup(nodeId);
+    return parsed != null ? parsed : NodeIdUtil.parse(nodeId);
+  }
+
+  private @Nullable NodeId lookup(String nodeId) {
+    NodeIdInterner interner = this;
+    do {
+      NodeId parsed = interner.nodeIds.get(nodeId);
+      if (parsed != null) {
+        return parsed;
+      }
+      interner = interner.parent;
+    } while (interner != null);
+
+    return null;
+  }
+
+  /**
+   * Get the number of interned strings, including those of the parents.
+   *
+   * @return the number of distinct NodeId strings interned.
+   */
+  int size() {
+    int size = 0;
+    for (NodeIdInterner interner = this; interner != null; interner = interner.parent) {
+      size += interner.nodeIds.size();
+    }
+    return size;
+  }
+
+  /**
+   * Get the function that parses NodeId strings read from the model of {@code context}.
+   *
+   * <p>A {@link NodeSet} parses with its interner, returning the instances its indexes already
+   * hold, and a {@link LayeredNodeSet} with the interner of its {@link LayeredNodeSet#asNodeSet()
+   * NodeSet view}. Other contexts parse with {@link NodeIdCodec#parse(String)}, so strings of a
+   * model are never added to the JVM-wide cache in {@link NodeIdUtil}.
+   *
+   * @param context the context whose model the strings belong to, or {@code null} if there is none.
+   * @return a function parsing NodeId strings of the model; aliases are not resolved.
+   */
+  static Function<String, NodeId> parserOf(@Nullable NodeSetContext context) {
+    if (context instanceof NodeSet nodeSet) {
+      return nodeSet::parseNodeId;
+    } else if (context instanceof LayeredNodeSet layered) {
+      return layered.asNodeSet()::parseNodeId;
+    } else {
+      return NodeIdCodec::parse;
+    }
+  }
+}
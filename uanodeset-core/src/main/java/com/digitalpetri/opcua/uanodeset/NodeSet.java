@@ -2,10 +2,20 @@ package com.digitalpetri.opcua.uanodeset;
 
 import com.digitalpetri.opcua.uanodeset.parser.UANodeSetMerger;
 import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
-import com.digitalpetri.opcua.uanodeset.util.NodeIdUtil;
 import jakarta.xml.bind.JAXBException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.util.Namespaces;
 import org.jspecify.annotations.Nullable;
@@ -21,30 +31,60 @@ import org.opcfoundation.ua.*;
  *   <li>The URI table and merged model contain the bundled OPC UA base namespace.
  *   <li>Node identity, Variable and VariableType data types, DataType field data types, and
  *       reference NodeIds have aliases resolved.
- *   <li>RolePermissions and AccessRestrictions defined at the model level have been applied to
- *       individual UANodes.
  *   <li>Every explicit reference has a synthesized inverse reference.
  * </ul>
  *
+ * <p>RolePermissions and AccessRestrictions defined at the model level are not copied into the
+ * UANodes that inherit them; {@link #getRolePermissions(UANode)} and {@link
+ * #getAccessRestrictions(UANode)} resolve them per node.
+ *
  * <p>Use {@link #load(InputStream)}, {@link #load(List)}, {@link #from(UANodeSet)}, or {@link
  * #from(Collection)} when starting from an extension model. Those factories merge the supplied
  * model with the bundled OPC UA base NodeSet before constructing the indexed context. NodeIds in
  * this API use indexes from that merged model's namespace URI table; consumers that materialize
  * nodes in another address space must reindex them at that boundary.
+ *
+ * <p>{@link #loadAsync(List, Executor)} and {@link #fromAsync(Collection, Executor)} run the same
+ * loading pipeline as a sequence of cancellable stages on a caller-supplied executor.
+ *
+ * <p>Attribute queries such as {@link #getNodes(Class)}, {@link #getNodesByBrowseName(String)}, and
+ * {@link #getNodesInNamespace(String)} are answered from immutable indexes that are built once, on
+ * first use, in a single pass over the nodes. {@link #getInstancesOf(NodeId, TypeMatch)} is backed
+ * by a similar index of instances by type definition.
+ *
+ * <p>The NodeIds parsed from the model while indexing are interned per NodeSet, so each distinct
+ * NodeId string is parsed once and the parsed values become unreachable together with the NodeSet.
+ * A NodeSet derived with {@link #apply(NodeSetDelta)} reuses the base's NodeIds but interns the
+ * strings its delta adds separately, leaving the base unchanged. NodeIds looked up by callers are
+ * parsed through a bounded JVM-wide cache instead and are never retained by the NodeSet.
  */
 public class NodeSet implements NodeSetContext {
 
-  private final Map<String, String> aliases = new HashMap<>();
-  private final Map<NodeId, UANode> nodeMap = new HashMap<>();
+  /** The smallest number of nodes worth handing to a separate indexing partition. */
+  private static final int MIN_PARTITION_SIZE = 1024;
 
-  private final CombinedReferences combinedReferences = new CombinedReferences();
-  private final Map<NodeId, List<Reference>> explicitReferences = new HashMap<>();
-  private final Map<NodeId, List<Reference>> implicitReferences = new HashMap<>();
+  private final NodeIdInterner nodeIds;
+  private final Map<String, String> aliases;
+  private final Map<NodeId, UANode> nodeMap;
+
+  private final CombinedReferences combinedReferences;
+  private final Map<NodeId, List<Reference>> explicitReferences;
+  private final Map<NodeId, List<Reference>> implicitReferences;
+
+  private final ConcurrentMap<NodeId, InstanceDeclarations> instanceDeclarations;
 
   private final UANodeSet nodeSet;
 
-  private volatile @Nullable ObjectTypeInfoTree objectTypeTree;
-  private volatile @Nullable VariableTypeInfoTree variableTypeTree;
+  private final AtomicReference<@Nullable TypeTrees> typeTrees = new AtomicReference<>();
+  private Supplier<TypeTrees> typeTreesFactory = () -> TypeTrees.build(this);
+  private Supplier<NodeSetIndexes> indexesFactory = this::buildIndexes;
+  private volatile @Nullable NodeSetIndexes indexes;
+  private volatile @Nullable NodeSetGraph graph;
+  private final AtomicReference<@Nullable Map<NodeId, List<UANode>>> instancesByType =
+      new AtomicReference<>();
+  private Supplier<Map<NodeId, List<UANode>>> instancesByTypeFactory =
+      this::buildInstancesByType;
+  private volatile ModelTableEntry @Nullable [] modelsByNamespaceIndex;
 
   /**
    * Create an indexed context around an already-merged NodeSet.
@@ -57,7 +97,33 @@ public class NodeSet implements NodeSetContext {
    * @param nodeSet the merged NodeSet to index and normalize.
    */
   public NodeSet(UANodeSet nodeSet) {
+    this(nodeSet, 1);
+  }
+
+  /**
+   * Create an indexed context around an already-merged NodeSet, indexing its nodes in parallel.
+   *
+   * <p>The node list is split into contiguous partitions. Each partition is normalized and indexed
+   * into partial maps on the common {@link java.util.concurrent.ForkJoinPool}, and the partial maps
+   * are merged in partition order, so the resulting indexes and reference ordering are identical to
+   * those produced by sequential construction.
+   *
+   * <p>Small models are always indexed sequentially because the cost of splitting and merging
+   * outweighs any benefit.
+   *
+   * @param nodeSet the merged NodeSet to index and normalize.
+   * @param parallelism the maximum number of partitions to index concurrently; values less than 2
+   *     index sequentially on the calling thread.
+   */
+  public NodeSet(UANodeSet nodeSet, int parallelism) {
     this.nodeSet = nodeSet;
+    this.nodeIds = new NodeIdInterner();
+    this.aliases = new HashMap<>();
+    this.nodeMap = new HashMap<>();
+    this.explicitReferences = new HashMap<>();
+    this.implicitReferences = new HashMap<>();
+    this.combinedReferences = new CombinedReferences(null);
+    this.instanceDeclarations = new ConcurrentHashMap<>();
 
     assert nodeSet.getModels().getModel().stream()
         .anyMatch(e -> Objects.equals(Namespaces.OPC_UA, e.getModelUri()));
@@ -74,104 +140,121 @@ public class NodeSet implements NodeSetContext {
       nodeSet.setNamespaceUris(namespaceUris);
     }
 
-    var rolePermissionsByModelUri = new HashMap<String, Optional<ListOfRolePermissions>>();
-    var accessRestrictionsByModelUri = new HashMap<String, Optional<Integer>>();
+    List<UANode> nodes = nodeSet.getUAObjectOrUAVariableOrUAMethod();
+    int partitionCount = Math.min(parallelism, nodes.size() / MIN_PARTITION_SIZE);
 
-    nodeSet
-        .getUAObjectOrUAVariableOrUAMethod()
-        .forEach(
-            node -> {
-              node.setNodeId(resolveAlias(node.getNodeId()));
-              NodeId nodeId = NodeIdUtil.parse(node.getNodeId());
+    if (partitionCount < 2) {
+      new IndexPartition(nodeMap, explicitReferences, implicitReferences).index(nodes);
+    } else {
+      List<IndexPartition> partitions =
+          IntStream.range(0, partitionCount)
+              .parallel()
+              .mapToObj(
+                  i -> {
+                    int from = (int) ((long) nodes.size() * i / partitionCount);
+                    int to = (int) ((long) nodes.size() * (i + 1) / partitionCount);
 
-              if (node instanceof UADataType dataType) {
-                DataTypeDefinition definition = dataType.getDefinition();
+                    var partition = new IndexPartition();
+                    partition.index(nodes.subList(from, to));
+                    return partition;
+                  })
+              .toList();
 
-                if (definition != null) {
-                  definition
-                      .getField()
-                      .forEach(field -> field.setDataType(resolveAlias(field.getDataType())));
-                }
-              }
+      partitions.forEach(this::merge);
+    }
+  }
 
-              if (node instanceof UAVariable variable) {
-                variable.setDataType(resolveAlias(variable.getDataType()));
-              }
+  private NodeSet(NodeSet base, NodeSetDelta delta) {
+    OverlayMap<NodeId, UANode> nodes = OverlayMap.over(base.nodeMap);
+    OverlayMap<NodeId, List<Reference>> explicit = OverlayMap.over(base.explicitReferences);
+    OverlayMap<NodeId, List<Reference>> implicit = OverlayMap.over(base.implicitReferences);
 
-              if (node instanceof UAVariableType variableType) {
-                variableType.setDataType(resolveAlias(variableType.getDataType()));
-              }
+    this.nodeIds = base.nodeIds.derive();
+    this.aliases = OverlayMap.over(base.aliases);
+    this.nodeMap = nodes;
+    this.explicitReferences = explicit;
+    this.implicitReferences = implicit;
+    this.combinedReferences = new CombinedReferences(base.combinedReferences);
 
-              // TODO other nodes with aliases that need resolving?
+    this.nodeSet =
+        new UANodeSetView(
+            base.nodeSet,
+            new DeltaNodeList(
+                DeltaNodeList.rootNodes(base.nodeSet, base.nodeMap, nodes),
+                nodes,
+                nodeIds::parse));
 
-              // Maybe set RolePermissions from the model
-              if (!node.isHasNoPermissions()) {
-                ListOfRolePermissions nodeRolePermissions = node.getRolePermissions();
+    var application = new DeltaApplication(base, nodes, explicit, implicit);
+    delta.getChanges().forEach(application::apply);
+    application.finish();
 
-                if (nodeRolePermissions == null
-                    || nodeRolePermissions.getRolePermission().isEmpty()) {
+    this.instanceDeclarations =
+        application.declarationsChanged()
+            ? new ConcurrentHashMap<>()
+            : base.instanceDeclarations;
+  }
+
+  /**
+   * Create a NodeSet over a model layered over {@code parent}, sharing the parent's maps.
+   *
+   * <p>The maps are layered over the parent's maps and hold only the layer's entries, so this costs
+   * time in proportion to the layer. Type trees are shared with the parent unless the layer adds
+   * types of their kind.
+   *
+   * @param parent the NodeSet of the layers below.
+   * @param layer the NodeSet of the layer's own nodes, indexed with the merged header tables.
+   * @param nodeSet the merged model, whose node list is the parent's nodes followed by the layer's.
+   */
+  NodeSet(NodeSet parent, NodeSet layer, UANodeSet nodeSet) {
+    OverlayMap<NodeId, UANode> nodes = OverlayMap.over(parent.nodeMap);
+    nodes.putAll(layer.nodeMap);
+    OverlayMap<NodeId, List<Reference>> explicit = OverlayMap.over(parent.explicitReferences);
+    explicit.putAll(layer.explicitReferences);
+    OverlayMap<NodeId, List<Reference>> implicit = OverlayMap.over(parent.implicitReferences);
+    layer.implicitReferences.forEach(
+        (nodeId, references) -> {
+          List<Reference> parentReferences = parent.implicitReferences.get(nodeId);
+          if (parentReferences == null) {
+            implicit.put(nodeId, references);
+          } else {
+            var combined = new ArrayList<Reference>(parentReferences.size() + references.size());
+            combined.addAll(parentReferences);
+            combined.addAll(references);
+            implicit.put(nodeId, combined);
+          }
+        });
 
-                  Optional<ListOfRolePermissions> modelRolePermissions =
-                      rolePermissionsByModelUri.computeIfAbsent(
-                          getNamespaceUri(nodeId),
-                          namespaceUri -> {
-                            Optional<ModelTableEntry> modelTableEntry =
-                                nodeSet.getModels().getModel().stream()
-                                    .filter(e -> namespaceUri.equals(e.getModelUri()))
-                                    .findFirst();
+    this.nodeIds = parent.nodeIds.derive(layer.nodeIds);
+    this.aliases = layer.aliases;
+    this.nodeMap = nodes;
+    this.explicitReferences = explicit;
+    this.implicitReferences = implicit;
+    this.combinedReferences = new CombinedReferences(null);
+    this.instanceDeclarations = new ConcurrentHashMap<>();
+    this.nodeSet = nodeSet;
 
-                            return modelTableEntry.flatMap(
-                                e -> Optional.ofNullable(e.getRolePermissions()));
-                          });
+    List<UANode> layerNodes = layer.nodeSet.getUAObjectOrUAVariableOrUAMethod();
+    boolean referenceTypes = layerNodes.stream().anyMatch(UAReferenceType.class::isInstance);
+    boolean objectTypes = layerNodes.stream().anyMatch(UAObjectType.class::isInstance);
+    boolean variableTypes = layerNodes.stream().anyMatch(UAVariableType.class::isInstance);
+    boolean dataTypes = layerNodes.stream().anyMatch(UADataType.class::isInstance);
+    typeTreesFactory =
+        () ->
+            parent
+                .getTypeTrees()
+                .rebuild(this, referenceTypes, objectTypes, variableTypes, dataTypes);
+  }
 
-                  modelRolePermissions.ifPresent(node::setRolePermissions);
-                }
-              }
+  private void merge(IndexPartition partition) {
+    nodeMap.putAll(partition.nodeMap);
 
-              // Maybe set AccessRestrictions from the model
-              if (node.getAccessRestrictions() == null) {
-                Optional<Integer> modelAccessRestrictions =
-                    accessRestrictionsByModelUri.computeIfAbsent(
-                        getNamespaceUri(nodeId),
-                        namespaceUri -> {
-                          Optional<ModelTableEntry> modelTableEntry =
-                              nodeSet.getModels().getModel().stream()
-                                  .filter(e -> namespaceUri.equals(e.getModelUri()))
-                                  .findFirst();
-
-                          return modelTableEntry.flatMap(
-                              e -> Optional.of(e.getAccessRestrictions()));
-                        });
-
-                modelAccessRestrictions.ifPresent(node::setAccessRestrictions);
-              }
+    partition.explicitReferences.forEach(
+        (nodeId, references) ->
+            explicitReferences.computeIfAbsent(nodeId, k -> new ArrayList<>()).addAll(references));
 
-              nodeMap.put(nodeId, node);
-
-              ListOfReferences references = node.getReferences();
-
-              // resolve Reference aliases and add explicit/implicit References
-              if (references != null) {
-                references
-                    .getReference()
-                    .forEach(
-                        reference -> {
-                          reference.setValue(resolveAlias(reference.getValue()));
-                          reference.setReferenceType(resolveAlias(reference.getReferenceType()));
-                          explicitReferences
-                              .computeIfAbsent(nodeId, k -> new ArrayList<>())
-                              .add(reference);
-                          var inverse = new Reference();
-                          inverse.setValue(node.getNodeId());
-                          inverse.setIsForward(!reference.isIsForward());
-                          inverse.setReferenceType(reference.getReferenceType());
-                          implicitReferences
-                              .computeIfAbsent(
-                                  NodeIdUtil.parse(reference.getValue()), k -> new ArrayList<>())
-                              .add(inverse);
-                        });
-              }
-            });
+    partition.implicitReferences.forEach(
+        (nodeId, references) ->
+            implicitReferences.computeIfAbsent(nodeId, k -> new ArrayList<>()).addAll(references));
   }
 
   /**
@@ -278,6 +361,122 @@ public class NodeSet implements NodeSetContext {
     return implicitReferences.getOrDefault(nodeId, Collections.emptyList());
   }
 
+  /**
+   * Visit the references of a node that match {@code filter}.
+   *
+   * <p>The explicit and implicit reference lists are iterated directly. Duplicates between them
+   * are skipped as in {@link #getReferences(NodeId)}, but only references that pass {@code filter}
+   * are tracked, so no combined list is built or cached.
+   *
+   * @param nodeId the NodeId of the node to inspect.
+   * @param filter selects the references to visit.
+   * @param action invoked once for each matching reference.
+   */
+  @Override
+  public void forEachReference(
+      NodeId nodeId, Predicate<? super Reference> filter, Consumer<? super Reference> action) {
+
+    List<Reference> combined = combinedReferences.getIfPresent(nodeId);
+    if (combined != null) {
+      for (Reference reference : combined) {
+        if (filter.test(reference)) {
+          action.accept(reference);
+        }
+      }
+      return;
+    }
+
+    Reference first = null;
+    Set<ReferenceWrapper> visited = null;
+
+    for (List<Reference> references :
+        List.of(getExplicitReferences(nodeId), getImplicitReferences(nodeId))) {
+
+      for (Reference reference : references) {
+        if (!filter.test(reference)) {
+          continue;
+        }
+
+        if (first == null) {
+          first = reference;
+        } else {
+          if (visited == null) {
+            visited = new HashSet<>();
+            visited.add(new ReferenceWrapper(first));
+          }
+          if (!visited.add(new ReferenceWrapper(reference))) {
+            continue;
+          }
+        }
+        action.accept(reference);
+      }
+    }
+  }
+
+  /**
+   * Check whether a node has a reference matching {@code predicate}, stopping at the first match.
+   *
+   * @param nodeId the NodeId of the node to inspect.
+   * @param predicate the condition to test.
+   * @return {@code true} if any of the node's explicit or implicit references matches.
+   */
+  @Override
+  public boolean anyReference(NodeId nodeId, Predicate<? super Reference> predicate) {
+    return find(nodeId, predicate) != null;
+  }
+
+  /**
+   * Find the first reference of a node that matches {@code predicate}, stopping at the first match.
+   *
+   * @param nodeId the NodeId of the node to inspect.
+   * @param predicate the condition to test.
+   * @return the first matching reference in {@link #getReferences(NodeId)} order, or an empty value
+   *     if none matches.
+   */
+  @Override
+  public Optional<Reference> findReference(NodeId nodeId, Predicate<? super Reference> predicate) {
+    return Optional.ofNullable(find(nodeId, predicate));
+  }
+
+  private @Nullable Reference find(NodeId nodeId, Predicate<? super Reference> predicate) {
+    // the first match is the same as in the combined list, which keeps first occurrences
+    for (Reference reference : getExplicitReferences(nodeId)) {
+      if (predicate.test(reference)) {
+        return reference;
+      }
+    }
+    for (Reference reference : getImplicitReferences(nodeId)) {
+      if (predicate.test(reference)) {
+        return reference;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Apply a delta and return the result as a new {@link NodeSet}.
+   *
+   * <p>This NodeSet is not modified. The new NodeSet layers the delta's changes over this NodeSet's
+   * node, reference, and alias maps and node list instead of copying them, so applying a delta
+   * costs time in proportion to the delta rather than to the model. Nodes whose references change
+   * are copied before they are modified.
+   *
+   * <p>Type trees are reused unless the delta changes a type of their kind or a {@code HasSubtype}
+   * reference, and the DataType tree is also rebuilt when an encoding Object or a {@code
+   * HasEncoding} reference changes. Attribute indexes and the index of instances by type that this
+   * NodeSet has built are updated for the changed nodes on first use, InstanceDeclarations are
+   * shared unless the delta changes a type or an InstanceDeclaration, and the reference graph is
+   * shared if no node or reference changes. Everything else is rebuilt lazily on first use.
+   *
+   * @param delta the changes to apply.
+   * @return a new NodeSet with the changes applied, or this NodeSet if {@code delta} is empty.
+   * @throws IllegalArgumentException if a change adds a node that already exists, refers to a node
+   *     that does not exist, or uses a namespace index that is not in the URI table.
+   */
+  public NodeSet apply(NodeSetDelta delta) {
+    return delta.isEmpty() ? this : new NodeSet(this, delta);
+  }
+
   /**
    * Get an instance's direct type followed by every known supertype in model namespace space.
    *
@@ -333,39 +532,1032 @@ public class NodeSet implements NodeSetContext {
     }
   }
 
-  private String getNamespaceUri(NodeId nodeId) {
-    int namespaceIndex = nodeId.getNamespaceIndex().intValue();
+  /**
+   * Get every node that is an instance of {@code nodeClass}, in document order.
+   *
+   * <p>Lists for the concrete node classes, such as {@link UADataType} or {@link UAObjectType},
+   * are built once when the indexes are first used. Lists for abstract classes such as {@link
+   * UAType} or {@link UAInstance} are built on first request and cached.
+   *
+   * @param nodeClass the JAXB node class to select.
+   * @param <T> the JAXB node class.
+   * @return an immutable list of matching nodes.
+   */
+  public <T extends UANode> List<T> getNodes(Class<T> nodeClass) {
+    return getIndexes().getNodes(nodeClass);
+  }
+
+  /**
+   * Get every node with the given BrowseName.
+   *
+   * <p>BrowseNames use the UANodeSet {@code index:name} spelling in this NodeSet's namespace space.
+   * Namespace-zero names match with or without an explicit {@code 0:} prefix.
+   *
+   * @param browseName the BrowseName to look up, e.g. {@code Server} or {@code 2:Device}.
+   * @return an immutable list of matching nodes, in document order.
+   */
+  public List<UANode> getNodesByBrowseName(String browseName) {
+    return getIndexes().getNodesByBrowseName(browseName);
+  }
+
+  /**
+   * Get every node in a namespace with the given SymbolicName.
+   *
+   * <p>Nodes without an explicit SymbolicName are indexed by the name part of their BrowseName, as
+   * specified for the UANodeSet schema. SymbolicNames are only unique among siblings, so more than
+   * one node may match.
+   *
+   * @param namespaceUri the namespace URI of the nodes to look up.
+   * @param symbolicName the SymbolicName to look up.
+   * @return an immutable list of matching nodes, in document order, or an empty list when the
+   *     namespace is not part of this NodeSet.
+   */
+  public List<UANode> getNodesBySymbolicName(String namespaceUri, String symbolicName) {
+    int namespaceIndex = getNamespaceIndex(namespaceUri);
+
+    return namespaceIndex >= 0
+        ? getIndexes().getNodesBySymbolicName(namespaceIndex, symbolicName)
+        : List.of();
+  }
+
+  /**
+   * Get every node with a DisplayName, in any locale, whose text equals {@code displayName}.
+   *
+   * @param displayName the DisplayName text to look up.
+   * @return an immutable list of matching nodes, in document order.
+   */
+  public List<UANode> getNodesByDisplayName(String displayName) {
+    return getIndexes().getNodesByDisplayName(displayName);
+  }
+
+  /**
+   * Get every node whose NodeId belongs to a namespace.
+   *
+   * @param namespaceUri the namespace URI to select.
+   * @return an immutable list of nodes in the namespace, in document order, or an empty list when
+   *     the namespace is not part of this NodeSet.
+   */
+  public List<UANode> getNodesInNamespace(String namespaceUri) {
+    return getNodesInNamespace(getNamespaceIndex(namespaceUri));
+  }
+
+  /**
+   * Get every node whose NodeId uses a namespace index from this NodeSet's URI table.
+   *
+   * @param namespaceIndex the model-space namespace index to select.
+   * @return an immutable list of nodes in the namespace, in document order.
+   */
+  public List<UANode> getNodesInNamespace(int namespaceIndex) {
+    return getIndexes().getNodesInNamespace(namespaceIndex);
+  }
+
+  /**
+   * Create a traversal that follows forward references of the given ReferenceTypes and their
+   * subtypes, depth-first, without a depth limit.
+   *
+   * <p>For example, {@code traversal(List.of(NodeIds.HierarchicalReferences))} walks the instance
+   * hierarchy below a node. The returned {@link NodeSetTraversal} can be reconfigured for
+   * breadth-first order, a depth limit, or inverse references.
+   *
+   * @param referenceTypeIds the ReferenceTypes to follow, including their subtypes.
+   * @return a new {@link NodeSetTraversal} over this NodeSet.
+   */
+  public NodeSetTraversal traversal(Collection<NodeId> referenceTypeIds) {
+    return NodeSetTraversal.create(this, referenceTypeIds, true);
+  }
+
+  /**
+   * Create a memoized closure over forward references of the given ReferenceTypes and their
+   * subtypes.
+   *
+   * <p>For example, {@code closure(List.of(NodeIds.HasSubtype))} answers whether one type is a
+   * transitive subtype of another and enumerates all subtypes of a type.
+   *
+   * @param referenceTypeIds the ReferenceTypes to follow, including their subtypes.
+   * @return a new {@link NodeSetClosure} over this NodeSet.
+   */
+  public NodeSetClosure closure(Collection<NodeId> referenceTypeIds) {
+    return NodeSetClosure.create(this, referenceTypeIds, true, true);
+  }
+
+  /**
+   * Extract the instance subtrees below {@code rootIds}, and everything they depend on, into a new
+   * {@code NodeSet}.
+   *
+   * <p>See {@link NodeSetSlicer} for what a slice contains. This NodeSet is not modified.
+   *
+   * @param rootIds the NodeIds of the subtree roots.
+   * @return a new, smaller {@link NodeSet} with the same namespace table.
+   */
+  public NodeSet slice(Collection<NodeId> rootIds) {
+    return new NodeSet(NodeSetSlicer.create(this).slice(rootIds));
+  }
+
+  /**
+   * Extract the nodes matching {@code selector}, and everything they depend on, into a new {@code
+   * NodeSet}.
+   *
+   * <p>See {@link NodeSetSlicer} for what a slice contains. This NodeSet is not modified.
+   *
+   * @param selector the predicate selecting nodes.
+   * @return a new, smaller {@link NodeSet} with the same namespace table.
+   */
+  public NodeSet slice(Predicate<? super UANode> selector) {
+    return new NodeSet(NodeSetSlicer.create(this).slice(selector));
+  }
+
+  /**
+   * Get the flattened InstanceDeclaration hierarchy of an ObjectType or VariableType.
+   *
+   * <p>Declarations are computed once per type and cached. A type's result references its
+   * supertype's result rather than copying inherited declarations, so the hierarchy of a deep type
+   * costs only its own declarations.
+   *
+   * @param typeId the NodeId of the ObjectType or VariableType.
+   * @return the type's InstanceDeclarations, or {@code null} if {@code typeId} is not a known
+   *     ObjectType or VariableType.
+   * @throws IllegalStateException if the known ObjectType or VariableType model contains a cycle or
+   *     a type with multiple supertypes.
+   */
+  public @Nullable InstanceDeclarations getInstanceDeclarations(NodeId typeId) {
+    InstanceDeclarations declarations = instanceDeclarations.get(typeId);
+    if (declarations != null) {
+      return declarations;
+    }
+
+    TypeInfo<?> typeInfo = getObjectTypeTree().getTypeInfo(typeId);
+    if (typeInfo == null) {
+      typeInfo = getVariableTypeTree().getTypeInfo(typeId);
+    }
+    if (typeInfo == null) {
+      return null;
+    }
+
+    // Build missing ancestors root-first so each type links to its supertype's cached result.
+    Deque<TypeInfo<?>> missing = new ArrayDeque<>();
+    InstanceDeclarations supertype = null;
+    for (TypeInfo<?> t = typeInfo; t != null; t = t.getParent()) {
+      InstanceDeclarations cached = instanceDeclarations.get(typeIdOf(t));
+      if (cached != null) {
+        supertype = cached;
+        break;
+      }
+      missing.push(t);
+    }
+
+    for (TypeInfo<?> t : missing) {
+      NodeId id = typeIdOf(t);
+      InstanceDeclarations built = InstanceDeclarations.build(this, id, supertype);
+      InstanceDeclarations existing = instanceDeclarations.putIfAbsent(id, built);
+      supertype = existing != null ? existing : built;
+    }
+
+    return supertype;
+  }
+
+  /**
+   * Get the flattened InstanceDeclaration hierarchy of an ObjectType or VariableType.
+   *
+   * @param typeId the parseable NodeId of the ObjectType or VariableType.
+   * @return the type's InstanceDeclarations, or {@code null} if {@code typeId} is not a known
+   *     ObjectType or VariableType.
+   * @throws IllegalStateException if the known ObjectType or VariableType model contains a cycle or
+   *     a type with multiple supertypes.
+   */
+  public @Nullable InstanceDeclarations getInstanceDeclarations(String typeId) {
+    return getInstanceDeclarations(resolveNodeId(typeId));
+  }
+
+  /**
+   * Get every Object or Variable whose type definition is {@code typeId} or, with {@link
+   * TypeMatch#INCLUDE_SUBTYPES}, one of its subtypes.
+   *
+   * <p>Results come from an index of instances by direct type definition that is built once, on
+   * first use. Subtypes are read from the pre-order subtype slice of the ObjectType or VariableType
+   * tree, so only the instances of matching types are visited. A type that is absent from both
+   * trees matches only its direct instances.
+   *
+   * @param typeId the NodeId of the ObjectType or VariableType.
+   * @param typeMatch whether instances of subtypes also match.
+   * @return an immutable list of matching instances: the instances of {@code typeId} followed by
+   *     those of its subtypes in pre-order, each group in document order.
+   * @throws IllegalStateException if the known ObjectType or VariableType model contains a cycle or
+   *     a type with multiple supertypes.
+   */
+  public List<UANode> getInstancesOf(NodeId typeId, TypeMatch typeMatch) {
+    Map<NodeId, List<UANode>> instances = getInstancesByType();
+
+    if (typeMatch == TypeMatch.EXACT) {
+      return instances.getOrDefault(typeId, List.of());
+    }
+
+    List<NodeId> subtypes;
+    if (getObjectTypeTree().getTypeInfo(typeId) != null) {
+      subtypes = getObjectTypeTree().getSubtypes(typeId);
+    } else if (getVariableTypeTree().getTypeInfo(typeId) != null) {
+      subtypes = getVariableTypeTree().getSubtypes(typeId);
+    } else {
+      subtypes = List.of();
+    }
+
+    List<UANode> direct = instances.getOrDefault(typeId, List.of());
+    if (subtypes.isEmpty()) {
+      return direct;
+    }
+
+    var matches = new ArrayList<UANode>(direct);
+    for (NodeId subtype : subtypes) {
+      matches.addAll(instances.getOrDefault(subtype, List.of()));
+    }
+    return Collections.unmodifiableList(matches);
+  }
 
-    return nodeSet.getNamespaceUris().getUri().get(namespaceIndex);
+  /**
+   * Get every Object or Variable whose type definition is {@code typeId} or, with {@link
+   * TypeMatch#INCLUDE_SUBTYPES}, one of its subtypes.
+   *
+   * @param typeId the parseable NodeId or alias of the ObjectType or VariableType.
+   * @param typeMatch whether instances of subtypes also match.
+   * @return an immutable list of matching instances.
+   * @throws IllegalStateException if the known ObjectType or VariableType model contains a cycle or
+   *     a type with multiple supertypes.
+   */
+  public List<UANode> getInstancesOf(String typeId, TypeMatch typeMatch) {
+    return getInstancesOf(resolveNodeId(typeId), typeMatch);
   }
 
-  private synchronized ObjectTypeInfoTree getObjectTypeTree() {
-    if (objectTypeTree == null) {
-      objectTypeTree = ObjectTypeInfoTree.create(this);
+  /**
+   * Get the index of instances by direct type definition, building it on first use.
+   *
+   * <p>No lock is taken: threads that race on the first call may each build the index, and all of
+   * them return the instance that was published first.
+   */
+  private Map<NodeId, List<UANode>> getInstancesByType() {
+    Map<NodeId, List<UANode>> instances = instancesByType.get();
+    if (instances == null) {
+      Map<NodeId, List<UANode>> built = instancesByTypeFactory.get();
+      instances = instancesByType.compareAndSet(null, built) ? built : instancesByType.get();
     }
-    return objectTypeTree;
+    return instances;
   }
 
-  private synchronized VariableTypeInfoTree getVariableTypeTree() {
-    if (variableTypeTree == null) {
-      variableTypeTree = VariableTypeInfoTree.create(this);
+  private Map<NodeId, List<UANode>> buildInstancesByType() {
+    var instances = new HashMap<NodeId, List<UANode>>();
+
+    for (UANode node : nodeSet.getUAObjectOrUAVariableOrUAMethod()) {
+      if (node instanceof UAObject || node instanceof UAVariable) {
+        getTypeDefinition(node)
+            .ifPresent(
+                typeId -> instances.computeIfAbsent(typeId, k -> new ArrayList<>()).add(node));
+      }
     }
-    return variableTypeTree;
+
+    instances.replaceAll((k, v) -> List.copyOf(v));
+    return instances;
   }
 
-  private NodeId resolveNodeId(String nodeIdOrAlias) {
-    return NodeIdUtil.parse(resolveAlias(nodeIdOrAlias));
+  /**
+   * Derive the index of instances by type from the index of the NodeSet a delta was applied to.
+   *
+   * @param base the NodeSet the delta was applied to.
+   * @param instances the index of {@code base}.
+   * @param changes the nodes whose type definitions may have changed.
+   */
+  private Map<NodeId, List<UANode>> updateInstancesByType(
+      NodeSet base, Map<NodeId, List<UANode>> instances, List<NodeSetIndexes.Change> changes) {
+
+    var rescans = new HashSet<NodeId>();
+    OverlayMap<NodeId, List<UANode>> updated =
+        NodeSetIndexes.patch(
+            instances, changes, base::getTypeDefinitionKeys, this::getTypeDefinitionKeys, rescans);
+
+    if (!rescans.isEmpty()) {
+      var lists = new HashMap<NodeId, List<UANode>>();
+      for (UANode node : nodeSet.getUAObjectOrUAVariableOrUAMethod()) {
+        NodeSetIndexes.collect(node, getTypeDefinitionKeys(node), rescans, lists);
+      }
+      NodeSetIndexes.replace(updated, rescans, lists);
+    }
+
+    return updated;
+  }
+
+  private Collection<NodeId> getTypeDefinitionKeys(UANode node) {
+    return getTypeDefinition(node).map(List::of).orElse(List.of());
+  }
+
+  private NodeId typeIdOf(TypeInfo<?> typeInfo) {
+    return nodeIds.parse(typeInfo.getTypeNode().getNodeId());
+  }
+
+  private int getNamespaceIndex(String namespaceUri) {
+    return nodeSet.getNamespaceUris().getUri().indexOf(namespaceUri);
+  }
+
+  @Override
+  public @Nullable ModelTableEntry getModel(int namespaceIndex) {
+    ModelTableEntry[] models = getModelsByNamespaceIndex();
+
+    return namespaceIndex >= 0 && namespaceIndex < models.length ? models[namespaceIndex] : null;
+  }
+
+  /**
+   * Get the model table entries by namespace index, building them on first use.
+   *
+   * <p>Only a call that finds the table unbuilt takes a lock; once it is published, calls read the
+   * volatile field without locking.
+   */
+  private ModelTableEntry[] getModelsByNamespaceIndex() {
+    ModelTableEntry[] models = modelsByNamespaceIndex;
+    if (models == null) {
+      synchronized (this) {
+        models = modelsByNamespaceIndex;
+        if (models == null) {
+          List<String> namespaceUris = nodeSet.getNamespaceUris().getUri();
+          models = new ModelTableEntry[namespaceUris.size()];
+
+          for (int i = 0; i < models.length; i++) {
+            models[i] = NodeSetContext.super.getModel(i);
+          }
+          modelsByNamespaceIndex = models;
+        }
+      }
+    }
+    return models;
+  }
+
+  /**
+   * Get the lookup indexes, building them on first use.
+   *
+   * <p>Only a call that finds the indexes unbuilt takes a lock, so they are built once; once they
+   * are published, calls read the volatile field without locking.
+   */
+  private NodeSetIndexes getIndexes() {
+    NodeSetIndexes built = indexes;
+    if (built == null) {
+      synchronized (this) {
+        built = indexes;
+        if (built == null) {
+          indexes = built = indexesFactory.get();
+        }
+      }
+    }
+    return built;
+  }
+
+  private NodeSetIndexes buildIndexes() {
+    return new NodeSetIndexes(
+        nodeSet.getUAObjectOrUAVariableOrUAMethod(),
+        nodeSet.getNamespaceUris().getUri().size(),
+        nodeIds::parse);
+  }
+
+  int getExplicitReferenceKeyCount() {
+    return explicitReferences.size();
+  }
+
+  int getImplicitReferenceKeyCount() {
+    return implicitReferences.size();
+  }
+
+  int getImplicitReferenceCount() {
+    return implicitReferences.values().stream().mapToInt(List::size).sum();
+  }
+
+  Set<NodeId> getImplicitReferenceKeys() {
+    return Collections.unmodifiableSet(implicitReferences.keySet());
+  }
+
+  /**
+   * Get the dense reference graph, building it on first use.
+   *
+   * <p>Only a call that finds the graph unbuilt takes a lock, so it is built once; once it is
+   * published, calls read the volatile field without locking.
+   */
+  NodeSetGraph getGraph() {
+    NodeSetGraph built = graph;
+    if (built == null) {
+      synchronized (this) {
+        built = graph;
+        if (built == null) {
+          graph = built = NodeSetGraph.build(this);
+        }
+      }
+    }
+    return built;
+  }
+
+  /**
+   * Get the reference type hierarchy rooted at {@code References}.
+   *
+   * <p>The four type hierarchies are built together, from one pass over the nodes, on the first
+   * call to any of their getters and cached for the lifetime of this NodeSet.
+   *
+   * @return the reference type tree.
+   * @throws IllegalStateException if a type hierarchy is invalid.
+   */
+  public ReferenceTypeInfoTree getReferenceTypeTree() {
+    return getTypeTrees().referenceTypeTree();
+  }
+
+  /**
+   * Get the object type hierarchy rooted at {@code BaseObjectType}.
+   *
+   * @return the object type tree.
+   * @throws IllegalStateException if a type hierarchy is invalid.
+   * @see #getReferenceTypeTree()
+   */
+  public ObjectTypeInfoTree getObjectTypeTree() {
+    return getTypeTrees().objectTypeTree();
+  }
+
+  /**
+   * Get the variable type hierarchy rooted at {@code BaseVariableType}.
+   *
+   * @return the variable type tree.
+   * @throws IllegalStateException if a type hierarchy is invalid.
+   * @see #getReferenceTypeTree()
+   */
+  public VariableTypeInfoTree getVariableTypeTree() {
+    return getTypeTrees().variableTypeTree();
+  }
+
+  /**
+   * Get the datatype hierarchy rooted at {@code BaseDataType}.
+   *
+   * @return the datatype tree.
+   * @throws IllegalStateException if a type hierarchy is invalid.
+   * @see #getReferenceTypeTree()
+   */
+  public DataTypeInfoTree getDataTypeTree() {
+    return getTypeTrees().dataTypeTree();
+  }
+
+  /**
+   * Get the type trees, building them on first use.
+   *
+   * <p>No lock is taken: threads that race on the first call may each build the trees, and all of
+   * them return the instance that was published first.
+   */
+  private TypeTrees getTypeTrees() {
+    TypeTrees trees = typeTrees.get();
+    if (trees == null) {
+      TypeTrees built = typeTreesFactory.get();
+      trees = typeTrees.compareAndSet(null, built) ? built : typeTrees.get();
+    }
+    return trees;
+  }
+
+  void initTypeTrees(TypeTrees trees) {
+    typeTrees.compareAndSet(null, trees);
+  }
+
+  /**
+   * Parse a NodeId string or alias of this NodeSet.
+   *
+   * <p>Aliases are resolved through this NodeSet's alias table, and NodeIds that appear in the
+   * model are returned as the instances interned while indexing, so repeated calls for the same
+   * string do not parse it again.
+   *
+   * @param nodeIdOrAlias the parseable NodeId or alias.
+   * @return the parsed NodeId.
+   */
+  public NodeId resolveNodeId(String nodeIdOrAlias) {
+    return nodeIds.parse(resolveAlias(nodeIdOrAlias));
+  }
+
+  /**
+   * Parse a NodeId string of this NodeSet, reusing the instance interned while indexing.
+   *
+   * <p>Unlike {@link #resolveNodeId(String)}, aliases are not resolved; use this for strings read
+   * from the normalized nodes.
+   */
+  NodeId parseNodeId(String nodeId) {
+    return nodeIds.parse(nodeId);
+  }
+
+  int getInternedNodeIdCount() {
+    return nodeIds.size();
   }
 
   private String resolveAlias(String nodeIdOrAlias) {
     return aliases.getOrDefault(nodeIdOrAlias, nodeIdOrAlias);
   }
 
+  /**
+   * Normalizes a contiguous run of nodes and records them in node and reference maps.
+   *
+   * <p>Partitions read only state that is fully initialized before indexing starts, so separate
+   * partitions may be indexed concurrently.
+   */
+  private class IndexPartition {
+
+    private final Map<NodeId, UANode> nodeMap;
+    private final Map<NodeId, List<Reference>> explicitReferences;
+    private final Map<NodeId, List<Reference>> implicitReferences;
+
+    private IndexPartition() {
+      this(new HashMap<>(), new HashMap<>(), new HashMap<>());
+    }
+
+    private IndexPartition(
+        Map<NodeId, UANode> nodeMap,
+        Map<NodeId, List<Reference>> explicitReferences,
+        Map<NodeId, List<Reference>> implicitReferences) {
+
+      this.nodeMap = nodeMap;
+      this.explicitReferences = explicitReferences;
+      this.implicitReferences = implicitReferences;
+    }
+
+    private void index(List<UANode> nodes) {
+      nodes.forEach(this::index);
+    }
+
+    private void index(UANode node) {
+      node.setNodeId(resolveAlias(node.getNodeId()));
+      NodeId nodeId = nodeIds.intern(node.getNodeId());
+
+      if (node instanceof UADataType dataType) {
+        DataTypeDefinition definition = dataType.getDefinition();
+
+        if (definition != null) {
+          definition
+              .getField()
+              .forEach(field -> field.setDataType(resolveAlias(field.getDataType())));
+        }
+      }
+
+      if (node instanceof UAVariable variable) {
+        variable.setDataType(resolveAlias(variable.getDataType()));
+      }
+
+      if (node instanceof UAVariableType variableType) {
+        variableType.setDataType(resolveAlias(variableType.getDataType()));
+      }
+
+      // TODO other nodes with aliases that need resolving?
+
+      nodeMap.put(nodeId, node);
+
+      ListOfReferences references = node.getReferences();
+
+      // resolve Reference aliases and add explicit/implicit References
+      if (references != null) {
+        references
+            .getReference()
+            .forEach(
+                reference -> {
+                  reference.setValue(resolveAlias(reference.getValue()));
+                  reference.setReferenceType(resolveAlias(reference.getReferenceType()));
+                  nodeIds.intern(reference.getReferenceType());
+                  explicitReferences.computeIfAbsent(nodeId, k -> new ArrayList<>()).add(reference);
+                  var inverse = new Reference();
+                  inverse.setValue(node.getNodeId());
+                  inverse.setIsForward(!reference.isIsForward());
+                  inverse.setReferenceType(reference.getReferenceType());
+                  implicitReferences
+                      .computeIfAbsent(
+                          nodeIds.intern(reference.getValue()), k -> new ArrayList<>())
+                      .add(inverse);
+                });
+      }
+    }
+  }
+
+  /**
+   * Applies the changes of a {@link NodeSetDelta} to the maps of a NodeSet under construction.
+   *
+   * <p>The maps start out as empty {@link OverlayMap} layers over the base NodeSet's maps, so their
+   * nodes and reference lists are shared with the base. Each node and list is copied the first time
+   * it is modified, after which it is owned by the new NodeSet and modified in place. The derived
+   * indexes and caches of the base are then reused, updated, or discarded according to what the
+   * changes touched.
+   */
+  private class DeltaApplication {
+
+    private final NodeSet base;
+    private final OverlayMap<NodeId, UANode> nodes;
+    private final OverlayMap<NodeId, List<Reference>> explicit;
+    private final OverlayMap<NodeId, List<Reference>> implicit;
+
+    private final Set<NodeId> ownedNodes = new HashSet<>();
+    private final Set<NodeId> ownedExplicit = new HashSet<>();
+    private final Set<NodeId> ownedImplicit = new HashSet<>();
+
+    private final Set<String> addedAliases = new LinkedHashSet<>();
+
+    private boolean objectTypesChanged;
+    private boolean variableTypesChanged;
+    private boolean referenceTypesChanged;
+    private boolean dataTypesChanged;
+    private boolean declarationsChanged;
+
+    private DeltaApplication(
+        NodeSet base,
+        OverlayMap<NodeId, UANode> nodes,
+        OverlayMap<NodeId, List<Reference>> explicit,
+        OverlayMap<NodeId, List<Reference>> implicit) {
+
+      this.base = base;
+      this.nodes = nodes;
+      this.explicit = explicit;
+      this.implicit = implicit;
+
+      // there is nothing to share if the base has not computed any InstanceDeclarations yet
+      this.declarationsChanged = base.instanceDeclarations.isEmpty();
+    }
+
+    private void apply(NodeSetDelta.Change change) {
+      if (change instanceof NodeSetDelta.AddNode c) {
+        NodeId nodeId = nodeIds.intern(resolveAlias(c.node().getNodeId()));
+        if (nodeMap.containsKey(nodeId)) {
+          throw new IllegalArgumentException("node already exists: " + nodeId);
+        }
+        index(c.node(), nodeId);
+      } else if (change instanceof NodeSetDelta.ReplaceNode c) {
+        NodeId nodeId = nodeIds.intern(resolveAlias(c.node().getNodeId()));
+        typeChanged(getExisting(nodeId));
+        removeDeclaredReferences(nodeId);
+        nodeMap.remove(nodeId);
+        index(c.node(), nodeId);
+      } else if (change instanceof NodeSetDelta.RemoveNode c) {
+        removeNode(c.nodeId());
+      } else if (change instanceof NodeSetDelta.AddReference c) {
+        addReference(c.sourceId(), c.reference());
+      } else if (change instanceof NodeSetDelta.RemoveReference c) {
+        removeExplicit(c.sourceId(), c.referenceTypeId(), c.targetId(), c.forward());
+        removeExplicit(c.targetId(), c.referenceTypeId(), c.sourceId(), !c.forward());
+      } else if (change instanceof NodeSetDelta.AddAlias c) {
+        aliases.put(c.alias(), c.nodeId());
+        addedAliases.add(c.alias());
+      }
+    }
+
+    private void index(UANode node, NodeId nodeId) {
+      if (nodeId.getNamespaceIndex().intValue() >= nodeSet.getNamespaceUris().getUri().size()) {
+        throw new IllegalArgumentException("unknown namespace index: " + nodeId);
+      }
+
+      // IndexPartition appends to the reference lists, so take ownership of them first.
+      ownExplicit(nodeId);
+      ListOfReferences references = node.getReferences();
+      if (references != null) {
+        for (Reference reference : references.getReference()) {
+          ownImplicit(nodeIds.intern(resolveAlias(reference.getValue())));
+        }
+      }
+
+      new IndexPartition(nodeMap, explicitReferences, implicitReferences).index(node);
+
+      if (references != null) {
+        references.getReference().forEach(r -> referenceChanged(nodeId, r));
+      }
+      ownedNodes.add(nodeId);
+      typeChanged(node);
+    }
+
+    private void removeNode(NodeId nodeId) {
+      typeChanged(getExisting(nodeId));
+      removeDeclaredReferences(nodeId);
+
+      // references that other nodes declare to this one
+      for (Reference inverse : List.copyOf(getImplicitReferences(nodeId))) {
+        removeExplicit(
+            nodeIds.parse(inverse.getValue()),
+            nodeIds.parse(inverse.getReferenceType()),
+            nodeId,
+            !inverse.isIsForward());
+      }
+      implicitReferences.remove(nodeId);
+
+      nodeMap.remove(nodeId);
+      ownedNodes.remove(nodeId);
+    }
+
+    private void addReference(NodeId sourceId, Reference declared) {
+      UANode source = ownNode(sourceId);
+
+      var reference = new Reference();
+      reference.setReferenceType(resolveAlias(declared.getReferenceType()));
+      reference.setValue(resolveAlias(declared.getValue()));
+      reference.setIsForward(declared.isIsForward());
+
+      if (source.getReferences() == null) {
+        source.setReferences(new ListOfReferences());
+      }
+      source.getReferences().getReference().add(reference);
+      ownExplicit(sourceId);
+      explicitReferences.computeIfAbsent(sourceId, k -> new ArrayList<>()).add(reference);
+
+      var inverse = new Reference();
+      inverse.setValue(source.getNodeId());
+      inverse.setIsForward(!reference.isIsForward());
+      inverse.setReferenceType(reference.getReferenceType());
+      NodeId targetId = nodeIds.intern(reference.getValue());
+      nodeIds.intern(reference.getReferenceType());
+      ownImplicit(targetId);
+      implicitReferences.computeIfAbsent(targetId, k -> new ArrayList<>()).add(inverse);
+
+      referenceChanged(sourceId, reference);
+    }
+
+    /** Remove a node's explicit references and the inverses synthesized from them. */
+    private void removeDeclaredReferences(NodeId nodeId) {
+      for (Reference reference : getExplicitReferences(nodeId)) {
+        removeImplicit(
+            nodeIds.parse(reference.getValue()),
+            nodeIds.parse(reference.getReferenceType()),
+            nodeId,
+            !reference.isIsForward());
+        referenceChanged(nodeId, reference);
+      }
+      explicitReferences.remove(nodeId);
+    }
+
+    /** Remove references declared on {@code sourceId}, and their inverses on {@code targetId}. */
+    private void removeExplicit(
+        NodeId sourceId, NodeId referenceTypeId, NodeId targetId, boolean forward) {
+
+      if (getExplicitReferences(sourceId).stream()
+          .noneMatch(r -> matches(r, referenceTypeId, targetId, forward))) {
+        return;
+      }
+
+      UANode source = ownNode(sourceId);
+      if (source.getReferences() != null) {
+        source
+            .getReferences()
+            .getReference()
+            .removeIf(r -> matches(r, referenceTypeId, targetId, forward));
+      }
+      ownExplicit(sourceId);
+      removeFrom(explicitReferences, sourceId, referenceTypeId, targetId, forward);
+
+      removeImplicit(targetId, referenceTypeId, sourceId, !forward);
+      referenceChanged(sourceId, referenceTypeId, targetId, forward);
+    }
+
+    private void removeImplicit(
+        NodeId nodeId, NodeId referenceTypeId, NodeId targetId, boolean forward) {
+
+      ownImplicit(nodeId);
+      removeFrom(implicitReferences, nodeId, referenceTypeId, targetId, forward);
+    }
+
+    private void removeFrom(
+        Map<NodeId, List<Reference>> references,
+        NodeId nodeId,
+        NodeId referenceTypeId,
+        NodeId targetId,
+        boolean forward) {
+
+      List<Reference> list = references.get(nodeId);
+      if (list != null) {
+        list.removeIf(r -> matches(r, referenceTypeId, targetId, forward));
+        if (list.isEmpty()) {
+          references.remove(nodeId);
+        }
+      }
+    }
+
+    private boolean matches(
+        Reference reference, NodeId referenceTypeId, NodeId targetId, boolean forward) {
+
+      return reference.isIsForward() == forward
+          && nodeIds.parse(reference.getValue()).equals(targetId)
+          && nodeIds.parse(reference.getReferenceType()).equals(referenceTypeId);
+    }
+
+    private UANode getExisting(NodeId nodeId) {
+      UANode node = nodeMap.get(nodeId);
+      if (node == null) {
+        throw new IllegalArgumentException("unknown node: " + nodeId);
+      }
+      return node;
+    }
+
+    /**
+     * Get a node that may be modified in place, copying it first if it is still shared with the
+     * base NodeSet.
+     */
+    private UANode ownNode(NodeId nodeId) {
+      UANode node = getExisting(nodeId);
+
+      if (ownedNodes.add(nodeId)) {
+        node = OffHeapNodeCodec.copy(node);
+        nodeMap.put(nodeId, node);
+
+        // the explicit references must be the copy's own Reference objects
+        ownedExplicit.add(nodeId);
+        ListOfReferences references = node.getReferences();
+        if (references != null && !references.getReference().isEmpty()) {
+          explicitReferences.put(nodeId, new ArrayList<>(references.getReference()));
+        } else {
+          explicitReferences.remove(nodeId);
+        }
+
+        typeChanged(node);
+      }
+      return node;
+    }
+
+    private void ownExplicit(NodeId nodeId) {
+      if (ownedExplicit.add(nodeId)) {
+        explicitReferences.computeIfPresent(nodeId, (k, v) -> new ArrayList<>(v));
+      }
+    }
+
+    private void ownImplicit(NodeId nodeId) {
+      if (ownedImplicit.add(nodeId)) {
+        implicitReferences.computeIfPresent(nodeId, (k, v) -> new ArrayList<>(v));
+      }
+    }
+
+    private void typeChanged(UANode node) {
+      if (node instanceof UAObjectType) {
+        objectTypesChanged = true;
+      } else if (node instanceof UAVariableType) {
+        variableTypesChanged = true;
+      } else if (node instanceof UAReferenceType) {
+        referenceTypesChanged = true;
+      } else if (node instanceof UADataType) {
+        dataTypesChanged = true;
+      } else if (node instanceof UAObject
+          && find(nodeIds.parse(node.getNodeId()), r -> isHasEncoding(r.getReferenceType()))
+              != null) {
+        // the StructureLayouts of the DataType tree record the NodeIds of encoding Objects
+        dataTypesChanged = true;
+      }
+
+      // InstanceDeclarations hold the nodes they declare
+      if (!declarationsChanged && isDeclaration(nodeIds.parse(node.getNodeId()))) {
+        declarationsChanged = true;
+      }
+    }
+
+    private void referenceChanged(NodeId sourceId, Reference reference) {
+      referenceChanged(
+          sourceId,
+          nodeIds.parse(reference.getReferenceType()),
+          nodeIds.parse(reference.getValue()),
+          reference.isIsForward());
+    }
+
+    /**
+     * Record which cached results a changed reference invalidates.
+     *
+     * <p>InstanceDeclarations only depend on the modelling rules of nodes, the hierarchical
+     * references leading to a node with a modelling rule, and the type definitions of such nodes.
+     */
+    private void referenceChanged(
+        NodeId sourceId, NodeId referenceType, NodeId targetId, boolean forward) {
+
+      if (referenceType.equals(NodeIds.HasSubtype)) {
+        objectTypesChanged = true;
+        variableTypesChanged = true;
+        referenceTypesChanged = true;
+        dataTypesChanged = true;
+      } else if (referenceType.equals(NodeIds.HasEncoding)) {
+        dataTypesChanged = true;
+      }
+
+      if (declarationsChanged) {
+        return;
+      }
+      if (referenceType.equals(NodeIds.HasModellingRule)) {
+        declarationsChanged = true;
+      } else if (referenceType.equals(NodeIds.HasTypeDefinition)) {
+        declarationsChanged = isDeclaration(forward ? sourceId : targetId);
+      } else if (isHierarchical(referenceType)) {
+        declarationsChanged = isDeclaration(forward ? targetId : sourceId);
+      }
+    }
+
+    private boolean isDeclaration(NodeId nodeId) {
+      return find(
+              nodeId,
+              r ->
+                  r.isIsForward()
+                      && nodeIds.parse(r.getReferenceType()).equals(NodeIds.HasModellingRule))
+          != null;
+    }
+
+    private boolean isHierarchical(NodeId referenceType) {
+      TypeTrees trees = base.typeTrees.get();
+
+      // without the base's ReferenceType tree, any reference may be hierarchical
+      return trees == null
+          || trees
+              .referenceTypeTree()
+              .isTypeOrSubtypeOf(referenceType, NodeIds.HierarchicalReferences);
+    }
+
+    private boolean isHasEncoding(String referenceTypeId) {
+      return nodeIds.parse(referenceTypeId).equals(NodeIds.HasEncoding);
+    }
+
+    private boolean declarationsChanged() {
+      return declarationsChanged
+          || objectTypesChanged
+          || variableTypesChanged
+          || referenceTypesChanged;
+    }
+
+    private void finish() {
+      if (!addedAliases.isEmpty()) {
+        var aliasTable = new AliasTable();
+        var names = new LinkedHashSet<String>();
+        if (base.nodeSet.getAliases() != null) {
+          base.nodeSet.getAliases().getAlias().forEach(a -> names.add(a.getAlias()));
+        }
+        names.addAll(addedAliases);
+        for (String name : names) {
+          var alias = new NodeIdAlias();
+          alias.setAlias(name);
+          alias.setValue(aliases.get(name));
+          aliasTable.getAlias().add(alias);
+        }
+        nodeSet.setAliases(aliasTable);
+      }
+
+      // Trees the delta did not touch are shared with the base, if it has built them.
+      TypeTrees baseTypeTrees = base.typeTrees.get();
+      if (baseTypeTrees != null) {
+        boolean referenceTypes = referenceTypesChanged;
+        boolean objectTypes = objectTypesChanged;
+        boolean variableTypes = variableTypesChanged;
+        boolean dataTypes = dataTypesChanged;
+        typeTreesFactory =
+            () ->
+                baseTypeTrees.rebuild(
+                    NodeSet.this, referenceTypes, objectTypes, variableTypes, dataTypes);
+      }
+
+      // The namespace table is the base's, and so is the graph if no node or reference changed.
+      modelsByNamespaceIndex = base.modelsByNamespaceIndex;
+      if (nodes.getModifiedKeys().isEmpty()
+          && explicit.getModifiedKeys().isEmpty()
+          && implicit.getModifiedKeys().isEmpty()) {
+
+        graph = base.graph;
+      }
+
+      var nodeChanges = new ArrayList<NodeSetIndexes.Change>();
+      for (NodeId nodeId : nodes.getModifiedKeys()) {
+        UANode before = base.nodeMap.get(nodeId);
+        UANode after = nodeMap.get(nodeId);
+        if (before != after) {
+          nodeChanges.add(new NodeSetIndexes.Change(before, after, nodes.isNew(nodeId)));
+        }
+      }
+
+      NodeSetIndexes baseIndexes = base.indexes;
+      if (baseIndexes != null) {
+        indexesFactory =
+            () ->
+                baseIndexes.update(
+                    nodeSet.getUAObjectOrUAVariableOrUAMethod(), nodeChanges, nodeIds::parse);
+      }
+
+      Map<NodeId, List<UANode>> baseInstances = base.instancesByType.get();
+      if (baseInstances != null) {
+        // a type definition may also be an implicit reference declared by another node
+        var instanceChanges = new ArrayList<>(nodeChanges);
+        for (NodeId nodeId : implicit.getModifiedKeys()) {
+          UANode node = nodeMap.get(nodeId);
+          if (node != null && !nodes.isModified(nodeId)) {
+            instanceChanges.add(new NodeSetIndexes.Change(node, node, false));
+          }
+        }
+        instancesByTypeFactory =
+            () -> updateInstancesByType(base, baseInstances, instanceChanges);
+      }
+    }
+  }
+
   private class CombinedReferences {
 
-    private final Map<NodeId, List<Reference>> references = new HashMap<>();
+    private final Map<NodeId, List<Reference>> references = new ConcurrentHashMap<>();
+
+    /** The combined references of the NodeSet a delta was applied to, if any. */
+    private final @Nullable CombinedReferences base;
+
+    private CombinedReferences(@Nullable CombinedReferences base) {
+      this.base = base;
+    }
+
+    private @Nullable List<Reference> getIfPresent(NodeId nodeId) {
+      CombinedReferences shared = getShared(nodeId);
+      return shared != null ? shared.getIfPresent(nodeId) : references.get(nodeId);
+    }
 
     private List<Reference> get(NodeId nodeId) {
+      CombinedReferences shared = getShared(nodeId);
+      if (shared != null) {
+        return shared.get(nodeId);
+      }
+
       return references.computeIfAbsent(
           nodeId,
           id -> {
@@ -376,48 +1568,187 @@ public class NodeSet implements NodeSetContext {
           });
     }
 
-    private static class ReferenceWrapper {
-      private final Reference reference;
+    /** Get the base's combined references if the delta left the node's references unchanged. */
+    private @Nullable CombinedReferences getShared(NodeId nodeId) {
+      if (base != null
+          && explicitReferences instanceof OverlayMap<NodeId, List<Reference>> explicit
+          && implicitReferences instanceof OverlayMap<NodeId, List<Reference>> implicit
+          && !explicit.isModified(nodeId)
+          && !implicit.isModified(nodeId)) {
 
-      private ReferenceWrapper(Reference reference) {
-        this.reference = reference;
+        return base;
       }
+      return null;
+    }
+  }
 
-      public Reference get() {
-        return reference;
+  /**
+   * The node list of a NodeSet derived with {@link #apply(NodeSetDelta)}.
+   *
+   * <p>The list is not copied from the base. It iterates the node list of the NodeSet that the
+   * chain of deltas started from, substituting the current version of every node that a delta
+   * changed and skipping removed nodes, followed by the nodes the deltas added, in the order they
+   * were added. Its size is that of the node map, which holds exactly the nodes iterated.
+   * Positional access copies the list on first use.
+   */
+  private static final class DeltaNodeList extends AbstractList<UANode> {
+
+    private final List<UANode> rootNodes;
+    private final OverlayMap<NodeId, UANode> nodeMap;
+    private final Function<String, NodeId> nodeIds;
+
+    private volatile UANode @Nullable [] nodes;
+
+    private DeltaNodeList(
+        List<UANode> rootNodes,
+        OverlayMap<NodeId, UANode> nodeMap,
+        Function<String, NodeId> nodeIds) {
+
+      this.rootNodes = rootNodes;
+      this.nodeMap = nodeMap;
+      this.nodeIds = nodeIds;
+    }
+
+    /**
+     * Get the node list that the chain of deltas leading to {@code nodeMap} started from.
+     *
+     * @param base the NodeSet the delta is applied to.
+     * @param baseNodeMap the node map of {@code base}.
+     * @param nodeMap the node map of the derived NodeSet.
+     */
+    static List<UANode> rootNodes(
+        UANodeSet base, Map<NodeId, UANode> baseNodeMap, OverlayMap<NodeId, UANode> nodeMap) {
+
+      List<UANode> baseNodes = base.getUAObjectOrUAVariableOrUAMethod();
+      Map<NodeId, UANode> baseRoot =
+          baseNodeMap instanceof OverlayMap<NodeId, UANode> overlay ? overlay.root() : baseNodeMap;
+
+      if (nodeMap.root() != baseRoot) {
+        // the layers were flattened into a new root, so the base's nodes become the root nodes
+        return List.copyOf(baseNodes);
+      } else if (baseNodes instanceof DeltaNodeList list) {
+        return list.rootNodes;
+      } else {
+        return baseNodes;
       }
+    }
 
-      private boolean equivalent(Reference a, Reference b) {
-        if (a == b) {
-          return true;
-        }
-        if (a == null || b == null) {
-          return false;
-        }
-        return NodeIdUtil.parse(a.getValue()).equals(NodeIdUtil.parse(b.getValue()))
-            && NodeIdUtil.parse(a.getReferenceType()).equals(NodeIdUtil.parse(b.getReferenceType()))
-            && a.isIsForward() == b.isIsForward();
+    @Override
+    public UANode get(int index) {
+      return toNodeArray()[index];
+    }
+
+    @Override
+    public int size() {
+      UANode[] array = nodes;
+      return array != null ? array.length : nodeMap.size();
+    }
+
+    @Override
+    public Iterator<UANode> iterator() {
+      UANode[] array = nodes;
+      return array != null ? Arrays.asList(array).iterator() : new NodeIterator();
+    }
+
+    private UANode[] toNodeArray() {
+      UANode[] array = nodes;
+      if (array == null) {
+        var list = new ArrayList<UANode>(nodeMap.size());
+        new NodeIterator().forEachRemaining(list::add);
+        nodes = array = list.toArray(UANode[]::new);
       }
+      return array;
+    }
+
+    private final class NodeIterator implements Iterator<UANode> {
+
+      private final Iterator<UANode> rootIterator = rootNodes.iterator();
+      private final Set<NodeId> emitted = new HashSet<>();
+      private @Nullable Iterator<NodeId> overriddenIds;
+      private @Nullable UANode next;
 
       @Override
-      public boolean equals(Object obj) {
-        if (this == obj) {
-          return true;
+      public boolean hasNext() {
+        while (next == null) {
+          if (overriddenIds == null) {
+            if (rootIterator.hasNext()) {
+              // a changed node keeps the position of the original
+              UANode node = rootIterator.next();
+              NodeId nodeId = nodeIds.apply(node.getNodeId());
+              if (!nodeMap.isOverridden(nodeId)) {
+                next = node;
+              } else if (emitted.add(nodeId)) {
+                next = nodeMap.get(nodeId);
+              }
+              continue;
+            }
+            overriddenIds = nodeMap.getOverriddenKeys().iterator();
+          }
+          if (!overriddenIds.hasNext()) {
+            return false;
+          }
+          NodeId nodeId = overriddenIds.next();
+          if (emitted.add(nodeId)) {
+            next = nodeMap.get(nodeId);
+          }
         }
-        if (obj instanceof ReferenceWrapper other) {
-          return equivalent(this.reference, other.reference);
+        return true;
+      }
+
+      @Override
+      public UANode next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
         }
+        UANode node = next;
+        next = null;
+        return node;
+      }
+    }
+  }
+
+  /** Compares References by semantic value, so equivalent NodeId spellings are equal. */
+  private class ReferenceWrapper {
+    private final Reference reference;
+
+    private ReferenceWrapper(Reference reference) {
+      this.reference = reference;
+    }
+
+    public Reference get() {
+      return reference;
+    }
+
+    private boolean equivalent(Reference a, Reference b) {
+      if (a == b) {
+        return true;
+      }
+      if (a == null || b == null) {
         return false;
       }
+      return nodeIds.parse(a.getValue()).equals(nodeIds.parse(b.getValue()))
+          && nodeIds.parse(a.getReferenceType()).equals(nodeIds.parse(b.getReferenceType()))
+          && a.isIsForward() == b.isIsForward();
+    }
 
-      @Override
-      public int hashCode() {
-        if (reference == null) return 0;
-        return Objects.hash(
-            NodeIdUtil.parse(reference.getReferenceType()),
-            NodeIdUtil.parse(reference.getValue()),
-            reference.isIsForward());
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
       }
+      if (obj instanceof ReferenceWrapper other) {
+        return equivalent(this.reference, other.reference);
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      if (reference == null) return 0;
+      return Objects.hash(
+          nodeIds.parse(reference.getReferenceType()),
+          nodeIds.parse(reference.getValue()),
+          reference.isIsForward());
     }
   }
 
@@ -481,9 +1812,7 @@ public class NodeSet implements NodeSetContext {
    */
   public static NodeSet from(Collection<UANodeSet> nodeSets) throws JAXBException {
     // merge the base OPC UA NodeSet with the provided NodeSets
-    UANodeSet mergedNodeSet =
-        UANodeSetParser.parse(
-            NodeSet.class.getClassLoader().getResourceAsStream("1.05/Opc.Ua.NodeSet2.xml"));
+    UANodeSet mergedNodeSet = parseBaseNodeSet();
 
     for (UANodeSet nodeSet : nodeSets) {
       mergedNodeSet = UANodeSetMerger.merge(mergedNodeSet, nodeSet);
@@ -491,4 +1820,64 @@ public class NodeSet implements NodeSetContext {
 
     return new NodeSet(mergedNodeSet);
   }
+
+  /**
+   * Asynchronously parse and load multiple NodeSet streams in order, using the default executor.
+   *
+   * <p>The default executor runs each task on a new virtual thread when the runtime supports
+   * virtual threads, and on the common {@link java.util.concurrent.ForkJoinPool} otherwise.
+   *
+   * @param inputStreams the XML streams to parse.
+   * @return a future completing with the normalized NodeSet context.
+   * @see #loadAsync(List, Executor)
+   */
+  public static CompletableFuture<NodeSet> loadAsync(List<InputStream> inputStreams) {
+    return loadAsync(inputStreams, NodeSetLoader.defaultExecutor());
+  }
+
+  /**
+   * Asynchronously parse and load multiple NodeSet streams in order.
+   *
+   * <p>The result is equivalent to {@link #load(List)}, but no work is done on the calling thread.
+   * The streams and the bundled OPC UA base NodeSet are parsed concurrently, then merged and
+   * indexed, and finally the ReferenceType, ObjectType, VariableType, and DataType trees are built
+   * concurrently. Every stage runs on {@code executor}, and the streams must not be used by the
+   * caller until the returned future completes.
+   *
+   * <p>Cancelling the returned future stops loading at the next stage boundary. A stage that is
+   * already running completes, but its result is discarded.
+   *
+   * @param inputStreams the XML streams to parse.
+   * @param executor the executor that runs each loading stage.
+   * @return a future completing with the normalized NodeSet context, or completing exceptionally
+   *     with a {@link JAXBException} if any stream cannot be parsed.
+   */
+  public static CompletableFuture<NodeSet> loadAsync(
+      List<InputStream> inputStreams, Executor executor) {
+
+    return new NodeSetLoader(executor).load(inputStreams);
+  }
+
+  /**
+   * Asynchronously create a normalized context from already-parsed extension NodeSets.
+   *
+   * <p>The result is equivalent to {@link #from(Collection)}. The bundled OPC UA base NodeSet is
+   * parsed, merged with {@code nodeSets}, and indexed, and the type trees are built, with every
+   * stage running on {@code executor}.
+   *
+   * @param nodeSets the parsed extension NodeSets to merge in order.
+   * @param executor the executor that runs each loading stage.
+   * @return a future completing with the normalized NodeSet context.
+   * @see #loadAsync(List, Executor)
+   */
+  public static CompletableFuture<NodeSet> fromAsync(
+      Collection<UANodeSet> nodeSets, Executor executor) {
+
+    return new NodeSetLoader(executor).from(nodeSets);
+  }
+
+  static UANodeSet parseBaseNodeSet() throws JAXBException {
+    return UANodeSetParser.parse(
+        NodeSet.class.getClassLoader().getResourceAsStream("1.05/Opc.Ua.NodeSet2.xml"));
+  }
 }
@@ -0,0 +1,195 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.opcfoundation.ua.UANode;
+
+/**
+ * Memoized transitive closure of the reference graph of a {@link NodeSet} for a fixed set of
+ * ReferenceTypes and a direction.
+ *
+ * <p>The descendants of a root are the nodes reachable from it through one or more matching
+ * references; the root itself is a descendant only when it lies on a cycle. Descendants are
+ * computed lazily the first time a root is queried and kept as a bitset over the NodeSet's dense
+ * node ordinals, after which {@link #isReachable(NodeId, NodeId)} is a single bit test and
+ * enumeration does not walk the graph again. Roots whose closure is already known are reused while
+ * computing new roots, so closing a parent after its children costs little more than its direct
+ * edges.
+ *
+ * <p>Closures are never evicted. Each memoized root retains one bit per node in the NodeSet, so a
+ * closure is best scoped to a workload, such as a validation pass, rather than kept for the life of
+ * an application. Instances are safe to use from multiple threads.
+ */
+public final class NodeSetClosure {
+
+  private final ConcurrentMap<Integer, long[]> closures = new ConcurrentHashMap<>();
+
+  private final NodeSetGraph graph;
+  private final BitSet referenceTypeMask;
+  private final boolean forward;
+
+  NodeSetClosure(NodeSetGraph graph, BitSet referenceTypeMask, boolean forward) {
+    this.graph = graph;
+    this.referenceTypeMask = referenceTypeMask;
+    this.forward = forward;
+  }
+
+  /**
+   * Create a closure over references of the given ReferenceTypes.
+   *
+   * @param nodeSet the {@link NodeSet} to compute closures over.
+   * @param referenceTypeIds the ReferenceTypes to follow.
+   * @param includeSubtypes whether subtypes of {@code referenceTypeIds} are followed as well.
+   * @param forward {@code true} to follow forward references, e.g. from a folder to its contents;
+   *     {@code false} to follow inverse references, e.g. from a node to its ancestors.
+   * @return a new {@link NodeSetClosure}.
+   */
+  public static NodeSetClosure create(
+      NodeSet nodeSet,
+      Collection<NodeId> referenceTypeIds,
+      boolean includeSubtypes,
+      boolean forward) {
+
+    NodeSetGraph graph = nodeSet.getGraph();
+    BitSet mask =
+        graph.referenceTypeMask(nodeSet.getReferenceTypeTree(), referenceTypeIds, includeSubtypes);
+
+    return new NodeSetClosure(graph, mask, forward);
+  }
+
+  /**
+   * Check whether {@code to} is reachable from {@code from} through one or more references.
+   *
+   * @param from the NodeId of the node to start from.
+   * @param to the NodeId of the node to reach.
+   * @return {@code true} if {@code to} is a descendant of {@code from}; {@code false} if it is not
+   *     or if either node is not part of the NodeSet.
+   */
+  public boolean isReachable(NodeId from, NodeId to) {
+    int source = graph.ordinal(from);
+    int target = graph.ordinal(to);
+    if (source < 0 || target < 0) {
+      return false;
+    }
+
+    return isSet(closure(source), target);
+  }
+
+  /**
+   * Get the number of descendants of a node.
+   *
+   * @param root the NodeId of the node to start from.
+   * @return the number of descendants, or {@code 0} if the node is not part of the NodeSet.
+   */
+  public int getDescendantCount(NodeId root) {
+    int source = graph.ordinal(root);
+    if (source < 0) {
+      return 0;
+    }
+
+    int count = 0;
+    for (long word : closure(source)) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  /**
+   * Get the descendants of a node.
+   *
+   * @param root the NodeId of the node to start from.
+   * @return the descendants in NodeSet document order, or an empty list if the node is not part of
+   *     the NodeSet.
+   */
+  public List<UANode> getDescendants(NodeId root) {
+    var descendants = new ArrayList<UANode>();
+    forEachDescendant(root, descendants::add);
+    return descendants;
+  }
+
+  /**
+   * Invoke {@code action} for each descendant of a node, in NodeSet document order.
+   *
+   * @param root the NodeId of the node to start from.
+   * @param action the action to invoke for each descendant.
+   */
+  public void forEachDescendant(NodeId root, Consumer<UANode> action) {
+    int source = graph.ordinal(root);
+    if (source < 0) {
+      return;
+    }
+
+    long[] closure = closure(source);
+    for (int w = 0; w < closure.length; w++) {
+      long word = closure[w];
+      while (word != 0) {
+        int bit = Long.numberOfTrailingZeros(word);
+        action.accept(graph.nodes[(w << 6) + bit]);
+        word &= word - 1;
+      }
+    }
+  }
+
+  private long[] closure(int root) {
+    long[] closure = closures.get(root);
+    if (closure != null) {
+      return closure;
+    }
+
+    closure = new long[(graph.size() + 63) >>> 6];
+
+    // Plain worklist; nodes with a memoized closure contribute it wholesale instead of being
+    // expanded, which is sound because every memoized closure is already transitively complete.
+    int[] worklist = new int[16];
+    int size = 0;
+    worklist[size++] = root;
+    var expanded = new long[closure.length];
+    expanded[root >>> 6] |= 1L << root;
+
+    while (size > 0) {
+      int node = worklist[--size];
+
+      for (int e = graph.offsets[node]; e < graph.offsets[node + 1]; e++) {
+        if (!follows(graph.edges[e])) continue;
+
+        int target = graph.targets[e];
+        closure[target >>> 6] |= 1L << target;
+
+        if (isSet(expanded, target)) continue;
+        expanded[target >>> 6] |= 1L << target;
+
+        long[] known = closures.get(target);
+        if (known != null) {
+          for (int w = 0; w < closure.length; w++) {
+            closure[w] |= known[w];
+            expanded[w] |= known[w];
+          }
+        } else {
+          if (size == worklist.length) {
+            worklist = Arrays.copyOf(worklist, size * 2);
+          }
+          worklist[size++] = target;
+        }
+      }
+    }
+
+    long[] existing = closures.putIfAbsent(root, closure);
+    return existing != null ? existing : closure;
+  }
+
+  private boolean follows(int edge) {
+    return NodeSetGraph.edgeIsForward(edge) == forward
+        && referenceTypeMask.get(NodeSetGraph.edgeReferenceType(edge));
+  }
+
+  private static boolean isSet(long[] bits, int index) {
+    return (bits[index >>> 6] & (1L << index)) != 0;
+  }
+}
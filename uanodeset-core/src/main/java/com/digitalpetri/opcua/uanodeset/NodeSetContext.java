@@ -3,9 +3,14 @@ package com.digitalpetri.opcua.uanodeset;
 import com.digitalpetri.opcua.uanodeset.util.NodeIdUtil;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import org.eclipse.milo.opcua.stack.core.NodeIds;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.ListOfRolePermissions;
+import org.opcfoundation.ua.ModelTableEntry;
 import org.opcfoundation.ua.Reference;
 import org.opcfoundation.ua.UANode;
 import org.opcfoundation.ua.UANodeSet;
@@ -21,6 +26,16 @@ import org.opcfoundation.ua.UAVariable;
  * regardless of which side declared a relationship in XML. Namespace indexes belong to this
  * context's {@link UANodeSet} URI table; they are model-space indexes rather than indexes from a
  * runtime server or another merged model.
+ *
+ * <p>{@link #forEachReference(NodeId, Predicate, Consumer)}, {@link #anyReference(NodeId,
+ * Predicate)}, and {@link #findReference(NodeId, Predicate)} query the same references as {@link
+ * #getReferences(NodeId)}. Implementations may answer them from their underlying storage, with
+ * early exit, without building or caching a combined list.
+ *
+ * <p>RolePermissions and AccessRestrictions declared on a model apply to every node of that model
+ * that does not declare its own. They are not copied into the JAXB nodes; {@link
+ * #getRolePermissions(UANode)} and {@link #getAccessRestrictions(UANode)} resolve them on demand
+ * and return the model's shared instance for every node that inherits it.
  */
 public interface NodeSetContext {
 
@@ -109,6 +124,53 @@ public interface NodeSetContext {
     return getImplicitReferences(NodeIdUtil.get(nodeId));
   }
 
+  /**
+   * Visit the references of a node that match {@code filter}.
+   *
+   * <p>The references visited, and their order, are those of {@link #getReferences(NodeId)}.
+   *
+   * @param nodeId the NodeId of the node to inspect.
+   * @param filter selects the references to visit.
+   * @param action invoked once for each matching reference.
+   */
+  default void forEachReference(
+      NodeId nodeId, Predicate<? super Reference> filter, Consumer<? super Reference> action) {
+
+    for (Reference reference : getReferences(nodeId)) {
+      if (filter.test(reference)) {
+        action.accept(reference);
+      }
+    }
+  }
+
+  /**
+   * Check whether a node has a reference matching {@code predicate}.
+   *
+   * @param nodeId the NodeId of the node to inspect.
+   * @param predicate the condition to test.
+   * @return {@code true} if any of the node's references matches.
+   */
+  default boolean anyReference(NodeId nodeId, Predicate<? super Reference> predicate) {
+    return findReference(nodeId, predicate).isPresent();
+  }
+
+  /**
+   * Find the first reference of a node that matches {@code predicate}.
+   *
+   * @param nodeId the NodeId of the node to inspect.
+   * @param predicate the condition to test.
+   * @return the first matching reference in {@link #getReferences(NodeId)} order, or an empty value
+   *     if none matches.
+   */
+  default Optional<Reference> findReference(NodeId nodeId, Predicate<? super Reference> predicate) {
+    for (Reference reference : getReferences(nodeId)) {
+      if (predicate.test(reference)) {
+        return Optional.of(reference);
+      }
+    }
+    return Optional.empty();
+  }
+
   /**
    * Resolve the direct type definition of an Object or Variable node.
    *
@@ -147,12 +209,90 @@ public interface NodeSetContext {
       return Optional.empty();
     }
 
-    return getReferences(NodeIdUtil.parse(node.getNodeId())).stream()
-        .filter(Reference::isIsForward)
-        .filter(
-            reference -> NodeIdUtil.equals(NodeIds.HasTypeDefinition, reference.getReferenceType()))
-        .map(Reference::getValue)
-        .map(NodeIdUtil::parse)
-        .findFirst();
+    Function<String, NodeId> nodeIds = NodeIdInterner.parserOf(this);
+
+    return findReference(
+            nodeIds.apply(node.getNodeId()),
+            reference ->
+                reference.isIsForward()
+                    && NodeIds.HasTypeDefinition.equals(
+                        nodeIds.apply(reference.getReferenceType())))
+        .map(reference -> nodeIds.apply(reference.getValue()));
+  }
+
+  /**
+   * Get the model table entry for a namespace.
+   *
+   * @param namespaceIndex the model-space namespace index.
+   * @return the first model whose {@code ModelUri} is the namespace URI at {@code namespaceIndex},
+   *     or {@code null} if the namespace has no model entry.
+   */
+  default @Nullable ModelTableEntry getModel(int namespaceIndex) {
+    UANodeSet nodeSet = getNodeSet();
+    if (nodeSet.getNamespaceUris() == null || nodeSet.getModels() == null) {
+      return null;
+    }
+
+    List<String> namespaceUris = nodeSet.getNamespaceUris().getUri();
+    if (namespaceIndex < 0 || namespaceIndex >= namespaceUris.size()) {
+      return null;
+    }
+
+    String namespaceUri = namespaceUris.get(namespaceIndex);
+    for (ModelTableEntry model : nodeSet.getModels().getModel()) {
+      if (namespaceUri.equals(model.getModelUri())) {
+        return model;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the effective RolePermissions of a node.
+   *
+   * <p>A node's own non-empty RolePermissions take precedence. Otherwise, unless the node sets
+   * {@code HasNoPermissions}, the RolePermissions of its namespace's model apply. Every node that
+   * inherits the model's RolePermissions gets the same instance, which callers must not modify.
+   *
+   * @param node the normalized JAXB node to inspect.
+   * @return the effective RolePermissions, or {@code null} if none apply.
+   */
+  default @Nullable ListOfRolePermissions getRolePermissions(UANode node) {
+    ListOfRolePermissions rolePermissions = node.getRolePermissions();
+    if (rolePermissions != null && !rolePermissions.getRolePermission().isEmpty()) {
+      return rolePermissions;
+    }
+    if (node.isHasNoPermissions()) {
+      return rolePermissions;
+    }
+
+    int namespaceIndex =
+        NodeIdInterner.parserOf(this).apply(node.getNodeId()).getNamespaceIndex().intValue();
+    ModelTableEntry model = getModel(namespaceIndex);
+    return model != null && model.getRolePermissions() != null
+        ? model.getRolePermissions()
+        : rolePermissions;
+  }
+
+  /**
+   * Get the effective AccessRestrictions of a node.
+   *
+   * <p>A node's own AccessRestrictions take precedence; otherwise the AccessRestrictions of its
+   * namespace's model apply.
+   *
+   * @param node the normalized JAXB node to inspect.
+   * @return the effective AccessRestrictions, or {@code null} if the node declares none and its
+   *     namespace has no model entry.
+   */
+  default @Nullable Integer getAccessRestrictions(UANode node) {
+    Integer accessRestrictions = node.getAccessRestrictions();
+    if (accessRestrictions != null) {
+      return accessRestrictions;
+    }
+
+    int namespaceIndex =
+        NodeIdInterner.parserOf(this).apply(node.getNodeId()).getNamespaceIndex().intValue();
+    ModelTableEntry model = getModel(namespaceIndex);
+    return model != null ? model.getAccessRestrictions() : null;
   }
 }
@@ -0,0 +1,191 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import com.digitalpetri.opcua.uanodeset.util.NodeIdUtil;
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.opcfoundation.ua.Reference;
+import org.opcfoundation.ua.UANode;
+
+/**
+ * An ordered batch of changes to a {@link NodeSet}: nodes and references to add, remove, or
+ * replace, and aliases to define.
+ *
+ * <p>A delta is applied with {@link NodeSet#apply(NodeSetDelta)}, which produces a new {@link
+ * NodeSet} and leaves the original untouched, or published through a {@link VersionedNodeSet}.
+ * Changes are applied in the order they were added to the {@link Builder}, so a delta may add a
+ * node and then references from it.
+ *
+ * <p>Added and replacement nodes are normalized in place when the delta is applied, just as the
+ * nodes of a {@link org.opcfoundation.ua.UANodeSet} are when a {@link NodeSet} is constructed, and
+ * become part of the resulting NodeSet. They should not be modified, or added to another delta,
+ * afterward.
+ */
+public final class NodeSetDelta {
+
+  private final List<Change> changes;
+
+  private NodeSetDelta(List<Change> changes) {
+    this.changes = changes;
+  }
+
+  /**
+   * Create a new {@link Builder}.
+   *
+   * @return a new, empty {@link Builder}.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Check whether this delta contains no changes.
+   *
+   * @return {@code true} if applying this delta would not change a NodeSet.
+   */
+  public boolean isEmpty() {
+    return changes.isEmpty();
+  }
+
+  /**
+   * Get the number of changes in this delta.
+   *
+   * @return the number of changes.
+   */
+  public int size() {
+    return changes.size();
+  }
+
+  List<Change> getChanges() {
+    return changes;
+  }
+
+  @Override
+  public String toString() {
+    return "NodeSetDelta{changes=" + changes + '}';
+  }
+
+  /** A single change, applied by {@link NodeSet} in the order it was added. */
+  interface Change {}
+
+  record AddNode(UANode node) implements Change {}
+
+  record ReplaceNode(UANode node) implements Change {}
+
+  record RemoveNode(NodeId nodeId) implements Change {}
+
+  record AddReference(NodeId sourceId, Reference reference) implements Change {}
+
+  record RemoveReference(NodeId sourceId, NodeId referenceTypeId, NodeId targetId, boolean forward)
+      implements Change {}
+
+  record AddAlias(String alias, String nodeId) implements Change {}
+
+  /** Builds a {@link NodeSetDelta}. Builders are not thread-safe. */
+  public static final class Builder {
+
+    private final List<Change> changes = new ArrayList<>();
+
+    private Builder() {}
+
+    /**
+     * Add a node. Its explicit references are added with it, along with their inverses.
+     *
+     * @param node the node to add. Its NodeId must not already be part of the NodeSet and must use
+     *     a namespace index from the NodeSet's URI table.
+     * @return this {@link Builder}.
+     */
+    public Builder addNode(UANode node) {
+      changes.add(new AddNode(node));
+      return this;
+    }
+
+    /**
+     * Replace a node with a node that has the same NodeId.
+     *
+     * <p>The replaced node's explicit references are replaced by those of {@code node}. References
+     * that other nodes declare to it are kept, and the node keeps its position in the node list.
+     *
+     * @param node the replacement node.
+     * @return this {@link Builder}.
+     */
+    public Builder replaceNode(UANode node) {
+      changes.add(new ReplaceNode(node));
+      return this;
+    }
+
+    /**
+     * Remove a node along with every reference to or from it, including references that other
+     * nodes declare to it.
+     *
+     * @param nodeId the NodeId of the node to remove.
+     * @return this {@link Builder}.
+     */
+    public Builder removeNode(NodeId nodeId) {
+      changes.add(new RemoveNode(nodeId));
+      return this;
+    }
+
+    /**
+     * Add a reference declared on {@code sourceId}. The inverse reference on {@code targetId} is
+     * synthesized as usual.
+     *
+     * @param sourceId the NodeId of the node that declares the reference.
+     * @param referenceTypeId the NodeId of the ReferenceType.
+     * @param targetId the NodeId of the target node.
+     * @param forward whether the reference is a forward reference.
+     * @return this {@link Builder}.
+     */
+    public Builder addReference(
+        NodeId sourceId, NodeId referenceTypeId, NodeId targetId, boolean forward) {
+
+      var reference = new Reference();
+      reference.setReferenceType(NodeIdUtil.get(referenceTypeId));
+      reference.setValue(NodeIdUtil.get(targetId));
+      reference.setIsForward(forward);
+
+      changes.add(new AddReference(sourceId, reference));
+      return this;
+    }
+
+    /**
+     * Remove a reference, regardless of which of its two nodes declares it.
+     *
+     * <p>A forward reference from {@code sourceId} is the same relationship as an inverse reference
+     * from {@code targetId}, so both declarations are removed.
+     *
+     * @param sourceId the NodeId of the source node.
+     * @param referenceTypeId the NodeId of the ReferenceType.
+     * @param targetId the NodeId of the target node.
+     * @param forward whether the reference is a forward reference from {@code sourceId}.
+     * @return this {@link Builder}.
+     */
+    public Builder removeReference(
+        NodeId sourceId, NodeId referenceTypeId, NodeId targetId, boolean forward) {
+
+      changes.add(new RemoveReference(sourceId, referenceTypeId, targetId, forward));
+      return this;
+    }
+
+    /**
+     * Define or redefine an alias. Aliases apply to nodes and references added after this change.
+     *
+     * @param alias the alias, e.g. {@code HasComponent}.
+     * @param nodeId the NodeId string the alias stands for.
+     * @return this {@link Builder}.
+     */
+    public Builder addAlias(String alias, String nodeId) {
+      changes.add(new AddAlias(alias, nodeId));
+      return this;
+    }
+
+    /**
+     * Build the {@link NodeSetDelta}.
+     *
+     * @return a new {@link NodeSetDelta} containing the changes added so far.
+     */
+    public NodeSetDelta build() {
+      return new NodeSetDelta(List.copyOf(changes));
+    }
+  }
+}
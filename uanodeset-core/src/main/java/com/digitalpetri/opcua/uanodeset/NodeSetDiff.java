@@ -0,0 +1,251 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import com.digitalpetri.opcua.uanodeset.NodeSetDigest.NamespaceDigest;
+import com.digitalpetri.opcua.uanodeset.NodeSetDigest.NodeDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.opcfoundation.ua.Reference;
+
+/**
+ * The structural differences between two versions of a {@link NodeSet}.
+ *
+ * <p>A diff compares the {@link NodeSetDigest content hashes} of both versions. Namespaces whose
+ * hashes are equal are skipped, and the remaining nodes are matched by namespace URI and
+ * identifier, so the comparison takes time linear in the size of the changed namespaces and does
+ * not depend on namespace index assignment. Only nodes whose reference hashes differ have their
+ * references compared.
+ *
+ * <p>Added nodes and references are reported with NodeIds from the {@code after} NodeSet, and
+ * removed ones with NodeIds from the {@code before} NodeSet. A node is modified when any of its
+ * attributes changed; changes limited to its references are reported only as added or removed
+ * references. Each reference is reported once, from the node on which it is forward, unless that
+ * node does not exist in the NodeSet it is reported from.
+ *
+ * <p>Results are ordered by namespace URI and then by identifier. Instances are immutable and may
+ * be shared between threads.
+ */
+public final class NodeSetDiff {
+
+  private final List<NodeId> addedNodes;
+  private final List<NodeId> removedNodes;
+  private final List<NodeId> modifiedNodes;
+  private final List<ReferenceChange> addedReferences;
+  private final List<ReferenceChange> removedReferences;
+
+  private NodeSetDiff(
+      List<NodeId> addedNodes,
+      List<NodeId> removedNodes,
+      List<NodeId> modifiedNodes,
+      List<ReferenceChange> addedReferences,
+      List<ReferenceChange> removedReferences) {
+
+    this.addedNodes = Collections.unmodifiableList(addedNodes);
+    this.removedNodes = Collections.unmodifiableList(removedNodes);
+    this.modifiedNodes = Collections.unmodifiableList(modifiedNodes);
+    this.addedReferences = Collections.unmodifiableList(addedReferences);
+    this.removedReferences = Collections.unmodifiableList(removedReferences);
+  }
+
+  /**
+   * Compare two versions of a NodeSet.
+   *
+   * @param before the earlier version.
+   * @param after the later version.
+   * @return the differences from {@code before} to {@code after}.
+   */
+  public static NodeSetDiff compare(NodeSet before, NodeSet after) {
+    return compare(NodeSetDigest.create(before), NodeSetDigest.create(after));
+  }
+
+  /**
+   * Compare two versions of a NodeSet using previously computed digests.
+   *
+   * @param before the digest of the earlier version.
+   * @param after the digest of the later version.
+   * @return the differences from {@code before} to {@code after}.
+   */
+  public static NodeSetDiff compare(NodeSetDigest before, NodeSetDigest after) {
+    var addedNodes = new ArrayList<NodeId>();
+    var removedNodes = new ArrayList<NodeId>();
+    var modifiedNodes = new ArrayList<NodeId>();
+    var addedReferences = new ArrayList<ReferenceChange>();
+    var removedReferences = new ArrayList<ReferenceChange>();
+
+    if (Arrays.equals(before.getRootHash(), after.getRootHash())) {
+      return new NodeSetDiff(
+          addedNodes, removedNodes, modifiedNodes, addedReferences, removedReferences);
+    }
+
+    Map<String, NamespaceDigest> beforeNamespaces = before.getNamespaces();
+    Map<String, NamespaceDigest> afterNamespaces = after.getNamespaces();
+
+    for (NamespaceDigest beforeNamespace : beforeNamespaces.values()) {
+      NamespaceDigest afterNamespace = afterNamespaces.get(beforeNamespace.namespaceUri);
+      if (afterNamespace != null && Arrays.equals(beforeNamespace.hash, afterNamespace.hash)) {
+        continue;
+      }
+
+      for (NodeDigest beforeNode : beforeNamespace.nodes.values()) {
+        NodeDigest afterNode =
+            afterNamespace != null ? afterNamespace.nodes.get(beforeNode.key()) : null;
+
+        if (afterNode == null) {
+          removedNodes.add(beforeNode.nodeId());
+          collectReferences(before, beforeNode, Map.of(), removedReferences);
+        } else if (!Arrays.equals(beforeNode.hash(), afterNode.hash())) {
+          if (!Arrays.equals(beforeNode.attributes(), afterNode.attributes())) {
+            modifiedNodes.add(afterNode.nodeId());
+          }
+          if (!Arrays.equals(beforeNode.references(), afterNode.references())) {
+            Map<String, Reference> beforeReferences =
+                before.getCanonicalReferences(beforeNode.nodeId());
+            Map<String, Reference> afterReferences =
+                after.getCanonicalReferences(afterNode.nodeId());
+
+            collectReferences(before, beforeNode, afterReferences, removedReferences);
+            collectReferences(after, afterNode, beforeReferences, addedReferences);
+          }
+        }
+      }
+    }
+
+    for (NamespaceDigest afterNamespace : afterNamespaces.values()) {
+      NamespaceDigest beforeNamespace = beforeNamespaces.get(afterNamespace.namespaceUri);
+      if (beforeNamespace != null && Arrays.equals(beforeNamespace.hash, afterNamespace.hash)) {
+        continue;
+      }
+
+      for (NodeDigest afterNode : afterNamespace.nodes.values()) {
+        if (beforeNamespace == null || !beforeNamespace.nodes.containsKey(afterNode.key())) {
+          addedNodes.add(afterNode.nodeId());
+          collectReferences(after, afterNode, Map.of(), addedReferences);
+        }
+      }
+    }
+
+    return new NodeSetDiff(
+        addedNodes, removedNodes, modifiedNodes, addedReferences, removedReferences);
+  }
+
+  /**
+   * Collect the references of {@code node} in {@code digest} that are not in {@code other},
+   * skipping inverse references whose forward side is a node of the same NodeSet.
+   */
+  private static void collectReferences(
+      NodeSetDigest digest,
+      NodeDigest node,
+      Map<String, Reference> other,
+      List<ReferenceChange> changes) {
+
+    NodeSet nodeSet = digest.getNodeSet();
+
+    digest
+        .getCanonicalReferences(node.nodeId())
+        .forEach(
+            (key, reference) -> {
+              if (other.containsKey(key)) {
+                return;
+              }
+
+              NodeId targetId = nodeSet.parseNodeId(reference.getValue());
+              if (!reference.isIsForward() && nodeSet.getNode(targetId) != null) {
+                return;
+              }
+
+              changes.add(
+                  new ReferenceChange(
+                      node.nodeId(),
+                      nodeSet.parseNodeId(reference.getReferenceType()),
+                      targetId,
+                      reference.isIsForward()));
+            });
+  }
+
+  /**
+   * Get the nodes that exist only in the later version.
+   *
+   * @return the NodeIds of added nodes, from the {@code after} NodeSet.
+   */
+  public List<NodeId> getAddedNodes() {
+    return addedNodes;
+  }
+
+  /**
+   * Get the nodes that exist only in the earlier version.
+   *
+   * @return the NodeIds of removed nodes, from the {@code before} NodeSet.
+   */
+  public List<NodeId> getRemovedNodes() {
+    return removedNodes;
+  }
+
+  /**
+   * Get the nodes that exist in both versions with different attributes.
+   *
+   * @return the NodeIds of modified nodes, from the {@code after} NodeSet.
+   */
+  public List<NodeId> getModifiedNodes() {
+    return modifiedNodes;
+  }
+
+  /**
+   * Get the references that exist only in the later version.
+   *
+   * @return the added references, with NodeIds from the {@code after} NodeSet.
+   */
+  public List<ReferenceChange> getAddedReferences() {
+    return addedReferences;
+  }
+
+  /**
+   * Get the references that exist only in the earlier version.
+   *
+   * @return the removed references, with NodeIds from the {@code before} NodeSet.
+   */
+  public List<ReferenceChange> getRemovedReferences() {
+    return removedReferences;
+  }
+
+  /**
+   * Check whether the two versions have the same content.
+   *
+   * @return {@code true} if no nodes or references were added, removed, or modified.
+   */
+  public boolean isEmpty() {
+    return addedNodes.isEmpty()
+        && removedNodes.isEmpty()
+        && modifiedNodes.isEmpty()
+        && addedReferences.isEmpty()
+        && removedReferences.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "NodeSetDiff{addedNodes="
+        + addedNodes.size()
+        + ", removedNodes="
+        + removedNodes.size()
+        + ", modifiedNodes="
+        + modifiedNodes.size()
+        + ", addedReferences="
+        + addedReferences.size()
+        + ", removedReferences="
+        + removedReferences.size()
+        + '}';
+  }
+
+  /**
+   * A reference that was added or removed.
+   *
+   * @param sourceId the NodeId of the node the reference belongs to.
+   * @param referenceTypeId the NodeId of the reference's ReferenceType.
+   * @param targetId the NodeId of the referenced node.
+   * @param forward {@code true} if the reference is forward from {@code sourceId}.
+   */
+  public record ReferenceChange(
+      NodeId sourceId, NodeId referenceTypeId, NodeId targetId, boolean forward) {}
+}
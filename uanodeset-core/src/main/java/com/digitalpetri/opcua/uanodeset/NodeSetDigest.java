@@ -0,0 +1,533 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import com.digitalpetri.opcua.uanodeset.parser.IndexUtil;
+import com.digitalpetri.opcua.uanodeset.util.NodeIdCodec;
+import com.digitalpetri.opcua.uanodeset.util.NodeIdUtil;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Matcher;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.*;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Content hashes of the nodes of a {@link NodeSet}, summarized per namespace.
+ *
+ * <p>Each node has a SHA-256 hash of its attributes and of its combined explicit and implicit
+ * references. NodeIds and QualifiedNames are hashed by namespace URI rather than namespace index,
+ * and aliases are resolved, so the same model yields the same hashes regardless of how its
+ * namespace table is ordered or which aliases it declares. Effective RolePermissions and
+ * AccessRestrictions are hashed, including model-level defaults. Values and extensions are hashed
+ * from their XML element structure, attributes, and trimmed text, with the NodeIds in {@code
+ * Identifier} elements also hashed by namespace URI.
+ *
+ * <p>The node hashes of each namespace are combined, in NodeId order, into a namespace hash, and
+ * the namespace hashes into a single root hash. Two namespaces with equal hashes contain the same
+ * nodes with the same content, which lets {@link NodeSetDiff} skip them without visiting their
+ * nodes.
+ *
+ * <p>Node hashes are computed in parallel on the common {@link java.util.concurrent.ForkJoinPool}.
+ * Instances are immutable and may be shared between threads.
+ */
+public final class NodeSetDigest {
+
+  private static final int HASH_LENGTH = 32;
+
+  private final NodeSet nodeSet;
+  private final Canonicalizer canonicalizer;
+  private final Map<String, NamespaceDigest> namespaces;
+  private final byte[] rootHash;
+
+  private NodeSetDigest(
+      NodeSet nodeSet, Canonicalizer canonicalizer, Map<String, NamespaceDigest> namespaces) {
+
+    this.nodeSet = nodeSet;
+    this.canonicalizer = canonicalizer;
+    this.namespaces = namespaces;
+
+    var hasher = new Hasher();
+    for (NamespaceDigest namespace : namespaces.values()) {
+      hasher.putString(namespace.namespaceUri);
+      hasher.putHash(namespace.hash);
+    }
+    this.rootHash = hasher.finish();
+  }
+
+  /**
+   * Compute the content hashes of every node in {@code nodeSet}.
+   *
+   * @param nodeSet the {@link NodeSet} to hash.
+   * @return a new {@link NodeSetDigest}.
+   */
+  public static NodeSetDigest create(NodeSet nodeSet) {
+    var canonicalizer = new Canonicalizer(nodeSet);
+
+    List<NodeDigest> nodeDigests =
+        nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod().parallelStream()
+            .map(node -> digest(nodeSet, canonicalizer, node))
+            .toList();
+
+    var nodesByNamespace = new TreeMap<String, TreeMap<String, NodeDigest>>();
+    for (NodeDigest nodeDigest : nodeDigests) {
+      nodesByNamespace
+          .computeIfAbsent(nodeDigest.namespaceUri(), k -> new TreeMap<>())
+          .put(nodeDigest.key(), nodeDigest);
+    }
+
+    var namespaces = new LinkedHashMap<String, NamespaceDigest>();
+    nodesByNamespace.forEach(
+        (namespaceUri, nodes) ->
+            namespaces.put(namespaceUri, new NamespaceDigest(namespaceUri, nodes)));
+
+    return new NodeSetDigest(nodeSet, canonicalizer, Collections.unmodifiableMap(namespaces));
+  }
+
+  /**
+   * Get the {@link NodeSet} these hashes were computed from.
+   *
+   * @return the hashed {@link NodeSet}.
+   */
+  public NodeSet getNodeSet() {
+    return nodeSet;
+  }
+
+  /**
+   * Get the hash combining the hashes of every namespace.
+   *
+   * @return a 32-byte SHA-256 hash.
+   */
+  public byte[] getRootHash() {
+    return rootHash.clone();
+  }
+
+  /**
+   * Get the URIs of the namespaces that contain at least one node.
+   *
+   * @return the namespace URIs, in sorted order.
+   */
+  public Set<String> getNamespaceUris() {
+    return namespaces.keySet();
+  }
+
+  /**
+   * Get the hash combining the hashes of every node in a namespace.
+   *
+   * @param namespaceUri the namespace URI.
+   * @return a 32-byte SHA-256 hash, or {@code null} if the namespace contains no nodes.
+   */
+  public byte @Nullable [] getNamespaceHash(String namespaceUri) {
+    NamespaceDigest namespace = namespaces.get(namespaceUri);
+    return namespace != null ? namespace.hash.clone() : null;
+  }
+
+  /**
+   * Get the content hash of a node.
+   *
+   * @param nodeId the NodeId of the node, using this NodeSet's namespace indexes.
+   * @return a 32-byte SHA-256 hash, or {@code null} if the node is not present.
+   */
+  public byte @Nullable [] getNodeHash(NodeId nodeId) {
+    NodeDigest nodeDigest = getNodeDigest(nodeId);
+    return nodeDigest != null ? nodeDigest.hash().clone() : null;
+  }
+
+  @Nullable NodeDigest getNodeDigest(NodeId nodeId) {
+    List<String> namespaceUris = nodeSet.getNodeSet().getNamespaceUris().getUri();
+    int namespaceIndex = nodeId.getNamespaceIndex().intValue();
+    if (namespaceIndex >= namespaceUris.size()) {
+      return null;
+    }
+
+    NamespaceDigest namespace = namespaces.get(namespaceUris.get(namespaceIndex));
+    return namespace != null ? namespace.nodes.get(Canonicalizer.key(nodeId)) : null;
+  }
+
+  Map<String, NamespaceDigest> getNamespaces() {
+    return namespaces;
+  }
+
+  /**
+   * Get the canonical form of each of a node's combined references, keyed by a string that is
+   * independent of namespace indexes.
+   */
+  Map<String, Reference> getCanonicalReferences(NodeId nodeId) {
+    var references = new TreeMap<String, Reference>();
+    nodeSet.forEachReference(
+        nodeId,
+        reference -> true,
+        reference -> references.putIfAbsent(canonicalizer.reference(reference), reference));
+    return references;
+  }
+
+  private static NodeDigest digest(NodeSet nodeSet, Canonicalizer canonicalizer, UANode node) {
+    NodeId nodeId = nodeSet.parseNodeId(node.getNodeId());
+    var hasher = new Hasher();
+
+    hashAttributes(nodeSet, canonicalizer, node, hasher);
+    byte[] attributes = hasher.finish();
+
+    var references = new TreeSet<String>();
+    nodeSet.forEachReference(
+        nodeId, reference -> true, reference -> references.add(canonicalizer.reference(reference)));
+    references.forEach(hasher::putString);
+    byte[] referencesHash = hasher.finish();
+
+    hasher.putHash(attributes);
+    hasher.putHash(referencesHash);
+
+    return new NodeDigest(
+        canonicalizer.namespaceUri(nodeId),
+        Canonicalizer.key(nodeId),
+        nodeId,
+        attributes,
+        referencesHash,
+        hasher.finish());
+  }
+
+  private static void hashAttributes(
+      NodeSet nodeSet, Canonicalizer canonicalizer, UANode node, Hasher hasher) {
+
+    hasher.putString(node.getClass().getSimpleName());
+    hasher.putString(canonicalizer.qualifiedName(node.getBrowseName()));
+    hasher.putLong(node.getWriteMask());
+    hasher.putLong(node.getUserWriteMask());
+    Integer accessRestrictions = nodeSet.getAccessRestrictions(node);
+    hasher.putLong(accessRestrictions != null ? accessRestrictions + 1L : 0L);
+    hasher.putBoolean(node.isHasNoPermissions());
+    hasher.putString(node.getSymbolicName());
+    hasher.putString(node.getReleaseStatus().name());
+    hashLocalizedTexts(node.getDisplayName(), hasher);
+    hashLocalizedTexts(node.getDescription(), hasher);
+    hasher.putLong(node.getCategory().size());
+    node.getCategory().forEach(hasher::putString);
+    hasher.putString(node.getDocumentation());
+
+    ListOfRolePermissions rolePermissions = nodeSet.getRolePermissions(node);
+    if (rolePermissions != null) {
+      hasher.putLong(rolePermissions.getRolePermission().size() + 1L);
+      for (RolePermission rolePermission : rolePermissions.getRolePermission()) {
+        hasher.putString(canonicalizer.nodeId(rolePermission.getValue()));
+        hasher.putLong(rolePermission.getPermissions());
+      }
+    } else {
+      hasher.putLong(0L);
+    }
+
+    ListOfExtensions extensions = node.getExtensions();
+    if (extensions != null) {
+      hasher.putLong(extensions.getExtension().size() + 1L);
+      extensions
+          .getExtension()
+          .forEach(extension -> hasher.putDom(extension.getAny(), canonicalizer));
+    } else {
+      hasher.putLong(0L);
+    }
+
+    if (node instanceof UAInstance instance) {
+      hasher.putString(canonicalizer.nodeId(instance.getParentNodeId()));
+    }
+    if (node instanceof UAType type) {
+      hasher.putBoolean(type.isIsAbstract());
+    }
+
+    if (node instanceof UAObject object) {
+      hasher.putLong(object.getEventNotifier());
+    } else if (node instanceof UAVariable variable) {
+      hasher.putDom(
+          variable.getValue() != null ? variable.getValue().getAny() : null, canonicalizer);
+      hasher.putLong(variable.getTranslation().size());
+      for (TranslationType translation : variable.getTranslation()) {
+        hashLocalizedTexts(translation.getText(), hasher);
+        hasher.putLong(translation.getField().size());
+        for (StructureTranslationType field : translation.getField()) {
+          hasher.putString(field.getName());
+          hashLocalizedTexts(field.getText(), hasher);
+        }
+      }
+      hasher.putString(canonicalizer.nodeId(variable.getDataType()));
+      hasher.putLong(variable.getValueRank());
+      hasher.putString(variable.getArrayDimensions());
+      hasher.putLong(variable.getAccessLevel());
+      hasher.putLong(variable.getUserAccessLevel());
+      hasher.putLong(Double.doubleToLongBits(variable.getMinimumSamplingInterval()));
+      hasher.putBoolean(variable.isHistorizing());
+    } else if (node instanceof UAMethod method) {
+      hasher.putLong(method.getArgumentDescription().size());
+      for (UAMethodArgument argument : method.getArgumentDescription()) {
+        hasher.putString(argument.getName());
+        hashLocalizedTexts(argument.getDescription(), hasher);
+      }
+      hasher.putBoolean(method.isExecutable());
+      hasher.putBoolean(method.isUserExecutable());
+      hasher.putString(canonicalizer.nodeId(method.getMethodDeclarationId()));
+    } else if (node instanceof UAView view) {
+      hasher.putBoolean(view.isContainsNoLoops());
+      hasher.putLong(view.getEventNotifier());
+    } else if (node instanceof UAVariableType variableType) {
+      hasher.putDom(
+          variableType.getValue() != null ? variableType.getValue().getAny() : null,
+          canonicalizer);
+      hasher.putString(canonicalizer.nodeId(variableType.getDataType()));
+      hasher.putLong(variableType.getValueRank());
+      hasher.putString(variableType.getArrayDimensions());
+    } else if (node instanceof UADataType dataType) {
+      hashDefinition(canonicalizer, dataType.getDefinition(), hasher);
+      hasher.putString(dataType.getPurpose().name());
+    } else if (node instanceof UAReferenceType referenceType) {
+      hashLocalizedTexts(referenceType.getInverseName(), hasher);
+      hasher.putBoolean(referenceType.isSymmetric());
+    }
+  }
+
+  private static void hashDefinition(
+      Canonicalizer canonicalizer, @Nullable DataTypeDefinition definition, Hasher hasher) {
+
+    hasher.putBoolean(definition != null);
+    if (definition == null) {
+      return;
+    }
+
+    hasher.putString(canonicalizer.qualifiedName(definition.getName()));
+    hasher.putString(definition.getSymbolicName());
+    hasher.putBoolean(definition.isIsUnion());
+    hasher.putBoolean(definition.isIsOptionSet());
+    hasher.putString(canonicalizer.nodeId(definition.getBaseType()));
+    hasher.putLong(definition.getField().size());
+    for (DataTypeField field : definition.getField()) {
+      hashLocalizedTexts(field.getDisplayName(), hasher);
+      hashLocalizedTexts(field.getDescription(), hasher);
+      hasher.putString(field.getName());
+      hasher.putString(field.getSymbolicName());
+      hasher.putString(canonicalizer.nodeId(field.getDataType()));
+      hasher.putLong(field.getValueRank());
+      hasher.putString(field.getArrayDimensions());
+      hasher.putLong(field.getMaxStringLength());
+      hasher.putLong(field.getValue());
+      hasher.putBoolean(field.isIsOptional());
+      hasher.putBoolean(field.isAllowSubTypes());
+    }
+  }
+
+  private static void hashLocalizedTexts(List<LocalizedText> texts, Hasher hasher) {
+    hasher.putLong(texts.size());
+    for (LocalizedText text : texts) {
+      hasher.putString(text.getValue());
+      hasher.putString(text.getLocale());
+    }
+  }
+
+  /** The hashes of one node. */
+  record NodeDigest(
+      String namespaceUri,
+      String key,
+      NodeId nodeId,
+      byte[] attributes,
+      byte[] references,
+      byte[] hash) {}
+
+  /** The hashes of the nodes in one namespace, keyed and ordered by index-independent NodeId. */
+  static final class NamespaceDigest {
+
+    final String namespaceUri;
+    final SortedMap<String, NodeDigest> nodes;
+    final byte[] hash;
+
+    private NamespaceDigest(String namespaceUri, SortedMap<String, NodeDigest> nodes) {
+      this.namespaceUri = namespaceUri;
+      this.nodes = Collections.unmodifiableSortedMap(nodes);
+
+      var hasher = new Hasher();
+      nodes.forEach(
+          (key, nodeDigest) -> {
+            hasher.putString(key);
+            hasher.putHash(nodeDigest.hash());
+          });
+      this.hash = hasher.finish();
+    }
+  }
+
+  /** Rewrites NodeIds and QualifiedNames in terms of namespace URIs, resolving aliases. */
+  private static final class Canonicalizer {
+
+    private final Map<String, String> aliases = new HashMap<>();
+    private final List<String> namespaceUris;
+
+    Canonicalizer(NodeSet nodeSet) {
+      UANodeSet uaNodeSet = nodeSet.getNodeSet();
+      if (uaNodeSet.getAliases() != null) {
+        uaNodeSet.getAliases().getAlias().forEach(a -> aliases.put(a.getAlias(), a.getValue()));
+      }
+      this.namespaceUris = uaNodeSet.getNamespaceUris().getUri();
+    }
+
+    /** Get the part of a NodeId that follows its namespace index. */
+    static String key(NodeId nodeId) {
+      return NodeIdCodec.appendIdentifier(nodeId, new StringBuilder(16)).toString();
+    }
+
+    String namespaceUri(NodeId nodeId) {
+      return namespaceUri(nodeId.getNamespaceIndex().intValue());
+    }
+
+    @Nullable String nodeId(@Nullable String nodeIdOrAlias) {
+      if (nodeIdOrAlias == null || nodeIdOrAlias.isEmpty()) {
+        return nodeIdOrAlias;
+      }
+
+      NodeId nodeId = NodeIdUtil.parse(aliases.getOrDefault(nodeIdOrAlias, nodeIdOrAlias));
+      String namespaceUri = namespaceUri(nodeId);
+      var sb = new StringBuilder(namespaceUri.length() + 24);
+      sb.append("nsu=").append(namespaceUri).append(';');
+      return NodeIdCodec.appendIdentifier(nodeId, sb).toString();
+    }
+
+    @Nullable String qualifiedName(@Nullable String qualifiedName) {
+      if (qualifiedName == null) {
+        return null;
+      }
+
+      Matcher matcher = IndexUtil.PATTERN_QUALIFIED_NAME.matcher(qualifiedName);
+      if (matcher.matches()) {
+        return namespaceUri(Integer.parseInt(matcher.group(1))) + ":" + matcher.group(2);
+      } else {
+        return namespaceUri(0) + ":" + qualifiedName;
+      }
+    }
+
+    String identifier(String identifier) {
+      Matcher matcher = IndexUtil.PATTERN_NODE_ID.matcher(identifier);
+      return matcher.matches()
+          ? "nsu=" + namespaceUri(Integer.parseInt(matcher.group(1))) + ";" + matcher.group(2)
+          : identifier;
+    }
+
+    String reference(Reference reference) {
+      return nodeId(reference.getReferenceType())
+          + (reference.isIsForward() ? " -> " : " <- ")
+          + nodeId(reference.getValue());
+    }
+
+    private String namespaceUri(int namespaceIndex) {
+      return namespaceIndex < namespaceUris.size()
+          ? namespaceUris.get(namespaceIndex)
+          : "ns=" + namespaceIndex;
+    }
+  }
+
+  /** Feeds length-prefixed fields into a SHA-256 digest. */
+  private static final class Hasher {
+
+    private static final byte NULL = 0;
+    private static final byte PRESENT = 1;
+    private static final byte ELEMENT = 2;
+    private static final byte TEXT = 3;
+    private static final byte END = 4;
+
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[Long.BYTES];
+
+    Hasher() {
+      try {
+        digest = MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    void putBoolean(boolean value) {
+      digest.update(value ? PRESENT : NULL);
+    }
+
+    void putLong(long value) {
+      for (int i = 0; i < Long.BYTES; i++) {
+        buffer[i] = (byte) (value >>> (56 - 8 * i));
+      }
+      digest.update(buffer);
+    }
+
+    void putString(@Nullable String value) {
+      if (value == null) {
+        digest.update(NULL);
+      } else {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(PRESENT);
+        putLong(bytes.length);
+        digest.update(bytes);
+      }
+    }
+
+    void putHash(byte[] hash) {
+      assert hash.length == HASH_LENGTH;
+      digest.update(hash);
+    }
+
+    void putDom(@Nullable Object value, Canonicalizer canonicalizer) {
+      if (value instanceof Node node) {
+        digest.update(PRESENT);
+        putNode(node, canonicalizer);
+      } else {
+        putString(value != null ? value.toString() : null);
+      }
+    }
+
+    private void putNode(Node node, Canonicalizer canonicalizer) {
+      switch (node.getNodeType()) {
+        case Node.ELEMENT_NODE -> {
+          digest.update(ELEMENT);
+          putString(node.getNamespaceURI());
+          putString(node.getLocalName() != null ? node.getLocalName() : node.getNodeName());
+
+          var attributes = new TreeMap<String, String>();
+          NamedNodeMap attributeMap = node.getAttributes();
+          for (int i = 0; i < attributeMap.getLength(); i++) {
+            Node attribute = attributeMap.item(i);
+            String name = attribute.getNodeName();
+            if (!name.equals("xmlns") && !name.startsWith("xmlns:")) {
+              String localName =
+                  attribute.getLocalName() != null ? attribute.getLocalName() : name;
+              attributes.put(
+                  "{" + attribute.getNamespaceURI() + "}" + localName, attribute.getNodeValue());
+            }
+          }
+          putLong(attributes.size());
+          attributes.forEach(
+              (name, value) -> {
+                putString(name);
+                putString(value);
+              });
+
+          if ("Identifier".equals(node.getLocalName())) {
+            // NodeIds in values are reindexed by the merger; hash them by namespace URI instead
+            digest.update(TEXT);
+            putString(canonicalizer.identifier(node.getTextContent().strip()));
+          } else {
+            for (Node child = node.getFirstChild();
+                child != null;
+                child = child.getNextSibling()) {
+              putNode(child, canonicalizer);
+            }
+          }
+          digest.update(END);
+        }
+        case Node.TEXT_NODE, Node.CDATA_SECTION_NODE -> {
+          String text = node.getNodeValue().strip();
+          if (!text.isEmpty()) {
+            digest.update(TEXT);
+            putString(text);
+          }
+        }
+        default -> {
+          // comments and processing instructions do not contribute to content
+        }
+      }
+    }
+
+    byte[] finish() {
+      return digest.digest();
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.util.*;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.opcfoundation.ua.Reference;
+import org.opcfoundation.ua.UANode;
+
+/**
+ * Compact adjacency view of the combined reference graph of a {@link NodeSet}.
+ *
+ * <p>Every indexed node is assigned a dense ordinal in document order. References are stored in
+ * compressed sparse row form: the edges of node {@code n} occupy {@code [offsets[n],
+ * offsets[n + 1])} in {@link #targets} and {@link #edges}. Each edge encodes its ReferenceType as a
+ * dense index into {@link #referenceTypes}, shifted left by one, with the low bit set for forward
+ * references. Edges follow the same deduplicated explicit-then-implicit order as {@link
+ * NodeSet#getReferences(NodeId)}; references to nodes outside the NodeSet are omitted.
+ */
+final class NodeSetGraph {
+
+  final UANode[] nodes;
+  final NodeId[] nodeIds;
+  final NodeId[] referenceTypes;
+
+  final int[] offsets;
+  final int[] targets;
+  final int[] edges;
+
+  private final Map<NodeId, Integer> ordinals;
+  private final Map<NodeId, Integer> referenceTypeIndexes;
+
+  private NodeSetGraph(
+      UANode[] nodes,
+      NodeId[] nodeIds,
+      Map<NodeId, Integer> ordinals,
+      NodeId[] referenceTypes,
+      Map<NodeId, Integer> referenceTypeIndexes,
+      int[] offsets,
+      int[] targets,
+      int[] edges) {
+
+    this.nodes = nodes;
+    this.nodeIds = nodeIds;
+    this.ordinals = ordinals;
+    this.referenceTypes = referenceTypes;
+    this.referenceTypeIndexes = referenceTypeIndexes;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.edges = edges;
+  }
+
+  /**
+   * Get the number of nodes in the graph.
+   *
+   * @return the number of nodes.
+   */
+  int size() {
+    return nodes.length;
+  }
+
+  /**
+   * Get the dense ordinal of a node.
+   *
+   * @param nodeId the NodeId of the node.
+   * @return the node's ordinal, or {@code -1} if the node is not part of the graph.
+   */
+  int ordinal(NodeId nodeId) {
+    Integer ordinal = ordinals.get(nodeId);
+    return ordinal != null ? ordinal : -1;
+  }
+
+  /**
+   * Get the dense index of a ReferenceType that appears on at least one edge.
+   *
+   * @param referenceTypeId the NodeId of the ReferenceType.
+   * @return the ReferenceType index, or {@code -1} if no edge uses the ReferenceType.
+   */
+  int referenceTypeIndex(NodeId referenceTypeId) {
+    Integer index = referenceTypeIndexes.get(referenceTypeId);
+    return index != null ? index : -1;
+  }
+
+  static int edgeReferenceType(int edge) {
+    return edge >>> 1;
+  }
+
+  static boolean edgeIsForward(int edge) {
+    return (edge & 1) != 0;
+  }
+
+  /**
+   * Resolve a set of ReferenceTypes, optionally with their subtypes, to a mask over the dense
+   * ReferenceType indexes of this graph.
+   *
+   * @param referenceTypeTree the ReferenceType hierarchy used to expand subtypes.
+   * @param referenceTypeIds the ReferenceTypes to include.
+   * @param includeSubtypes whether subtypes of {@code referenceTypeIds} are included.
+   * @return a mask with a bit set for each matching ReferenceType index.
+   */
+  BitSet referenceTypeMask(
+      ReferenceTypeInfoTree referenceTypeTree,
+      Collection<NodeId> referenceTypeIds,
+      boolean includeSubtypes) {
+
+    var mask = new BitSet(referenceTypes.length);
+
+    for (NodeId referenceTypeId : referenceTypeIds) {
+      int index = referenceTypeIndex(referenceTypeId);
+      if (index >= 0) mask.set(index);
+
+      if (includeSubtypes) {
+        for (NodeId subtypeId : referenceTypeTree.getSubtypes(referenceTypeId)) {
+          int subtypeIndex = referenceTypeIndex(subtypeId);
+          if (subtypeIndex >= 0) mask.set(subtypeIndex);
+        }
+      }
+    }
+
+    return mask;
+  }
+
+  static NodeSetGraph build(NodeSet nodeSet) {
+    List<UANode> nodeList = nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+
+    // Only the node that won the NodeId index gets an ordinal.
+    var nodes = new ArrayList<UANode>(nodeList.size());
+    var nodeIds = new ArrayList<NodeId>(nodeList.size());
+    var ordinals = new HashMap<NodeId, Integer>(nodeList.size() * 2);
+    for (UANode node : nodeList) {
+      NodeId nodeId = nodeSet.parseNodeId(node.getNodeId());
+      if (nodeSet.getNode(nodeId) == node && !ordinals.containsKey(nodeId)) {
+        ordinals.put(nodeId, nodes.size());
+        nodes.add(node);
+        nodeIds.add(nodeId);
+      }
+    }
+
+    var referenceTypes = new ArrayList<NodeId>();
+    var referenceTypeIndexes = new HashMap<NodeId, Integer>();
+
+    int[] offsets = new int[nodes.size() + 1];
+    int[] targets = new int[16];
+    int[] edges = new int[16];
+    int edgeCount = 0;
+
+    var seen = new HashSet<Long>();
+
+    for (int ordinal = 0; ordinal < nodes.size(); ordinal++) {
+      offsets[ordinal] = edgeCount;
+      seen.clear();
+
+      NodeId nodeId = nodeIds.get(ordinal);
+      for (List<Reference> references :
+          List.of(nodeSet.getExplicitReferences(nodeId), nodeSet.getImplicitReferences(nodeId))) {
+
+        for (Reference reference : references) {
+          Integer target = ordinals.get(nodeSet.parseNodeId(reference.getValue()));
+          if (target == null) continue;
+
+          NodeId referenceTypeId = nodeSet.parseNodeId(reference.getReferenceType());
+          int referenceType =
+              referenceTypeIndexes.computeIfAbsent(
+                  referenceTypeId,
+                  id -> {
+                    referenceTypes.add(id);
+                    return referenceTypes.size() - 1;
+                  });
+
+          int edge = (referenceType << 1) | (reference.isIsForward() ? 1 : 0);
+
+          if (seen.add(((long) target << 32) | edge)) {
+            if (edgeCount == targets.length) {
+              targets = Arrays.copyOf(targets, edgeCount * 2);
+              edges = Arrays.copyOf(edges, edgeCount * 2);
+            }
+            targets[edgeCount] = target;
+            edges[edgeCount] = edge;
+            edgeCount++;
+          }
+        }
+      }
+    }
+    offsets[nodes.size()] = edgeCount;
+
+    return new NodeSetGraph(
+        nodes.toArray(UANode[]::new),
+        nodeIds.toArray(NodeId[]::new),
+        ordinals,
+        referenceTypes.toArray(NodeId[]::new),
+        referenceTypeIndexes,
+        offsets,
+        Arrays.copyOf(targets, edgeCount),
+        Arrays.copyOf(edges, edgeCount));
+  }
+}
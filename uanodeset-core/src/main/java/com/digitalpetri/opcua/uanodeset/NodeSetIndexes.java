@@ -0,0 +1,456 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.*;
+
+/**
+ * Immutable attribute indexes over the nodes of a normalized {@link UANodeSet}.
+ *
+ * <p>All indexes are built in a single pass over the node list. Every list preserves the document
+ * order of the merged NodeSet.
+ *
+ * <p>The indexes of a NodeSet derived with {@link NodeSet#apply(NodeSetDelta)} are {@link
+ * #update(List, List, Function) updated} from the base's indexes when the base has built them:
+ * only the lists that contain a changed node are copied, and the node class and namespace lists
+ * that contain one are rebuilt on first request.
+ */
+final class NodeSetIndexes {
+
+  private static final List<Class<? extends UANode>> NODE_CLASSES =
+      List.of(
+          UAObject.class,
+          UAVariable.class,
+          UAMethod.class,
+          UAView.class,
+          UAObjectType.class,
+          UAVariableType.class,
+          UADataType.class,
+          UAReferenceType.class);
+
+  private final ConcurrentMap<Class<?>, List<? extends UANode>> nodesByClass;
+
+  private final Map<String, List<UANode>> nodesByBrowseName;
+  private final Map<String, List<UANode>> nodesBySymbolicName;
+  private final Map<String, List<UANode>> nodesByDisplayName;
+  private final ConcurrentMap<Integer, List<UANode>> nodesByNamespaceIndex;
+
+  private final List<UANode> nodes;
+  private final int namespaceCount;
+  private final Function<String, NodeId> nodeIds;
+
+  /**
+   * Index {@code nodes}.
+   *
+   * @param nodes the nodes of the NodeSet, in document order.
+   * @param namespaceCount the number of namespaces in the NodeSet's namespace table.
+   * @param nodeIds parses the NodeIds of {@code nodes}.
+   */
+  NodeSetIndexes(List<UANode> nodes, int namespaceCount, Function<String, NodeId> nodeIds) {
+    this.nodes = nodes;
+    this.namespaceCount = namespaceCount;
+    this.nodeIds = nodeIds;
+
+    var byClass = new HashMap<Class<?>, List<UANode>>();
+    var byBrowseName = new HashMap<String, List<UANode>>();
+    var bySymbolicName = new HashMap<String, List<UANode>>();
+    var byDisplayName = new HashMap<String, List<UANode>>();
+    var byNamespaceIndex = new ArrayList<List<UANode>>();
+    for (int i = 0; i < namespaceCount; i++) {
+      byNamespaceIndex.add(new ArrayList<>());
+    }
+
+    for (UANode node : nodes) {
+      byClass.computeIfAbsent(node.getClass(), k -> new ArrayList<>()).add(node);
+
+      int namespaceIndex = namespaceIndex(node);
+      while (byNamespaceIndex.size() <= namespaceIndex) {
+        byNamespaceIndex.add(new ArrayList<>());
+      }
+      byNamespaceIndex.get(namespaceIndex).add(node);
+
+      String browseName = browseNameKey(node);
+      if (browseName != null) {
+        byBrowseName.computeIfAbsent(browseName, k -> new ArrayList<>()).add(node);
+      }
+
+      String symbolicName = symbolicNameKey(node, namespaceIndex);
+      if (symbolicName != null) {
+        bySymbolicName.computeIfAbsent(symbolicName, k -> new ArrayList<>()).add(node);
+      }
+
+      for (String displayName : displayNameKeys(node)) {
+        byDisplayName.computeIfAbsent(displayName, k -> new ArrayList<>()).add(node);
+      }
+    }
+
+    nodesByClass = new ConcurrentHashMap<>();
+    for (Class<? extends UANode> nodeClass : NODE_CLASSES) {
+      nodesByClass.put(nodeClass, List.copyOf(byClass.getOrDefault(nodeClass, List.of())));
+    }
+
+    nodesByBrowseName = immutableMultimap(byBrowseName);
+    nodesBySymbolicName = immutableMultimap(bySymbolicName);
+    nodesByDisplayName = immutableMultimap(byDisplayName);
+
+    nodesByNamespaceIndex = new ConcurrentHashMap<>();
+    for (int i = 0; i < byNamespaceIndex.size(); i++) {
+      nodesByNamespaceIndex.put(i, List.copyOf(byNamespaceIndex.get(i)));
+    }
+  }
+
+  private NodeSetIndexes(
+      NodeSetIndexes base,
+      List<UANode> nodes,
+      Function<String, NodeId> nodeIds,
+      ConcurrentMap<Class<?>, List<? extends UANode>> nodesByClass,
+      Map<String, List<UANode>> nodesByBrowseName,
+      Map<String, List<UANode>> nodesBySymbolicName,
+      Map<String, List<UANode>> nodesByDisplayName,
+      ConcurrentMap<Integer, List<UANode>> nodesByNamespaceIndex) {
+
+    this.nodes = nodes;
+    this.namespaceCount = base.namespaceCount;
+    this.nodeIds = nodeIds;
+    this.nodesByClass = nodesByClass;
+    this.nodesByBrowseName = nodesByBrowseName;
+    this.nodesBySymbolicName = nodesBySymbolicName;
+    this.nodesByDisplayName = nodesByDisplayName;
+    this.nodesByNamespaceIndex = nodesByNamespaceIndex;
+  }
+
+  /**
+   * Derive the indexes of a NodeSet that differs from this one by {@code changes}.
+   *
+   * <p>Lists keyed by BrowseName, SymbolicName, or DisplayName are copied and patched, and the
+   * patched maps share every other list with this one. The node class and namespace lists that
+   * hold a changed node are dropped and rebuilt from {@code nodes} on first request. A node that
+   * moves into a list neither in place of its previous version nor at the end, such as a renamed
+   * node, cannot be positioned without the document order, so the lists it moves into are rebuilt
+   * with one pass over {@code nodes}.
+   *
+   * @param nodes the nodes of the derived NodeSet, in document order.
+   * @param changes the nodes the derived NodeSet added, replaced, or removed.
+   * @param nodeIds parses the NodeIds of {@code nodes}.
+   * @return the indexes of the derived NodeSet.
+   */
+  NodeSetIndexes update(
+      List<UANode> nodes, List<Change> changes, Function<String, NodeId> nodeIds) {
+
+    ToIntFunction<UANode> namespaceIndex =
+        n -> nodeIds.apply(n.getNodeId()).getNamespaceIndex().intValue();
+
+    var changedClasses = new HashSet<Class<?>>();
+    var changedNamespaces = new HashSet<Integer>();
+    for (Change change : changes) {
+      for (UANode node : change.nodes()) {
+        changedClasses.add(node.getClass());
+        changedNamespaces.add(namespaceIndex.applyAsInt(node));
+      }
+    }
+
+    var byClass = new ConcurrentHashMap<Class<?>, List<? extends UANode>>();
+    nodesByClass.forEach(
+        (nodeClass, list) -> {
+          if (changedClasses.stream().noneMatch(nodeClass::isAssignableFrom)) {
+            byClass.put(nodeClass, list);
+          }
+        });
+
+    var byNamespaceIndex = new ConcurrentHashMap<>(nodesByNamespaceIndex);
+    changedNamespaces.forEach(byNamespaceIndex::remove);
+
+    var browseNameRescans = new HashSet<String>();
+    var symbolicNameRescans = new HashSet<String>();
+    var displayNameRescans = new HashSet<String>();
+
+    Function<UANode, Collection<String>> browseNameKeys = n -> keys(browseNameKey(n));
+    Function<UANode, Collection<String>> symbolicNameKeys =
+        n -> keys(symbolicNameKey(n, namespaceIndex.applyAsInt(n)));
+
+    OverlayMap<String, List<UANode>> byBrowseName =
+        patch(nodesByBrowseName, changes, browseNameKeys, browseNameKeys, browseNameRescans);
+    OverlayMap<String, List<UANode>> bySymbolicName =
+        patch(
+            nodesBySymbolicName, changes, symbolicNameKeys, symbolicNameKeys, symbolicNameRescans);
+    OverlayMap<String, List<UANode>> byDisplayName =
+        patch(
+            nodesByDisplayName,
+            changes,
+            NodeSetIndexes::displayNameKeys,
+            NodeSetIndexes::displayNameKeys,
+            displayNameRescans);
+
+    if (!browseNameRescans.isEmpty()
+        || !symbolicNameRescans.isEmpty()
+        || !displayNameRescans.isEmpty()) {
+
+      var browseNames = new HashMap<String, List<UANode>>();
+      var symbolicNames = new HashMap<String, List<UANode>>();
+      var displayNames = new HashMap<String, List<UANode>>();
+      for (UANode node : nodes) {
+        collect(node, browseNameKeys.apply(node), browseNameRescans, browseNames);
+        collect(node, symbolicNameKeys.apply(node), symbolicNameRescans, symbolicNames);
+        collect(node, displayNameKeys(node), displayNameRescans, displayNames);
+      }
+      replace(byBrowseName, browseNameRescans, browseNames);
+      replace(bySymbolicName, symbolicNameRescans, symbolicNames);
+      replace(byDisplayName, displayNameRescans, displayNames);
+    }
+
+    // the patched maps are kept as they are, so the next update can layer over them
+    return new NodeSetIndexes(
+        this,
+        nodes,
+        nodeIds,
+        byClass,
+        byBrowseName,
+        bySymbolicName,
+        byDisplayName,
+        byNamespaceIndex);
+  }
+
+  /**
+   * Patch a multimap whose lists are in document order for the nodes changed by a delta.
+   *
+   * <p>A replaced node takes the place of its previous version in the lists of keys it keeps, and
+   * an appended node is added to the end of its lists. Keys whose lists cannot be patched this way
+   * are added to {@code rescans}; their lists must be rebuilt by the caller.
+   *
+   * @param base the multimap of the base NodeSet.
+   * @param changes the nodes the delta added, replaced, or removed.
+   * @param beforeKeys the keys of a node of the base NodeSet.
+   * @param afterKeys the keys of a node of the derived NodeSet.
+   * @param rescans receives the keys whose lists must be rebuilt.
+   * @return a multimap sharing every unchanged list with {@code base}.
+   */
+  static <K> OverlayMap<K, List<UANode>> patch(
+      Map<K, List<UANode>> base,
+      List<Change> changes,
+      Function<UANode, Collection<K>> beforeKeys,
+      Function<UANode, Collection<K>> afterKeys,
+      Set<K> rescans) {
+
+    OverlayMap<K, List<UANode>> patched = OverlayMap.over(base);
+    var lists = new HashMap<K, List<UANode>>();
+    Function<K, List<UANode>> copy = k -> new ArrayList<>(patched.getOrDefault(k, List.of()));
+
+    for (Change change : changes) {
+      UANode before = change.before();
+      UANode after = change.after();
+      Collection<K> keysBefore = before != null ? beforeKeys.apply(before) : List.of();
+      Collection<K> keysAfter = after != null ? afterKeys.apply(after) : List.of();
+
+      for (K key : keysBefore) {
+        List<UANode> list = lists.computeIfAbsent(key, copy);
+        int index = indexOf(list, before);
+        if (index < 0) {
+          rescans.add(key);
+        } else if (after != null && keysAfter.contains(key)) {
+          list.set(index, after);
+        } else {
+          list.remove(index);
+        }
+      }
+
+      for (K key : keysAfter) {
+        if (keysBefore.contains(key)) {
+          continue;
+        }
+        if (change.appended()) {
+          lists.computeIfAbsent(key, copy).add(after);
+        } else {
+          rescans.add(key);
+        }
+      }
+    }
+
+    lists.forEach(
+        (key, list) -> {
+          if (list.isEmpty()) {
+            patched.remove(key);
+          } else {
+            patched.put(key, List.copyOf(list));
+          }
+        });
+
+    return patched;
+  }
+
+  /** Add {@code node} to the lists of those of its {@code keys} that are being rebuilt. */
+  static <K> void collect(
+      UANode node, Collection<K> keys, Set<K> rescans, Map<K, List<UANode>> lists) {
+
+    for (K key : keys) {
+      if (rescans.contains(key)) {
+        lists.computeIfAbsent(key, k -> new ArrayList<>()).add(node);
+      }
+    }
+  }
+
+  /** Replace the lists of the rebuilt keys of a patched multimap. */
+  static <K> void replace(
+      OverlayMap<K, List<UANode>> patched, Set<K> rescans, Map<K, List<UANode>> lists) {
+
+    for (K key : rescans) {
+      List<UANode> list = lists.get(key);
+      if (list != null) {
+        patched.put(key, List.copyOf(list));
+      } else {
+        patched.remove(key);
+      }
+    }
+  }
+
+  private static int indexOf(List<UANode> list, UANode node) {
+    for (int i = 0; i < list.size(); i++) {
+      if (list.get(i) == node) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static <K> Collection<K> keys(@Nullable K key) {
+    return key != null ? List.of(key) : List.of();
+  }
+
+  @SuppressWarnings("unchecked")
+  <T extends UANode> List<T> getNodes(Class<T> nodeClass) {
+    return (List<T>)
+        nodesByClass.computeIfAbsent(
+            nodeClass, c -> nodes.stream().filter(c::isInstance).map(nodeClass::cast).toList());
+  }
+
+  List<UANode> getNodesByBrowseName(String browseName) {
+    return nodesByBrowseName.getOrDefault(normalizeBrowseName(browseName), List.of());
+  }
+
+  List<UANode> getNodesBySymbolicName(int namespaceIndex, String symbolicName) {
+    return nodesBySymbolicName.getOrDefault(
+        symbolicNameKey(namespaceIndex, symbolicName), List.of());
+  }
+
+  List<UANode> getNodesByDisplayName(String displayName) {
+    return nodesByDisplayName.getOrDefault(displayName, List.of());
+  }
+
+  List<UANode> getNodesInNamespace(int namespaceIndex) {
+    List<UANode> namespaceNodes = nodesByNamespaceIndex.get(namespaceIndex);
+    if (namespaceNodes == null && namespaceIndex >= 0 && namespaceIndex < namespaceCount) {
+      // dropped by update() because the namespace has changed nodes
+      namespaceNodes =
+          nodesByNamespaceIndex.computeIfAbsent(
+              namespaceIndex,
+              i -> nodes.stream().filter(n -> namespaceIndex(n) == namespaceIndex).toList());
+    }
+    return namespaceNodes != null ? namespaceNodes : List.of();
+  }
+
+  private int namespaceIndex(UANode node) {
+    return nodeIds.apply(node.getNodeId()).getNamespaceIndex().intValue();
+  }
+
+  private static @Nullable String browseNameKey(UANode node) {
+    String browseName = node.getBrowseName();
+    return browseName != null ? normalizeBrowseName(browseName) : null;
+  }
+
+  private static @Nullable String symbolicNameKey(UANode node, int namespaceIndex) {
+    String symbolicName = node.getSymbolicName();
+    if (symbolicName == null && node.getBrowseName() != null) {
+      // SymbolicName defaults to the name part of the BrowseName when omitted.
+      symbolicName = browseNameName(node.getBrowseName());
+    }
+    return symbolicName != null ? symbolicNameKey(namespaceIndex, symbolicName) : null;
+  }
+
+  private static Collection<String> displayNameKeys(UANode node) {
+    var displayNames = new LinkedHashSet<String>();
+    for (LocalizedText displayName : node.getDisplayName()) {
+      String text = displayName.getValue();
+      if (text != null) {
+        displayNames.add(text);
+      }
+    }
+    return displayNames;
+  }
+
+  /**
+   * Normalize a UANodeSet BrowseName so namespace-zero names match with or without a prefix.
+   *
+   * @param browseName the BrowseName, e.g. {@code 0:Server}, {@code Server}, or {@code 2:Foo}.
+   * @return the BrowseName without an explicit namespace-zero prefix.
+   */
+  static String normalizeBrowseName(String browseName) {
+    return browseNameIndex(browseName) == 0 ? browseNameName(browseName) : browseName;
+  }
+
+  /**
+   * Get the namespace index prefix of a UANodeSet BrowseName.
+   *
+   * @param browseName the BrowseName to inspect.
+   * @return the namespace index, or {@code 0} when the BrowseName has no numeric prefix.
+   */
+  static int browseNameIndex(String browseName) {
+    int prefixLength = browseNamePrefixLength(browseName);
+    return prefixLength > 0 ? Integer.parseInt(browseName.substring(0, prefixLength - 1)) : 0;
+  }
+
+  /**
+   * Get the name part of a UANodeSet BrowseName, without any namespace index prefix.
+   *
+   * @param browseName the BrowseName to inspect.
+   * @return the name part of the BrowseName.
+   */
+  static String browseNameName(String browseName) {
+    return browseName.substring(browseNamePrefixLength(browseName));
+  }
+
+  private static int browseNamePrefixLength(String browseName) {
+    int colon = browseName.indexOf(':');
+    if (colon <= 0 || colon > 5) {
+      return 0;
+    }
+    for (int i = 0; i < colon; i++) {
+      if (!Character.isDigit(browseName.charAt(i))) {
+        return 0;
+      }
+    }
+    return colon + 1;
+  }
+
+  private static String symbolicNameKey(int namespaceIndex, String symbolicName) {
+    return namespaceIndex + ":" + symbolicName;
+  }
+
+  private static Map<String, List<UANode>> immutableMultimap(Map<String, List<UANode>> map) {
+    var immutable = new HashMap<String, List<UANode>>(map.size());
+    map.forEach((k, v) -> immutable.put(k, List.copyOf(v)));
+    return Collections.unmodifiableMap(immutable);
+  }
+
+  /**
+   * A node that a delta added, replaced, or removed.
+   *
+   * @param before the node in the base NodeSet, or {@code null} if the delta added it.
+   * @param after the node in the derived NodeSet, or {@code null} if the delta removed it.
+   * @param appended whether {@code after} follows every node of the base NodeSet in document
+   *     order; otherwise it keeps the position of {@code before} or of an earlier version of the
+   *     node.
+   */
+  record Change(@Nullable UANode before, @Nullable UANode after, boolean appended) {
+
+    List<UANode> nodes() {
+      if (before == null) {
+        return after != null ? List.of(after) : List.of();
+      }
+      return after != null ? List.of(before, after) : List.of(before);
+    }
+  }
+}
@@ -0,0 +1,197 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetMerger;
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
+import jakarta.xml.bind.JAXBException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import org.opcfoundation.ua.UANodeSet;
+
+/**
+ * Asynchronous NodeSet loading pipeline.
+ *
+ * <p>Loading is split into parse, merge, index, and type-tree stages. Every stream, including the
+ * bundled base NodeSet, is parsed by its own task; the merge starts once all parses complete; the
+ * merged model is indexed; its type nodes are collected in one pass; and the ObjectType,
+ * VariableType, ReferenceType, and DataType trees are then built from them concurrently. Each
+ * task runs on the loader's {@link Executor}.
+ *
+ * <p>Cancelling the returned future stops the pipeline at the next stage boundary. A task that is
+ * already running completes, but its result is discarded and no further tasks are submitted.
+ *
+ * <p>Failures, including a rejected task submission, complete the returned future exceptionally
+ * with the original exception. Each loader drives a single load and must not be reused.
+ */
+final class NodeSetLoader {
+
+  private static final Executor DEFAULT_EXECUTOR = createDefaultExecutor();
+
+  private final CompletableFuture<NodeSet> result = new CompletableFuture<>();
+
+  private final Executor executor;
+
+  NodeSetLoader(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Get the executor used when callers do not supply one.
+   *
+   * @return a virtual-thread-per-task executor when the runtime supports virtual threads, otherwise
+   *     the common {@link ForkJoinPool}.
+   */
+  static Executor defaultExecutor() {
+    return DEFAULT_EXECUTOR;
+  }
+
+  /**
+   * Parse, merge, and index {@code inputStreams} with the bundled base NodeSet.
+   *
+   * @param inputStreams the XML streams to parse, in merge order.
+   * @return a future completing with the loaded {@link NodeSet}.
+   */
+  CompletableFuture<NodeSet> load(List<InputStream> inputStreams) {
+    var parsed = new ArrayList<CompletableFuture<UANodeSet>>();
+    CompletableFuture<UANodeSet> base = submit(NodeSet::parseBaseNodeSet);
+
+    for (InputStream inputStream : List.copyOf(inputStreams)) {
+      parsed.add(submit(() -> UANodeSetParser.parse(inputStream)));
+    }
+
+    return complete(base, parsed);
+  }
+
+  /**
+   * Merge and index already-parsed {@code nodeSets} with the bundled base NodeSet.
+   *
+   * @param nodeSets the parsed extension NodeSets, in merge order.
+   * @return a future completing with the loaded {@link NodeSet}.
+   */
+  CompletableFuture<NodeSet> from(Collection<UANodeSet> nodeSets) {
+    var parsed = new ArrayList<CompletableFuture<UANodeSet>>();
+    CompletableFuture<UANodeSet> base = submit(NodeSet::parseBaseNodeSet);
+
+    for (UANodeSet nodeSet : List.copyOf(nodeSets)) {
+      parsed.add(CompletableFuture.completedFuture(nodeSet));
+    }
+
+    return complete(base, parsed);
+  }
+
+  private CompletableFuture<NodeSet> complete(
+      CompletableFuture<UANodeSet> base, List<CompletableFuture<UANodeSet>> parsed) {
+
+    var all = new ArrayList<CompletableFuture<UANodeSet>>();
+    all.add(base);
+    all.addAll(parsed);
+
+    CompletableFuture.allOf(all.toArray(CompletableFuture[]::new))
+        .thenCompose(v -> submit(() -> merge(base.join(), parsed)))
+        .thenCompose(merged -> submit(() -> new NodeSet(merged)))
+        .thenCompose(this::buildTypeTrees)
+        .whenComplete(
+            (nodeSet, ex) -> {
+              if (ex != null) {
+                result.completeExceptionally(unwrap(ex));
+              } else {
+                result.complete(nodeSet);
+              }
+            });
+
+    return result;
+  }
+
+  private CompletableFuture<NodeSet> buildTypeTrees(NodeSet nodeSet) {
+    return submit(() -> TypeInfoTreeBuilder.collectTypeNodes(nodeSet))
+        .thenCompose(typeNodes -> buildTypeTrees(nodeSet, typeNodes));
+  }
+
+  private CompletableFuture<NodeSet> buildTypeTrees(
+      NodeSet nodeSet, TypeInfoTreeBuilder.TypeNodes typeNodes) {
+
+    CompletableFuture<ReferenceTypeInfoTree> referenceTypeTree =
+        submit(() -> ReferenceTypeInfoTree.create(nodeSet, typeNodes));
+    CompletableFuture<ObjectTypeInfoTree> objectTypeTree =
+        submit(() -> ObjectTypeInfoTree.create(nodeSet, typeNodes));
+    CompletableFuture<VariableTypeInfoTree> variableTypeTree =
+        submit(() -> VariableTypeInfoTree.create(nodeSet, typeNodes));
+    CompletableFuture<DataTypeInfoTree> dataTypeTree =
+        submit(() -> DataTypeInfoTree.create(nodeSet, typeNodes));
+
+    return CompletableFuture.allOf(
+            referenceTypeTree, objectTypeTree, variableTypeTree, dataTypeTree)
+        .thenApply(
+            v -> {
+              nodeSet.initTypeTrees(
+                  new TypeTrees(
+                      referenceTypeTree.join(),
+                      objectTypeTree.join(),
+                      variableTypeTree.join(),
+                      dataTypeTree.join()));
+              return nodeSet;
+            });
+  }
+
+  private <T> CompletableFuture<T> submit(Task<T> task) {
+    if (result.isDone()) {
+      return CompletableFuture.failedFuture(new CancellationException());
+    }
+
+    try {
+      return CompletableFuture.supplyAsync(
+          () -> {
+            if (result.isDone()) {
+              throw new CancellationException();
+            }
+            try {
+              return task.run();
+            } catch (JAXBException e) {
+              throw new CompletionException(e);
+            }
+          },
+          executor);
+    } catch (RejectedExecutionException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private static UANodeSet merge(UANodeSet base, List<CompletableFuture<UANodeSet>> parsed) {
+    UANodeSet merged = base;
+    for (CompletableFuture<UANodeSet> nodeSet : parsed) {
+      merged = UANodeSetMerger.merge(merged, nodeSet.join());
+    }
+    return merged;
+  }
+
+  private static Throwable unwrap(Throwable ex) {
+    while (ex instanceof CompletionException && ex.getCause() != null) {
+      ex = ex.getCause();
+    }
+    return ex;
+  }
+
+  private static Executor createDefaultExecutor() {
+    try {
+      // Executors.newVirtualThreadPerTaskExecutor() is only available on Java 21+
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return ForkJoinPool.commonPool();
+    }
+  }
+
+  @FunctionalInterface
+  private interface Task<T> {
+    T run() throws JAXBException;
+  }
+}
@@ -0,0 +1,378 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.util.*;
+import java.util.stream.IntStream;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.LocalizedText;
+import org.opcfoundation.ua.UANode;
+
+/**
+ * In-memory inverted index for keyword search over node names, descriptions, and documentation.
+ *
+ * <p>Text from each {@link Field} is split into lower-case terms on non-alphanumeric characters,
+ * camel-case humps, and letter/digit boundaries. Whole words are indexed as well, so {@code
+ * DeviceType} matches the queries {@code device}, {@code type}, and {@code devicet}.
+ *
+ * <p>Every query term is treated as a prefix and all query terms must match. Hits are ranked by the
+ * weight of the fields that matched, so a BrowseName match outranks a DisplayName match, which
+ * outranks a Description or Documentation match. Exact term matches outrank prefix matches.
+ *
+ * <p>The index is immutable and safe to query from multiple threads. It reflects the nodes present
+ * when it was created.
+ */
+public final class NodeSetSearchIndex {
+
+  /** The node attributes that are indexed, in descending order of ranking weight. */
+  public enum Field {
+    BROWSE_NAME(8),
+    DISPLAY_NAME(4),
+    DESCRIPTION(2),
+    DOCUMENTATION(1);
+
+    private final int weight;
+
+    Field(int weight) {
+      this.weight = weight;
+    }
+
+    /**
+     * Get the weight this field contributes to a hit's score.
+     *
+     * @return the ranking weight of this field.
+     */
+    public int getWeight() {
+      return weight;
+    }
+
+    private int mask() {
+      return 1 << ordinal();
+    }
+  }
+
+  /**
+   * A node matching a search query.
+   *
+   * @param node the matching node.
+   * @param score the ranking score; higher scores rank first.
+   * @param fields the fields in which at least one query term matched.
+   */
+  public record Hit(UANode node, int score, Set<Field> fields) {}
+
+  private final UANode[] nodes;
+
+  /** Sorted, distinct terms. */
+  private final String[] terms;
+
+  /** Ascending node ordinals for each term in {@link #terms}. */
+  private final int[][] postings;
+
+  /** Field bitmasks parallel to {@link #postings}. */
+  private final byte[][] postingFields;
+
+  private NodeSetSearchIndex(
+      UANode[] nodes, String[] terms, int[][] postings, byte[][] postingFields) {
+
+    this.nodes = nodes;
+    this.terms = terms;
+    this.postings = postings;
+    this.postingFields = postingFields;
+  }
+
+  /**
+   * Get the number of distinct terms in the index.
+   *
+   * @return the number of distinct terms.
+   */
+  public int getTermCount() {
+    return terms.length;
+  }
+
+  /**
+   * Search for nodes matching every term in {@code query}.
+   *
+   * @param query the query text; each term is matched as a prefix.
+   * @return all matching nodes, best first.
+   */
+  public List<Hit> search(String query) {
+    return search(query, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Search for nodes matching every term in {@code query}.
+   *
+   * @param query the query text; each term is matched as a prefix.
+   * @param limit the maximum number of hits to return.
+   * @return at most {@code limit} matching nodes, best first; ties are returned in document order.
+   * @throws IllegalArgumentException if {@code limit} is negative.
+   */
+  public List<Hit> search(String query, int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit: " + limit);
+    }
+
+    Set<String> queryTerms = tokenize(query);
+    if (queryTerms.isEmpty() || limit == 0) {
+      return List.of();
+    }
+
+    // Parallel arrays of matching node ordinals (ascending), scores, and field masks.
+    int[] ordinals = null;
+    int[] scores = null;
+    int[] masks = null;
+    int size = 0;
+
+    for (String queryTerm : queryTerms) {
+      // Each match is packed as ordinal << 32 | score << 8 | field mask so that sorting orders
+      // matches by ordinal without boxing.
+      long[] matches = new long[16];
+      int matchCount = 0;
+
+      for (int t = firstTermWithPrefix(queryTerm); t < terms.length; t++) {
+        if (!terms[t].startsWith(queryTerm)) {
+          break;
+        }
+
+        boolean exact = terms[t].length() == queryTerm.length();
+        int[] termPostings = postings[t];
+        byte[] termFields = postingFields[t];
+
+        for (int i = 0; i < termPostings.length; i++) {
+          int ordinal = termPostings[i];
+          if (ordinals != null && Arrays.binarySearch(ordinals, 0, size, ordinal) < 0) {
+            continue;
+          }
+
+          int fieldMask = termFields[i];
+          int score = maxWeight(fieldMask) * (exact ? 2 : 1);
+
+          if (matchCount == matches.length) {
+            matches = Arrays.copyOf(matches, matchCount * 2);
+          }
+          matches[matchCount++] = (long) ordinal << 32 | score << 8 | fieldMask;
+        }
+      }
+
+      if (matchCount == 0) {
+        return List.of();
+      }
+
+      Arrays.sort(matches, 0, matchCount);
+
+      // Collapse the matches of each ordinal, keeping the best score and all matched fields,
+      // then add the scores accumulated from the previous query terms.
+      int[] nextOrdinals = new int[matchCount];
+      int[] nextScores = new int[matchCount];
+      int[] nextMasks = new int[matchCount];
+      int nextSize = 0;
+      int previous = 0;
+
+      for (int i = 0; i < matchCount; i++) {
+        int ordinal = (int) (matches[i] >>> 32);
+        int score = (int) (matches[i] >>> 8) & 0xFFFFFF;
+        int fieldMask = (int) matches[i] & 0xFF;
+
+        if (nextSize > 0 && nextOrdinals[nextSize - 1] == ordinal) {
+          nextScores[nextSize - 1] = Math.max(nextScores[nextSize - 1], score);
+          nextMasks[nextSize - 1] |= fieldMask;
+        } else {
+          nextOrdinals[nextSize] = ordinal;
+          nextScores[nextSize] = score;
+          nextMasks[nextSize] = fieldMask;
+          nextSize++;
+        }
+      }
+
+      if (ordinals != null) {
+        for (int i = 0; i < nextSize; i++) {
+          while (ordinals[previous] != nextOrdinals[i]) {
+            previous++;
+          }
+          nextScores[i] += scores[previous];
+          nextMasks[i] |= masks[previous];
+        }
+      }
+
+      ordinals = nextOrdinals;
+      scores = nextScores;
+      masks = nextMasks;
+      size = nextSize;
+    }
+
+    // Rank by descending score, then ascending ordinal, packed as -score << 32 | index.
+    long[] ranking = new long[size];
+    for (int i = 0; i < size; i++) {
+      ranking[i] = (long) -scores[i] << 32 | i;
+    }
+    Arrays.sort(ranking);
+
+    int count = Math.min(size, limit);
+    var hits = new ArrayList<Hit>(count);
+    for (int r = 0; r < count; r++) {
+      int i = (int) ranking[r];
+      hits.add(new Hit(nodes[ordinals[i]], scores[i], fields(masks[i])));
+    }
+    return Collections.unmodifiableList(hits);
+  }
+
+  private int firstTermWithPrefix(String prefix) {
+    int index = Arrays.binarySearch(terms, prefix);
+    return index >= 0 ? index : -(index + 1);
+  }
+
+  private static int maxWeight(int fieldMask) {
+    for (Field field : Field.values()) {
+      if ((fieldMask & field.mask()) != 0) {
+        return field.weight;
+      }
+    }
+    return 0;
+  }
+
+  private static Set<Field> fields(int fieldMask) {
+    EnumSet<Field> fields = EnumSet.noneOf(Field.class);
+    for (Field field : Field.values()) {
+      if ((fieldMask & field.mask()) != 0) {
+        fields.add(field);
+      }
+    }
+    return Collections.unmodifiableSet(fields);
+  }
+
+  /**
+   * Build a search index over every node in {@code context}.
+   *
+   * <p>Nodes are tokenized in parallel on the common {@link java.util.concurrent.ForkJoinPool};
+   * the postings are then assembled in document order.
+   *
+   * @param context the {@link NodeSetContext} to index.
+   * @return a new {@link NodeSetSearchIndex}.
+   */
+  public static NodeSetSearchIndex create(NodeSetContext context) {
+    UANode[] nodes =
+        context.getNodeSet().getUAObjectOrUAVariableOrUAMethod().toArray(UANode[]::new);
+
+    List<Map<String, Integer>> nodeTerms =
+        IntStream.range(0, nodes.length).parallel().mapToObj(i -> termsOf(nodes[i])).toList();
+
+    var builders = new HashMap<String, PostingsBuilder>();
+    for (int ordinal = 0; ordinal < nodes.length; ordinal++) {
+      int o = ordinal;
+      nodeTerms
+          .get(ordinal)
+          .forEach(
+              (term, fieldMask) ->
+                  builders.computeIfAbsent(term, k -> new PostingsBuilder()).add(o, fieldMask));
+    }
+
+    String[] terms = builders.keySet().toArray(String[]::new);
+    Arrays.sort(terms);
+
+    var postings = new int[terms.length][];
+    var postingFields = new byte[terms.length][];
+    for (int t = 0; t < terms.length; t++) {
+      PostingsBuilder builder = builders.get(terms[t]);
+      postings[t] = Arrays.copyOf(builder.ordinals, builder.size);
+      postingFields[t] = Arrays.copyOf(builder.fields, builder.size);
+    }
+
+    return new NodeSetSearchIndex(nodes, terms, postings, postingFields);
+  }
+
+  private static Map<String, Integer> termsOf(UANode node) {
+    var terms = new HashMap<String, Integer>();
+
+    String browseName = node.getBrowseName();
+    if (browseName != null) {
+      addTerms(terms, NodeSetIndexes.browseNameName(browseName), Field.BROWSE_NAME);
+    }
+    for (LocalizedText displayName : node.getDisplayName()) {
+      addTerms(terms, displayName.getValue(), Field.DISPLAY_NAME);
+    }
+    for (LocalizedText description : node.getDescription()) {
+      addTerms(terms, description.getValue(), Field.DESCRIPTION);
+    }
+    addTerms(terms, node.getDocumentation(), Field.DOCUMENTATION);
+
+    return terms;
+  }
+
+  private static void addTerms(Map<String, Integer> terms, @Nullable String text, Field field) {
+    if (text != null) {
+      for (String term : tokenize(text)) {
+        terms.merge(term, field.mask(), (a, b) -> a | b);
+      }
+    }
+  }
+
+  /**
+   * Split text into the lower-case terms used by the index and by queries.
+   *
+   * <p>Each alphanumeric word is emitted whole and split at camel-case humps and letter/digit
+   * boundaries, e.g. {@code OPCUANamespace2} yields {@code opcuanamespace2}, {@code opcua}, {@code
+   * namespace}, and {@code 2}.
+   *
+   * @param text the text to tokenize.
+   * @return the distinct terms in order of first appearance.
+   */
+  static Set<String> tokenize(String text) {
+    var terms = new LinkedHashSet<String>();
+
+    int length = text.length();
+    int wordStart = -1;
+    for (int i = 0; i <= length; i++) {
+      boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+
+      if (wordChar && wordStart < 0) {
+        wordStart = i;
+      } else if (!wordChar && wordStart >= 0) {
+        addWord(terms, text, wordStart, i);
+        wordStart = -1;
+      }
+    }
+
+    return terms;
+  }
+
+  private static void addWord(Set<String> terms, String text, int start, int end) {
+    terms.add(text.substring(start, end).toLowerCase(Locale.ROOT));
+
+    int partStart = start;
+    for (int i = start + 1; i < end; i++) {
+      char previous = text.charAt(i - 1);
+      char c = text.charAt(i);
+
+      boolean boundary =
+          (Character.isLowerCase(previous) && Character.isUpperCase(c))
+              || (Character.isUpperCase(previous)
+                  && Character.isUpperCase(c)
+                  && i + 1 < end
+                  && Character.isLowerCase(text.charAt(i + 1)))
+              || (Character.isLetter(previous) != Character.isLetter(c));
+
+      if (boundary) {
+        terms.add(text.substring(partStart, i).toLowerCase(Locale.ROOT));
+        partStart = i;
+      }
+    }
+
+    if (partStart > start) {
+      terms.add(text.substring(partStart, end).toLowerCase(Locale.ROOT));
+    }
+  }
+
+  private static class PostingsBuilder {
+    private int[] ordinals = new int[4];
+    private byte[] fields = new byte[4];
+    private int size;
+
+    private void add(int ordinal, int fieldMask) {
+      if (size == ordinals.length) {
+        ordinals = Arrays.copyOf(ordinals, size * 2);
+        fields = Arrays.copyOf(fields, size * 2);
+      }
+      ordinals[size] = ordinal;
+      fields[size] = (byte) fieldMask;
+      size++;
+    }
+  }
+}
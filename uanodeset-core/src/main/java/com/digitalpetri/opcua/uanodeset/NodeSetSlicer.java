@@ -0,0 +1,276 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.opcfoundation.ua.*;
+
+/**
+ * Extracts the smallest self-contained part of a {@link NodeSet} that a node selection depends on.
+ *
+ * <p>A slice contains the selected nodes, the hierarchical path from each selected instance up to
+ * its topmost ancestor, and everything needed to interpret those nodes:
+ *
+ * <ul>
+ *   <li>type definitions, modelling rules, and method declarations;
+ *   <li>supertypes of every included type, up to the standard root types;
+ *   <li>the InstanceDeclarations of every included ObjectType and VariableType;
+ *   <li>the DataTypes of Variables, VariableTypes, and DataType fields, with their encodings;
+ *   <li>the ReferenceTypes of every reference between included nodes.
+ * </ul>
+ *
+ * <p>The slice keeps the source namespace table, so NodeIds are unchanged. References to nodes
+ * outside the slice are dropped. Nodes are deep copies in source document order, so the source
+ * {@code NodeSet} is never modified and the slice may be normalized by {@link
+ * NodeSet#NodeSet(UANodeSet)}.
+ *
+ * <p>Instances are immutable and may be shared between threads.
+ */
+public final class NodeSetSlicer {
+
+  private static final List<NodeId> ROOT_TYPE_IDS =
+      List.of(
+          NodeIds.BaseObjectType,
+          NodeIds.BaseVariableType,
+          NodeIds.BaseDataType,
+          NodeIds.References);
+
+  private static final List<NodeId> SUBTREE_REFERENCE_TYPE_IDS =
+      List.of(NodeIds.Aggregates, NodeIds.Organizes, NodeIds.HasEventSource);
+
+  private final NodeSet nodeSet;
+
+  private NodeSetSlicer(NodeSet nodeSet) {
+    this.nodeSet = nodeSet;
+  }
+
+  /**
+   * Create a slicer over {@code nodeSet}.
+   *
+   * @param nodeSet the {@link NodeSet} to slice.
+   * @return a new {@link NodeSetSlicer}.
+   */
+  public static NodeSetSlicer create(NodeSet nodeSet) {
+    return new NodeSetSlicer(nodeSet);
+  }
+
+  /**
+   * Slice the instance subtrees below {@code rootIds}.
+   *
+   * <p>Each root is selected together with every node reachable from it through forward {@code
+   * Aggregates}, {@code Organizes}, and {@code HasEventSource} references and their subtypes.
+   * Roots that are not part of the NodeSet are ignored.
+   *
+   * @param rootIds the NodeIds of the subtree roots.
+   * @return a new {@link UANodeSet} containing the subtrees and their dependencies.
+   */
+  public UANodeSet slice(Collection<NodeId> rootIds) {
+    var selection = new HashSet<NodeId>();
+    NodeSetTraversal traversal = nodeSet.traversal(SUBTREE_REFERENCE_TYPE_IDS);
+
+    for (NodeId rootId : rootIds) {
+      traversal.traverse(
+          rootId,
+          (node, depth) -> {
+            selection.add(nodeSet.parseNodeId(node.getNodeId()));
+            return NodeSetTraversal.Decision.CONTINUE;
+          });
+    }
+
+    return build(getClosure(selection));
+  }
+
+  /**
+   * Slice the nodes matching {@code selector}.
+   *
+   * <p>Only matching nodes are selected; their subtrees are included only as far as they are
+   * dependencies, such as InstanceDeclarations of an included type.
+   *
+   * @param selector the predicate selecting nodes.
+   * @return a new {@link UANodeSet} containing the matching nodes and their dependencies.
+   */
+  public UANodeSet slice(Predicate<? super UANode> selector) {
+    var selection = new HashSet<NodeId>();
+
+    for (UANode node : nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod()) {
+      if (selector.test(node)) {
+        selection.add(nodeSet.parseNodeId(node.getNodeId()));
+      }
+    }
+
+    return build(getClosure(selection));
+  }
+
+  /**
+   * Compute the NodeIds of the selected nodes and everything they depend on.
+   *
+   * @param selection the NodeIds of the selected nodes.
+   * @return an unmodifiable set of the NodeIds in the slice.
+   */
+  Set<NodeId> getClosure(Set<NodeId> selection) {
+    var closure = new Closure();
+
+    for (NodeId rootTypeId : ROOT_TYPE_IDS) {
+      closure.include(rootTypeId);
+    }
+    for (NodeId nodeId : selection) {
+      closure.include(nodeId);
+    }
+    for (NodeId nodeId : selection) {
+      includeAncestors(nodeId, closure);
+    }
+
+    while (!closure.pending.isEmpty()) {
+      NodeId nodeId = closure.pending.pop();
+      UANode node = nodeSet.getNode(nodeId);
+      if (node != null) {
+        includeDependencies(nodeId, node, closure);
+        includeReferenceTypes(node, closure);
+      }
+    }
+
+    return Collections.unmodifiableSet(closure.included);
+  }
+
+  private void includeDependencies(NodeId nodeId, UANode node, Closure closure) {
+    nodeSet.forEachReference(
+        nodeId,
+        this::isDependency,
+        reference -> closure.include(nodeSet.parseNodeId(reference.getValue())));
+
+    if (node instanceof UAVariable variable) {
+      closure.include(nodeSet.resolveNodeId(variable.getDataType()));
+    } else if (node instanceof UAVariableType variableType) {
+      closure.include(nodeSet.resolveNodeId(variableType.getDataType()));
+    } else if (node instanceof UAMethod method && method.getMethodDeclarationId() != null) {
+      closure.include(nodeSet.resolveNodeId(method.getMethodDeclarationId()));
+    } else if (node instanceof UADataType dataType && dataType.getDefinition() != null) {
+      for (DataTypeField field : dataType.getDefinition().getField()) {
+        closure.include(nodeSet.resolveNodeId(field.getDataType()));
+      }
+    }
+
+    if (node instanceof UAObjectType || node instanceof UAVariableType) {
+      InstanceDeclarations declarations = nodeSet.getInstanceDeclarations(nodeId);
+      if (declarations != null) {
+        for (InstanceDeclaration declaration : declarations.getDeclaredDeclarations().values()) {
+          closure.include(declaration.getNodeId());
+        }
+      }
+    }
+  }
+
+  private void includeAncestors(NodeId nodeId, Closure closure) {
+    ReferenceTypeInfoTree referenceTypeTree = nodeSet.getReferenceTypeTree();
+
+    NodeId current = nodeId;
+    while (current != null) {
+      NodeId parent =
+          nodeSet
+              .findReference(
+                  current,
+                  reference -> {
+                    NodeId referenceTypeId = nodeSet.parseNodeId(reference.getReferenceType());
+
+                    return !reference.isIsForward()
+                        && !referenceTypeId.equals(NodeIds.HasSubtype)
+                        && referenceTypeTree.isTypeOrSubtypeOf(
+                            referenceTypeId, NodeIds.HierarchicalReferences);
+                  })
+              .map(reference -> nodeSet.parseNodeId(reference.getValue()))
+              .orElse(null);
+
+      current = parent != null && closure.include(parent) ? parent : null;
+    }
+  }
+
+  private boolean isDependency(Reference reference) {
+    NodeId referenceTypeId = nodeSet.parseNodeId(reference.getReferenceType());
+
+    return reference.isIsForward()
+        ? referenceTypeId.equals(NodeIds.HasTypeDefinition)
+            || referenceTypeId.equals(NodeIds.HasModellingRule)
+            || referenceTypeId.equals(NodeIds.HasEncoding)
+        : referenceTypeId.equals(NodeIds.HasSubtype);
+  }
+
+  /**
+   * Include the ReferenceTypes of a newly included node's references to included nodes.
+   *
+   * <p>Each node's references are visited once. A reference to a node that is not included yet is
+   * parked under its target, and its ReferenceType is included if the target is included later.
+   */
+  private void includeReferenceTypes(UANode node, Closure closure) {
+    if (node.getReferences() == null) {
+      return;
+    }
+
+    for (Reference reference : node.getReferences().getReference()) {
+      NodeId targetId = nodeSet.parseNodeId(reference.getValue());
+      NodeId referenceTypeId = nodeSet.parseNodeId(reference.getReferenceType());
+
+      if (closure.included.contains(targetId)) {
+        closure.include(referenceTypeId);
+      } else {
+        closure.parked.computeIfAbsent(targetId, k -> new ArrayList<>()).add(referenceTypeId);
+      }
+    }
+  }
+
+  /** The nodes included so far, and those whose dependencies are still to be included. */
+  private static final class Closure {
+
+    private final Set<NodeId> included = new HashSet<>();
+    private final Deque<NodeId> pending = new ArrayDeque<>();
+
+    /** ReferenceTypes of references from included nodes, by target not included yet. */
+    private final Map<NodeId, List<NodeId>> parked = new HashMap<>();
+
+    private boolean include(NodeId nodeId) {
+      if (!included.add(nodeId)) {
+        return false;
+      }
+      pending.push(nodeId);
+
+      List<NodeId> referenceTypeIds = parked.remove(nodeId);
+      if (referenceTypeIds != null) {
+        referenceTypeIds.forEach(this::include);
+      }
+      return true;
+    }
+  }
+
+  private UANodeSet build(Set<NodeId> included) {
+    UANodeSet source = nodeSet.getNodeSet();
+    UANodeSet slice = LayeredNodeSet.copyHeader(source);
+    slice.setExtensions(source.getExtensions());
+
+    List<UANode> nodes = slice.getUAObjectOrUAVariableOrUAMethod();
+
+    for (UANode node : source.getUAObjectOrUAVariableOrUAMethod()) {
+      if (!included.contains(nodeSet.parseNodeId(node.getNodeId()))) {
+        continue;
+      }
+
+      UANode copy = OffHeapNodeCodec.copy(node);
+      if (copy.getReferences() != null) {
+        copy.getReferences()
+            .getReference()
+            .removeIf(reference -> !included.contains(nodeSet.parseNodeId(reference.getValue())));
+      }
+      nodes.add(copy);
+    }
+
+    return slice;
+  }
+}
@@ -0,0 +1,454 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.*;
+import org.w3c.dom.Node;
+
+/**
+ * Size and shape statistics for a {@link NodeSet}, including an approximate retained-heap
+ * breakdown.
+ *
+ * <p>Statistics are computed in a single pass over the nodes and their reference lists, without
+ * building the NodeSet's attribute indexes or type trees, and are intended to be logged at startup
+ * or used for capacity planning. Heap figures are estimates based on typical 64-bit JVM object
+ * layouts with compressed references; they ignore sharing between strings and are not a substitute
+ * for a heap dump.
+ */
+public final class NodeSetStatistics {
+
+  // Approximate shallow sizes, in bytes, for a 64-bit JVM with compressed references.
+  private static final int NODE_SHALLOW_SIZE = 80;
+  private static final int LIST_SIZE = 80;
+  private static final int LOCALIZED_TEXT_SIZE = 24;
+  private static final int REFERENCE_SIZE = 24;
+  private static final int MAP_ENTRY_SIZE = 40;
+  private static final int CACHE_ENTRY_SIZE = 48;
+  private static final int NODE_ID_SIZE = 56;
+  private static final int DOM_NODE_SIZE = 96;
+
+  private static final Set<NodeId> TYPE_ROOTS =
+      Set.of(
+          NodeIds.BaseObjectType,
+          NodeIds.BaseVariableType,
+          NodeIds.BaseDataType,
+          NodeIds.References);
+
+  private final int nodeCount;
+  private final Map<Class<? extends UANode>, Integer> nodeCountsByClass;
+  private final Map<String, Integer> nodeCountsByNamespace;
+  private final long explicitReferenceCount;
+  private final long implicitReferenceCount;
+  private final int aliasCount;
+  private final int valueCount;
+  private final long valueDomNodeCount;
+  private final long valueTextLength;
+  private final int objectTypeTreeDepth;
+  private final int variableTypeTreeDepth;
+  private final int dataTypeTreeDepth;
+  private final int referenceTypeTreeDepth;
+  private final HeapEstimate heapEstimate;
+
+  private NodeSetStatistics(NodeSet nodeSet) {
+    UANodeSet uaNodeSet = nodeSet.getNodeSet();
+    List<UANode> nodes = uaNodeSet.getUAObjectOrUAVariableOrUAMethod();
+    List<String> namespaceUris = uaNodeSet.getNamespaceUris().getUri();
+
+    nodeCount = nodes.size();
+
+    var byClass = new LinkedHashMap<Class<? extends UANode>, Integer>();
+    for (Class<? extends UANode> nodeClass :
+        List.of(
+            UAObject.class,
+            UAVariable.class,
+            UAMethod.class,
+            UAView.class,
+            UAObjectType.class,
+            UAVariableType.class,
+            UADataType.class,
+            UAReferenceType.class)) {
+
+      byClass.put(nodeClass, 0);
+    }
+    var byNamespaceIndex = new int[namespaceUris.size()];
+
+    AliasTable aliases = uaNodeSet.getAliases();
+    aliasCount = aliases != null ? aliases.getAlias().size() : 0;
+
+    long nodeBytes = 0L;
+    long explicitReferences = 0L;
+    int values = 0;
+    var valueSize = new long[2];
+    var typeClasses = new HashMap<NodeId, Class<? extends UANode>>();
+    var supertypes = new HashMap<NodeId, NodeId>();
+
+    for (UANode node : nodes) {
+      NodeId nodeId = nodeSet.parseNodeId(node.getNodeId());
+      byClass.computeIfPresent(node.getClass(), (k, count) -> count + 1);
+      int namespaceIndex = nodeId.getNamespaceIndex().intValue();
+      if (namespaceIndex < byNamespaceIndex.length) {
+        byNamespaceIndex[namespaceIndex]++;
+      }
+
+      if (node instanceof UAType) {
+        typeClasses.put(nodeId, node.getClass());
+        nodeSet
+            .findReference(
+                nodeId,
+                r ->
+                    !r.isIsForward()
+                        && nodeSet.parseNodeId(r.getReferenceType()).equals(NodeIds.HasSubtype))
+            .ifPresent(r -> supertypes.put(nodeId, nodeSet.parseNodeId(r.getValue())));
+      }
+
+      nodeBytes += NODE_SHALLOW_SIZE;
+      nodeBytes += stringSize(node.getNodeId());
+      nodeBytes += stringSize(node.getBrowseName());
+      nodeBytes += stringSize(node.getSymbolicName());
+      nodeBytes += stringSize(node.getDocumentation());
+      nodeBytes += localizedTextSize(node.getDisplayName());
+      nodeBytes += localizedTextSize(node.getDescription());
+
+      ListOfReferences references = node.getReferences();
+      if (references != null) {
+        int referenceCount = references.getReference().size();
+        explicitReferences += referenceCount;
+        nodeBytes += LIST_SIZE + (long) referenceCount * REFERENCE_SIZE;
+        for (Reference reference : references.getReference()) {
+          nodeBytes += stringSize(reference.getValue());
+        }
+      }
+
+      @Nullable Object value = null;
+      if (node instanceof UAVariable variable && variable.getValue() != null) {
+        value = variable.getValue().getAny();
+      } else if (node instanceof UAVariableType variableType && variableType.getValue() != null) {
+        value = variableType.getValue().getAny();
+      }
+      if (value instanceof Node domNode) {
+        values++;
+        measureDom(domNode, valueSize);
+      }
+    }
+
+    nodeCountsByClass = Collections.unmodifiableMap(byClass);
+
+    var byNamespace = new LinkedHashMap<String, Integer>();
+    for (int i = 0; i < namespaceUris.size(); i++) {
+      byNamespace.put(namespaceUris.get(i), byNamespaceIndex[i]);
+    }
+    nodeCountsByNamespace = Collections.unmodifiableMap(byNamespace);
+
+    explicitReferenceCount = explicitReferences;
+    implicitReferenceCount = nodeSet.getImplicitReferenceCount();
+    valueCount = values;
+    valueDomNodeCount = valueSize[0];
+    valueTextLength = valueSize[1];
+
+    var depths = new HashMap<NodeId, Integer>();
+    var maxDepths = new HashMap<Class<? extends UANode>, Integer>();
+    for (Map.Entry<NodeId, Class<? extends UANode>> type : typeClasses.entrySet()) {
+      int depth = typeDepth(type.getKey(), typeClasses, supertypes, depths);
+      maxDepths.merge(type.getValue(), depth, Math::max);
+    }
+    objectTypeTreeDepth = maxDepths.getOrDefault(UAObjectType.class, 0);
+    variableTypeTreeDepth = maxDepths.getOrDefault(UAVariableType.class, 0);
+    dataTypeTreeDepth = maxDepths.getOrDefault(UADataType.class, 0);
+    referenceTypeTreeDepth = maxDepths.getOrDefault(UAReferenceType.class, 0);
+
+    long referenceMapBytes =
+        (long) MAP_ENTRY_SIZE
+                * (nodeCount
+                    + nodeSet.getExplicitReferenceKeyCount()
+                    + nodeSet.getImplicitReferenceKeyCount())
+            + (long) LIST_SIZE
+                * (nodeSet.getExplicitReferenceKeyCount() + nodeSet.getImplicitReferenceKeyCount())
+            + 4L * (explicitReferenceCount + implicitReferenceCount)
+            + (long) REFERENCE_SIZE * implicitReferenceCount;
+
+    long cacheBytes = (long) (CACHE_ENTRY_SIZE + NODE_ID_SIZE) * nodeSet.getInternedNodeIdCount();
+
+    long valueBytes = DOM_NODE_SIZE * valueDomNodeCount + 40L * valueDomNodeCount + valueTextLength;
+
+    heapEstimate = new HeapEstimate(nodeBytes, referenceMapBytes, cacheBytes, valueBytes);
+  }
+
+  /**
+   * Compute statistics for a {@link NodeSet}.
+   *
+   * @param nodeSet the {@link NodeSet} to measure.
+   * @return the computed statistics.
+   */
+  public static NodeSetStatistics of(NodeSet nodeSet) {
+    return new NodeSetStatistics(nodeSet);
+  }
+
+  /**
+   * Get the total number of nodes.
+   *
+   * @return the total number of nodes.
+   */
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Get the number of nodes of each concrete JAXB node class.
+   *
+   * @return node counts keyed by node class, including classes with no nodes.
+   */
+  public Map<Class<? extends UANode>, Integer> getNodeCountsByClass() {
+    return nodeCountsByClass;
+  }
+
+  /**
+   * Get the number of nodes in each namespace, in namespace table order.
+   *
+   * @return node counts keyed by namespace URI.
+   */
+  public Map<String, Integer> getNodeCountsByNamespace() {
+    return nodeCountsByNamespace;
+  }
+
+  /**
+   * Get the number of references declared in the source XML.
+   *
+   * @return the number of explicit references.
+   */
+  public long getExplicitReferenceCount() {
+    return explicitReferenceCount;
+  }
+
+  /**
+   * Get the number of inverse references synthesized while indexing.
+   *
+   * @return the number of implicit references.
+   */
+  public long getImplicitReferenceCount() {
+    return implicitReferenceCount;
+  }
+
+  /**
+   * Get the number of entries in the merged alias table.
+   *
+   * @return the number of aliases.
+   */
+  public int getAliasCount() {
+    return aliasCount;
+  }
+
+  /**
+   * Get the number of Variables and VariableTypes with a Value.
+   *
+   * @return the number of value payloads.
+   */
+  public int getValueCount() {
+    return valueCount;
+  }
+
+  /**
+   * Get the total number of DOM nodes across all value payloads.
+   *
+   * @return the number of value DOM nodes.
+   */
+  public long getValueDomNodeCount() {
+    return valueDomNodeCount;
+  }
+
+  /**
+   * Get the total length, in characters, of text and attribute values across all value payloads.
+   *
+   * @return the total value text length.
+   */
+  public long getValueTextLength() {
+    return valueTextLength;
+  }
+
+  /**
+   * Get the depth of the ObjectType hierarchy, where the root alone has depth 1.
+   *
+   * @return the ObjectType tree depth.
+   */
+  public int getObjectTypeTreeDepth() {
+    return objectTypeTreeDepth;
+  }
+
+  /**
+   * Get the depth of the VariableType hierarchy, where the root alone has depth 1.
+   *
+   * @return the VariableType tree depth.
+   */
+  public int getVariableTypeTreeDepth() {
+    return variableTypeTreeDepth;
+  }
+
+  /**
+   * Get the depth of the DataType hierarchy, where the root alone has depth 1.
+   *
+   * @return the DataType tree depth.
+   */
+  public int getDataTypeTreeDepth() {
+    return dataTypeTreeDepth;
+  }
+
+  /**
+   * Get the depth of the ReferenceType hierarchy, where the root alone has depth 1.
+   *
+   * @return the ReferenceType tree depth.
+   */
+  public int getReferenceTypeTreeDepth() {
+    return referenceTypeTreeDepth;
+  }
+
+  /**
+   * Get the estimated retained heap, broken down by component.
+   *
+   * @return the heap estimate.
+   */
+  public HeapEstimate getHeapEstimate() {
+    return heapEstimate;
+  }
+
+  @Override
+  public String toString() {
+    return "NodeSetStatistics{"
+        + "nodeCount="
+        + nodeCount
+        + ", nodeCountsByNamespace="
+        + nodeCountsByNamespace
+        + ", explicitReferenceCount="
+        + explicitReferenceCount
+        + ", implicitReferenceCount="
+        + implicitReferenceCount
+        + ", aliasCount="
+        + aliasCount
+        + ", valueCount="
+        + valueCount
+        + ", heapEstimate="
+        + heapEstimate
+        + '}';
+  }
+
+  /**
+   * Estimated retained heap, in bytes, by component.
+   *
+   * <p>Only the structures every NodeSet holds are included. Structures a NodeSet derives lazily,
+   * such as attribute indexes, type trees, the reference graph, and cached InstanceDeclarations and
+   * combined reference lists, are excluded.
+   *
+   * @param nodes JAXB nodes, their attribute strings, and their explicit references.
+   * @param referenceMaps node, explicit, and implicit reference indexes, including synthesized
+   *     inverse references.
+   * @param nodeIdCaches the NodeIds interned by the NodeSet, which are shared only with NodeSets
+   *     derived from it.
+   * @param values DOM trees holding Variable and VariableType values.
+   */
+  public record HeapEstimate(long nodes, long referenceMaps, long nodeIdCaches, long values) {
+
+    /**
+     * Get the sum of all components.
+     *
+     * @return the total estimated bytes.
+     */
+    public long total() {
+      return nodes + referenceMaps + nodeIdCaches + values;
+    }
+  }
+
+  private static long stringSize(@Nullable String s) {
+    // String object + byte[] header + Latin-1 contents, 8-byte aligned
+    return s != null ? 24L + ((16L + s.length() + 7L) & ~7L) : 0L;
+  }
+
+  private static long localizedTextSize(List<LocalizedText> texts) {
+    if (texts.isEmpty()) {
+      return 0L;
+    }
+    long size = LIST_SIZE;
+    for (LocalizedText text : texts) {
+      size += LOCALIZED_TEXT_SIZE + stringSize(text.getValue()) + stringSize(text.getLocale());
+    }
+    return size;
+  }
+
+  private static void measureDom(Node root, long[] size) {
+    Deque<Node> stack = new ArrayDeque<>();
+    stack.push(root);
+
+    while (!stack.isEmpty()) {
+      Node node = stack.pop();
+      size[0]++;
+
+      String value = node.getNodeValue();
+      if (value != null) {
+        size[1] += value.length();
+      }
+
+      var attributes = node.getAttributes();
+      if (attributes != null) {
+        for (int i = 0; i < attributes.getLength(); i++) {
+          size[0]++;
+          size[1] += attributes.item(i).getNodeValue().length();
+        }
+      }
+
+      for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+        stack.push(child);
+      }
+    }
+  }
+
+  /**
+   * Get the depth of a type in its hierarchy, where the root alone has depth 1.
+   *
+   * <p>Types whose supertype chain does not reach the root of their hierarchy through types of the
+   * same node class are not part of the hierarchy and have depth 0.
+   */
+  private static int typeDepth(
+      NodeId typeId,
+      Map<NodeId, Class<? extends UANode>> typeClasses,
+      Map<NodeId, NodeId> supertypes,
+      Map<NodeId, Integer> depths) {
+
+    Class<? extends UANode> typeClass = typeClasses.get(typeId);
+    Deque<NodeId> chain = new ArrayDeque<>();
+    int depth;
+
+    // walk up to a type of known depth, then assign depths on the way back down
+    NodeId current = typeId;
+    while (true) {
+      Integer known = depths.get(current);
+      if (known != null) {
+        depth = known;
+        break;
+      }
+      if (typeClasses.get(current) != typeClass || chain.size() > typeClasses.size()) {
+        // a supertype of another node class, or a cycle
+        depth = 0;
+        break;
+      }
+      chain.push(current);
+      NodeId supertype = supertypes.get(current);
+      if (supertype == null) {
+        depth = TYPE_ROOTS.contains(current) ? 0 : -1;
+        break;
+      }
+      current = supertype;
+    }
+
+    while (!chain.isEmpty()) {
+      depth = depth > 0 || TYPE_ROOTS.contains(chain.peek()) ? depth + 1 : 0;
+      depths.put(chain.pop(), depth);
+    }
+    return depth;
+  }
+}
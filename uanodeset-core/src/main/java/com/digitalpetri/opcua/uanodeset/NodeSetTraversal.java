@@ -0,0 +1,445 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.UANode;
+
+/**
+ * Iterative traversal over the reference graph of a {@link NodeSet}.
+ *
+ * <p>A traversal follows references whose ReferenceType is in a fixed set, in one direction, from a
+ * root node. It runs over the NodeSet's dense adjacency index, so no NodeIds are parsed and no
+ * reference lists are allocated per hop, and it uses an explicit stack or queue, so deep models
+ * cannot overflow the call stack. Each node is visited at most once per traversal, which also
+ * makes cyclic graphs safe to walk.
+ *
+ * <p>Instances are immutable and may be shared between threads. Methods such as {@link
+ * #withOrder(Order)} return a reconfigured copy.
+ */
+public final class NodeSetTraversal {
+
+  /** The order in which nodes are visited by {@link #traverse(NodeId, Visitor)}. */
+  public enum Order {
+    /** Visit a node's whole subtree before its next sibling, in reference order. */
+    DEPTH_FIRST,
+
+    /** Visit all nodes at one depth before any node at the next depth, in reference order. */
+    BREADTH_FIRST
+  }
+
+  /** What a {@link Visitor} wants the traversal to do after visiting a node. */
+  public enum Decision {
+    /** Continue into the node's children. */
+    CONTINUE,
+
+    /** Do not follow references from this node; continue with the rest of the traversal. */
+    SKIP_SUBTREE,
+
+    /** Stop the traversal. */
+    TERMINATE
+  }
+
+  /** Callback invoked once for each node reached by a traversal. */
+  @FunctionalInterface
+  public interface Visitor {
+
+    /**
+     * Visit a node.
+     *
+     * @param node the node being visited.
+     * @param depth the number of references between the root and this node; the root has depth 0.
+     * @return how the traversal should proceed.
+     */
+    Decision visit(UANode node, int depth);
+  }
+
+  private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+  private final NodeSetGraph graph;
+  private final BitSet referenceTypeMask;
+  private final boolean forward;
+  private final Order order;
+  private final int maxDepth;
+
+  NodeSetTraversal(
+      NodeSetGraph graph, BitSet referenceTypeMask, boolean forward, Order order, int maxDepth) {
+
+    this.graph = graph;
+    this.referenceTypeMask = referenceTypeMask;
+    this.forward = forward;
+    this.order = order;
+    this.maxDepth = maxDepth;
+  }
+
+  /**
+   * Create a traversal that follows forward references of the given ReferenceTypes, depth-first,
+   * without a depth limit.
+   *
+   * @param nodeSet the {@link NodeSet} to traverse.
+   * @param referenceTypeIds the ReferenceTypes to follow.
+   * @param includeSubtypes whether subtypes of {@code referenceTypeIds} are followed as well.
+   * @return a new {@link NodeSetTraversal}.
+   */
+  public static NodeSetTraversal create(
+      NodeSet nodeSet, Collection<NodeId> referenceTypeIds, boolean includeSubtypes) {
+
+    NodeSetGraph graph = nodeSet.getGraph();
+    BitSet mask =
+        graph.referenceTypeMask(nodeSet.getReferenceTypeTree(), referenceTypeIds, includeSubtypes);
+
+    return new NodeSetTraversal(graph, mask, true, Order.DEPTH_FIRST, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Get a copy of this traversal that visits nodes in {@code order}.
+   *
+   * @param order the visiting order.
+   * @return a reconfigured traversal.
+   */
+  public NodeSetTraversal withOrder(Order order) {
+    return new NodeSetTraversal(
+        graph, referenceTypeMask, forward, Objects.requireNonNull(order), maxDepth);
+  }
+
+  /**
+   * Get a copy of this traversal that does not visit nodes deeper than {@code maxDepth}.
+   *
+   * @param maxDepth the maximum depth to visit; {@code 0} visits only the root.
+   * @return a reconfigured traversal.
+   * @throws IllegalArgumentException if {@code maxDepth} is negative.
+   */
+  public NodeSetTraversal withMaxDepth(int maxDepth) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException("maxDepth: " + maxDepth);
+    }
+    return new NodeSetTraversal(graph, referenceTypeMask, forward, order, maxDepth);
+  }
+
+  /**
+   * Get a copy of this traversal that follows references in the inverse direction, e.g. from a
+   * node towards its parents.
+   *
+   * @return a reconfigured traversal.
+   */
+  public NodeSetTraversal inverse() {
+    return new NodeSetTraversal(graph, referenceTypeMask, !forward, order, maxDepth);
+  }
+
+  /**
+   * Traverse from {@code rootId} on the calling thread.
+   *
+   * <p>A node reachable along several paths is visited once, at the depth of the path that reached
+   * it first in traversal order. With a {@link #withMaxDepth(int) depth limit}, a depth-first
+   * traversal that later reaches a visited node along a shorter path expands it again from that
+   * depth, so every node within {@code maxDepth} references of the root is visited regardless of
+   * reference order. If {@code rootId} is not part of the NodeSet nothing is visited.
+   *
+   * @param rootId the NodeId of the node to start from.
+   * @param visitor the visitor to invoke for each reached node.
+   * @return {@code false} if the visitor terminated the traversal, {@code true} otherwise.
+   */
+  public boolean traverse(NodeId rootId, Visitor visitor) {
+    int root = graph.ordinal(rootId);
+    if (root < 0) {
+      return true;
+    }
+
+    Scratch scratch = SCRATCH.get();
+    if (scratch.inUse) {
+      // A visitor started a nested traversal on this thread.
+      scratch = new Scratch();
+    }
+
+    scratch.acquire(graph.size(), order == Order.DEPTH_FIRST && maxDepth != Integer.MAX_VALUE);
+    try {
+      return order == Order.DEPTH_FIRST
+          ? depthFirst(root, visitor, scratch)
+          : breadthFirst(root, visitor, scratch);
+    } finally {
+      scratch.release();
+    }
+  }
+
+  /**
+   * Traverse from {@code rootId}, splitting independent subtrees across {@code pool}.
+   *
+   * <p>The visitor is invoked concurrently from pool threads and must be thread-safe. Each
+   * reachable node is still visited exactly once, but the visiting order is unspecified and the
+   * depth reported for a node reachable along several paths is the depth of whichever path claimed
+   * it first. {@link Decision#TERMINATE} stops the traversal as soon as running tasks observe it.
+   *
+   * @param rootId the NodeId of the node to start from.
+   * @param visitor the thread-safe visitor to invoke for each reached node.
+   * @param pool the pool to run the traversal in.
+   * @return {@code false} if the visitor terminated the traversal, {@code true} otherwise.
+   */
+  public boolean traverseParallel(NodeId rootId, Visitor visitor, ForkJoinPool pool) {
+    int root = graph.ordinal(rootId);
+    if (root < 0) {
+      return true;
+    }
+
+    var state = new ParallelState(graph.size(), visitor);
+    state.claim(root);
+
+    var task = new ParallelTask(null, state, new int[] {root}, new int[] {0}, 1);
+    pool.invoke(task);
+
+    return !state.terminated;
+  }
+
+  private boolean depthFirst(int root, Visitor visitor, Scratch scratch) {
+    boolean bounded = maxDepth != Integer.MAX_VALUE;
+    scratch.push(root, 0);
+
+    while (scratch.size > 0) {
+      scratch.size--;
+      int node = scratch.nodes[scratch.size];
+      int depth = scratch.depths[scratch.size];
+
+      if (scratch.mark(node)) {
+        Decision decision = visitor.visit(graph.nodes[node], depth);
+        if (decision == Decision.TERMINATE) {
+          return false;
+        }
+        if (bounded) {
+          // a skipped subtree is never expanded, whatever path reaches it later
+          scratch.expandedDepths[node] = decision == Decision.CONTINUE ? depth : -1;
+        }
+        if (decision != Decision.CONTINUE) {
+          continue;
+        }
+      } else if (bounded && depth < scratch.expandedDepths[node]) {
+        // reached again along a shorter path; expand once more so the depth limit cuts off less
+        scratch.expandedDepths[node] = depth;
+      } else {
+        continue;
+      }
+
+      if (depth < maxDepth) {
+        // push in reverse so children are visited in reference order
+        for (int e = graph.offsets[node + 1] - 1; e >= graph.offsets[node]; e--) {
+          int target = graph.targets[e];
+          if (follows(graph.edges[e])
+              && (!scratch.isMarked(target)
+                  || bounded && depth + 1 < scratch.expandedDepths[target])) {
+            scratch.push(target, depth + 1);
+          }
+        }
+      }
+    }
+
+    return true;
+  }
+
+  private boolean breadthFirst(int root, Visitor visitor, Scratch scratch) {
+    scratch.mark(root);
+    scratch.push(root, 0);
+
+    for (int head = 0; head < scratch.size; head++) {
+      int node = scratch.nodes[head];
+      int depth = scratch.depths[head];
+
+      Decision decision = visitor.visit(graph.nodes[node], depth);
+      if (decision == Decision.TERMINATE) {
+        return false;
+      }
+      if (decision == Decision.CONTINUE && depth < maxDepth) {
+        for (int e = graph.offsets[node]; e < graph.offsets[node + 1]; e++) {
+          int target = graph.targets[e];
+          if (follows(graph.edges[e]) && scratch.mark(target)) {
+            scratch.push(target, depth + 1);
+          }
+        }
+      }
+    }
+
+    return true;
+  }
+
+  private boolean follows(int edge) {
+    return NodeSetGraph.edgeIsForward(edge) == forward
+        && referenceTypeMask.get(NodeSetGraph.edgeReferenceType(edge));
+  }
+
+  /**
+   * Per-thread traversal state, reused across traversals so that a traversal allocates nothing
+   * once the arrays have grown to fit the graph.
+   */
+  private static final class Scratch {
+
+    private long[] visited = new long[0];
+    private int[] expandedDepths = new int[0];
+    private int[] marked = new int[64];
+    private int markedCount;
+
+    private int[] nodes = new int[64];
+    private int[] depths = new int[64];
+    private int size;
+
+    private boolean inUse;
+
+    private void acquire(int nodeCount, boolean trackDepths) {
+      inUse = true;
+      int words = (nodeCount + 63) >>> 6;
+      if (visited.length < words) {
+        visited = new long[words];
+      }
+      // only read for marked nodes, which are written when marked, so never cleared
+      if (trackDepths && expandedDepths.length < nodeCount) {
+        expandedDepths = new int[nodeCount];
+      }
+    }
+
+    private void release() {
+      // clear only the bits that were set rather than the whole bitset
+      for (int i = 0; i < markedCount; i++) {
+        int node = marked[i];
+        visited[node >>> 6] &= ~(1L << node);
+      }
+      markedCount = 0;
+      size = 0;
+      inUse = false;
+    }
+
+    private boolean isMarked(int node) {
+      return (visited[node >>> 6] & (1L << node)) != 0;
+    }
+
+    private boolean mark(int node) {
+      if (isMarked(node)) {
+        return false;
+      }
+      visited[node >>> 6] |= 1L << node;
+      if (markedCount == marked.length) {
+        marked = Arrays.copyOf(marked, markedCount * 2);
+      }
+      marked[markedCount++] = node;
+      return true;
+    }
+
+    private void push(int node, int depth) {
+      if (size == nodes.length) {
+        nodes = Arrays.copyOf(nodes, size * 2);
+        depths = Arrays.copyOf(depths, size * 2);
+      }
+      nodes[size] = node;
+      depths[size] = depth;
+      size++;
+    }
+  }
+
+  private static final class ParallelState {
+
+    private final AtomicLongArray visited;
+    private final Visitor visitor;
+
+    private volatile boolean terminated;
+
+    private ParallelState(int nodeCount, Visitor visitor) {
+      this.visited = new AtomicLongArray((nodeCount + 63) >>> 6);
+      this.visitor = visitor;
+    }
+
+    private boolean claim(int node) {
+      int word = node >>> 6;
+      long bit = 1L << node;
+
+      while (true) {
+        long current = visited.get(word);
+        if ((current & bit) != 0) {
+          return false;
+        }
+        if (visited.compareAndSet(word, current, current | bit)) {
+          return true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Works through a local stack of claimed nodes, handing half of the stack to a new task whenever
+   * the pool is running short of queued work.
+   */
+  private final class ParallelTask extends CountedCompleter<Void> {
+
+    private final ParallelState state;
+
+    private int[] nodes;
+    private int[] depths;
+    private int size;
+
+    private ParallelTask(
+        @Nullable CountedCompleter<?> completer,
+        ParallelState state,
+        int[] nodes,
+        int[] depths,
+        int size) {
+
+      super(completer);
+
+      this.state = state;
+      this.nodes = nodes;
+      this.depths = depths;
+      this.size = size;
+    }
+
+    @Override
+    public void compute() {
+      while (size > 0 && !state.terminated) {
+        if (size > 1 && getSurplusQueuedTaskCount() < 2) {
+          int half = size / 2;
+          var split =
+              new ParallelTask(
+                  this,
+                  state,
+                  Arrays.copyOfRange(nodes, 0, half),
+                  Arrays.copyOfRange(depths, 0, half),
+                  half);
+
+          System.arraycopy(nodes, half, nodes, 0, size - half);
+          System.arraycopy(depths, half, depths, 0, size - half);
+          size -= half;
+
+          addToPendingCount(1);
+          split.fork();
+        }
+
+        size--;
+        int node = nodes[size];
+        int depth = depths[size];
+
+        Decision decision = state.visitor.visit(graph.nodes[node], depth);
+        if (decision == Decision.TERMINATE) {
+          state.terminated = true;
+        } else if (decision == Decision.CONTINUE && depth < maxDepth) {
+          for (int e = graph.offsets[node]; e < graph.offsets[node + 1]; e++) {
+            int target = graph.targets[e];
+            if (follows(graph.edges[e]) && state.claim(target)) {
+              push(target, depth + 1);
+            }
+          }
+        }
+      }
+
+      tryComplete();
+    }
+
+    private void push(int node, int depth) {
+      if (size == nodes.length) {
+        nodes = Arrays.copyOf(nodes, Math.max(16, size * 2));
+        depths = Arrays.copyOf(depths, Math.max(16, size * 2));
+      }
+      nodes[size] = node;
+      depths[size] = depth;
+      size++;
+    }
+  }
+}
@@ -0,0 +1,229 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import com.digitalpetri.opcua.uanodeset.NodeSetValidator.Context;
+import com.digitalpetri.opcua.uanodeset.NodeSetValidator.Rule;
+import com.digitalpetri.opcua.uanodeset.NodeSetValidator.Severity;
+import java.util.ArrayList;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.*;
+
+/** The default {@link NodeSetValidator} rules. */
+final class NodeSetValidationRules {
+
+  /** ValueRanks below this value are undefined. */
+  private static final int MIN_VALUE_RANK = -3;
+
+  private static final long MAX_ARRAY_DIMENSION = 0xFFFFFFFFL;
+
+  static final Rule ALIASES = Rule.of("aliases", NodeSetValidationRules::checkAliases);
+
+  static final Rule DANGLING_REFERENCES =
+      Rule.of("dangling-references", NodeSetValidationRules::checkReferences);
+
+  static final Rule TYPE_DEFINITIONS =
+      Rule.of("type-definitions", NodeSetValidationRules::checkTypeDefinition);
+
+  static final Rule DATA_TYPE_DEFINITIONS =
+      Rule.of("data-type-definitions", NodeSetValidationRules::checkDataTypeDefinition);
+
+  static final Rule VALUE_RANKS = Rule.of("value-ranks", NodeSetValidationRules::checkValueRanks);
+
+  private NodeSetValidationRules() {}
+
+  private static void checkAliases(UANode node, Context context) {
+    var nodeIds = new ArrayList<String>();
+
+    if (node instanceof UAInstance instance) {
+      nodeIds.add(instance.getParentNodeId());
+    }
+    if (node instanceof UAVariable variable) {
+      nodeIds.add(variable.getDataType());
+    } else if (node instanceof UAVariableType variableType) {
+      nodeIds.add(variableType.getDataType());
+    } else if (node instanceof UAMethod method) {
+      nodeIds.add(method.getMethodDeclarationId());
+    } else if (node instanceof UADataType dataType && dataType.getDefinition() != null) {
+      DataTypeDefinition definition = dataType.getDefinition();
+      nodeIds.add(definition.getBaseType());
+      for (DataTypeField field : definition.getField()) {
+        nodeIds.add(field.getDataType());
+      }
+    }
+    if (node.getReferences() != null) {
+      for (Reference reference : node.getReferences().getReference()) {
+        nodeIds.add(reference.getReferenceType());
+        nodeIds.add(reference.getValue());
+      }
+    }
+
+    NodeSet nodeSet = context.getNodeSet();
+
+    // ParentNodeId, MethodDeclarationId, and BaseType are not resolved while indexing
+    for (String nodeId : nodeIds) {
+      if (nodeId != null && !nodeId.isEmpty() && resolve(nodeSet, nodeId) == null) {
+        context.report(
+            Severity.ERROR, "'" + nodeId + "' is neither a valid NodeId nor a declared alias");
+      }
+    }
+  }
+
+  private static void checkReferences(UANode node, Context context) {
+    if (node.getReferences() == null) {
+      return;
+    }
+
+    NodeSet nodeSet = context.getNodeSet();
+
+    for (Reference reference : node.getReferences().getReference()) {
+      NodeId referenceTypeId = resolve(nodeSet, reference.getReferenceType());
+      NodeId targetId = resolve(nodeSet, reference.getValue());
+
+      if (referenceTypeId != null
+          && !(nodeSet.getNode(referenceTypeId) instanceof UAReferenceType)) {
+        context.report(
+            Severity.ERROR,
+            "ReferenceType " + reference.getReferenceType() + " is not a ReferenceType node");
+      }
+      if (targetId != null && nodeSet.getNode(targetId) == null) {
+        context.report(
+            Severity.ERROR,
+            "target "
+                + reference.getValue()
+                + " of "
+                + reference.getReferenceType()
+                + " reference does not exist");
+      }
+    }
+  }
+
+  private static void checkTypeDefinition(UANode node, Context context) {
+    Class<? extends UAType> typeClass;
+    if (node instanceof UAObject) {
+      typeClass = UAObjectType.class;
+    } else if (node instanceof UAVariable) {
+      typeClass = UAVariableType.class;
+    } else {
+      return;
+    }
+
+    NodeSet nodeSet = context.getNodeSet();
+    var typeDefinitionIds = new ArrayList<NodeId>(1);
+
+    nodeSet.forEachReference(
+        context.getNodeId(),
+        reference ->
+            reference.isIsForward()
+                && nodeSet
+                    .parseNodeId(reference.getReferenceType())
+                    .equals(NodeIds.HasTypeDefinition),
+        reference -> typeDefinitionIds.add(nodeSet.parseNodeId(reference.getValue())));
+
+    if (typeDefinitionIds.isEmpty()) {
+      context.report(Severity.ERROR, "missing HasTypeDefinition reference");
+    } else if (typeDefinitionIds.size() > 1) {
+      context.report(
+          Severity.ERROR, "multiple HasTypeDefinition references: " + typeDefinitionIds);
+    } else {
+      UANode typeDefinition = nodeSet.getNode(typeDefinitionIds.get(0));
+      if (typeDefinition != null && !typeClass.isInstance(typeDefinition)) {
+        context.report(
+            Severity.ERROR,
+            "type definition "
+                + typeDefinition.getNodeId()
+                + " is not a "
+                + typeClass.getSimpleName().substring(2));
+      }
+    }
+  }
+
+  private static void checkDataTypeDefinition(UANode node, Context context) {
+    if (!(node instanceof UADataType dataType)
+        || dataType.isIsAbstract()
+        || dataType.getDefinition() != null) {
+      return;
+    }
+
+    DataTypeInfoTree dataTypeTree = context.getNodeSet().getDataTypeTree();
+
+    if (dataTypeTree.isSubtypeOf(context.getNodeId(), NodeIds.Structure)) {
+      context.report(Severity.ERROR, "Structure DataType has no DataTypeDefinition");
+    } else if (dataTypeTree.isSubtypeOf(context.getNodeId(), NodeIds.Enumeration)) {
+      context.report(Severity.ERROR, "Enumeration DataType has no DataTypeDefinition");
+    }
+  }
+
+  private static void checkValueRanks(UANode node, Context context) {
+    if (node instanceof UAVariable variable) {
+      checkValueRank(variable.getValueRank(), variable.getArrayDimensions(), "", context);
+    } else if (node instanceof UAVariableType variableType) {
+      checkValueRank(variableType.getValueRank(), variableType.getArrayDimensions(), "", context);
+    } else if (node instanceof UADataType dataType && dataType.getDefinition() != null) {
+      for (DataTypeField field : dataType.getDefinition().getField()) {
+        checkValueRank(
+            field.getValueRank(),
+            field.getArrayDimensions(),
+            "field " + field.getName() + ": ",
+            context);
+      }
+    }
+  }
+
+  private static void checkValueRank(
+      int valueRank, @Nullable String arrayDimensions, String prefix, Context context) {
+
+    if (valueRank < MIN_VALUE_RANK) {
+      context.report(Severity.ERROR, prefix + "invalid ValueRank " + valueRank);
+      return;
+    }
+    if (arrayDimensions == null || arrayDimensions.isBlank()) {
+      return;
+    }
+
+    String[] dimensions = arrayDimensions.split(",");
+    for (String dimension : dimensions) {
+      if (!isArrayDimension(dimension.strip())) {
+        context.report(
+            Severity.ERROR, prefix + "invalid ArrayDimensions '" + arrayDimensions + "'");
+        return;
+      }
+    }
+
+    if (valueRank < 1) {
+      context.report(
+          Severity.ERROR,
+          prefix + "ArrayDimensions '" + arrayDimensions + "' given for ValueRank " + valueRank);
+    } else if (dimensions.length != valueRank) {
+      context.report(
+          Severity.ERROR,
+          prefix
+              + "ArrayDimensions '"
+              + arrayDimensions
+              + "' has "
+              + dimensions.length
+              + " dimensions but ValueRank is "
+              + valueRank);
+    }
+  }
+
+  private static boolean isArrayDimension(String dimension) {
+    if (dimension.isEmpty() || dimension.length() > 10) {
+      return false;
+    }
+    for (int i = 0; i < dimension.length(); i++) {
+      if (!Character.isDigit(dimension.charAt(i))) {
+        return false;
+      }
+    }
+    return Long.parseLong(dimension) <= MAX_ARRAY_DIMENSION;
+  }
+
+  private static @Nullable NodeId resolve(NodeSet nodeSet, String nodeIdOrAlias) {
+    try {
+      return nodeSet.resolveNodeId(nodeIdOrAlias);
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,357 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.UANode;
+
+/**
+ * Checks the nodes of a {@link NodeSet} against a set of {@link Rule}s and collects the findings in
+ * a {@link Report}.
+ *
+ * <p>Validation is a single pass over the node list: every rule checks a node before the next node
+ * is visited, and nodes are checked in parallel on the common {@link
+ * java.util.concurrent.ForkJoinPool}. Rules answer their questions from the NodeSet's existing
+ * indexes, so validation does not rescan the model. Issues are reported in document order and, for
+ * each node, in rule order.
+ *
+ * <p>{@link #create()} returns a validator with the {@link #DEFAULT_RULES default rules}; {@link
+ * #builder()} combines default and custom rules. Rules must be thread-safe. A rule that throws is
+ * reported as an {@link Severity#ERROR} issue for that node rather than aborting validation.
+ *
+ * <p>Instances are immutable and may be shared between threads.
+ */
+public final class NodeSetValidator {
+
+  /** Explicit references whose target or ReferenceType is not a node of the NodeSet. */
+  public static final Rule DANGLING_REFERENCES = NodeSetValidationRules.DANGLING_REFERENCES;
+
+  /** Objects and Variables without exactly one HasTypeDefinition of the matching node class. */
+  public static final Rule TYPE_DEFINITIONS = NodeSetValidationRules.TYPE_DEFINITIONS;
+
+  /** Concrete Structure and Enumeration DataTypes without a DataTypeDefinition. */
+  public static final Rule DATA_TYPE_DEFINITIONS = NodeSetValidationRules.DATA_TYPE_DEFINITIONS;
+
+  /** ValueRank and ArrayDimensions that are malformed or inconsistent with each other. */
+  public static final Rule VALUE_RANKS = NodeSetValidationRules.VALUE_RANKS;
+
+  /** NodeId attributes that are neither a valid NodeId nor a declared alias. */
+  public static final Rule ALIASES = NodeSetValidationRules.ALIASES;
+
+  /** The rules applied by {@link #create()}, in the order they are applied. */
+  public static final List<Rule> DEFAULT_RULES =
+      List.of(ALIASES, DANGLING_REFERENCES, TYPE_DEFINITIONS, DATA_TYPE_DEFINITIONS, VALUE_RANKS);
+
+  private final List<Rule> rules;
+
+  private NodeSetValidator(List<Rule> rules) {
+    this.rules = rules;
+  }
+
+  /**
+   * Create a validator that applies the {@link #DEFAULT_RULES}.
+   *
+   * @return a new {@link NodeSetValidator}.
+   */
+  public static NodeSetValidator create() {
+    return new NodeSetValidator(DEFAULT_RULES);
+  }
+
+  /**
+   * Create a new {@link Builder} with no rules.
+   *
+   * @return a new {@link Builder}.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Get the rules this validator applies.
+   *
+   * @return the rules, in the order they are applied.
+   */
+  public List<Rule> getRules() {
+    return rules;
+  }
+
+  /**
+   * Validate every node of {@code nodeSet}.
+   *
+   * @param nodeSet the {@link NodeSet} to validate.
+   * @return a {@link Report} of every issue found.
+   */
+  public Report validate(NodeSet nodeSet) {
+    List<Issue> issues =
+        nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod().parallelStream()
+            .flatMap(node -> validate(nodeSet, node).stream())
+            .toList();
+
+    return new Report(issues);
+  }
+
+  private List<Issue> validate(NodeSet nodeSet, UANode node) {
+    var context = new NodeContext(nodeSet, nodeSet.parseNodeId(node.getNodeId()));
+
+    for (Rule rule : rules) {
+      context.rule = rule;
+      try {
+        rule.check(node, context);
+      } catch (RuntimeException e) {
+        context.report(Severity.ERROR, "rule failed: " + e);
+      }
+    }
+
+    return context.issues;
+  }
+
+  /**
+   * A check applied to each node of a {@link NodeSet}.
+   *
+   * <p>Rules are called concurrently for different nodes and must not modify the NodeSet.
+   */
+  public interface Rule {
+
+    /**
+     * Get the name that identifies this rule in {@link Issue}s.
+     *
+     * @return the rule name.
+     */
+    String getName();
+
+    /**
+     * Check a node and report any issues found through {@code context}.
+     *
+     * @param node the node to check.
+     * @param context the NodeSet being validated and the sink for issues.
+     */
+    void check(UANode node, Context context);
+
+    /**
+     * Create a rule from a name and a check function.
+     *
+     * @param name the rule name.
+     * @param check the check to apply to each node.
+     * @return a new {@link Rule}.
+     */
+    static Rule of(String name, Check check) {
+      return new Rule() {
+        @Override
+        public String getName() {
+          return name;
+        }
+
+        @Override
+        public void check(UANode node, Context context) {
+          check.check(node, context);
+        }
+
+        @Override
+        public String toString() {
+          return name;
+        }
+      };
+    }
+  }
+
+  /** The check function of a {@link Rule} created with {@link Rule#of(String, Check)}. */
+  @FunctionalInterface
+  public interface Check {
+
+    /**
+     * Check a node and report any issues found through {@code context}.
+     *
+     * @param node the node to check.
+     * @param context the NodeSet being validated and the sink for issues.
+     */
+    void check(UANode node, Context context);
+  }
+
+  /** The state a {@link Rule} sees while checking one node. */
+  public interface Context {
+
+    /**
+     * Get the NodeSet being validated.
+     *
+     * @return the {@link NodeSet} being validated.
+     */
+    NodeSet getNodeSet();
+
+    /**
+     * Get the NodeId of the node being checked.
+     *
+     * @return the parsed NodeId of the node being checked.
+     */
+    NodeId getNodeId();
+
+    /**
+     * Report an issue with the node being checked.
+     *
+     * @param severity the severity of the issue.
+     * @param message a description of the issue.
+     */
+    void report(Severity severity, String message);
+  }
+
+  /** The severity of an {@link Issue}. */
+  public enum Severity {
+    /** The model is usable, but likely not what its author intended. */
+    WARNING,
+    /** The model violates the OPC UA information model rules. */
+    ERROR
+  }
+
+  /**
+   * A problem found with a node.
+   *
+   * @param rule the name of the rule that reported the issue.
+   * @param severity the severity of the issue.
+   * @param nodeId the NodeId of the node the issue was found on.
+   * @param message a description of the issue.
+   */
+  public record Issue(String rule, Severity severity, NodeId nodeId, String message) {}
+
+  /** The issues found by one validation run. */
+  public static final class Report {
+
+    private final List<Issue> issues;
+
+    private Report(List<Issue> issues) {
+      this.issues = issues;
+    }
+
+    /**
+     * Get every issue found.
+     *
+     * @return the issues, in document order and then rule order.
+     */
+    public List<Issue> getIssues() {
+      return issues;
+    }
+
+    /**
+     * Get the issues of one severity.
+     *
+     * @param severity the severity to select.
+     * @return the matching issues, in report order.
+     */
+    public List<Issue> getIssues(Severity severity) {
+      return issues.stream().filter(issue -> issue.severity() == severity).toList();
+    }
+
+    /**
+     * Get the issues reported by one rule.
+     *
+     * @param rule the rule to select.
+     * @return the issues reported by {@code rule}, in report order.
+     */
+    public List<Issue> getIssues(Rule rule) {
+      return issues.stream().filter(issue -> issue.rule().equals(rule.getName())).toList();
+    }
+
+    /**
+     * Check whether the validated NodeSet has no issues of {@link Severity#ERROR} severity.
+     *
+     * @return {@code true} if no errors were found.
+     */
+    public boolean isValid() {
+      return issues.stream().noneMatch(issue -> issue.severity() == Severity.ERROR);
+    }
+
+    /**
+     * Count issues by rule name.
+     *
+     * @return the number of issues reported by each rule that reported any, in report order.
+     */
+    public Map<String, Integer> getIssueCounts() {
+      var counts = new LinkedHashMap<String, Integer>();
+      issues.forEach(issue -> counts.merge(issue.rule(), 1, Integer::sum));
+      return Collections.unmodifiableMap(counts);
+    }
+
+    @Override
+    public String toString() {
+      return "Report{issues=" + issues.size() + ", counts=" + getIssueCounts() + '}';
+    }
+  }
+
+  /** Builds a {@link NodeSetValidator} from default and custom rules. */
+  public static final class Builder {
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    private Builder() {}
+
+    /**
+     * Add the {@link #DEFAULT_RULES}.
+     *
+     * @return this {@link Builder}.
+     * @throws IllegalArgumentException if a default rule was already added.
+     */
+    public Builder addDefaultRules() {
+      DEFAULT_RULES.forEach(this::addRule);
+      return this;
+    }
+
+    /**
+     * Add a rule.
+     *
+     * @param rule the rule to add.
+     * @return this {@link Builder}.
+     * @throws IllegalArgumentException if a rule with the same name was already added.
+     */
+    public Builder addRule(Rule rule) {
+      for (Rule existing : rules) {
+        if (existing.getName().equals(rule.getName())) {
+          throw new IllegalArgumentException("duplicate rule name: " + rule.getName());
+        }
+      }
+      rules.add(rule);
+      return this;
+    }
+
+    /**
+     * Build the validator.
+     *
+     * @return a new {@link NodeSetValidator} applying the added rules in order.
+     */
+    public NodeSetValidator build() {
+      return new NodeSetValidator(List.copyOf(rules));
+    }
+  }
+
+  private static final class NodeContext implements Context {
+
+    private final List<Issue> issues = new ArrayList<>(0);
+
+    private final NodeSet nodeSet;
+    private final NodeId nodeId;
+
+    private @Nullable Rule rule;
+
+    private NodeContext(NodeSet nodeSet, NodeId nodeId) {
+      this.nodeSet = nodeSet;
+      this.nodeId = nodeId;
+    }
+
+    @Override
+    public NodeSet getNodeSet() {
+      return nodeSet;
+    }
+
+    @Override
+    public NodeId getNodeId() {
+      return nodeId;
+    }
+
+    @Override
+    public void report(Severity severity, String message) {
+      assert rule != null;
+      issues.add(new Issue(rule.getName(), severity, nodeId, message));
+    }
+  }
+}
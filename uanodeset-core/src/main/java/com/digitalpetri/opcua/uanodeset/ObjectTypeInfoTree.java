@@ -24,6 +24,10 @@ public class ObjectTypeInfoTree extends TypeInfoTree<UAObjectType, ObjectTypeInf
     super(rootTypeInfo);
   }
 
+  ObjectTypeInfoTree(ObjectTypeInfo rootTypeInfo, NodeSetContext context) {
+    super(rootTypeInfo, NodeIdInterner.parserOf(context));
+  }
+
   /**
    * Build an object type tree from a normalized node set context.
    *
@@ -36,6 +40,23 @@ public class ObjectTypeInfoTree extends TypeInfoTree<UAObjectType, ObjectTypeInf
     ObjectTypeInfo rootTypeInfo =
         TypeInfoTreeBuilder.build(
             context, NodeIds.BaseObjectType, UAObjectType.class, ObjectTypeInfo::new);
-    return new ObjectTypeInfoTree(rootTypeInfo);
+    return new ObjectTypeInfoTree(rootTypeInfo, context);
+  }
+
+  /**
+   * Build an object type tree from type nodes already collected from {@code context}.
+   *
+   * @param context the context that supplies resolved references.
+   * @param typeNodes the type nodes collected from {@code context}.
+   * @return an object type tree rooted at {@code BaseObjectType}.
+   * @throws IllegalStateException as for {@link #create(NodeSetContext)}.
+   */
+  static ObjectTypeInfoTree create(
+      NodeSetContext context, TypeInfoTreeBuilder.TypeNodes typeNodes) {
+
+    ObjectTypeInfo rootTypeInfo =
+        TypeInfoTreeBuilder.build(
+            context, typeNodes, NodeIds.BaseObjectType, UAObjectType.class, ObjectTypeInfo::new);
+    return new ObjectTypeInfoTree(rootTypeInfo, context);
   }
 }
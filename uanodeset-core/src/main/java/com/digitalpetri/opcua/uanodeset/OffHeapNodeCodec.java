@@ -0,0 +1,765 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.*;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Binary encoding of {@link UANode} attributes and {@link UANodeSet} header tables for {@link
+ * OffHeapNodeSet}, also used to deep-copy nodes.
+ *
+ * <p>Strings are written as indexes into a shared string table, integers as variable-length
+ * quantities, and DOM content such as Variable values as XML text that is parsed again when a node
+ * is materialized. References are not part of a node record; {@link OffHeapNodeSet} stores them
+ * separately so they can be read without decoding the node.
+ */
+final class OffHeapNodeCodec {
+
+  private static final byte OBJECT = 0;
+  private static final byte VARIABLE = 1;
+  private static final byte METHOD = 2;
+  private static final byte VIEW = 3;
+  private static final byte OBJECT_TYPE = 4;
+  private static final byte VARIABLE_TYPE = 5;
+  private static final byte DATA_TYPE = 6;
+  private static final byte REFERENCE_TYPE = 7;
+
+  private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER =
+      ThreadLocal.withInitial(
+          () -> {
+            try {
+              var factory = DocumentBuilderFactory.newInstance();
+              factory.setNamespaceAware(true);
+              return factory.newDocumentBuilder();
+            } catch (ParserConfigurationException e) {
+              throw new IllegalStateException(e);
+            }
+          });
+
+  private OffHeapNodeCodec() {}
+
+  static void encode(UANode node, RecordWriter out) {
+    if (node instanceof UAObject object) {
+      out.writeByte(OBJECT);
+      encodeInstance(object, out);
+      out.writeVarInt(object.getEventNotifier());
+    } else if (node instanceof UAVariable variable) {
+      out.writeByte(VARIABLE);
+      encodeInstance(variable, out);
+      out.writeBoolean(variable.getValue() != null);
+      out.writeDom(variable.getValue() != null ? variable.getValue().getAny() : null);
+      out.writeVarInt(variable.getTranslation().size());
+      for (TranslationType translation : variable.getTranslation()) {
+        encodeLocalizedTexts(translation.getText(), out);
+        out.writeVarInt(translation.getField().size());
+        for (StructureTranslationType field : translation.getField()) {
+          out.writeString(field.getName());
+          encodeLocalizedTexts(field.getText(), out);
+        }
+      }
+      out.writeString(variable.getDataType());
+      out.writeVarInt(variable.getValueRank());
+      out.writeString(variable.getArrayDimensions());
+      out.writeVarLong(variable.getAccessLevel());
+      out.writeVarLong(variable.getUserAccessLevel());
+      out.writeDouble(variable.getMinimumSamplingInterval());
+      out.writeBoolean(variable.isHistorizing());
+    } else if (node instanceof UAMethod method) {
+      out.writeByte(METHOD);
+      encodeInstance(method, out);
+      out.writeVarInt(method.getArgumentDescription().size());
+      for (UAMethodArgument argument : method.getArgumentDescription()) {
+        out.writeString(argument.getName());
+        encodeLocalizedTexts(argument.getDescription(), out);
+      }
+      out.writeBoolean(method.isExecutable());
+      out.writeBoolean(method.isUserExecutable());
+      out.writeString(method.getMethodDeclarationId());
+    } else if (node instanceof UAView view) {
+      out.writeByte(VIEW);
+      encodeInstance(view, out);
+      out.writeBoolean(view.isContainsNoLoops());
+      out.writeVarInt(view.getEventNotifier());
+    } else if (node instanceof UAObjectType objectType) {
+      out.writeByte(OBJECT_TYPE);
+      encodeType(objectType, out);
+    } else if (node instanceof UAVariableType variableType) {
+      out.writeByte(VARIABLE_TYPE);
+      encodeType(variableType, out);
+      out.writeBoolean(variableType.getValue() != null);
+      out.writeDom(variableType.getValue() != null ? variableType.getValue().getAny() : null);
+      out.writeString(variableType.getDataType());
+      out.writeVarInt(variableType.getValueRank());
+      out.writeString(variableType.getArrayDimensions());
+    } else if (node instanceof UADataType dataType) {
+      out.writeByte(DATA_TYPE);
+      encodeType(dataType, out);
+      encodeDefinition(dataType.getDefinition(), out);
+      out.writeVarInt(dataType.getPurpose().ordinal());
+    } else if (node instanceof UAReferenceType referenceType) {
+      out.writeByte(REFERENCE_TYPE);
+      encodeType(referenceType, out);
+      encodeLocalizedTexts(referenceType.getInverseName(), out);
+      out.writeBoolean(referenceType.isSymmetric());
+    } else {
+      throw new IllegalArgumentException("unsupported node class: " + node.getClass());
+    }
+  }
+
+  /**
+   * Deep-copy a node, including its explicit references, by encoding and decoding it on the heap.
+   */
+  static UANode copy(UANode node) {
+    var strings = new ArrayList<String>();
+    var out =
+        new RecordWriter(
+            s -> {
+              strings.add(s);
+              return strings.size() - 1;
+            });
+    encode(node, out);
+
+    UANode copy = decode(new RecordReader(ByteBuffer.wrap(out.bytes()), 0, strings::get));
+
+    if (node.getReferences() != null) {
+      for (Reference reference : node.getReferences().getReference()) {
+        var referenceCopy = new Reference();
+        referenceCopy.setReferenceType(reference.getReferenceType());
+        referenceCopy.setValue(reference.getValue());
+        referenceCopy.setIsForward(reference.isIsForward());
+        copy.getReferences().getReference().add(referenceCopy);
+      }
+    }
+    return copy;
+  }
+
+  static UANode decode(RecordReader in) {
+    byte kind = in.readByte();
+
+    switch (kind) {
+      case OBJECT -> {
+        var object = new UAObject();
+        decodeInstance(object, in);
+        object.setEventNotifier((short) in.readVarInt());
+        return object;
+      }
+      case VARIABLE -> {
+        var variable = new UAVariable();
+        decodeInstance(variable, in);
+        boolean hasValue = in.readBoolean();
+        @Nullable Node any = in.readDom();
+        if (hasValue) {
+          var value = new UAVariable.Value();
+          value.setAny(any);
+          variable.setValue(value);
+        }
+        int translations = in.readVarInt();
+        for (int i = 0; i < translations; i++) {
+          var translation = new TranslationType();
+          decodeLocalizedTexts(translation.getText(), in);
+          int fields = in.readVarInt();
+          for (int j = 0; j < fields; j++) {
+            var field = new StructureTranslationType();
+            field.setName(in.readString());
+            decodeLocalizedTexts(field.getText(), in);
+            translation.getField().add(field);
+          }
+          variable.getTranslation().add(translation);
+        }
+        variable.setDataType(in.readString());
+        variable.setValueRank(in.readVarInt());
+        variable.setArrayDimensions(in.readString());
+        variable.setAccessLevel(in.readVarLong());
+        variable.setUserAccessLevel(in.readVarLong());
+        variable.setMinimumSamplingInterval(in.readDouble());
+        variable.setHistorizing(in.readBoolean());
+        return variable;
+      }
+      case METHOD -> {
+        var method = new UAMethod();
+        decodeInstance(method, in);
+        int arguments = in.readVarInt();
+        for (int i = 0; i < arguments; i++) {
+          var argument = new UAMethodArgument();
+          argument.setName(in.readString());
+          decodeLocalizedTexts(argument.getDescription(), in);
+          method.getArgumentDescription().add(argument);
+        }
+        method.setExecutable(in.readBoolean());
+        method.setUserExecutable(in.readBoolean());
+        method.setMethodDeclarationId(in.readString());
+        return method;
+      }
+      case VIEW -> {
+        var view = new UAView();
+        decodeInstance(view, in);
+        view.setContainsNoLoops(in.readBoolean());
+        view.setEventNotifier((short) in.readVarInt());
+        return view;
+      }
+      case OBJECT_TYPE -> {
+        var objectType = new UAObjectType();
+        decodeType(objectType, in);
+        return objectType;
+      }
+      case VARIABLE_TYPE -> {
+        var variableType = new UAVariableType();
+        decodeType(variableType, in);
+        boolean hasValue = in.readBoolean();
+        @Nullable Node any = in.readDom();
+        if (hasValue) {
+          var value = new UAVariableType.Value();
+          value.setAny(any);
+          variableType.setValue(value);
+        }
+        variableType.setDataType(in.readString());
+        variableType.setValueRank(in.readVarInt());
+        variableType.setArrayDimensions(in.readString());
+        return variableType;
+      }
+      case DATA_TYPE -> {
+        var dataType = new UADataType();
+        decodeType(dataType, in);
+        dataType.setDefinition(decodeDefinition(in));
+        dataType.setPurpose(DataTypePurpose.values()[in.readVarInt()]);
+        return dataType;
+      }
+      case REFERENCE_TYPE -> {
+        var referenceType = new UAReferenceType();
+        decodeType(referenceType, in);
+        decodeLocalizedTexts(referenceType.getInverseName(), in);
+        referenceType.setSymmetric(in.readBoolean());
+        return referenceType;
+      }
+      default -> throw new IllegalStateException("corrupt node record: kind=" + kind);
+    }
+  }
+
+  /**
+   * Encode the tables of a {@link UANodeSet} that precede its nodes: namespace and server URIs,
+   * models, aliases, extensions, and the last-modified time. Nodes are not encoded.
+   */
+  static void encodeHeader(UANodeSet nodeSet, RecordWriter out) {
+    encodeUris(nodeSet.getNamespaceUris(), out);
+    encodeUris(nodeSet.getServerUris(), out);
+
+    ModelTable models = nodeSet.getModels();
+    if (models != null) {
+      out.writeVarInt(models.getModel().size() + 1);
+      models.getModel().forEach(model -> encodeModel(model, out));
+    } else {
+      out.writeVarInt(0);
+    }
+
+    AliasTable aliases = nodeSet.getAliases();
+    if (aliases != null) {
+      out.writeVarInt(aliases.getAlias().size() + 1);
+      for (NodeIdAlias alias : aliases.getAlias()) {
+        out.writeString(alias.getAlias());
+        out.writeString(alias.getValue());
+      }
+    } else {
+      out.writeVarInt(0);
+    }
+
+    encodeExtensions(nodeSet.getExtensions(), out);
+    encodeCalendar(nodeSet.getLastModified(), out);
+  }
+
+  /** Decode the tables written by {@link #encodeHeader(UANodeSet, RecordWriter)}. */
+  static UANodeSet decodeHeader(RecordReader in) {
+    var nodeSet = new UANodeSet();
+    nodeSet.setNamespaceUris(decodeUris(in));
+    nodeSet.setServerUris(decodeUris(in));
+
+    int models = in.readVarInt();
+    if (models > 0) {
+      var table = new ModelTable();
+      for (int i = 0; i < models - 1; i++) {
+        table.getModel().add(decodeModel(in));
+      }
+      nodeSet.setModels(table);
+    }
+
+    int aliases = in.readVarInt();
+    if (aliases > 0) {
+      var table = new AliasTable();
+      for (int i = 0; i < aliases - 1; i++) {
+        var alias = new NodeIdAlias();
+        alias.setAlias(in.readString());
+        alias.setValue(in.readString());
+        table.getAlias().add(alias);
+      }
+      nodeSet.setAliases(table);
+    }
+
+    nodeSet.setExtensions(decodeExtensions(in));
+    nodeSet.setLastModified(decodeCalendar(in));
+    return nodeSet;
+  }
+
+  private static void encodeUris(@Nullable UriTable uris, RecordWriter out) {
+    if (uris != null) {
+      out.writeVarInt(uris.getUri().size() + 1);
+      uris.getUri().forEach(out::writeString);
+    } else {
+      out.writeVarInt(0);
+    }
+  }
+
+  private static @Nullable UriTable decodeUris(RecordReader in) {
+    int uris = in.readVarInt();
+    if (uris == 0) {
+      return null;
+    }
+
+    var table = new UriTable();
+    for (int i = 0; i < uris - 1; i++) {
+      table.getUri().add(in.readString());
+    }
+    return table;
+  }
+
+  private static void encodeModel(ModelTableEntry model, RecordWriter out) {
+    out.writeString(model.getModelUri());
+    out.writeString(model.getXmlSchemaUri());
+    out.writeString(model.getVersion());
+    encodeCalendar(model.getPublicationDate(), out);
+    out.writeVarInt(model.getAccessRestrictions());
+    encodeRolePermissions(model.getRolePermissions(), out);
+    out.writeVarInt(model.getRequiredModel().size());
+    model.getRequiredModel().forEach(required -> encodeModel(required, out));
+  }
+
+  private static ModelTableEntry decodeModel(RecordReader in) {
+    var model = new ModelTableEntry();
+    model.setModelUri(in.readString());
+    model.setXmlSchemaUri(in.readString());
+    model.setVersion(in.readString());
+    model.setPublicationDate(decodeCalendar(in));
+    model.setAccessRestrictions(in.readVarInt());
+    model.setRolePermissions(decodeRolePermissions(in));
+    int requiredModels = in.readVarInt();
+    for (int i = 0; i < requiredModels; i++) {
+      model.getRequiredModel().add(decodeModel(in));
+    }
+    return model;
+  }
+
+  private static void encodeCalendar(@Nullable XMLGregorianCalendar calendar, RecordWriter out) {
+    out.writeString(calendar != null ? calendar.toXMLFormat() : null);
+  }
+
+  private static @Nullable XMLGregorianCalendar decodeCalendar(RecordReader in) {
+    String lexical = in.readString();
+    if (lexical == null) {
+      return null;
+    }
+
+    try {
+      return DatatypeFactory.newInstance().newXMLGregorianCalendar(lexical);
+    } catch (DatatypeConfigurationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void encodeNode(UANode node, RecordWriter out) {
+    out.writeString(node.getNodeId());
+    out.writeString(node.getBrowseName());
+    out.writeVarLong(node.getWriteMask());
+    out.writeVarLong(node.getUserWriteMask());
+    Integer accessRestrictions = node.getAccessRestrictions();
+    out.writeVarInt(accessRestrictions != null ? accessRestrictions + 1 : 0);
+    out.writeBoolean(node.isHasNoPermissions());
+    out.writeString(node.getSymbolicName());
+    out.writeVarInt(node.getReleaseStatus().ordinal());
+    encodeLocalizedTexts(node.getDisplayName(), out);
+    encodeLocalizedTexts(node.getDescription(), out);
+    out.writeVarInt(node.getCategory().size());
+    node.getCategory().forEach(out::writeString);
+    out.writeString(node.getDocumentation());
+    out.writeBoolean(node.getReferences() != null);
+    encodeRolePermissions(node.getRolePermissions(), out);
+    encodeExtensions(node.getExtensions(), out);
+  }
+
+  private static void decodeNode(UANode node, RecordReader in) {
+    node.setNodeId(in.readString());
+    node.setBrowseName(in.readString());
+    node.setWriteMask(in.readVarLong());
+    node.setUserWriteMask(in.readVarLong());
+    int accessRestrictions = in.readVarInt();
+    node.setAccessRestrictions(accessRestrictions > 0 ? accessRestrictions - 1 : null);
+    node.setHasNoPermissions(in.readBoolean());
+    node.setSymbolicName(in.readString());
+    node.setReleaseStatus(ReleaseStatus.values()[in.readVarInt()]);
+    decodeLocalizedTexts(node.getDisplayName(), in);
+    decodeLocalizedTexts(node.getDescription(), in);
+    int categories = in.readVarInt();
+    for (int i = 0; i < categories; i++) {
+      node.getCategory().add(in.readString());
+    }
+    node.setDocumentation(in.readString());
+    if (in.readBoolean()) {
+      node.setReferences(new ListOfReferences());
+    }
+    node.setRolePermissions(decodeRolePermissions(in));
+    node.setExtensions(decodeExtensions(in));
+  }
+
+  private static void encodeRolePermissions(
+      @Nullable ListOfRolePermissions rolePermissions, RecordWriter out) {
+
+    if (rolePermissions != null) {
+      out.writeVarInt(rolePermissions.getRolePermission().size() + 1);
+      for (RolePermission rolePermission : rolePermissions.getRolePermission()) {
+        out.writeString(rolePermission.getValue());
+        out.writeVarLong(rolePermission.getPermissions());
+      }
+    } else {
+      out.writeVarInt(0);
+    }
+  }
+
+  private static @Nullable ListOfRolePermissions decodeRolePermissions(RecordReader in) {
+    int rolePermissions = in.readVarInt();
+    if (rolePermissions == 0) {
+      return null;
+    }
+
+    var list = new ListOfRolePermissions();
+    for (int i = 0; i < rolePermissions - 1; i++) {
+      var rolePermission = new RolePermission();
+      rolePermission.setValue(in.readString());
+      rolePermission.setPermissions(in.readVarLong());
+      list.getRolePermission().add(rolePermission);
+    }
+    return list;
+  }
+
+  private static void encodeExtensions(@Nullable ListOfExtensions extensions, RecordWriter out) {
+    if (extensions != null) {
+      out.writeVarInt(extensions.getExtension().size() + 1);
+      for (ListOfExtensions.Extension extension : extensions.getExtension()) {
+        out.writeDom(extension.getAny());
+      }
+    } else {
+      out.writeVarInt(0);
+    }
+  }
+
+  private static @Nullable ListOfExtensions decodeExtensions(RecordReader in) {
+    int extensions = in.readVarInt();
+    if (extensions == 0) {
+      return null;
+    }
+
+    var list = new ListOfExtensions();
+    for (int i = 0; i < extensions - 1; i++) {
+      var extension = new ListOfExtensions.Extension();
+      extension.setAny(in.readDom());
+      list.getExtension().add(extension);
+    }
+    return list;
+  }
+
+  private static void encodeInstance(UAInstance instance, RecordWriter out) {
+    encodeNode(instance, out);
+    out.writeString(instance.getParentNodeId());
+  }
+
+  private static void decodeInstance(UAInstance instance, RecordReader in) {
+    decodeNode(instance, in);
+    instance.setParentNodeId(in.readString());
+  }
+
+  private static void encodeType(UAType type, RecordWriter out) {
+    encodeNode(type, out);
+    out.writeBoolean(type.isIsAbstract());
+  }
+
+  private static void decodeType(UAType type, RecordReader in) {
+    decodeNode(type, in);
+    type.setIsAbstract(in.readBoolean());
+  }
+
+  private static void encodeDefinition(@Nullable DataTypeDefinition definition, RecordWriter out) {
+    out.writeBoolean(definition != null);
+    if (definition == null) {
+      return;
+    }
+
+    out.writeString(definition.getName());
+    out.writeString(definition.getSymbolicName());
+    out.writeBoolean(definition.isIsUnion());
+    out.writeBoolean(definition.isIsOptionSet());
+    out.writeString(definition.getBaseType());
+    out.writeVarInt(definition.getField().size());
+    for (DataTypeField field : definition.getField()) {
+      encodeLocalizedTexts(field.getDisplayName(), out);
+      encodeLocalizedTexts(field.getDescription(), out);
+      out.writeString(field.getName());
+      out.writeString(field.getSymbolicName());
+      out.writeString(field.getDataType());
+      out.writeVarInt(field.getValueRank());
+      out.writeString(field.getArrayDimensions());
+      out.writeVarLong(field.getMaxStringLength());
+      out.writeVarInt(field.getValue());
+      out.writeBoolean(field.isIsOptional());
+      out.writeBoolean(field.isAllowSubTypes());
+    }
+  }
+
+  private static @Nullable DataTypeDefinition decodeDefinition(RecordReader in) {
+    if (!in.readBoolean()) {
+      return null;
+    }
+
+    var definition = new DataTypeDefinition();
+    definition.setName(in.readString());
+    definition.setSymbolicName(in.readString());
+    definition.setIsUnion(in.readBoolean());
+    definition.setIsOptionSet(in.readBoolean());
+    definition.setBaseType(in.readString());
+    int fields = in.readVarInt();
+    for (int i = 0; i < fields; i++) {
+      var field = new DataTypeField();
+      decodeLocalizedTexts(field.getDisplayName(), in);
+      decodeLocalizedTexts(field.getDescription(), in);
+      field.setName(in.readString());
+      field.setSymbolicName(in.readString());
+      field.setDataType(in.readString());
+      field.setValueRank(in.readVarInt());
+      field.setArrayDimensions(in.readString());
+      field.setMaxStringLength(in.readVarLong());
+      field.setValue(in.readVarInt());
+      field.setIsOptional(in.readBoolean());
+      field.setAllowSubTypes(in.readBoolean());
+      definition.getField().add(field);
+    }
+    return definition;
+  }
+
+  private static void encodeLocalizedTexts(List<LocalizedText> texts, RecordWriter out) {
+    out.writeVarInt(texts.size());
+    for (LocalizedText text : texts) {
+      out.writeString(text.getValue());
+      out.writeString(text.getLocale());
+    }
+  }
+
+  private static void decodeLocalizedTexts(List<LocalizedText> texts, RecordReader in) {
+    int size = in.readVarInt();
+    for (int i = 0; i < size; i++) {
+      var text = new LocalizedText();
+      text.setValue(in.readString());
+      text.setLocale(in.readString());
+      texts.add(text);
+    }
+  }
+
+  /**
+   * Accumulates one record in a reusable heap buffer before it is appended to off-heap storage.
+   *
+   * <p>Strings are replaced by the index that {@code strings} assigns them; {@code null} strings
+   * are written as index {@code 0} and all other indexes are shifted by one.
+   */
+  static final class RecordWriter {
+
+    private final ToIntFunction<String> strings;
+
+    private byte[] bytes = new byte[256];
+    private int size;
+    private @Nullable Transformer transformer;
+
+    RecordWriter(ToIntFunction<String> strings) {
+      this.strings = strings;
+    }
+
+    void reset() {
+      size = 0;
+    }
+
+    byte[] bytes() {
+      return bytes;
+    }
+
+    int size() {
+      return size;
+    }
+
+    void writeByte(int b) {
+      ensureCapacity(1);
+      bytes[size++] = (byte) b;
+    }
+
+    void writeBoolean(boolean b) {
+      writeByte(b ? 1 : 0);
+    }
+
+    void writeVarInt(int value) {
+      writeVarLong(value);
+    }
+
+    void writeVarLong(long value) {
+      // zig-zag so that small negative values such as ValueRank -1 stay short
+      long v = (value << 1) ^ (value >> 63);
+      while ((v & ~0x7FL) != 0) {
+        writeByte((int) ((v & 0x7F) | 0x80));
+        v >>>= 7;
+      }
+      writeByte((int) v);
+    }
+
+    void writeDouble(double value) {
+      long bits = Double.doubleToRawLongBits(value);
+      for (int i = 0; i < 8; i++) {
+        writeByte((int) (bits >>> (i * 8)));
+      }
+    }
+
+    void writeString(@Nullable String value) {
+      writeVarInt(value != null ? strings.applyAsInt(value) + 1 : 0);
+    }
+
+    void writeBytes(byte[] value) {
+      writeVarInt(value.length);
+      ensureCapacity(value.length);
+      System.arraycopy(value, 0, bytes, size, value.length);
+      size += value.length;
+    }
+
+    void writeDom(@Nullable Object any) {
+      if (any == null) {
+        writeBoolean(false);
+        return;
+      }
+      if (!(any instanceof Node node)) {
+        throw new IllegalArgumentException("unsupported content: " + any.getClass());
+      }
+
+      var writer = new StringWriter();
+      try {
+        if (transformer == null) {
+          transformer = TransformerFactory.newInstance().newTransformer();
+          transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+        }
+        transformer.transform(new DOMSource(node), new StreamResult(writer));
+      } catch (TransformerException e) {
+        throw new IllegalArgumentException("content could not be serialized", e);
+      }
+
+      writeBoolean(true);
+      writeBytes(writer.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void ensureCapacity(int additional) {
+      if (size + additional > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+      }
+    }
+  }
+
+  /**
+   * Reads one record from a ByteBuffer using absolute gets, so any number of readers can share the
+   * underlying buffer.
+   */
+  static final class RecordReader {
+
+    private final ByteBuffer buffer;
+    private final IntFunction<String> strings;
+
+    private int position;
+
+    RecordReader(ByteBuffer buffer, int position, IntFunction<String> strings) {
+      this.buffer = buffer;
+      this.position = position;
+      this.strings = strings;
+    }
+
+    byte readByte() {
+      return buffer.get(position++);
+    }
+
+    boolean readBoolean() {
+      return readByte() != 0;
+    }
+
+    int readVarInt() {
+      return (int) readVarLong();
+    }
+
+    long readVarLong() {
+      long v = 0L;
+      int shift = 0;
+      byte b;
+      do {
+        b = readByte();
+        v |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+
+      return (v >>> 1) ^ -(v & 1);
+    }
+
+    double readDouble() {
+      long bits = 0L;
+      for (int i = 0; i < 8; i++) {
+        bits |= (long) (readByte() & 0xFF) << (i * 8);
+      }
+      return Double.longBitsToDouble(bits);
+    }
+
+    @Nullable String readString() {
+      int index = readVarInt();
+      return index > 0 ? strings.apply(index - 1) : null;
+    }
+
+    byte[] readBytes() {
+      var value = new byte[readVarInt()];
+      buffer.get(position, value);
+      position += value.length;
+      return value;
+    }
+
+    @Nullable Node readDom() {
+      if (!readBoolean()) {
+        return null;
+      }
+
+      String xml = new String(readBytes(), StandardCharsets.UTF_8);
+      try {
+        return DOCUMENT_BUILDER
+            .get()
+            .parse(new InputSource(new StringReader(xml)))
+            .getDocumentElement();
+      } catch (SAXException | IOException e) {
+        throw new IllegalStateException("corrupt content in node record", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,1330 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import com.digitalpetri.opcua.uanodeset.OffHeapNodeCodec.RecordReader;
+import com.digitalpetri.opcua.uanodeset.OffHeapNodeCodec.RecordWriter;
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetMerger;
+import com.digitalpetri.opcua.uanodeset.util.NodeIdCodec;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.*;
+
+/**
+ * A read-only {@link NodeSetContext} that keeps its nodes, strings, and references outside the Java
+ * heap.
+ *
+ * <p>Node attributes are encoded into compact binary records, every distinct string is stored once
+ * in a shared string table, and explicit and implicit references are stored per node alongside
+ * their deduplicated combination. Records live in direct {@link ByteBuffer}s or, when created with
+ * {@link #create(NodeSet, Path)}, in a memory-mapped file that the operating system can page in and
+ * out on demand. Lookups go through an open-addressing hash table that is itself off-heap, so the
+ * heap footprint of an {@link OffHeapNodeSet} does not grow with the size of the model.
+ *
+ * <p>{@link UANode}s are materialized from their records on every lookup. They are detached copies:
+ * two lookups of the same NodeId return equal but distinct objects, and modifying a returned node
+ * does not change this context. The same applies to the node list of {@link #getNodeSet()}, which
+ * materializes each node as it is accessed. Callers that visit the same nodes repeatedly should
+ * hold on to what they need rather than rely on identity.
+ *
+ * <p>An {@link OffHeapNodeSet} is built from a normalized {@link NodeSet}, after which the {@link
+ * NodeSet} can be discarded, or streamed directly from a merged {@link UANodeSet} with {@link
+ * #create(UANodeSet)} so the model is never indexed on the heap at all. It can also be written to
+ * a snapshot file with {@link #save(Path)} and mapped again with {@link #open(Path)}. A snapshot
+ * holds the string table, node and reference records, lookup table, header tables, and reference,
+ * object, variable, and data type trees exactly as they are laid out in memory, so opening one
+ * involves no XML parsing, merging, or indexing. {@link #toNodeSet()} turns an opened snapshot into
+ * the {@link NodeSet} that consumers such as the namespace loader need. Instances are immutable and
+ * safe to use from multiple threads.
+ */
+public final class OffHeapNodeSet implements NodeSetContext {
+
+  /**
+   * The version of the snapshot format written by {@link #save(Path)}. {@link #open(Path)} accepts
+   * only snapshots of this version, so snapshots written with another one must be written again.
+   */
+  public static final int SNAPSHOT_VERSION = 3;
+
+  /** Size of the first record chunk; each further chunk doubles, up to {@link #MAX_CHUNK_SIZE}. */
+  private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+  private static final int MAX_CHUNK_SIZE = 64 << 20;
+
+  /** Node record address, reference record address, and key string index of each entry. */
+  private static final int ENTRY_SIZE = 24;
+
+  /** Largest hash table capacity whose byte offsets still fit in an int. */
+  private static final int MAX_SLOTS = 1 << 27;
+
+  private static final int STRING_CACHE_SIZE = 1 << 12;
+
+  private static final long NO_RECORD = -1L;
+
+  /** The first bytes of a snapshot file: {@code UANSNAP} followed by a NUL. */
+  private static final long SNAPSHOT_MAGIC = 0x55414E534E415000L;
+
+  /**
+   * Magic, version, node count, entry count, chunk count, header record address, and type tree
+   * record address.
+   */
+  private static final int SNAPSHOT_HEADER_SIZE = 40;
+
+  private static final int REFERENCE_TYPE_TREE = 0;
+  private static final int OBJECT_TYPE_TREE = 1;
+  private static final int VARIABLE_TYPE_TREE = 2;
+  private static final int DATA_TYPE_TREE = 3;
+  private static final int TYPE_TREE_COUNT = 4;
+
+  private final CachedString[] stringCache = new CachedString[STRING_CACHE_SIZE];
+
+  private final ByteBuffer[] chunks;
+  private final ByteBuffer strings;
+  private final ByteBuffer entries;
+  private final ByteBuffer slots;
+  private final int slotMask;
+  private final int nodeCount;
+  private final long offHeapSize;
+  private final long headerAddress;
+  private final long typeTreesAddress;
+  private final long[] typeTreeAddresses;
+  private final Map<String, String> aliases;
+  private final UANodeSet nodeSet;
+
+  private @Nullable ReferenceTypeInfoTree referenceTypeTree;
+  private @Nullable ObjectTypeInfoTree objectTypeTree;
+  private @Nullable VariableTypeInfoTree variableTypeTree;
+  private @Nullable DataTypeInfoTree dataTypeTree;
+
+  private OffHeapNodeSet(
+      ByteBuffer[] chunks,
+      ByteBuffer strings,
+      ByteBuffer entries,
+      ByteBuffer slots,
+      int nodeCount,
+      long offHeapSize,
+      long headerAddress,
+      long typeTreesAddress,
+      UANodeSet header) {
+
+    this.chunks = chunks;
+    this.strings = strings;
+    this.entries = entries;
+    this.slots = slots;
+    this.slotMask = slots.capacity() / 8 - 1;
+    this.nodeCount = nodeCount;
+    this.offHeapSize = offHeapSize;
+    this.headerAddress = headerAddress;
+    this.typeTreesAddress = typeTreesAddress;
+    this.nodeSet = new NodeSetView(header, new NodeList());
+
+    this.typeTreeAddresses = new long[TYPE_TREE_COUNT];
+    Arrays.fill(typeTreeAddresses, NO_RECORD);
+    if (typeTreesAddress != NO_RECORD) {
+      RecordReader in = reader(typeTreesAddress);
+      int count = in.readVarInt();
+      for (int i = 0; i < count; i++) {
+        long address = in.readVarLong();
+        if (i < TYPE_TREE_COUNT) {
+          typeTreeAddresses[i] = address;
+        }
+      }
+    }
+
+    var aliases = new HashMap<String, String>();
+    if (header.getAliases() != null) {
+      header.getAliases().getAlias().forEach(a -> aliases.put(a.getAlias(), a.getValue()));
+    }
+    this.aliases = Collections.unmodifiableMap(aliases);
+  }
+
+  /**
+   * Copy a {@link NodeSet} into direct {@link ByteBuffer}s.
+   *
+   * @param nodeSet the normalized {@link NodeSet} to copy.
+   * @return a new {@link OffHeapNodeSet} holding the same nodes and references.
+   * @throws IllegalArgumentException if the NodeSet is too large to be addressed or contains
+   *     content that cannot be serialized.
+   */
+  public static OffHeapNodeSet create(NodeSet nodeSet) {
+    return create(nodeSet.getNodeSet(), false);
+  }
+
+  /**
+   * Copy a {@link NodeSet} into a memory-mapped file.
+   *
+   * <p>The file is created or truncated and serves only as backing storage for the returned
+   * instance; use {@link #save(Path)} to write a snapshot that can be opened again. It must not be
+   * modified while the instance is in use.
+   *
+   * @param nodeSet the normalized {@link NodeSet} to copy.
+   * @param file the file to map.
+   * @return a new {@link OffHeapNodeSet} holding the same nodes and references.
+   * @throws IOException if the file cannot be created or mapped.
+   * @throws IllegalArgumentException if the NodeSet is too large to be addressed or contains
+   *     content that cannot be serialized.
+   */
+  public static OffHeapNodeSet create(NodeSet nodeSet, Path file) throws IOException {
+    return create(nodeSet.getNodeSet(), false, file);
+  }
+
+  /**
+   * Build an off-heap context directly from an already-merged NodeSet, without indexing it on the
+   * heap first.
+   *
+   * <p>Nodes are normalized and written to direct {@link ByteBuffer}s one at a time, in document
+   * order. The builder keeps its string and reference bookkeeping off-heap too, so apart from the
+   * JAXB model itself, heap usage while building does not grow with the size of the model. As with
+   * {@link NodeSet#NodeSet(UANodeSet)}, the supplied {@link UANodeSet} must already contain the
+   * base OPC UA model and is normalized in place; the returned context does not retain its nodes.
+   *
+   * @param nodeSet the merged NodeSet to normalize and copy.
+   * @return a new {@link OffHeapNodeSet} holding the nodes and references of {@code nodeSet}.
+   * @throws IllegalArgumentException if the NodeSet is too large to be addressed or contains
+   *     content that cannot be serialized.
+   */
+  public static OffHeapNodeSet create(UANodeSet nodeSet) {
+    return create(nodeSet, true);
+  }
+
+  /**
+   * Build a memory-mapped off-heap context directly from an already-merged NodeSet, without
+   * indexing it on the heap first.
+   *
+   * <p>See {@link #create(UANodeSet)}. The file is created or truncated and serves only as backing
+   * storage for the returned instance. It must not be modified while the instance is in use.
+   *
+   * @param nodeSet the merged NodeSet to normalize and copy.
+   * @param file the file to map.
+   * @return a new {@link OffHeapNodeSet} holding the nodes and references of {@code nodeSet}.
+   * @throws IOException if the file cannot be created or mapped.
+   * @throws IllegalArgumentException if the NodeSet is too large to be addressed or contains
+   *     content that cannot be serialized.
+   */
+  public static OffHeapNodeSet create(UANodeSet nodeSet, Path file) throws IOException {
+    return create(nodeSet, true, file);
+  }
+
+  /**
+   * Merge extension NodeSets with the bundled OPC UA base NodeSet and build an off-heap context
+   * from the result, without indexing it on the heap first.
+   *
+   * @param nodeSets the parsed extension NodeSets to merge in order.
+   * @return a new {@link OffHeapNodeSet} holding the merged nodes and references.
+   * @throws JAXBException if the bundled base NodeSet cannot be parsed or the NodeSets cannot be
+   *     merged.
+   * @throws IllegalArgumentException if the merged NodeSet is too large to be addressed or
+   *     contains content that cannot be serialized.
+   * @see #create(UANodeSet)
+   */
+  public static OffHeapNodeSet from(Collection<UANodeSet> nodeSets) throws JAXBException {
+    UANodeSet mergedNodeSet = NodeSet.parseBaseNodeSet();
+
+    for (UANodeSet nodeSet : nodeSets) {
+      mergedNodeSet = UANodeSetMerger.merge(mergedNodeSet, nodeSet);
+    }
+
+    return create(mergedNodeSet);
+  }
+
+  private static OffHeapNodeSet create(UANodeSet nodeSet, boolean normalize) {
+    try {
+      return new Builder(ByteBuffer::allocateDirect).build(nodeSet, normalize);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static OffHeapNodeSet create(UANodeSet nodeSet, boolean normalize, Path file)
+      throws IOException {
+
+    try (FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+
+      var position = new long[1];
+
+      return new Builder(
+              capacity -> {
+                ByteBuffer buffer =
+                    channel.map(FileChannel.MapMode.READ_WRITE, position[0], capacity);
+                position[0] += capacity;
+                return buffer;
+              })
+          .build(nodeSet, normalize);
+    }
+  }
+
+  /**
+   * Map a snapshot file written by {@link #save(Path)}.
+   *
+   * <p>Each region of the file is memory-mapped read-only; only the small header tables are
+   * decoded up front. The file must not be modified while the returned instance is in use.
+   *
+   * @param file the snapshot file to map.
+   * @return an {@link OffHeapNodeSet} backed by the file.
+   * @throws IOException if the file cannot be read or mapped, or is not a snapshot in a supported
+   *     format.
+   */
+  public static OffHeapNodeSet open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = read(channel, 0, SNAPSHOT_HEADER_SIZE, file);
+      if (header.getLong(0) != SNAPSHOT_MAGIC) {
+        throw new IOException("not a NodeSet snapshot: " + file);
+      }
+      int version = header.getInt(8);
+      if (version != SNAPSHOT_VERSION) {
+        throw new IOException("unsupported NodeSet snapshot version " + version + ": " + file);
+      }
+      int nodeCount = header.getInt(12);
+      int entryCount = header.getInt(16);
+      int chunkCount = header.getInt(20);
+      long headerAddress = header.getLong(24);
+      long typeTreesAddress = header.getLong(32);
+      if (nodeCount < 0
+          || entryCount < nodeCount
+          || entryCount > MAX_SLOTS / 2
+          || chunkCount < 0
+          || chunkCount > MAX_SLOTS) {
+        throw new IOException("corrupt NodeSet snapshot: " + file);
+      }
+
+      // chunk sizes, then the sizes of the string, entry, and slot tables
+      int regionCount = chunkCount + 3;
+      ByteBuffer sizes = read(channel, SNAPSHOT_HEADER_SIZE, regionCount * 8, file);
+      long position = SNAPSHOT_HEADER_SIZE + regionCount * 8L;
+      long end = position;
+      for (int i = 0; i < regionCount; i++) {
+        long size = sizes.getLong(i * 8);
+        if (size < 0 || size > Integer.MAX_VALUE) {
+          throw new IOException("corrupt NodeSet snapshot: " + file);
+        }
+        end += size;
+      }
+      if (end != channel.size()) {
+        throw new IOException("truncated or corrupt NodeSet snapshot: " + file);
+      }
+
+      // lookups index the tables without bounds checks of their own, and probe the slot table
+      // until they find an empty slot, so its size must be a power of two larger than the entries
+      long stringsSize = sizes.getLong(chunkCount * 8);
+      long entriesSize = sizes.getLong((chunkCount + 1) * 8);
+      long slotsSize = sizes.getLong((chunkCount + 2) * 8);
+      long slotCount = slotsSize / 8;
+      if (stringsSize % 8 != 0
+          || entriesSize != (long) entryCount * ENTRY_SIZE
+          || slotsSize % 8 != 0
+          || Long.bitCount(slotCount) != 1
+          || slotCount <= entryCount) {
+        throw new IOException("corrupt NodeSet snapshot: " + file);
+      }
+
+      var regions = new ByteBuffer[regionCount];
+      for (int i = 0; i < regionCount; i++) {
+        long size = sizes.getLong(i * 8);
+        regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        position += size;
+      }
+
+      ByteBuffer[] chunks = Arrays.copyOf(regions, chunkCount);
+      ByteBuffer strings = regions[chunkCount];
+
+      try {
+        RecordReader in =
+            new RecordReader(
+                chunks[(int) (headerAddress >>> 32)],
+                (int) headerAddress,
+                index -> readString(chunks, strings, index));
+
+        return new OffHeapNodeSet(
+            chunks,
+            strings,
+            regions[chunkCount + 1],
+            regions[chunkCount + 2],
+            nodeCount,
+            end,
+            headerAddress,
+            typeTreesAddress,
+            OffHeapNodeCodec.decodeHeader(in));
+      } catch (IndexOutOfBoundsException | IllegalStateException e) {
+        throw new IOException("corrupt NodeSet snapshot: " + file, e);
+      }
+    }
+  }
+
+  /**
+   * Write this context to a snapshot file that {@link #open(Path)} can map again.
+   *
+   * <p>Records and tables are written exactly as they are laid out in memory. The file is created
+   * or truncated.
+   *
+   * @param file the file to write.
+   * @throws IOException if the file cannot be written.
+   */
+  public void save(Path file) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+
+      List<ByteBuffer> regions = new ArrayList<>(List.of(chunks));
+      regions.addAll(List.of(strings, entries, slots));
+
+      ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE + regions.size() * 8);
+      header.putLong(SNAPSHOT_MAGIC);
+      header.putInt(SNAPSHOT_VERSION);
+      header.putInt(nodeCount);
+      header.putInt(entries.capacity() / ENTRY_SIZE);
+      header.putInt(chunks.length);
+      header.putLong(headerAddress);
+      header.putLong(typeTreesAddress);
+      regions.forEach(region -> header.putLong(region.capacity()));
+      write(channel, header.flip());
+
+      for (ByteBuffer region : regions) {
+        write(channel, region.duplicate().clear());
+      }
+    }
+  }
+
+  /**
+   * Get a view of the NodeSet backing this context.
+   *
+   * <p>The namespace, server, model, and alias tables are shared with the {@link NodeSet} this
+   * context was created from, or decoded from the snapshot it was opened from. The node list is
+   * read-only and materializes each node on access.
+   *
+   * @return a read-only view of the NodeSet.
+   */
+  @Override
+  public UANodeSet getNodeSet() {
+    return nodeSet;
+  }
+
+  @Override
+  public @Nullable UANode getNode(String nodeId) {
+    return getNode(resolveNodeId(nodeId));
+  }
+
+  @Override
+  public @Nullable UANode getNode(NodeId nodeId) {
+    int entry = find(key(nodeId));
+
+    return entry >= 0 && entry < nodeCount ? materialize(entry) : null;
+  }
+
+  @Override
+  public List<Reference> getReferences(String nodeId) {
+    return getReferences(resolveNodeId(nodeId));
+  }
+
+  @Override
+  public List<Reference> getReferences(NodeId nodeId) {
+    return readReferences(find(key(nodeId)), ReferenceSelection.COMBINED);
+  }
+
+  @Override
+  public List<Reference> getExplicitReferences(String nodeId) {
+    return getExplicitReferences(resolveNodeId(nodeId));
+  }
+
+  @Override
+  public List<Reference> getExplicitReferences(NodeId nodeId) {
+    return readReferences(find(key(nodeId)), ReferenceSelection.EXPLICIT);
+  }
+
+  @Override
+  public List<Reference> getImplicitReferences(String nodeId) {
+    return getImplicitReferences(resolveNodeId(nodeId));
+  }
+
+  @Override
+  public List<Reference> getImplicitReferences(NodeId nodeId) {
+    return readReferences(find(key(nodeId)), ReferenceSelection.IMPLICIT);
+  }
+
+  @Override
+  public Optional<NodeId> getTypeDefinition(UANode node) {
+    if (!(node instanceof UAObject || node instanceof UAVariable)) {
+      return Optional.empty();
+    }
+
+    // Parse directly rather than through NodeIdUtil so lookups don't fill its JVM-wide caches.
+    for (Reference reference : getReferences(NodeIdCodec.parse(node.getNodeId()))) {
+      if (reference.isIsForward()
+          && NodeIds.HasTypeDefinition.equals(NodeIdCodec.parse(reference.getReferenceType()))) {
+        return Optional.of(NodeIdCodec.parse(reference.getValue()));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Get the number of nodes in this context.
+   *
+   * @return the number of nodes.
+   */
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Get the number of bytes of off-heap memory, or of mapped file, reserved by this context.
+   *
+   * @return the reserved size in bytes.
+   */
+  public long getOffHeapSize() {
+    return offHeapSize;
+  }
+
+  /**
+   * Get the reference type hierarchy rooted at {@code References}.
+   *
+   * <p>The hierarchy is stored with the records, so only its type nodes are materialized, once, on
+   * first use.
+   *
+   * @return the reference type tree.
+   * @throws IllegalStateException if the hierarchy is invalid.
+   */
+  public synchronized ReferenceTypeInfoTree getReferenceTypeTree() {
+    if (referenceTypeTree == null) {
+      ReferenceTypeInfo root =
+          readTypeTree(
+              REFERENCE_TYPE_TREE,
+              UAReferenceType.class,
+              ReferenceTypeInfo::new,
+              this::materialize);
+      referenceTypeTree =
+          root != null ? new ReferenceTypeInfoTree(root) : ReferenceTypeInfoTree.create(this);
+    }
+    return referenceTypeTree;
+  }
+
+  /**
+   * Get the object type hierarchy rooted at {@code BaseObjectType}.
+   *
+   * <p>The hierarchy is stored with the records, so only its type nodes are materialized, once, on
+   * first use.
+   *
+   * @return the object type tree.
+   * @throws IllegalStateException if the hierarchy is invalid.
+   */
+  public synchronized ObjectTypeInfoTree getObjectTypeTree() {
+    if (objectTypeTree == null) {
+      ObjectTypeInfo root =
+          readTypeTree(
+              OBJECT_TYPE_TREE, UAObjectType.class, ObjectTypeInfo::new, this::materialize);
+      objectTypeTree =
+          root != null ? new ObjectTypeInfoTree(root) : ObjectTypeInfoTree.create(this);
+    }
+    return objectTypeTree;
+  }
+
+  /**
+   * Get the variable type hierarchy rooted at {@code BaseVariableType}.
+   *
+   * <p>The hierarchy is stored with the records, so only its type nodes are materialized, once, on
+   * first use.
+   *
+   * @return the variable type tree.
+   * @throws IllegalStateException if the hierarchy is invalid.
+   */
+  public synchronized VariableTypeInfoTree getVariableTypeTree() {
+    if (variableTypeTree == null) {
+      VariableTypeInfo root =
+          readTypeTree(
+              VARIABLE_TYPE_TREE, UAVariableType.class, VariableTypeInfo::new, this::materialize);
+      variableTypeTree =
+          root != null ? new VariableTypeInfoTree(root) : VariableTypeInfoTree.create(this);
+    }
+    return variableTypeTree;
+  }
+
+  /**
+   * Get the data type hierarchy rooted at {@code BaseDataType}.
+   *
+   * <p>The hierarchy is stored with the records, so only its type nodes are materialized, once, on
+   * first use. Datatype classifications and structure layouts are computed from them then.
+   *
+   * @return the data type tree.
+   * @throws IllegalStateException if the hierarchy is invalid.
+   */
+  public synchronized DataTypeInfoTree getDataTypeTree() {
+    if (dataTypeTree == null) {
+      DataTypeInfo root =
+          readTypeTree(DATA_TYPE_TREE, UADataType.class, DataTypeInfo::new, this::materialize);
+      dataTypeTree =
+          root != null ? new DataTypeInfoTree(root, this) : DataTypeInfoTree.create(this);
+    }
+    return dataTypeTree;
+  }
+
+  /**
+   * Materialize this context into a {@link NodeSet}, for consumers that need one, such as the
+   * namespace loader.
+   *
+   * <p>Nothing is parsed or merged, and the type hierarchies are taken from the stored trees rather
+   * than built again, but this gives up most of what a snapshot saves: every node is materialized
+   * onto the heap, and the new {@link NodeSet} builds its node, reference, and NodeId indexes over
+   * them as {@link NodeSet#load(List)} would. The cost is proportional to the model, not to the
+   * nodes a caller reads, and the heap footprint is that of a loaded {@link NodeSet}. Callers that
+   * only query nodes, references, or type hierarchies should use this context directly.
+   *
+   * <p>The returned {@link NodeSet} does not depend on this context.
+   *
+   * @return a new {@link NodeSet} with the same nodes and references as this context.
+   */
+  public NodeSet toNodeSet() {
+    UANodeSet copy = LayeredNodeSet.copyHeader(nodeSet);
+    copy.setExtensions(nodeSet.getExtensions());
+
+    List<UANode> nodes = copy.getUAObjectOrUAVariableOrUAMethod();
+    for (int entry = 0; entry < nodeCount; entry++) {
+      nodes.add(materialize(entry));
+    }
+
+    var materialized = new NodeSet(copy);
+
+    // a node's entry index is its position in the node list, so the trees hold the NodeSet's nodes
+    ReferenceTypeInfo referenceTypes =
+        readTypeTree(
+            REFERENCE_TYPE_TREE, UAReferenceType.class, ReferenceTypeInfo::new, nodes::get);
+    ObjectTypeInfo objectTypes =
+        readTypeTree(OBJECT_TYPE_TREE, UAObjectType.class, ObjectTypeInfo::new, nodes::get);
+    VariableTypeInfo variableTypes =
+        readTypeTree(VARIABLE_TYPE_TREE, UAVariableType.class, VariableTypeInfo::new, nodes::get);
+    DataTypeInfo dataTypes =
+        readTypeTree(DATA_TYPE_TREE, UADataType.class, DataTypeInfo::new, nodes::get);
+
+    if (referenceTypes != null
+        && objectTypes != null
+        && variableTypes != null
+        && dataTypes != null) {
+
+      materialized.initTypeTrees(
+          new TypeTrees(
+              new ReferenceTypeInfoTree(referenceTypes, materialized),
+              new ObjectTypeInfoTree(objectTypes, materialized),
+              new VariableTypeInfoTree(variableTypes, materialized),
+              new DataTypeInfoTree(dataTypes, materialized)));
+    }
+    return materialized;
+  }
+
+  /**
+   * Rebuild a stored type hierarchy, or return {@code null} if none was stored because building
+   * it from the source NodeSet failed.
+   */
+  private <T extends UAType, N extends TypeInfo<T>> @Nullable N readTypeTree(
+      int tree,
+      Class<T> typeClass,
+      TypeInfoTreeBuilder.TypeInfoFactory<T, N> factory,
+      IntFunction<UANode> nodes) {
+
+    long address = typeTreeAddresses[tree];
+    if (address == NO_RECORD) {
+      return null;
+    }
+
+    // types are stored in pre-order, each with the position of its parent
+    RecordReader in = reader(address);
+    int count = in.readVarInt();
+    var typeInfos = new ArrayList<N>(count);
+    for (int i = 0; i < count; i++) {
+      T typeNode = typeClass.cast(nodes.apply(in.readVarInt()));
+      int parentPosition = in.readVarInt();
+      N parent = parentPosition >= 0 ? typeInfos.get(parentPosition) : null;
+      N typeInfo = factory.create(parent, typeNode);
+      if (parent != null) {
+        parent.addChild(typeInfo);
+      }
+      typeInfos.add(typeInfo);
+    }
+    return typeInfos.get(0);
+  }
+
+  private NodeId resolveNodeId(String nodeIdOrAlias) {
+    return NodeIdCodec.parse(aliases.getOrDefault(nodeIdOrAlias, nodeIdOrAlias));
+  }
+
+  private UANode materialize(int entry) {
+    long address = entries.getLong(entry * ENTRY_SIZE);
+    UANode node = OffHeapNodeCodec.decode(reader(address));
+
+    ListOfReferences references = node.getReferences();
+    if (references != null) {
+      references.getReference().addAll(readReferences(entry, ReferenceSelection.EXPLICIT));
+    }
+    return node;
+  }
+
+  private List<Reference> readReferences(int entry, ReferenceSelection selection) {
+    if (entry < 0) {
+      return Collections.emptyList();
+    }
+    long address = entries.getLong(entry * ENTRY_SIZE + 8);
+    if (address == NO_RECORD) {
+      return Collections.emptyList();
+    }
+
+    RecordReader in = reader(address);
+    int explicitCount = in.readVarInt();
+    int implicitCount = in.readVarInt();
+
+    var references = new Reference[explicitCount + implicitCount];
+    for (int i = 0; i < references.length; i++) {
+      var reference = new Reference();
+      reference.setReferenceType(in.readString());
+      reference.setValue(in.readString());
+      reference.setIsForward(in.readBoolean());
+      references[i] = reference;
+    }
+
+    switch (selection) {
+      case EXPLICIT:
+        return List.of(references).subList(0, explicitCount);
+      case IMPLICIT:
+        return List.of(references).subList(explicitCount, references.length);
+      default:
+        int combinedCount = in.readVarInt();
+        if (combinedCount < 0) {
+          return List.of(references);
+        }
+        var combined = new Reference[combinedCount];
+        for (int i = 0; i < combinedCount; i++) {
+          combined[i] = references[in.readVarInt()];
+        }
+        return List.of(combined);
+    }
+  }
+
+  private int find(String key) {
+    int hash = hash(key);
+    byte[] bytes = null;
+
+    for (int slot = hash & slotMask; ; slot = (slot + 1) & slotMask) {
+      int entry = slots.getInt(slot * 8 + 4) - 1;
+      if (entry < 0) {
+        return -1;
+      }
+      if (slots.getInt(slot * 8) == hash) {
+        if (bytes == null) {
+          bytes = key.getBytes(StandardCharsets.UTF_8);
+        }
+        if (stringEquals(entries.getInt(entry * ENTRY_SIZE + 16), bytes)) {
+          return entry;
+        }
+      }
+    }
+  }
+
+  private boolean stringEquals(int index, byte[] bytes) {
+    return Arrays.equals(reader(strings.getLong(index * 8)).readBytes(), bytes);
+  }
+
+  private String string(int index) {
+    int slot = index & (STRING_CACHE_SIZE - 1);
+    CachedString cached = stringCache[slot];
+    if (cached != null && cached.index == index) {
+      return cached.value;
+    }
+
+    String value = readString(chunks, strings, index);
+    stringCache[slot] = new CachedString(index, value);
+    return value;
+  }
+
+  private static String readString(ByteBuffer[] chunks, ByteBuffer strings, int index) {
+    long address = strings.getLong(index * 8);
+    var in = new RecordReader(chunks[(int) (address >>> 32)], (int) address, i -> null);
+    return new String(in.readBytes(), StandardCharsets.UTF_8);
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int size, Path file)
+      throws IOException {
+
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("truncated NodeSet snapshot: " + file);
+      }
+    }
+    return buffer.flip();
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private RecordReader reader(long address) {
+    return new RecordReader(chunks[(int) (address >>> 32)], (int) address, this::string);
+  }
+
+  /** Format a NodeId the way {@link com.digitalpetri.opcua.uanodeset.util.NodeIdUtil} does. */
+  private static String key(NodeId nodeId) {
+    return NodeIdCodec.format(nodeId);
+  }
+
+  private static int hash(String key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private enum ReferenceSelection {
+    COMBINED,
+    EXPLICIT,
+    IMPLICIT
+  }
+
+  /** A string read from the string table, cached with its index so a torn read is impossible. */
+  private static final class CachedString {
+    private final int index;
+    private final String value;
+
+    private CachedString(int index, String value) {
+      this.index = index;
+      this.value = value;
+    }
+  }
+
+  /** The read-only node list of {@link #getNodeSet()}, materializing nodes in document order. */
+  private final class NodeList extends AbstractList<UANode> implements RandomAccess {
+
+    @Override
+    public UANode get(int index) {
+      Objects.checkIndex(index, nodeCount);
+      return materialize(index);
+    }
+
+    @Override
+    public int size() {
+      return nodeCount;
+    }
+  }
+
+  private static final class NodeSetView extends UANodeSet {
+
+    private final List<UANode> nodes;
+
+    private NodeSetView(UANodeSet source, List<UANode> nodes) {
+      this.nodes = nodes;
+
+      setNamespaceUris(source.getNamespaceUris());
+      setServerUris(source.getServerUris());
+      setModels(source.getModels());
+      setAliases(source.getAliases());
+      setExtensions(source.getExtensions());
+      setLastModified(source.getLastModified());
+    }
+
+    @Override
+    public List<UANode> getUAObjectOrUAVariableOrUAMethod() {
+      return nodes;
+    }
+  }
+
+  private interface Allocator {
+    ByteBuffer allocate(int capacity) throws IOException;
+  }
+
+  /**
+   * Streams the nodes of a {@link UANodeSet} into off-heap storage.
+   *
+   * <p>Each node's record is written as soon as the node is visited, and its entry index is its
+   * position in the node list. A node's explicit and implicit references are only complete once
+   * every node has been visited, so they are collected in linked lists in {@link ScratchTable}s and
+   * written after the nodes, followed by entries for NodeIds that have references but no node,
+   * such as targets in a model that was not loaded, so their implicit references remain queryable.
+   * The type hierarchies are built last, from an intermediate context over the finished tables.
+   *
+   * <p>The string table doubles as the table of NodeId keys: the scratch record of a key string
+   * holds the heads of its reference lists and the entry of its node.
+   */
+  private static final class Builder {
+
+    /** String record address, explicit and implicit reference list heads, entry, and hash. */
+    private static final int STRING_SIZE = 24;
+
+    /** Reference type and value string indexes, direction, and the next link in the list. */
+    private static final int LINK_SIZE = 16;
+
+    private static final int NONE = -1;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+
+    private final ScratchTable stringTable = new ScratchTable(STRING_SIZE);
+    private final ScratchTable links = new ScratchTable(LINK_SIZE);
+    private final ScratchTable entryTable = new ScratchTable(ENTRY_SIZE);
+    private final TypeInfoTreeBuilder.TypeNodes typeNodes = new TypeInfoTreeBuilder.TypeNodes();
+
+    private final Allocator allocator;
+    private final RecordWriter recordWriter;
+    private final RecordWriter stringWriter;
+
+    private ByteBuffer stringSlots = ByteBuffer.allocateDirect(1024 * 4);
+    private @Nullable ByteBuffer chunk;
+    private long offHeapSize;
+
+    private Builder(Allocator allocator) {
+      this.allocator = allocator;
+      this.recordWriter = new RecordWriter(this::intern);
+      this.stringWriter =
+          new RecordWriter(
+              s -> {
+                throw new IllegalStateException();
+              });
+    }
+
+    private OffHeapNodeSet build(UANodeSet source, boolean normalize) throws IOException {
+      var aliases = new HashMap<String, String>();
+      if (normalize && source.getAliases() != null) {
+        source.getAliases().getAlias().forEach(a -> aliases.put(a.getAlias(), a.getValue()));
+      }
+
+      for (UANode node : source.getUAObjectOrUAVariableOrUAMethod()) {
+        if (normalize) {
+          normalize(node, aliases);
+        }
+        append(node);
+      }
+      int nodeCount = entryTable.size();
+
+      // a NodeId with implicit references but no node gets an entry of its own
+      for (int key = 0; key < stringTable.size(); key++) {
+        if (stringTable.getInt(key, 12) != NONE && stringTable.getInt(key, 16) == NONE) {
+          int entry = entryTable.add();
+          entryTable.putLong(entry, 0, NO_RECORD);
+          entryTable.putInt(entry, 16, key);
+          stringTable.putInt(key, 16, entry);
+        }
+      }
+
+      int entryCount = entryTable.size();
+      if ((long) entryCount * ENTRY_SIZE > Integer.MAX_VALUE || entryCount > MAX_SLOTS / 2) {
+        throw new IllegalArgumentException("too many nodes: " + entryCount);
+      }
+
+      for (int entry = 0; entry < entryCount; entry++) {
+        int key = entryTable.getInt(entry, 16);
+        entryTable.putLong(
+            entry,
+            8,
+            appendReferences(
+                readLinks(stringTable.getInt(key, 8)), readLinks(stringTable.getInt(key, 12))));
+      }
+
+      recordWriter.reset();
+      OffHeapNodeCodec.encodeHeader(source, recordWriter);
+      long headerAddress = append(recordWriter);
+
+      // no strings are interned past this point, so the string table can be written
+      ByteBuffer entries = allocate(entryCount * ENTRY_SIZE);
+      for (int entry = 0; entry < entryCount; entry++) {
+        entries.putLong(entry * ENTRY_SIZE, entryTable.getLong(entry, 0));
+        entries.putLong(entry * ENTRY_SIZE + 8, entryTable.getLong(entry, 8));
+        entries.putInt(entry * ENTRY_SIZE + 16, entryTable.getInt(entry, 16));
+      }
+
+      int stringCount = stringTable.size();
+      ByteBuffer strings = allocate(stringCount * 8);
+      for (int i = 0; i < stringCount; i++) {
+        strings.putLong(i * 8, stringTable.getLong(i, 0));
+      }
+
+      // keep the load factor at or below 1/2 so probe sequences stay short
+      int capacity = Integer.highestOneBit(Math.max(2, entryCount * 2 - 1)) << 1;
+      ByteBuffer slots = allocate(capacity * 8);
+      int mask = capacity - 1;
+      for (int key = 0; key < stringCount; key++) {
+        int entry = stringTable.getInt(key, 16);
+        if (entry == NONE) {
+          continue;
+        }
+        int hash = stringTable.getInt(key, 20);
+        int slot = hash & mask;
+        while (slots.getInt(slot * 8 + 4) != 0) {
+          slot = (slot + 1) & mask;
+        }
+        slots.putInt(slot * 8, hash);
+        slots.putInt(slot * 8 + 4, entry + 1);
+      }
+
+      var nodes =
+          new OffHeapNodeSet(
+              usedChunks(),
+              strings,
+              entries,
+              slots,
+              nodeCount,
+              offHeapSize,
+              headerAddress,
+              NO_RECORD,
+              source);
+
+      long[] typeTreeAddresses = {
+        appendTypeTree(() -> ReferenceTypeInfoTree.create(nodes, typeNodes), nodes),
+        appendTypeTree(() -> ObjectTypeInfoTree.create(nodes, typeNodes), nodes),
+        appendTypeTree(() -> VariableTypeInfoTree.create(nodes, typeNodes), nodes),
+        appendTypeTree(() -> DataTypeInfoTree.create(nodes, typeNodes), nodes)
+      };
+
+      recordWriter.reset();
+      recordWriter.writeVarInt(typeTreeAddresses.length);
+      for (long address : typeTreeAddresses) {
+        recordWriter.writeVarLong(address);
+      }
+      long typeTreesAddress = append(recordWriter);
+
+      return new OffHeapNodeSet(
+          usedChunks(),
+          strings,
+          entries,
+          slots,
+          nodeCount,
+          offHeapSize,
+          headerAddress,
+          typeTreesAddress,
+          source);
+    }
+
+    /** Resolve aliases in the same attributes that {@link NodeSet} resolves them in. */
+    private static void normalize(UANode node, Map<String, String> aliases) {
+      node.setNodeId(aliases.getOrDefault(node.getNodeId(), node.getNodeId()));
+
+      if (node instanceof UADataType dataType && dataType.getDefinition() != null) {
+        for (DataTypeField field : dataType.getDefinition().getField()) {
+          field.setDataType(aliases.getOrDefault(field.getDataType(), field.getDataType()));
+        }
+      } else if (node instanceof UAVariable variable) {
+        variable.setDataType(aliases.getOrDefault(variable.getDataType(), variable.getDataType()));
+      } else if (node instanceof UAVariableType variableType) {
+        variableType.setDataType(
+            aliases.getOrDefault(variableType.getDataType(), variableType.getDataType()));
+      }
+
+      if (node.getReferences() != null) {
+        for (Reference reference : node.getReferences().getReference()) {
+          reference.setValue(aliases.getOrDefault(reference.getValue(), reference.getValue()));
+          reference.setReferenceType(
+              aliases.getOrDefault(reference.getReferenceType(), reference.getReferenceType()));
+        }
+      }
+    }
+
+    /** Write the record of a node and link its references to their source and target keys. */
+    private void append(UANode node) throws IOException {
+      recordWriter.reset();
+      OffHeapNodeCodec.encode(node, recordWriter);
+      long address = append(recordWriter);
+
+      NodeId nodeId = NodeIdCodec.parse(node.getNodeId());
+      int key = intern(key(nodeId));
+      int entry = entryTable.add();
+      entryTable.putLong(entry, 0, address);
+      entryTable.putInt(entry, 16, key);
+      // a later duplicate replaces an earlier one, as it does in NodeSet's node map
+      stringTable.putInt(key, 16, entry);
+
+      if (node instanceof UAType) {
+        typeNodes.add(nodeId, node);
+      }
+
+      if (node.getReferences() != null) {
+        int source = intern(node.getNodeId());
+
+        for (Reference reference : node.getReferences().getReference()) {
+          int referenceType = intern(reference.getReferenceType());
+          int target = intern(key(NodeIdCodec.parse(reference.getValue())));
+
+          link(key, 8, referenceType, intern(reference.getValue()), reference.isIsForward());
+          link(target, 12, referenceType, source, !reference.isIsForward());
+        }
+      }
+    }
+
+    /** Push a reference onto the list whose head is at {@code head} in a key's scratch record. */
+    private void link(int key, int head, int referenceType, int value, boolean forward) {
+      int link = links.add();
+      links.putInt(link, 0, referenceType);
+      links.putInt(link, 4, value);
+      links.putInt(link, 8, forward ? 1 : 0);
+      links.putInt(link, 12, stringTable.getInt(key, head));
+      stringTable.putInt(key, head, link);
+    }
+
+    /** Read a reference list, which was built by pushing, in the order it was declared. */
+    private List<Reference> readLinks(int head) {
+      var references = new ArrayList<Reference>();
+      for (int link = head; link != NONE; link = links.getInt(link, 12)) {
+        var reference = new Reference();
+        reference.setReferenceType(string(links.getInt(link, 0)));
+        reference.setValue(string(links.getInt(link, 4)));
+        reference.setIsForward(links.getInt(link, 8) != 0);
+        references.add(reference);
+      }
+      Collections.reverse(references);
+      return references;
+    }
+
+    /** Trim each chunk to the bytes in use so that a snapshot contains no unused space. */
+    private ByteBuffer[] usedChunks() {
+      var usedChunks = new ByteBuffer[chunks.size()];
+      for (int i = 0; i < usedChunks.length; i++) {
+        usedChunks[i] = chunks.get(i).slice(0, chunks.get(i).position());
+      }
+      return usedChunks;
+    }
+
+    /**
+     * Append a type hierarchy as its types' entry indexes in pre-order, each followed by the
+     * position of its parent, or return {@link #NO_RECORD} if the hierarchy cannot be built.
+     */
+    private long appendTypeTree(
+        Supplier<? extends TypeInfoTree<?, ?>> typeTree, OffHeapNodeSet nodes) throws IOException {
+
+      TypeInfo<?> root;
+      try {
+        root = typeTree.get().getRootTypeInfo();
+      } catch (IllegalStateException e) {
+        // leave it to the opened context to rebuild the tree, and report the error, on first use
+        return NO_RECORD;
+      }
+
+      var types = new ArrayList<int[]>();
+      collectTypes(root, -1, nodes, types);
+
+      recordWriter.reset();
+      recordWriter.writeVarInt(types.size());
+      for (int[] type : types) {
+        recordWriter.writeVarInt(type[0]);
+        recordWriter.writeVarInt(type[1]);
+      }
+      return append(recordWriter);
+    }
+
+    private static void collectTypes(
+        TypeInfo<?> typeInfo, int parentPosition, OffHeapNodeSet nodes, List<int[]> types) {
+
+      int position = types.size();
+      NodeId typeId = NodeIdCodec.parse(typeInfo.getTypeNode().getNodeId());
+      types.add(new int[] {nodes.find(key(typeId)), parentPosition});
+
+      for (TypeInfo<?> child : typeInfo.getChildren()) {
+        collectTypes(child, position, nodes, types);
+      }
+    }
+
+    private long appendReferences(List<Reference> explicit, List<Reference> implicit)
+        throws IOException {
+
+      if (explicit.isEmpty() && implicit.isEmpty()) {
+        return NO_RECORD;
+      }
+
+      recordWriter.reset();
+      recordWriter.writeVarInt(explicit.size());
+      recordWriter.writeVarInt(implicit.size());
+
+      // NodeSet combines references by semantic equality, keeping the first occurrence.
+      var seen = new HashSet<List<Object>>();
+      var combined = new ArrayList<Integer>();
+      int index = 0;
+
+      for (List<Reference> references : List.of(explicit, implicit)) {
+        for (Reference reference : references) {
+          recordWriter.writeString(reference.getReferenceType());
+          recordWriter.writeString(reference.getValue());
+          recordWriter.writeBoolean(reference.isIsForward());
+
+          boolean added =
+              seen.add(
+                  List.of(
+                      NodeIdCodec.parse(reference.getReferenceType()),
+                      NodeIdCodec.parse(reference.getValue()),
+                      reference.isIsForward()));
+          if (added) {
+            combined.add(index);
+          }
+          index++;
+        }
+      }
+
+      if (combined.size() == index) {
+        recordWriter.writeVarInt(-1);
+      } else {
+        recordWriter.writeVarInt(combined.size());
+        combined.forEach(recordWriter::writeVarInt);
+      }
+
+      return append(recordWriter);
+    }
+
+    /**
+     * Get the index of {@code value} in the string table, appending it if it is new.
+     *
+     * <p>Strings are found through an open-addressing table of string indexes that is doubled
+     * whenever it becomes half full; candidates are compared with the bytes already written.
+     */
+    private int intern(String value) {
+      int hash = hash(value);
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+      int mask = stringSlots.capacity() / 4 - 1;
+      for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+        int index = stringSlots.getInt(slot * 4) - 1;
+        if (index < 0) {
+          return addString(bytes, hash, slot);
+        }
+        if (stringTable.getInt(index, 20) == hash && Arrays.equals(bytes(index), bytes)) {
+          return index;
+        }
+      }
+    }
+
+    private int addString(byte[] bytes, int hash, int slot) {
+      int index = stringTable.size();
+      if (index >= MAX_SLOTS / 2) {
+        throw new IllegalArgumentException("too many distinct strings: " + index);
+      }
+
+      stringWriter.reset();
+      stringWriter.writeBytes(bytes);
+      long address;
+      try {
+        address = append(stringWriter);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+
+      stringTable.add();
+      stringTable.putLong(index, 0, address);
+      stringTable.putInt(index, 8, NONE);
+      stringTable.putInt(index, 12, NONE);
+      stringTable.putInt(index, 16, NONE);
+      stringTable.putInt(index, 20, hash);
+      stringSlots.putInt(slot * 4, index + 1);
+
+      if (stringTable.size() * 2 > stringSlots.capacity() / 4) {
+        rehashStrings(stringSlots.capacity() * 2);
+      }
+      return index;
+    }
+
+    private void rehashStrings(int capacity) {
+      stringSlots = ByteBuffer.allocateDirect(capacity);
+      int mask = capacity / 4 - 1;
+      for (int index = 0; index < stringTable.size(); index++) {
+        int slot = stringTable.getInt(index, 20) & mask;
+        while (stringSlots.getInt(slot * 4) != 0) {
+          slot = (slot + 1) & mask;
+        }
+        stringSlots.putInt(slot * 4, index + 1);
+      }
+    }
+
+    private byte[] bytes(int index) {
+      long address = stringTable.getLong(index, 0);
+      return new RecordReader(chunks.get((int) (address >>> 32)), (int) address, i -> null)
+          .readBytes();
+    }
+
+    private String string(int index) {
+      return new String(bytes(index), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Append a record to the current chunk, starting a new chunk when it doesn't fit, and return
+     * its address: the chunk index in the upper 32 bits and the offset in the lower 32 bits.
+     */
+    private long append(RecordWriter record) throws IOException {
+      int size = record.size();
+
+      if (chunk == null || chunk.remaining() < size) {
+        int chunkSize =
+            chunk == null ? MIN_CHUNK_SIZE : Math.min(chunk.capacity() * 2, MAX_CHUNK_SIZE);
+        chunk = allocate(Math.max(chunkSize, size));
+        chunks.add(chunk);
+      }
+
+      long address = ((long) (chunks.size() - 1) << 32) | chunk.position();
+      chunk.put(record.bytes(), 0, size);
+      return address;
+    }
+
+    private ByteBuffer allocate(int capacity) throws IOException {
+      ByteBuffer buffer = allocator.allocate(capacity);
+      offHeapSize += capacity;
+      return buffer;
+    }
+  }
+
+  /**
+   * A growable table of fixed-size records in direct memory, for bookkeeping that a {@link
+   * Builder} needs only until it is done. Records are allocated in chunks, so the table never
+   * copies the records it already holds.
+   */
+  private static final class ScratchTable {
+
+    private static final int CHUNK_SHIFT = 16;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final int recordSize;
+
+    private int size;
+
+    private ScratchTable(int recordSize) {
+      this.recordSize = recordSize;
+    }
+
+    int add() {
+      if ((size & ((1 << CHUNK_SHIFT) - 1)) == 0) {
+        chunks.add(ByteBuffer.allocateDirect(recordSize << CHUNK_SHIFT));
+      }
+      return size++;
+    }
+
+    int size() {
+      return size;
+    }
+
+    long getLong(int index, int offset) {
+      return chunk(index).getLong(position(index) + offset);
+    }
+
+    void putLong(int index, int offset, long value) {
+      chunk(index).putLong(position(index) + offset, value);
+    }
+
+    int getInt(int index, int offset) {
+      return chunk(index).getInt(position(index) + offset);
+    }
+
+    void putInt(int index, int offset, int value) {
+      chunk(index).putInt(position(index) + offset, value);
+    }
+
+    private ByteBuffer chunk(int index) {
+      return chunks.get(index >>> CHUNK_SHIFT);
+    }
+
+    private int position(int index) {
+      return (index & ((1 << CHUNK_SHIFT) - 1)) * recordSize;
+    }
+  }
+}
@@ -0,0 +1,293 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A map made of a read-only root map and a chain of change layers, so a NodeSet derived with {@link
+ * NodeSet#apply(NodeSetDelta)} shares its base's maps instead of copying them.
+ *
+ * <p>Each layer records the keys a delta put or removed, in the order they were first changed.
+ * Lookups consult the layers from the top down and then the root. Only the top layer is modified;
+ * the layers below belong to earlier snapshots and are never modified again. {@link #over(Map)}
+ * keeps the chain short by merging a layer into the one below it once it has grown to half that
+ * layer's size, so a key is copied a logarithmic number of times, and copies the whole map into a
+ * new root once the layers hold more changes than a quarter of the root.
+ *
+ * <p>Null values are not supported. Instances are not safe for concurrent modification, but may be
+ * read from multiple threads once the NodeSet that owns them is published.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+final class OverlayMap<K, V> extends AbstractMap<K, V> {
+
+  /** The change recorded for a key removed by a layer. */
+  private static final Object REMOVED = new Object();
+
+  private final Map<K, V> root;
+  private final @Nullable OverlayMap<K, V> parent;
+  private final LinkedHashMap<K, Object> changes;
+
+  private int size;
+
+  private OverlayMap(
+      Map<K, V> root,
+      @Nullable OverlayMap<K, V> parent,
+      LinkedHashMap<K, Object> changes,
+      int size) {
+
+    this.root = root;
+    this.parent = parent;
+    this.changes = changes;
+    this.size = size;
+  }
+
+  /**
+   * Create an empty change layer over {@code base}.
+   *
+   * <p>{@code base} must not be modified afterward. If it is itself an {@link OverlayMap}, its
+   * layers are shared, merged, or flattened into a new root as described in the class comment.
+   *
+   * @param base the map to put the new layer over.
+   * @param <K> the key type.
+   * @param <V> the value type.
+   * @return a new map with the same entries as {@code base}.
+   */
+  static <K, V> OverlayMap<K, V> over(Map<K, V> base) {
+    if (!(base instanceof OverlayMap<K, V> below)) {
+      return new OverlayMap<>(base, null, new LinkedHashMap<>(), base.size());
+    }
+
+    // a layer without changes has the same entries as the one below it
+    while (below.changes.isEmpty() && below.parent != null) {
+      below = below.parent;
+    }
+    if (below.changes.isEmpty()) {
+      return new OverlayMap<>(below.root, null, new LinkedHashMap<>(), below.size);
+    }
+
+    while (below.parent != null && below.changes.size() * 2 >= below.parent.changes.size()) {
+      below = merge(below.parent, below);
+    }
+
+    int changeCount = 0;
+    for (OverlayMap<K, V> layer = below; layer != null; layer = layer.parent) {
+      changeCount += layer.changes.size();
+    }
+    if (changeCount > below.root.size() / 4) {
+      return new OverlayMap<>(new HashMap<>(below), null, new LinkedHashMap<>(), below.size);
+    }
+
+    return new OverlayMap<>(below.root, below, new LinkedHashMap<>(), below.size);
+  }
+
+  /** Merge {@code upper} into a copy of {@code lower}, keeping the order of first changes. */
+  private static <K, V> OverlayMap<K, V> merge(OverlayMap<K, V> lower, OverlayMap<K, V> upper) {
+    var changes = new LinkedHashMap<>(lower.changes);
+    changes.putAll(upper.changes);
+
+    return new OverlayMap<>(lower.root, lower.parent, changes, upper.size);
+  }
+
+  /**
+   * Get the root map, which holds every entry that no layer has changed.
+   *
+   * @return the root map.
+   */
+  Map<K, V> root() {
+    return root;
+  }
+
+  /**
+   * Check whether the top layer, the one owned by this map, changed {@code key}.
+   *
+   * @param key the key to check.
+   * @return {@code true} if {@code key} was put or removed since this map was created.
+   */
+  boolean isModified(K key) {
+    return changes.containsKey(key);
+  }
+
+  /**
+   * Get the keys changed by the top layer, in the order they were first changed.
+   *
+   * @return an unmodifiable view of the keys put or removed since this map was created.
+   */
+  Set<K> getModifiedKeys() {
+    return Collections.unmodifiableSet(changes.keySet());
+  }
+
+  /**
+   * Check whether any layer changed {@code key}, so its entry may differ from the root's.
+   *
+   * @param key the key to check.
+   * @return {@code true} if a layer put or removed {@code key}.
+   */
+  boolean isOverridden(K key) {
+    for (OverlayMap<K, V> layer = this; layer != null; layer = layer.parent) {
+      if (layer.changes.containsKey(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check whether {@code key} is neither in the root nor changed by any layer below the top one.
+   *
+   * @param key the key to check.
+   * @return {@code true} if {@code key} first appears in the top layer.
+   */
+  boolean isNew(K key) {
+    for (OverlayMap<K, V> layer = parent; layer != null; layer = layer.parent) {
+      if (layer.changes.containsKey(key)) {
+        return false;
+      }
+    }
+    return !root.containsKey(key);
+  }
+
+  /**
+   * Get the keys changed by any layer, in the order they were first changed.
+   *
+   * @return a new set of the keys whose entries may differ from the root's.
+   */
+  Set<K> getOverriddenKeys() {
+    var layers = new ArrayList<OverlayMap<K, V>>();
+    for (OverlayMap<K, V> layer = this; layer != null; layer = layer.parent) {
+      layers.add(layer);
+    }
+
+    var keys = new LinkedHashSet<K>();
+    for (int i = layers.size() - 1; i >= 0; i--) {
+      keys.addAll(layers.get(i).changes.keySet());
+    }
+    return keys;
+  }
+
+  @Override
+  public @Nullable V get(Object key) {
+    for (OverlayMap<K, V> layer = this; layer != null; layer = layer.parent) {
+      Object change = layer.changes.get(key);
+      if (change != null) {
+        return change == REMOVED ? null : cast(change);
+      }
+    }
+    return root.get(key);
+  }
+
+  @Override
+  public V getOrDefault(Object key, V defaultValue) {
+    V value = get(key);
+    return value != null ? value : defaultValue;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public @Nullable V put(K key, V value) {
+    Objects.requireNonNull(value, "value cannot be null");
+
+    V previous = get(key);
+    changes.put(key, value);
+    if (previous == null) {
+      size++;
+    }
+    return previous;
+  }
+
+  @Override
+  public @Nullable V remove(Object key) {
+    V previous = get(key);
+    if (previous != null) {
+      @SuppressWarnings("unchecked")
+      K k = (K) key;
+      changes.put(k, REMOVED);
+      size--;
+    }
+    return previous;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V> V cast(Object value) {
+    return (V) value;
+  }
+
+  /** Iterates the root entries no layer changed, then the current entries of changed keys. */
+  private final class EntryIterator implements Iterator<Entry<K, V>> {
+
+    private final Iterator<Entry<K, V>> rootEntries = root.entrySet().iterator();
+    private @Nullable Iterator<K> overriddenKeys;
+    private @Nullable Entry<K, V> next;
+
+    @Override
+    public boolean hasNext() {
+      while (next == null) {
+        if (overriddenKeys == null) {
+          while (rootEntries.hasNext()) {
+            Entry<K, V> entry = rootEntries.next();
+            if (!isOverridden(entry.getKey())) {
+              next = new SimpleImmutableEntry<>(entry);
+              return true;
+            }
+          }
+          overriddenKeys = getOverriddenKeys().iterator();
+        }
+        if (!overriddenKeys.hasNext()) {
+          return false;
+        }
+        K key = overriddenKeys.next();
+        V value = get(key);
+        if (value != null) {
+          next = new SimpleImmutableEntry<>(key, value);
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Entry<K, V> entry = next;
+      next = null;
+      return entry;
+    }
+  }
+}
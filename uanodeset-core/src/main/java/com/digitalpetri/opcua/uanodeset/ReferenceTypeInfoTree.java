@@ -24,6 +24,10 @@ public class ReferenceTypeInfoTree extends TypeInfoTree<UAReferenceType, Referen
     super(rootTypeInfo);
   }
 
+  ReferenceTypeInfoTree(ReferenceTypeInfo rootTypeInfo, NodeSetContext context) {
+    super(rootTypeInfo, NodeIdInterner.parserOf(context));
+  }
+
   /**
    * Build a reference type tree from a normalized node set context.
    *
@@ -36,6 +40,23 @@ public class ReferenceTypeInfoTree extends TypeInfoTree<UAReferenceType, Referen
     ReferenceTypeInfo rootTypeInfo =
         TypeInfoTreeBuilder.build(
             context, NodeIds.References, UAReferenceType.class, ReferenceTypeInfo::new);
-    return new ReferenceTypeInfoTree(rootTypeInfo);
+    return new ReferenceTypeInfoTree(rootTypeInfo, context);
+  }
+
+  /**
+   * Build a reference type tree from type nodes already collected from {@code context}.
+   *
+   * @param context the context that supplies resolved references.
+   * @param typeNodes the type nodes collected from {@code context}.
+   * @return a reference type tree rooted at {@code References}.
+   * @throws IllegalStateException as for {@link #create(NodeSetContext)}.
+   */
+  static ReferenceTypeInfoTree create(
+      NodeSetContext context, TypeInfoTreeBuilder.TypeNodes typeNodes) {
+
+    ReferenceTypeInfo rootTypeInfo =
+        TypeInfoTreeBuilder.build(
+            context, typeNodes, NodeIds.References, UAReferenceType.class, ReferenceTypeInfo::new);
+    return new ReferenceTypeInfoTree(rootTypeInfo, context);
   }
 }
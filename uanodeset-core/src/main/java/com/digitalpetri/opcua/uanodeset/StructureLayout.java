@@ -0,0 +1,90 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.util.List;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.StructureType;
+import org.jspecify.annotations.Nullable;
+import org.opcfoundation.ua.DataTypeField;
+
+/**
+ * The encoded form of a structured datatype: its fields in encoding order and the NodeIds of its
+ * encodings.
+ *
+ * <p>Layouts are computed once for every {@code Structure} descendant when a {@link
+ * DataTypeInfoTree} is built and are immutable, so namespace loaders and codec generators may share
+ * them between threads. Encoding NodeIds are resolved from forward {@code HasEncoding} references
+ * and are only available for trees created from a {@link NodeSetContext}.
+ *
+ * @param dataTypeId the NodeId of the datatype.
+ * @param baseDataTypeId the NodeId of the direct supertype, or {@code null} for {@code Structure}
+ *     itself, whose supertype {@code BaseDataType} is not structured.
+ * @param structureType how the structure is encoded.
+ * @param fields the inherited fields followed by the declared fields.
+ * @param binaryEncodingId the NodeId of the {@code Default Binary} encoding, if known.
+ * @param xmlEncodingId the NodeId of the {@code Default XML} encoding, if known.
+ * @param jsonEncodingId the NodeId of the {@code Default JSON} encoding, if known.
+ */
+public record StructureLayout(
+    NodeId dataTypeId,
+    @Nullable NodeId baseDataTypeId,
+    StructureType structureType,
+    List<Field> fields,
+    @Nullable NodeId binaryEncodingId,
+    @Nullable NodeId xmlEncodingId,
+    @Nullable NodeId jsonEncodingId) {
+
+  public StructureLayout {
+    fields = List.copyOf(fields);
+  }
+
+  /**
+   * Get the number of bits in the encoding mask that precedes the fields of a structure with
+   * optional fields.
+   *
+   * @return the number of fields with an {@link Field#optionalBit()}, or {@code 0} if the structure
+   *     has no encoding mask.
+   */
+  public int getOptionalFieldCount() {
+    int count = 0;
+    for (Field field : fields) {
+      if (field.optionalBit() >= 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Check whether the structure is encoded as a union, with a switch field selecting one field.
+   *
+   * @return {@code true} for {@link StructureType#Union} and {@link
+   *     StructureType#UnionWithSubtypedValues}.
+   */
+  public boolean isUnion() {
+    return structureType == StructureType.Union
+        || structureType == StructureType.UnionWithSubtypedValues;
+  }
+
+  /**
+   * A field of a {@link StructureLayout}.
+   *
+   * @param definition the field as declared in the UANodeSet.
+   * @param dataTypeId the parsed NodeId of the field's datatype.
+   * @param optionalBit the field's bit in the encoding mask of a structure with optional fields, or
+   *     {@code -1} if the field is always encoded.
+   * @param switchValue the union switch value that selects the field, or {@code 0} if the structure
+   *     is not a union.
+   */
+  public record Field(
+      DataTypeField definition, NodeId dataTypeId, int optionalBit, int switchValue) {
+
+    /**
+     * Get the field name.
+     *
+     * @return the name declared for the field.
+     */
+    public String name() {
+      return definition.getName();
+    }
+  }
+}
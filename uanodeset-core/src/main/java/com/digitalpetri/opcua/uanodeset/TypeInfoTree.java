@@ -1,7 +1,10 @@
 package com.digitalpetri.opcua.uanodeset;
 
+import com.digitalpetri.opcua.uanodeset.util.NodeIdCodec;
 import com.digitalpetri.opcua.uanodeset.util.NodeIdUtil;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -10,6 +13,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.jspecify.annotations.Nullable;
 import org.opcfoundation.ua.UAType;
@@ -22,6 +26,18 @@ import org.opcfoundation.ua.UAType;
  * subclasses select the root and JAXB type class; their {@code create} methods derive parent-child
  * relationships from a {@link NodeSetContext}'s combined {@code HasSubtype} references.
  *
+ * <p>Each type is numbered at construction with the interval it spans in a depth-first walk of the
+ * hierarchy: a type enters before its subtypes and exits after the last of them. One type
+ * descends from another exactly when its entry number falls inside the other's interval, so
+ * subtype checks are two integer comparisons. The ancestry returned by {@link
+ * #getTypeHierarchy(NodeId)} is also computed once per type and shared between callers.
+ *
+ * <p>Because entry numbers are assigned in pre-order, the subtypes of any type occupy a contiguous
+ * run of the pre-order sequence, and {@link #getSubtypes(NodeId)} returns a view of that run
+ * without walking the hierarchy. {@link #getCommonSupertype(NodeId, NodeId)} answers
+ * lowest-common-ancestor queries in constant time from a sparse table over an Euler tour of the
+ * tree, built on the first such query.
+ *
  * @param <T> the JAXB type represented by each tree node.
  * @param <N> the public node wrapper used by this tree.
  */
@@ -31,6 +47,16 @@ public abstract class TypeInfoTree<T extends UAType, N extends TypeInfo<T>> {
 
   protected final N rootTypeInfo;
 
+  private final Map<NodeId, Position> positions = new HashMap<>();
+
+  /** Every type, indexed by its entry number. */
+  private final List<NodeId> preOrder;
+
+  /** The entry numbers of the types that are not abstract. */
+  private final BitSet concrete = new BitSet();
+
+  private volatile @Nullable AncestorIndex ancestorIndex;
+
   /**
    * Create a tree index from an already-linked root node.
    *
@@ -40,16 +66,46 @@ public abstract class TypeInfoTree<T extends UAType, N extends TypeInfo<T>> {
    * @throws NullPointerException if {@code rootTypeInfo} is {@code null}.
    */
   public TypeInfoTree(N rootTypeInfo) {
+    this(rootTypeInfo, NodeIdCodec::parse);
+  }
+
+  /**
+   * Create a tree index from an already-linked root node, parsing the type NodeIds with {@code
+   * nodeIds} so the tree shares the NodeId instances of the model it was built from.
+   *
+   * @param rootTypeInfo the root of the hierarchy.
+   * @param nodeIds parses the NodeIds of the linked type nodes.
+   * @throws IllegalArgumentException as for {@link #TypeInfoTree(TypeInfo)}.
+   */
+  TypeInfoTree(N rootTypeInfo, Function<String, NodeId> nodeIds) {
     this.rootTypeInfo = Objects.requireNonNull(rootTypeInfo, "rootTypeInfo cannot be null");
 
     Set<TypeInfo<T>> visiting = Collections.newSetFromMap(new IdentityHashMap<>());
     Set<TypeInfo<T>> indexed = Collections.newSetFromMap(new IdentityHashMap<>());
-    index(rootTypeInfo, null, visiting, indexed);
+    index(rootTypeInfo, null, List.of(), 0, nodeIds, visiting, indexed);
+
+    var ids = new NodeId[positions.size()];
+    positions.forEach(
+        (typeId, position) -> {
+          ids[position.enter()] = typeId;
+          if (!typeInfos.get(typeId).isAbstract()) {
+            concrete.set(position.enter());
+          }
+        });
+    preOrder = List.of(ids);
   }
 
-  private void index(
+  /**
+   * Index {@code typeInfo} and its descendants, numbering them from {@code enter}.
+   *
+   * @return the last number assigned in the subtree.
+   */
+  private int index(
       TypeInfo<T> typeInfo,
       @Nullable TypeInfo<T> expectedParent,
+      List<NodeId> parentHierarchy,
+      int enter,
+      Function<String, NodeId> nodeIds,
       Set<TypeInfo<T>> visiting,
       Set<TypeInfo<T>> indexed) {
 
@@ -66,19 +122,30 @@ public abstract class TypeInfoTree<T extends UAType, N extends TypeInfo<T>> {
           "type " + typeInfo.getTypeNode().getNodeId() + " is not linked from its declared parent");
     }
 
-    NodeId typeId = NodeIdUtil.parse(typeInfo.getTypeNode().getNodeId());
+    NodeId typeId = nodeIds.apply(typeInfo.getTypeNode().getNodeId());
     if (typeInfos.containsKey(typeId)) {
       throw new IllegalArgumentException("duplicate type NodeId in hierarchy: " + typeId);
     }
 
     //noinspection unchecked
     typeInfos.put(typeId, (N) typeInfo);
+
+    var ids = new NodeId[parentHierarchy.size() + 1];
+    ids[0] = typeId;
+    for (int i = 1; i < ids.length; i++) {
+      ids[i] = parentHierarchy.get(i - 1);
+    }
+    List<NodeId> hierarchy = List.of(ids);
+
+    int exit = enter;
     for (TypeInfo<T> child : typeInfo.getChildren()) {
-      index(child, typeInfo, visiting, indexed);
+      exit = index(child, typeInfo, hierarchy, exit + 1, nodeIds, visiting, indexed);
     }
+    positions.put(typeId, new Position(enter, exit, hierarchy));
 
     visiting.remove(typeInfo);
     indexed.add(typeInfo);
+    return exit;
   }
 
   /**
@@ -144,22 +211,16 @@ public abstract class TypeInfoTree<T extends UAType, N extends TypeInfo<T>> {
    * <p>An unknown or disconnected type produces a singleton list containing {@code nodeId}. This
    * preserves exact-type comparisons while making no claim about unavailable ancestry.
    *
+   * <p>Hierarchies of known types are computed when the tree is built; every call for the same type
+   * returns the same immutable list.
+   *
    * @param nodeId the NodeId of the direct type.
    * @return the direct type followed by known supertypes, from most specific to most general.
    */
   public List<NodeId> getTypeHierarchy(NodeId nodeId) {
-    N typeInfo = getTypeInfo(nodeId);
-    if (typeInfo == null) {
-      return List.of(nodeId);
-    }
+    Position position = positions.get(nodeId);
 
-    List<NodeId> hierarchy = new ArrayList<>();
-    TypeInfo<T> current = typeInfo;
-    while (current != null) {
-      hierarchy.add(NodeIdUtil.parse(current.getTypeNode().getNodeId()));
-      current = current.getParent();
-    }
-    return List.copyOf(hierarchy);
+    return position != null ? position.hierarchy() : List.of(nodeId);
   }
 
   /**
@@ -223,8 +284,15 @@ public abstract class TypeInfoTree<T extends UAType, N extends TypeInfo<T>> {
    * @return {@code true} if {@code nodeId} is a strict descendant of {@code superNodeId}.
    */
   public boolean isSubtypeOf(NodeId nodeId, NodeId superNodeId) {
-    List<NodeId> hierarchy = getTypeHierarchy(nodeId);
-    return hierarchy.size() > 1 && hierarchy.subList(1, hierarchy.size()).contains(superNodeId);
+    Position position = positions.get(nodeId);
+    if (position == null) {
+      return false;
+    }
+    Position superPosition = positions.get(superNodeId);
+
+    return superPosition != null
+        && superPosition.enter() < position.enter()
+        && position.enter() <= superPosition.exit();
   }
 
   /**
@@ -251,4 +319,193 @@ public abstract class TypeInfoTree<T extends UAType, N extends TypeInfo<T>> {
   public boolean isTypeOrSubtypeOf(String nodeId, String superNodeId) {
     return isTypeOrSubtypeOf(NodeIdUtil.parse(nodeId), NodeIdUtil.parse(superNodeId));
   }
+
+  /**
+   * Get every strict subtype of a type, in depth-first pre-order.
+   *
+   * @param nodeId the NodeId of the type.
+   * @return an immutable list of the type's descendants, or an empty list if the type is unknown
+   *     or has no subtypes.
+   */
+  public List<NodeId> getSubtypes(NodeId nodeId) {
+    Position position = positions.get(nodeId);
+
+    return position != null
+        ? preOrder.subList(position.enter() + 1, position.exit() + 1)
+        : List.of();
+  }
+
+  /**
+   * Get every strict subtype of a type, in depth-first pre-order.
+   *
+   * @param nodeId the NodeId of the type.
+   * @return an immutable list of the type's descendants, or an empty list if the type is unknown
+   *     or has no subtypes.
+   */
+  public List<NodeId> getSubtypes(String nodeId) {
+    return getSubtypes(NodeIdUtil.parse(nodeId));
+  }
+
+  /**
+   * Get every strict subtype of a type that is not abstract, in depth-first pre-order.
+   *
+   * @param nodeId the NodeId of the type.
+   * @return the type's concrete descendants, or an empty list if the type is unknown.
+   */
+  public List<NodeId> getConcreteSubtypes(NodeId nodeId) {
+    Position position = positions.get(nodeId);
+    if (position == null) {
+      return List.of();
+    }
+
+    var subtypes = new ArrayList<NodeId>();
+    int i = concrete.nextSetBit(position.enter() + 1);
+    while (i >= 0 && i <= position.exit()) {
+      subtypes.add(preOrder.get(i));
+      i = concrete.nextSetBit(i + 1);
+    }
+    return Collections.unmodifiableList(subtypes);
+  }
+
+  /**
+   * Get every strict subtype of a type that is defined in a namespace, in depth-first pre-order.
+   *
+   * @param nodeId the NodeId of the type.
+   * @param namespaceIndex the namespace index the subtypes' NodeIds must have.
+   * @return the type's descendants in the namespace, or an empty list if the type is unknown.
+   */
+  public List<NodeId> getSubtypesInNamespace(NodeId nodeId, int namespaceIndex) {
+    var subtypes = new ArrayList<NodeId>();
+    for (NodeId subtype : getSubtypes(nodeId)) {
+      if (subtype.getNamespaceIndex().intValue() == namespaceIndex) {
+        subtypes.add(subtype);
+      }
+    }
+    return Collections.unmodifiableList(subtypes);
+  }
+
+  /**
+   * Get the most specific type that both types are equal to or descend from.
+   *
+   * @param nodeId the NodeId of the first type.
+   * @param otherNodeId the NodeId of the second type.
+   * @return the lowest common ancestor of the two types, which is one of them if it is a supertype
+   *     of the other, or {@code null} if either type is unknown.
+   */
+  public @Nullable NodeId getCommonSupertype(NodeId nodeId, NodeId otherNodeId) {
+    Position position = positions.get(nodeId);
+    Position otherPosition = positions.get(otherNodeId);
+    if (position == null || otherPosition == null) {
+      return null;
+    }
+
+    AncestorIndex index = ancestorIndex;
+    if (index == null) {
+      // built at most a few times under contention; every copy is identical
+      index = new AncestorIndex();
+      ancestorIndex = index;
+    }
+
+    return preOrder.get(index.lowestCommonAncestor(position.enter(), otherPosition.enter()));
+  }
+
+  /**
+   * Get the most specific type that both types are equal to or descend from.
+   *
+   * @param nodeId the NodeId of the first type.
+   * @param otherNodeId the NodeId of the second type.
+   * @return the lowest common ancestor of the two types, or {@code null} if either type is unknown.
+   */
+  public @Nullable NodeId getCommonSupertype(String nodeId, String otherNodeId) {
+    return getCommonSupertype(NodeIdUtil.parse(nodeId), NodeIdUtil.parse(otherNodeId));
+  }
+
+  /**
+   * A type's depth-first interval and ancestry.
+   *
+   * @param enter the number assigned to the type before its subtypes.
+   * @param exit the last number assigned within the type's subtree.
+   * @param hierarchy the type followed by its supertypes.
+   */
+  private record Position(int enter, int exit, List<NodeId> hierarchy) {}
+
+  /**
+   * An Euler tour of the tree, listing a type when it is entered and again after each of its
+   * subtypes, with a sparse table of the shallowest type in every power-of-two run of the tour.
+   * The lowest common ancestor of two types is the shallowest type between their first
+   * appearances.
+   */
+  private final class AncestorIndex {
+
+    /** The entry number of each type in tour order. */
+    private final int[] tour;
+
+    /** The depth of each type in tour order. */
+    private final int[] depths;
+
+    /** The first tour position of each type, indexed by entry number. */
+    private final int[] firstVisit;
+
+    /** {@code table[k][i]} is the tour position of the shallowest type in {@code [i, i + 2^k)}. */
+    private final int[][] table;
+
+    private int length;
+
+    private AncestorIndex() {
+      int size = preOrder.size();
+      tour = new int[2 * size - 1];
+      depths = new int[2 * size - 1];
+      firstVisit = new int[size];
+
+      var exits = new int[size];
+      for (Position position : positions.values()) {
+        exits[position.enter()] = position.exit();
+      }
+      visit(0, 0, exits);
+
+      int levels = 32 - Integer.numberOfLeadingZeros(length);
+      table = new int[levels][];
+      table[0] = new int[length];
+      Arrays.setAll(table[0], i -> i);
+      for (int k = 1; k < levels; k++) {
+        int[] previous = table[k - 1];
+        int half = 1 << (k - 1);
+        int[] current = new int[length - (1 << k) + 1];
+        for (int i = 0; i < current.length; i++) {
+          current[i] = shallower(previous[i], previous[i + half]);
+        }
+        table[k] = current;
+      }
+    }
+
+    private void visit(int enter, int depth, int[] exits) {
+      firstVisit[enter] = length;
+      append(enter, depth);
+
+      int child = enter + 1;
+      while (child <= exits[enter]) {
+        visit(child, depth + 1, exits);
+        append(enter, depth);
+        child = exits[child] + 1;
+      }
+    }
+
+    private void append(int enter, int depth) {
+      tour[length] = enter;
+      depths[length] = depth;
+      length++;
+    }
+
+    private int shallower(int a, int b) {
+      return depths[a] <= depths[b] ? a : b;
+    }
+
+    private int lowestCommonAncestor(int enter, int otherEnter) {
+      int from = Math.min(firstVisit[enter], firstVisit[otherEnter]);
+      int to = Math.max(firstVisit[enter], firstVisit[otherEnter]);
+
+      int k = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+      return tour[shallower(table[k][from], table[k][to - (1 << k) + 1])];
+    }
+  }
 }
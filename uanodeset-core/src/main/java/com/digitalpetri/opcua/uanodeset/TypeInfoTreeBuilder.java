@@ -1,6 +1,5 @@
 package com.digitalpetri.opcua.uanodeset;
 
-import com.digitalpetri.opcua.uanodeset.util.NodeIdUtil;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -8,12 +7,16 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import org.eclipse.milo.opcua.stack.core.NodeIds;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.jspecify.annotations.Nullable;
-import org.opcfoundation.ua.Reference;
+import org.opcfoundation.ua.UADataType;
 import org.opcfoundation.ua.UANode;
+import org.opcfoundation.ua.UAObjectType;
+import org.opcfoundation.ua.UAReferenceType;
 import org.opcfoundation.ua.UAType;
+import org.opcfoundation.ua.UAVariableType;
 
 /**
  * Builds a validated, rooted {@link TypeInfoTree} model from normalized {@code HasSubtype}
@@ -24,6 +27,9 @@ import org.opcfoundation.ua.UAType;
  * rejects cycles or multiple declared supertypes before constructing the public tree. Types whose
  * known parent is absent remain disconnected from the standard root and are therefore not assigned
  * speculative ancestry.
+ *
+ * <p>Callers building more than one tree should collect the type nodes of every kind with a single
+ * {@link #collectTypeNodes(NodeSetContext)} pass and hand the result to each build.
  */
 final class TypeInfoTreeBuilder {
 
@@ -33,13 +39,33 @@ final class TypeInfoTreeBuilder {
       Class<T> typeClass,
       TypeInfoFactory<T, N> factory) {
 
+    return build(context, collectTypeNodes(context, typeClass), rootTypeId, typeClass, factory);
+  }
+
+  static <T extends UAType, N extends TypeInfo<T>> N build(
+      NodeSetContext context,
+      TypeNodes typeNodes,
+      NodeId rootTypeId,
+      Class<T> typeClass,
+      TypeInfoFactory<T, N> factory) {
+
+    return build(context, typeNodes.get(typeClass), rootTypeId, typeClass, factory);
+  }
+
+  private static <T extends UAType, N extends TypeInfo<T>> N build(
+      NodeSetContext context,
+      Map<NodeId, T> typeNodes,
+      NodeId rootTypeId,
+      Class<T> typeClass,
+      TypeInfoFactory<T, N> factory) {
+
     UANode rootNode = context.getNode(rootTypeId);
     if (!typeClass.isInstance(rootNode)) {
       throw new IllegalStateException(typeClass.getSimpleName() + " " + rootTypeId + " not found");
     }
 
-    Map<NodeId, T> typeNodes = collectTypeNodes(context, typeClass);
-    Map<NodeId, NodeId> parentByChild = collectKnownParents(context, typeNodes);
+    Function<String, NodeId> nodeIds = NodeIdInterner.parserOf(context);
+    Map<NodeId, NodeId> parentByChild = collectKnownParents(context, typeNodes, nodeIds);
 
     if (parentByChild.containsKey(rootTypeId)) {
       throw new IllegalStateException(
@@ -50,7 +76,7 @@ final class TypeInfoTreeBuilder {
 
     Map<NodeId, List<T>> childrenByParent = new LinkedHashMap<>();
     for (T typeNode : typeNodes.values()) {
-      NodeId typeId = NodeIdUtil.parse(typeNode.getNodeId());
+      NodeId typeId = nodeIds.apply(typeNode.getNodeId());
       NodeId parentId = parentByChild.get(typeId);
       if (parentId != null) {
         childrenByParent.computeIfAbsent(parentId, ignored -> new ArrayList<>()).add(typeNode);
@@ -59,25 +85,44 @@ final class TypeInfoTreeBuilder {
 
     T rootTypeNode = typeClass.cast(rootNode);
     N rootTypeInfo = factory.create(null, rootTypeNode);
-    addChildren(rootTypeInfo, rootTypeId, childrenByParent, factory);
+    addChildren(rootTypeInfo, rootTypeId, childrenByParent, nodeIds, factory);
     return rootTypeInfo;
   }
 
+  /**
+   * Collect the ObjectType, VariableType, ReferenceType, and DataType nodes of {@code context} in
+   * one pass over its nodes.
+   *
+   * @param context the context to scan.
+   * @return the type nodes of each kind, keyed by NodeId, in NodeSet order.
+   */
+  static TypeNodes collectTypeNodes(NodeSetContext context) {
+    Function<String, NodeId> nodeIds = NodeIdInterner.parserOf(context);
+    var typeNodes = new TypeNodes();
+    for (UANode node : context.getNodeSet().getUAObjectOrUAVariableOrUAMethod()) {
+      if (node instanceof UAType) {
+        typeNodes.add(nodeIds.apply(node.getNodeId()), node);
+      }
+    }
+    return typeNodes;
+  }
+
   private static <T extends UAType> Map<NodeId, T> collectTypeNodes(
       NodeSetContext context, Class<T> typeClass) {
 
+    Function<String, NodeId> nodeIds = NodeIdInterner.parserOf(context);
     Map<NodeId, T> typeNodes = new LinkedHashMap<>();
     for (UANode node : context.getNodeSet().getUAObjectOrUAVariableOrUAMethod()) {
       if (typeClass.isInstance(node)) {
         T typeNode = typeClass.cast(node);
-        typeNodes.put(NodeIdUtil.parse(typeNode.getNodeId()), typeNode);
+        typeNodes.put(nodeIds.apply(typeNode.getNodeId()), typeNode);
       }
     }
     return typeNodes;
   }
 
   private static <T extends UAType> Map<NodeId, NodeId> collectKnownParents(
-      NodeSetContext context, Map<NodeId, T> typeNodes) {
+      NodeSetContext context, Map<NodeId, T> typeNodes, Function<String, NodeId> nodeIds) {
 
     Map<NodeId, NodeId> parentByChild = new LinkedHashMap<>();
 
@@ -85,12 +130,12 @@ final class TypeInfoTreeBuilder {
       NodeId typeId = entry.getKey();
       Set<NodeId> declaredParentIds = new LinkedHashSet<>();
 
-      for (Reference reference : context.getReferences(typeId)) {
-        if (!reference.isIsForward()
-            && NodeIdUtil.equals(NodeIds.HasSubtype, reference.getReferenceType())) {
-          declaredParentIds.add(NodeIdUtil.parse(reference.getValue()));
-        }
-      }
+      context.forEachReference(
+          typeId,
+          reference ->
+              !reference.isIsForward()
+                  && NodeIds.HasSubtype.equals(nodeIds.apply(reference.getReferenceType())),
+          reference -> declaredParentIds.add(nodeIds.apply(reference.getValue())));
 
       if (declaredParentIds.size() > 1) {
         throw new IllegalStateException(
@@ -137,12 +182,60 @@ final class TypeInfoTreeBuilder {
       N parent,
       NodeId parentId,
       Map<NodeId, List<T>> childrenByParent,
+      Function<String, NodeId> nodeIds,
       TypeInfoFactory<T, N> factory) {
 
     for (T childNode : childrenByParent.getOrDefault(parentId, List.of())) {
       N child = factory.create(parent, childNode);
       parent.addChild(child);
-      addChildren(child, NodeIdUtil.parse(childNode.getNodeId()), childrenByParent, factory);
+      addChildren(child, nodeIds.apply(childNode.getNodeId()), childrenByParent, nodeIds, factory);
+    }
+  }
+
+  /**
+   * The type nodes of a context, grouped by kind. Read-only once collected, so the trees may be
+   * built from it concurrently.
+   */
+  static final class TypeNodes {
+
+    private final Map<NodeId, UAObjectType> objectTypes = new LinkedHashMap<>();
+    private final Map<NodeId, UAVariableType> variableTypes = new LinkedHashMap<>();
+    private final Map<NodeId, UAReferenceType> referenceTypes = new LinkedHashMap<>();
+    private final Map<NodeId, UADataType> dataTypes = new LinkedHashMap<>();
+
+    TypeNodes() {}
+
+    /**
+     * Add {@code node} if it is an ObjectType, VariableType, ReferenceType, or DataType node.
+     *
+     * @param nodeId the parsed NodeId of {@code node}.
+     * @param node the node to add.
+     */
+    void add(NodeId nodeId, UANode node) {
+      if (node instanceof UAObjectType objectType) {
+        objectTypes.put(nodeId, objectType);
+      } else if (node instanceof UAVariableType variableType) {
+        variableTypes.put(nodeId, variableType);
+      } else if (node instanceof UAReferenceType referenceType) {
+        referenceTypes.put(nodeId, referenceType);
+      } else if (node instanceof UADataType dataType) {
+        dataTypes.put(nodeId, dataType);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends UAType> Map<NodeId, T> get(Class<T> typeClass) {
+      if (typeClass == UAObjectType.class) {
+        return (Map<NodeId, T>) objectTypes;
+      } else if (typeClass == UAVariableType.class) {
+        return (Map<NodeId, T>) variableTypes;
+      } else if (typeClass == UAReferenceType.class) {
+        return (Map<NodeId, T>) referenceTypes;
+      } else if (typeClass == UADataType.class) {
+        return (Map<NodeId, T>) dataTypes;
+      } else {
+        throw new IllegalArgumentException("unsupported type class: " + typeClass.getName());
+      }
     }
   }
 
@@ -0,0 +1,19 @@
+package com.digitalpetri.opcua.uanodeset;
+
+/**
+ * Selects whether a type query or registration also matches instances of subtypes.
+ *
+ * <p>Used by {@link NodeSet#getInstancesOf(org.eclipse.milo.opcua.stack.core.types.builtin.NodeId,
+ * TypeMatch)} and by behavior registrations in the namespace module. For a registration this is
+ * the policy selected up front; the relationship an instance actually has to the registered type is
+ * reported separately when its callback runs, so {@link #INCLUDE_SUBTYPES} registrations can match
+ * both direct instances and instances of subtypes, while {@link #EXACT} registrations match only
+ * direct instances.
+ */
+public enum TypeMatch {
+  /** Match only instances whose direct type definition equals the given type. */
+  EXACT,
+
+  /** Match instances whose direct type definition is the given type or any subtype. */
+  INCLUDE_SUBTYPES
+}
@@ -0,0 +1,67 @@
+package com.digitalpetri.opcua.uanodeset;
+
+/**
+ * The ReferenceType, ObjectType, VariableType, and DataType hierarchies of one NodeSet.
+ *
+ * <p>All four trees are built from a single {@link TypeInfoTreeBuilder#collectTypeNodes(
+ * NodeSetContext)} pass over the nodes, rather than one pass per tree.
+ *
+ * @param referenceTypeTree the hierarchy rooted at {@code References}.
+ * @param objectTypeTree the hierarchy rooted at {@code BaseObjectType}.
+ * @param variableTypeTree the hierarchy rooted at {@code BaseVariableType}.
+ * @param dataTypeTree the hierarchy rooted at {@code BaseDataType}.
+ */
+record TypeTrees(
+    ReferenceTypeInfoTree referenceTypeTree,
+    ObjectTypeInfoTree objectTypeTree,
+    VariableTypeInfoTree variableTypeTree,
+    DataTypeInfoTree dataTypeTree) {
+
+  /**
+   * Build all four trees of {@code context}.
+   *
+   * @param context the context to build the trees from.
+   * @return the trees.
+   * @throws IllegalStateException if a root type is missing or a hierarchy is invalid.
+   */
+  static TypeTrees build(NodeSetContext context) {
+    TypeInfoTreeBuilder.TypeNodes typeNodes = TypeInfoTreeBuilder.collectTypeNodes(context);
+
+    return new TypeTrees(
+        ReferenceTypeInfoTree.create(context, typeNodes),
+        ObjectTypeInfoTree.create(context, typeNodes),
+        VariableTypeInfoTree.create(context, typeNodes),
+        DataTypeInfoTree.create(context, typeNodes));
+  }
+
+  /**
+   * Rebuild the trees whose types changed in {@code context}, keeping the others.
+   *
+   * @param context the context to build changed trees from.
+   * @param referenceTypes whether the ReferenceType hierarchy changed.
+   * @param objectTypes whether the ObjectType hierarchy changed.
+   * @param variableTypes whether the VariableType hierarchy changed.
+   * @param dataTypes whether the DataType hierarchy changed.
+   * @return the updated trees, or {@code this} if nothing changed.
+   * @throws IllegalStateException if a root type is missing or a hierarchy is invalid.
+   */
+  TypeTrees rebuild(
+      NodeSetContext context,
+      boolean referenceTypes,
+      boolean objectTypes,
+      boolean variableTypes,
+      boolean dataTypes) {
+
+    if (!referenceTypes && !objectTypes && !variableTypes && !dataTypes) {
+      return this;
+    }
+
+    TypeInfoTreeBuilder.TypeNodes typeNodes = TypeInfoTreeBuilder.collectTypeNodes(context);
+
+    return new TypeTrees(
+        referenceTypes ? ReferenceTypeInfoTree.create(context, typeNodes) : referenceTypeTree,
+        objectTypes ? ObjectTypeInfoTree.create(context, typeNodes) : objectTypeTree,
+        variableTypes ? VariableTypeInfoTree.create(context, typeNodes) : variableTypeTree,
+        dataTypes ? DataTypeInfoTree.create(context, typeNodes) : dataTypeTree);
+  }
+}
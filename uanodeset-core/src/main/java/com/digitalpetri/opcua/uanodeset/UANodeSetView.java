@@ -0,0 +1,36 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import java.util.List;
+import org.opcfoundation.ua.UANode;
+import org.opcfoundation.ua.UANodeSet;
+
+/**
+ * A {@link UANodeSet} whose header tables are those of another NodeSet and whose node list is a
+ * view assembled from other lists instead of a list of its own.
+ */
+final class UANodeSetView extends UANodeSet {
+
+  private final List<UANode> nodes;
+
+  /**
+   * Create a view with the header tables of {@code header} and the node list {@code nodes}.
+   *
+   * @param header the NodeSet whose header tables are shared by reference.
+   * @param nodes the node list returned by {@link #getUAObjectOrUAVariableOrUAMethod()}.
+   */
+  UANodeSetView(UANodeSet header, List<UANode> nodes) {
+    this.nodes = nodes;
+
+    setNamespaceUris(header.getNamespaceUris());
+    setServerUris(header.getServerUris());
+    setModels(header.getModels());
+    setAliases(header.getAliases());
+    setExtensions(header.getExtensions());
+    setLastModified(header.getLastModified());
+  }
+
+  @Override
+  public List<UANode> getUAObjectOrUAVariableOrUAMethod() {
+    return nodes;
+  }
+}
@@ -24,6 +24,10 @@ public class VariableTypeInfoTree extends TypeInfoTree<UAVariableType, VariableT
     super(rootTypeInfo);
   }
 
+  VariableTypeInfoTree(VariableTypeInfo rootTypeInfo, NodeSetContext context) {
+    super(rootTypeInfo, NodeIdInterner.parserOf(context));
+  }
+
   /**
    * Build a variable type tree from a normalized node set context.
    *
@@ -36,6 +40,27 @@ public class VariableTypeInfoTree extends TypeInfoTree<UAVariableType, VariableT
     VariableTypeInfo rootTypeInfo =
         TypeInfoTreeBuilder.build(
             context, NodeIds.BaseVariableType, UAVariableType.class, VariableTypeInfo::new);
-    return new VariableTypeInfoTree(rootTypeInfo);
+    return new VariableTypeInfoTree(rootTypeInfo, context);
+  }
+
+  /**
+   * Build a variable type tree from type nodes already collected from {@code context}.
+   *
+   * @param context the context that supplies resolved references.
+   * @param typeNodes the type nodes collected from {@code context}.
+   * @return a variable type tree rooted at {@code BaseVariableType}.
+   * @throws IllegalStateException as for {@link #create(NodeSetContext)}.
+   */
+  static VariableTypeInfoTree create(
+      NodeSetContext context, TypeInfoTreeBuilder.TypeNodes typeNodes) {
+
+    VariableTypeInfo rootTypeInfo =
+        TypeInfoTreeBuilder.build(
+            context,
+            typeNodes,
+            NodeIds.BaseVariableType,
+            UAVariableType.class,
+            VariableTypeInfo::new);
+    return new VariableTypeInfoTree(rootTypeInfo, context);
   }
 }
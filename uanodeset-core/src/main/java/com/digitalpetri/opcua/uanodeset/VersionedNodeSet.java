@@ -0,0 +1,47 @@
+package com.digitalpetri.opcua.uanodeset;
+
+/**
+ * A {@link NodeSet} that changes over time through {@link NodeSetDelta}s.
+ *
+ * <p>Each applied delta publishes a new immutable {@link NodeSet} snapshot. Readers obtain the
+ * current snapshot with {@link #current()}, which never blocks, and keep a consistent view for as
+ * long as they hold it: a snapshot is never modified, so a reader never observes a partially
+ * applied delta. Writers are serialized; a delta that fails to apply leaves the current snapshot in
+ * place.
+ */
+public final class VersionedNodeSet {
+
+  private volatile NodeSet current;
+
+  /**
+   * Create a {@link VersionedNodeSet} whose first snapshot is {@code nodeSet}.
+   *
+   * @param nodeSet the initial snapshot.
+   */
+  public VersionedNodeSet(NodeSet nodeSet) {
+    this.current = nodeSet;
+  }
+
+  /**
+   * Get the current snapshot.
+   *
+   * @return the most recently published {@link NodeSet}.
+   */
+  public NodeSet current() {
+    return current;
+  }
+
+  /**
+   * Apply a delta to the current snapshot and publish the result.
+   *
+   * @param delta the changes to apply.
+   * @return the newly published snapshot.
+   * @throws IllegalArgumentException if the delta cannot be applied to the current snapshot, in
+   *     which case nothing is published.
+   */
+  public synchronized NodeSet apply(NodeSetDelta delta) {
+    NodeSet next = current.apply(delta);
+    current = next;
+    return next;
+  }
+}
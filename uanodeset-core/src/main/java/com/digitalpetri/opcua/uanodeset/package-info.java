@@ -38,6 +38,30 @@
  * model. Type-tree creation rejects known cycles and types with multiple declared supertypes;
  * missing companion types remain disconnected rather than being assigned inferred parents.
  *
+ * <p>{@link OffHeapNodeSet} is a read-only alternative for very large models. It copies a {@code
+ * NodeSet} into direct or memory-mapped buffers and materializes detached JAXB nodes on each
+ * lookup, so its nodes are copies rather than the normalized model itself. Its layout can be saved
+ * as a snapshot file and mapped again with {@link OffHeapNodeSet#open(java.nio.file.Path)}, which
+ * skips XML parsing and indexing at startup.
+ *
+ * <p>A {@code NodeSet} is changed by applying a {@link NodeSetDelta}, which produces a new {@code
+ * NodeSet} that shares unchanged nodes and reference lists with the original. Neither snapshot is
+ * modified afterward; {@link VersionedNodeSet} publishes successive snapshots to concurrent
+ * readers.
+ *
+ * <p>{@link LayeredNodeSet} layers extension models over a standard OPC UA model that is indexed
+ * once per JVM and shared by reference, so many contexts can be built without repeating that work.
+ *
+ * <p>{@link NodeSetSlicer} extracts the part of a model that a selection of nodes depends on, such
+ * as their types, InstanceDeclarations, DataTypes, and ReferenceTypes, into a smaller NodeSet.
+ *
+ * <p>{@link NodeSetDigest} hashes the content of every node independently of namespace indexes and
+ * aliases, and {@link NodeSetDiff} uses those hashes to report the nodes and references that
+ * changed between two versions of a model.
+ *
+ * <p>{@link NodeSetValidator} checks every node of a model against a set of rules, such as dangling
+ * references or missing DataTypeDefinitions, in a single parallel pass.
+ *
  * <h2>Boundaries</h2>
  *
  * <p>This package models OPC UA facts that are useful outside a single code generator: parsed
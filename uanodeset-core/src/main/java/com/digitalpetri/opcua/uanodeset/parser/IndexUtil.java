@@ -22,10 +22,23 @@ public final class IndexUtil {
 
     reindexRolePermissions(node.getRolePermissions(), mergedTable, originalTable);
 
+    if (node instanceof UAInstance instance && instance.getParentNodeId() != null) {
+      instance.setParentNodeId(
+          reindexNodeId(instance.getParentNodeId(), mergedTable, originalTable));
+    }
+    if (node instanceof UAMethod method && method.getMethodDeclarationId() != null) {
+      method.setMethodDeclarationId(
+          reindexNodeId(method.getMethodDeclarationId(), mergedTable, originalTable));
+    }
+
     if (node instanceof UADataType dataType) {
       DataTypeDefinition definition = dataType.getDefinition();
 
       if (definition != null) {
+        if (definition.getName() != null) {
+          definition.setName(
+              reindexQualifiedName(definition.getName(), mergedTable, originalTable));
+        }
         definition.setBaseType(reindexNodeId(definition.getBaseType(), mergedTable, originalTable));
 
         definition
@@ -71,23 +84,52 @@ public final class IndexUtil {
   public static String reindexNodeId(String nodeId, UriTable mergedTable, UriTable originalTable)
       throws IllegalArgumentException {
 
-    Matcher m = PATTERN_NODE_ID.matcher(nodeId);
+    // Recognizes the same ns=<digits>; prefix as PATTERN_NODE_ID without allocating a Matcher.
+    int end = namespacePrefixEnd(nodeId);
 
-    if (m.matches()) {
-      int originalIndex = Integer.parseInt(m.group(1));
+    if (end != -1) {
+      int originalIndex = Integer.parseInt(nodeId, 3, end, 10);
       String originalUri = originalTable.getUri().get(originalIndex);
       int mergedIndex = mergedTable.getUri().indexOf(originalUri);
 
       if (mergedIndex == -1) {
         throw new IllegalArgumentException("URI not found in mergedTable: " + originalUri);
+      } else if (mergedIndex == originalIndex && (nodeId.charAt(3) != '0' || end == 4)) {
+        return nodeId;
       } else {
-        return String.format("ns=%d;%s", mergedIndex, m.group(2));
+        return new StringBuilder(nodeId.length() + 4)
+            .append("ns=")
+            .append(mergedIndex)
+            .append(nodeId, end, nodeId.length())
+            .toString();
       }
     } else {
       return nodeId;
     }
   }
 
+  /**
+   * Get the index of the {@code ;} that ends a {@code ns=<digits>;} prefix.
+   *
+   * @return the index of the {@code ;}, or {@code -1} if {@code nodeId} has no such prefix.
+   */
+  private static int namespacePrefixEnd(String nodeId) {
+    if (!nodeId.startsWith("ns=")) {
+      return -1;
+    }
+    int end = nodeId.indexOf(';', 3);
+    if (end <= 3) {
+      return -1;
+    }
+    for (int i = 3; i < end; i++) {
+      char c = nodeId.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+    }
+    return end;
+  }
+
   /**
    * Re-index a QualifiedName String from its index in {@code originalTable} to {@code mergedTable}.
    *
@@ -0,0 +1,183 @@
+package com.digitalpetri.opcua.uanodeset.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache that holds at most a fixed number of entries, evicting an entry that has not
+ * been read recently when it is full.
+ *
+ * <p>Entries live in a {@link ConcurrentHashMap}, so hits take no lock and write nothing but a
+ * reference bit. Eviction uses the clock algorithm: entries sit on a ring in insertion order, and a
+ * hand moving around the ring gives each entry whose bit is set a second chance, clearing the bit,
+ * and evicts the first entry whose bit is clear. Eviction is therefore approximately, not strictly,
+ * least recently used. Values are computed outside any lock; concurrent misses for the same key may
+ * compute the value more than once, and the first value stored wins. Inserts and evictions are
+ * serialized, so misses may contend with each other but never with hits.
+ *
+ * <p>A cache with a capacity of {@code 0} stores nothing and computes every value.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public final class BoundedCache<K, V> {
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  private final int capacity;
+  private final ConcurrentHashMap<K, Entry<V>> entries;
+
+  /** The keys of the cached entries, in the order the clock hand visits them. */
+  private final Object[] ring;
+
+  private int ringSize;
+  private int hand;
+
+  /**
+   * Create a cache holding at most {@code capacity} entries.
+   *
+   * @param capacity the maximum number of entries; {@code 0} disables caching.
+   * @throws IllegalArgumentException if {@code capacity} is negative.
+   */
+  public BoundedCache(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity < 0: " + capacity);
+    }
+    this.capacity = capacity;
+
+    entries = new ConcurrentHashMap<>(Math.min(capacity, 1024));
+    ring = new Object[capacity];
+  }
+
+  /**
+   * Get the cached value for {@code key}, computing and caching it on a miss.
+   *
+   * @param key the key to look up.
+   * @param mappingFunction computes the value on a miss; must not return {@code null}.
+   * @return the cached or computed value.
+   */
+  public V get(K key, Function<? super K, ? extends V> mappingFunction) {
+    if (capacity == 0) {
+      misses.increment();
+      return mappingFunction.apply(key);
+    }
+
+    Entry<V> entry = entries.get(key);
+    if (entry != null) {
+      hits.increment();
+      if (!entry.referenced) {
+        entry.referenced = true;
+      }
+      return entry.value;
+    }
+
+    misses.increment();
+    V computed = mappingFunction.apply(key);
+
+    synchronized (ring) {
+      Entry<V> existing = entries.get(key);
+      if (existing != null) {
+        return existing.value;
+      }
+      if (ringSize < capacity) {
+        ring[ringSize++] = key;
+      } else {
+        evictAndReplace(key);
+      }
+      entries.put(key, new Entry<>(computed));
+      return computed;
+    }
+  }
+
+  /** Evict the first entry from the clock hand on that was not read since the hand passed it. */
+  private void evictAndReplace(K key) {
+    while (true) {
+      Entry<V> candidate = entries.get(ring[hand]);
+      if (candidate.referenced) {
+        candidate.referenced = false;
+        hand = (hand + 1) % capacity;
+      } else {
+        entries.remove(ring[hand]);
+        evictions.increment();
+        ring[hand] = key;
+        hand = (hand + 1) % capacity;
+        return;
+      }
+    }
+  }
+
+  /** Remove every entry. Hit, miss, and eviction counts are not reset. */
+  public void clear() {
+    synchronized (ring) {
+      entries.clear();
+      Arrays.fill(ring, 0, ringSize, null);
+      ringSize = 0;
+      hand = 0;
+    }
+  }
+
+  /**
+   * Get the maximum number of entries.
+   *
+   * @return the capacity this cache was created with.
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Get the current number of entries.
+   *
+   * @return the number of cached entries.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Get a snapshot of this cache's counters.
+   *
+   * @return the current {@link Stats}.
+   */
+  public Stats getStats() {
+    return new Stats(capacity, size(), hits.sum(), misses.sum(), evictions.sum());
+  }
+
+  /**
+   * A snapshot of a {@link BoundedCache}'s counters.
+   *
+   * @param capacity the maximum number of entries.
+   * @param size the number of entries.
+   * @param hits the number of lookups answered from the cache.
+   * @param misses the number of lookups that computed a value.
+   * @param evictions the number of entries evicted to make room for new ones.
+   */
+  public record Stats(int capacity, int size, long hits, long misses, long evictions) {
+
+    /**
+     * Get the fraction of lookups answered from the cache.
+     *
+     * @return the hit rate, or {@code 0} if there were no lookups.
+     */
+    public double hitRate() {
+      long lookups = hits + misses;
+      return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+  }
+
+  private static final class Entry<V> {
+
+    private final V value;
+
+    /** Set when the entry is read, cleared when the clock hand passes it. */
+    private volatile boolean referenced;
+
+    private Entry(V value) {
+      this.value = value;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package com.digitalpetri.opcua.uanodeset.util;
+
+import java.util.Base64;
+import java.util.UUID;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Parses and formats UANodeSet NodeId strings without going through regular expressions or
+ * intermediate strings.
+ *
+ * <p>{@link #parse(String)} reads the optional {@code ns=} prefix and the {@code i=}, {@code s=},
+ * {@code g=}, and {@code b=} identifier forms in a single pass; numeric identifiers and namespace
+ * indexes are accumulated digit by digit. Strings it does not recognize are handed to {@link
+ * NodeId#parse(String)}, so malformed input fails exactly as it did before.
+ *
+ * <p>{@link #format(NodeId)} produces the same compact spelling as {@link NodeIdUtil#get(NodeId)},
+ * omitting the {@code ns=0;} prefix, and {@link #appendTo(NodeId, StringBuilder)} writes it into a
+ * caller-supplied builder that may be reused between calls.
+ */
+public final class NodeIdCodec {
+
+  private static final int MAX_NAMESPACE_INDEX = 0xFFFF;
+  private static final long MAX_NUMERIC_IDENTIFIER = 0xFFFFFFFFL;
+
+  /** The length of a GUID in its canonical 8-4-4-4-12 spelling. */
+  private static final int GUID_LENGTH = 36;
+
+  private NodeIdCodec() {}
+
+  /**
+   * Parse a UANodeSet NodeId string.
+   *
+   * @param nodeId the NodeId string to parse.
+   * @return the parsed NodeId, equal to the result of {@link NodeId#parse(String)}.
+   */
+  public static NodeId parse(String nodeId) {
+    NodeId parsed = tryParse(nodeId);
+    return parsed != null ? parsed : NodeId.parse(nodeId);
+  }
+
+  /**
+   * Format a NodeId using the compact namespace-zero spelling used by most UANodeSet files.
+   *
+   * @param nodeId the NodeId to format.
+   * @return the parseable NodeId string, without an explicit {@code ns=0;} prefix.
+   */
+  public static String format(NodeId nodeId) {
+    return appendTo(nodeId, new StringBuilder(24)).toString();
+  }
+
+  /**
+   * Append a NodeId, formatted as by {@link #format(NodeId)}, to {@code sb}.
+   *
+   * @param nodeId the NodeId to format.
+   * @param sb the builder to append to.
+   * @return {@code sb}.
+   */
+  public static StringBuilder appendTo(NodeId nodeId, StringBuilder sb) {
+    int namespaceIndex = nodeId.getNamespaceIndex().intValue();
+    if (namespaceIndex != 0) {
+      sb.append("ns=").append(namespaceIndex).append(';');
+    }
+    return appendIdentifier(nodeId, sb);
+  }
+
+  /**
+   * Append the part of a NodeId's parseable spelling that follows its namespace index, such as
+   * {@code i=58} or {@code s=Name}, to {@code sb}.
+   *
+   * @param nodeId the NodeId to format.
+   * @param sb the builder to append to.
+   * @return {@code sb}.
+   */
+  public static StringBuilder appendIdentifier(NodeId nodeId, StringBuilder sb) {
+    Object identifier = nodeId.getIdentifier();
+
+    if (identifier instanceof UInteger numeric) {
+      return sb.append("i=").append(numeric.longValue());
+    } else if (identifier instanceof String string) {
+      return sb.append("s=").append(string);
+    } else if (identifier instanceof UUID guid) {
+      return sb.append("g=").append(guid);
+    } else if (identifier instanceof ByteString opaque) {
+      return sb.append("b=").append(Base64.getEncoder().encodeToString(opaque.bytesOrEmpty()));
+    } else {
+      String s = nodeId.toParseableString();
+      return sb.append(s, s.startsWith("ns=") ? s.indexOf(';') + 1 : 0, s.length());
+    }
+  }
+
+  private static @Nullable NodeId tryParse(String nodeId) {
+    int length = nodeId.length();
+    int namespaceIndex = 0;
+    int position = 0;
+
+    if (nodeId.startsWith("ns=")) {
+      int end = nodeId.indexOf(';', 3);
+      long value = parseUnsigned(nodeId, 3, end, MAX_NAMESPACE_INDEX);
+      if (value < 0) {
+        return null;
+      }
+      namespaceIndex = (int) value;
+      position = end + 1;
+    }
+
+    if (length - position < 2 || nodeId.charAt(position + 1) != '=') {
+      return null;
+    }
+    int start = position + 2;
+
+    switch (nodeId.charAt(position)) {
+      case 'i' -> {
+        long value = parseUnsigned(nodeId, start, length, MAX_NUMERIC_IDENTIFIER);
+        return value < 0 ? null : new NodeId(namespaceIndex, UInteger.valueOf(value));
+      }
+      case 's' -> {
+        return new NodeId(namespaceIndex, nodeId.substring(start));
+      }
+      case 'g' -> {
+        if (length - start != GUID_LENGTH) {
+          return null;
+        }
+        try {
+          return new NodeId(namespaceIndex, UUID.fromString(nodeId.substring(start)));
+        } catch (IllegalArgumentException e) {
+          return null;
+        }
+      }
+      case 'b' -> {
+        try {
+          byte[] bytes = Base64.getDecoder().decode(nodeId.substring(start));
+          return new NodeId(namespaceIndex, ByteString.of(bytes));
+        } catch (IllegalArgumentException e) {
+          return null;
+        }
+      }
+      default -> {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Parse the decimal digits of {@code s} between {@code start} and {@code end}.
+   *
+   * @return the parsed value, or {@code -1} if the range is empty, contains anything but ASCII
+   *     digits, or exceeds {@code max}.
+   */
+  private static long parseUnsigned(String s, int start, int end, long max) {
+    if (end <= start) {
+      return -1;
+    }
+
+    long value = 0;
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      value = value * 10 + (c - '0');
+      if (value > max) {
+        return -1;
+      }
+    }
+    return value;
+  }
+}
@@ -1,16 +1,34 @@
 package com.digitalpetri.opcua.uanodeset.util;
 
 import com.digitalpetri.opcua.uanodeset.parser.IndexUtil;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 
-/** Utilities for converting between UANodeSet NodeId strings and semantic {@link NodeId}s. */
+/**
+ * Utilities for converting between UANodeSet NodeId strings and semantic {@link NodeId}s.
+ *
+ * <p>Conversions are done by {@link NodeIdCodec}. Parsed and formatted values are memoized in
+ * JVM-wide {@link BoundedCache}s that hold at most {@value #DEFAULT_CACHE_CAPACITY} entries each,
+ * or the number given by the {@value #CACHE_CAPACITY_PROPERTY} system property; {@code 0} disables
+ * them. The caches only speed up repeated conversions: NodeIds that belong to a model are retained
+ * by that model's NodeSet, so nothing here keeps a discarded model reachable.
+ */
 public final class NodeIdUtil {
 
-  private static final ConcurrentMap<NodeId, String> STRING_VALUES = new ConcurrentHashMap<>();
-  private static final ConcurrentMap<String, NodeId> PARSED_VALUES = new ConcurrentHashMap<>();
+  /** The system property that sets the capacity of each NodeId cache. */
+  public static final String CACHE_CAPACITY_PROPERTY =
+      "com.digitalpetri.opcua.uanodeset.nodeIdCacheCapacity";
+
+  /** The capacity of each NodeId cache when {@value #CACHE_CAPACITY_PROPERTY} is not set. */
+  public static final int DEFAULT_CACHE_CAPACITY = 8192;
+
+  private static final int CACHE_CAPACITY =
+      Math.max(0, Integer.getInteger(CACHE_CAPACITY_PROPERTY, DEFAULT_CACHE_CAPACITY));
+
+  private static final BoundedCache<NodeId, String> STRING_VALUES =
+      new BoundedCache<>(CACHE_CAPACITY);
+  private static final BoundedCache<String, NodeId> PARSED_VALUES =
+      new BoundedCache<>(CACHE_CAPACITY);
 
   /**
    * Format a NodeId using the compact namespace-zero spelling used by most UANodeSet files.
@@ -19,17 +37,7 @@ public final class NodeIdUtil {
    * @return the parseable NodeId string, without an explicit {@code ns=0;} prefix.
    */
   public static String get(NodeId nodeId) {
-    return STRING_VALUES.computeIfAbsent(
-        nodeId,
-        id -> {
-          String s = id.toParseableString();
-          if (s.startsWith("ns=0;")) {
-            int index = s.indexOf(";");
-            return s.substring(index + 1);
-          } else {
-            return s;
-          }
-        });
+    return STRING_VALUES.get(nodeId, NodeIdCodec::format);
   }
 
   /**
@@ -42,7 +50,7 @@ public final class NodeIdUtil {
    * @return the parsed NodeId.
    */
   public static NodeId parse(String nodeId) {
-    return PARSED_VALUES.computeIfAbsent(nodeId, NodeId::parse);
+    return PARSED_VALUES.get(nodeId, NodeIdCodec::parse);
   }
 
   /**
@@ -97,5 +105,51 @@ public final class NodeIdUtil {
     }
   }
 
+  /**
+   * Get the number of formatted NodeId strings currently cached.
+   *
+   * <p>The cache is shared by every NodeSet in the JVM.
+   *
+   * @return the number of entries in the formatting cache.
+   */
+  public static int getFormattedCacheSize() {
+    return STRING_VALUES.size();
+  }
+
+  /**
+   * Get the number of parsed NodeIds currently cached.
+   *
+   * <p>The cache is shared by every NodeSet in the JVM.
+   *
+   * @return the number of entries in the parsing cache.
+   */
+  public static int getParsedCacheSize() {
+    return PARSED_VALUES.size();
+  }
+
+  /**
+   * Get the counters of the formatting cache used by {@link #get(NodeId)}.
+   *
+   * @return a snapshot of the formatting cache's {@link BoundedCache.Stats}.
+   */
+  public static BoundedCache.Stats getFormattedCacheStats() {
+    return STRING_VALUES.getStats();
+  }
+
+  /**
+   * Get the counters of the parsing cache used by {@link #parse(String)}.
+   *
+   * @return a snapshot of the parsing cache's {@link BoundedCache.Stats}.
+   */
+  public static BoundedCache.Stats getParsedCacheStats() {
+    return PARSED_VALUES.getStats();
+  }
+
+  /** Remove every entry from both caches, for example after discarding a large model. */
+  public static void clearCaches() {
+    STRING_VALUES.clear();
+    PARSED_VALUES.clear();
+  }
+
   private NodeIdUtil() {}
 }
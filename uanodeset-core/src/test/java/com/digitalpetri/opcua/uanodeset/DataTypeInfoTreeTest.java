@@ -5,14 +5,79 @@ import static org.junit.jupiter.api.Assertions.*;
 import jakarta.xml.bind.JAXBException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import org.eclipse.milo.opcua.stack.core.NodeIds;
 import org.eclipse.milo.opcua.stack.core.OpcUaDataType;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.StructureType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.DataTypeDefinition;
+import org.opcfoundation.ua.DataTypeField;
+import org.opcfoundation.ua.UADataType;
 
 class DataTypeInfoTreeTest {
 
+  @Test
+  void structureLayoutsOfLinkedTree() {
+    var root = new DataTypeInfo(null, dataType("i=24", null));
+    var structure = new DataTypeInfo(root, dataType("i=22", null));
+    var union = new DataTypeInfo(structure, dataType("i=12756", null));
+    root.addChild(structure);
+    structure.addChild(union);
+
+    DataTypeDefinition optionalDefinition = new DataTypeDefinition();
+    optionalDefinition.getField().add(field("A", false, false));
+    optionalDefinition.getField().add(field("B", true, false));
+    optionalDefinition.getField().add(field("C", true, false));
+    var optional = new DataTypeInfo(structure, dataType("ns=1;i=1", optionalDefinition));
+    structure.addChild(optional);
+
+    DataTypeDefinition unionDefinition = new DataTypeDefinition();
+    unionDefinition.setIsUnion(true);
+    unionDefinition.getField().add(field("X", false, false));
+    unionDefinition.getField().add(field("Y", false, true));
+    var subtypedUnion = new DataTypeInfo(union, dataType("ns=1;i=2", unionDefinition));
+    union.addChild(subtypedUnion);
+
+    var dataTypeTree = new DataTypeInfoTree(root);
+
+    StructureLayout optionalLayout = dataTypeTree.getStructureLayout("ns=1;i=1");
+    assertNotNull(optionalLayout);
+    assertEquals(StructureType.StructureWithOptionalFields, optionalLayout.structureType());
+    assertEquals(
+        List.of(-1, 0, 1),
+        optionalLayout.fields().stream().map(StructureLayout.Field::optionalBit).toList());
+    assertEquals(2, optionalLayout.getOptionalFieldCount());
+
+    StructureLayout unionLayout = dataTypeTree.getStructureLayout("ns=1;i=2");
+    assertNotNull(unionLayout);
+    assertEquals(StructureType.UnionWithSubtypedValues, unionLayout.structureType());
+    assertTrue(unionLayout.isUnion());
+    assertEquals(
+        List.of(1, 2),
+        unionLayout.fields().stream().map(StructureLayout.Field::switchValue).toList());
+    assertEquals(NodeIds.Union, unionLayout.baseDataTypeId());
+  }
+
+  private static UADataType dataType(String nodeId, DataTypeDefinition definition) {
+    var dataType = new UADataType();
+    dataType.setNodeId(nodeId);
+    dataType.setBrowseName(nodeId);
+    dataType.setDefinition(definition);
+    return dataType;
+  }
+
+  private static DataTypeField field(String name, boolean optional, boolean allowSubTypes) {
+    var field = new DataTypeField();
+    field.setName(name);
+    field.setDataType("i=6");
+    field.setIsOptional(optional);
+    field.setAllowSubTypes(allowSubTypes);
+    return field;
+  }
+
   @Nested
   class OpcUaNamespace {
 
@@ -67,5 +132,98 @@ class DataTypeInfoTreeTest {
       assertEquals(OpcUaDataType.Int32, dataTypeTree.getOpcUaDataType(NodeIds.Enumeration));
       assertEquals(OpcUaDataType.Int32, dataTypeTree.getOpcUaDataType(NodeIds.ApplicationType));
     }
+
+    @Test
+    void classifications() {
+      var dataTypeTree = DataTypeInfoTree.create(nodeSet);
+
+      DataTypeClassification duration = dataTypeTree.getClassification(NodeIds.Duration);
+      assertNotNull(duration);
+      assertEquals(DataTypeClassification.Kind.SIMPLE, duration.kind());
+      assertEquals(OpcUaDataType.Double, duration.opcUaDataType());
+      assertEquals(Double.class, duration.backingClass());
+
+      DataTypeClassification argument = dataTypeTree.getClassification(NodeIds.Argument);
+      assertNotNull(argument);
+      assertEquals(DataTypeClassification.Kind.STRUCTURE, argument.kind());
+      assertTrue(argument.isStructure());
+      assertFalse(argument.subtypedValues());
+
+      DataTypeClassification published =
+          dataTypeTree.getClassification(NodeIds.PublishedDataSetDataType);
+      assertNotNull(published);
+      assertTrue(published.subtypedValues());
+      assertTrue(dataTypeTree.isStructureWithSubtypedValues(NodeIds.PublishedDataSetDataType));
+
+      DataTypeClassification flags = dataTypeTree.getClassification(NodeIds.DataSetFieldFlags);
+      assertNotNull(flags);
+      assertEquals(DataTypeClassification.Kind.OPTION_SET_UINTEGER, flags.kind());
+      assertEquals(OpcUaDataType.UInt16, flags.opcUaDataType());
+      assertTrue(dataTypeTree.isOptionSetUInteger(NodeIds.DataSetFieldFlags));
+      assertFalse(dataTypeTree.isSimpleType(NodeIds.DataSetFieldFlags));
+
+      assertEquals(
+          DataTypeClassification.Kind.ENUMERATION,
+          dataTypeTree.getClassification(NodeIds.ApplicationType).kind());
+      assertEquals(
+          DataTypeClassification.Kind.STRUCTURE,
+          dataTypeTree.getClassification(NodeIds.OptionSet).kind());
+      assertNull(dataTypeTree.getClassification("ns=1234;i=5678"));
+    }
+
+    @Test
+    void structureLayouts() {
+      var dataTypeTree = nodeSet.getDataTypeTree();
+
+      StructureLayout argument = dataTypeTree.getStructureLayout(NodeIds.Argument);
+      assertNotNull(argument);
+      assertEquals(NodeIds.Structure, argument.baseDataTypeId());
+      assertEquals(StructureType.Structure, argument.structureType());
+      assertEquals(
+          List.of("Name", "DataType", "ValueRank", "ArrayDimensions", "Description"),
+          argument.fields().stream().map(StructureLayout.Field::name).toList());
+      assertEquals(NodeIds.NodeId, argument.fields().get(1).dataTypeId());
+      assertEquals(0, argument.getOptionalFieldCount());
+      assertFalse(argument.isUnion());
+      assertEquals(NodeId.parse("i=298"), argument.binaryEncodingId());
+      assertEquals(NodeId.parse("i=297"), argument.xmlEncodingId());
+      assertEquals(NodeId.parse("i=15081"), argument.jsonEncodingId());
+
+      StructureLayout published = dataTypeTree.getStructureLayout(NodeIds.PublishedDataSetDataType);
+      assertNotNull(published);
+      assertEquals(StructureType.StructureWithSubtypedValues, published.structureType());
+
+      assertNull(dataTypeTree.getStructureLayout(NodeIds.String));
+      assertNull(dataTypeTree.getStructureLayout(NodeIds.ApplicationType));
+
+      // trees built without a context have no encodings
+      assertNull(
+          new DataTypeInfoTree(dataTypeTree.getRootTypeInfo())
+              .getStructureLayout(NodeIds.Argument)
+              .binaryEncodingId());
+    }
+
+    @Test
+    void predicatesMatchClassifications() {
+      var dataTypeTree = DataTypeInfoTree.create(nodeSet);
+
+      dataTypeTree.traverse(
+          typeInfo -> {
+            String nodeId = typeInfo.getTypeNode().getNodeId();
+            DataTypeClassification classification = dataTypeTree.getClassification(nodeId);
+            assertNotNull(classification);
+
+            assertEquals(
+                dataTypeTree.isTypeOrSubtypeOf(nodeId, "i=22"), dataTypeTree.isStructure(nodeId));
+            assertEquals(
+                dataTypeTree.isTypeOrSubtypeOf(nodeId, "i=29"),
+                dataTypeTree.isEnumeration(nodeId));
+            assertEquals(
+                classification.kind() == DataTypeClassification.Kind.SIMPLE,
+                dataTypeTree.isSimpleType(nodeId));
+            assertEquals(classification.opcUaDataType(), dataTypeTree.getOpcUaDataType(nodeId));
+            assertEquals(classification.backingClass(), dataTypeTree.getBackingClass(nodeId));
+          });
+    }
   }
 }
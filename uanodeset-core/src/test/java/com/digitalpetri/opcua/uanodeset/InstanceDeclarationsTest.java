@@ -0,0 +1,107 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InstanceDeclarationsTest {
+
+  private static final NodeId STATE_MACHINE_TYPE = NodeId.parse("i=2299");
+  private static final NodeId FINITE_STATE_MACHINE_TYPE = NodeId.parse("i=2771");
+  private static final NodeId SERVER_REDUNDANCY_TYPE = NodeId.parse("i=2034");
+  private static final NodeId TRANSPARENT_REDUNDANCY_TYPE = NodeId.parse("i=2036");
+
+  NodeSet nodeSet;
+
+  @BeforeEach
+  void loadNodeSet() throws IOException, JAXBException {
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("Opc.Ua.Di.NodeSet2.xml")) {
+
+      nodeSet = NodeSet.load(inputStream);
+    }
+  }
+
+  @Test
+  void nestedDeclarationsHaveBrowsePathsAndModellingRules() {
+    InstanceDeclarations declarations = nodeSet.getInstanceDeclarations(NodeIds.ServerType);
+    assertNotNull(declarations);
+
+    InstanceDeclaration currentTime = declarations.getDeclaration("ServerStatus", "CurrentTime");
+    assertNotNull(currentTime);
+    assertEquals(List.of("ServerStatus", "CurrentTime"), currentTime.getBrowsePath());
+    assertEquals(NodeIds.ServerType, currentTime.getDeclaringTypeId());
+    assertEquals(NodeIds.HasComponent, currentTime.getReferenceTypeId());
+    assertEquals(NodeIds.ModellingRule_Mandatory, currentTime.getModellingRuleId());
+    assertNotNull(currentTime.getTypeDefinitionId());
+  }
+
+  @Test
+  void subtypesOverrideDeclarations() {
+    InstanceDeclarations base = nodeSet.getInstanceDeclarations(STATE_MACHINE_TYPE);
+    InstanceDeclarations derived = nodeSet.getInstanceDeclarations(FINITE_STATE_MACHINE_TYPE);
+    assertNotNull(base);
+    assertNotNull(derived);
+
+    // FiniteStateMachineType redeclares CurrentState with a more specific TypeDefinition.
+    InstanceDeclaration currentState = derived.getDeclaration("CurrentState");
+    assertNotNull(currentState);
+    assertEquals(FINITE_STATE_MACHINE_TYPE, currentState.getDeclaringTypeId());
+    assertNotEquals(base.getDeclaration("CurrentState"), currentState);
+
+    List<List<String>> paths =
+        derived.getDeclarations().stream().map(InstanceDeclaration::getBrowsePath).toList();
+    assertEquals(paths.stream().distinct().count(), paths.size());
+    assertTrue(derived.getDeclarations().contains(currentState));
+    assertFalse(derived.getDeclarations().contains(base.getDeclaration("CurrentState")));
+  }
+
+  @Test
+  void subtypesInheritDeclarations() {
+    InstanceDeclarations declarations =
+        nodeSet.getInstanceDeclarations(TRANSPARENT_REDUNDANCY_TYPE);
+    assertNotNull(declarations);
+
+    // RedundancySupport is declared only on the supertype, ServerRedundancyType.
+    InstanceDeclaration redundancySupport = declarations.getDeclaration("RedundancySupport");
+    assertNotNull(redundancySupport);
+    assertEquals(SERVER_REDUNDANCY_TYPE, redundancySupport.getDeclaringTypeId());
+    assertFalse(declarations.getDeclaredDeclarations().containsKey(List.of("RedundancySupport")));
+    assertTrue(declarations.getDeclarations().contains(redundancySupport));
+
+    InstanceDeclaration currentServerId = declarations.getDeclaration("CurrentServerId");
+    assertNotNull(currentServerId);
+    assertEquals(TRANSPARENT_REDUNDANCY_TYPE, currentServerId.getDeclaringTypeId());
+  }
+
+  @Test
+  void declarationsAreComputedOnceAndSharedWithSubtypes() {
+    InstanceDeclarations derived = nodeSet.getInstanceDeclarations(FINITE_STATE_MACHINE_TYPE);
+
+    assertSame(derived, nodeSet.getInstanceDeclarations(FINITE_STATE_MACHINE_TYPE));
+    assertNotNull(derived);
+    assertSame(nodeSet.getInstanceDeclarations(STATE_MACHINE_TYPE), derived.getSupertype());
+  }
+
+  @Test
+  void variableTypesHaveDeclarations() {
+    InstanceDeclarations declarations =
+        nodeSet.getInstanceDeclarations(NodeIds.ServerStatusType);
+
+    assertNotNull(declarations);
+    assertNotNull(declarations.getDeclaration("BuildInfo", "ProductName"));
+  }
+
+  @Test
+  void unknownTypesHaveNoDeclarations() {
+    assertNull(nodeSet.getInstanceDeclarations(NodeIds.Server));
+    assertNull(nodeSet.getInstanceDeclarations("ns=1;i=999999"));
+  }
+}
@@ -0,0 +1,174 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.Reference;
+import org.opcfoundation.ua.UANode;
+import org.opcfoundation.ua.UANodeSet;
+import org.opcfoundation.ua.UAObject;
+
+class LayeredNodeSetTest {
+
+  @Test
+  void layeredNodeSetMatchesFlatNodeSet() throws Exception {
+    NodeSet flat = NodeSet.from(List.of(parse("Opc.Ua.Di.NodeSet2.xml")));
+    LayeredNodeSet layered = LayeredNodeSet.from(List.of(parse("Opc.Ua.Di.NodeSet2.xml")));
+
+    assertMatches(flat, layered);
+  }
+
+  @Test
+  void extendedLayerMatchesFlatNodeSet() throws Exception {
+    NodeSet flat =
+        NodeSet.from(
+            List.of(parse("Opc.Ua.Di.NodeSet2.xml"), parse("Opc.Ua.Machinery.NodeSet2.xml")));
+
+    LayeredNodeSet di = LayeredNodeSet.from(List.of(parse("Opc.Ua.Di.NodeSet2.xml")));
+    LayeredNodeSet machinery = di.extend(List.of(parse("Opc.Ua.Machinery.NodeSet2.xml")));
+
+    assertSame(di, machinery.getParent());
+    assertMatches(flat, machinery);
+  }
+
+  @Test
+  void nodeSetViewMatchesFlatNodeSet() throws Exception {
+    NodeSet flat =
+        NodeSet.from(
+            List.of(parse("Opc.Ua.Di.NodeSet2.xml"), parse("Opc.Ua.Machinery.NodeSet2.xml")));
+
+    LayeredNodeSet machinery =
+        LayeredNodeSet.from(List.of(parse("Opc.Ua.Di.NodeSet2.xml")))
+            .extend(List.of(parse("Opc.Ua.Machinery.NodeSet2.xml")));
+    NodeSet view = machinery.asNodeSet();
+
+    assertSame(view, machinery.asNodeSet());
+    assertMatches(flat, view);
+
+    NodeId deviceSet = NodeId.parse("ns=1;i=5001");
+    assertEquals(flat.getTypeHierarchy(deviceSet), view.getTypeHierarchy(deviceSet));
+    assertEquals(
+        flat.getObjectTypeTree().getTypeInfo(NodeIds.BaseObjectType).getChildren().size(),
+        view.getObjectTypeTree().getTypeInfo(NodeIds.BaseObjectType).getChildren().size());
+    assertEquals(
+        flat.getInstancesOf(NodeIds.FolderType, TypeMatch.INCLUDE_SUBTYPES).size(),
+        view.getInstancesOf(NodeIds.FolderType, TypeMatch.INCLUDE_SUBTYPES).size());
+    assertEquals(flat.getNodesInNamespace(2).size(), view.getNodesInNamespace(2).size());
+
+    // the view is a NodeSet like any other
+    var device = new UAObject();
+    device.setNodeId("ns=2;s=Device");
+    device.setBrowseName("2:Device");
+    NodeSet next = view.apply(NodeSetDelta.builder().addNode(device).build());
+    assertNotNull(next.getNode("ns=2;s=Device"));
+    assertNull(machinery.getNode("ns=2;s=Device"));
+  }
+
+  @Test
+  void standardNodeSetIsSharedAndUnchanged() throws Exception {
+    NodeSet standard = LayeredNodeSet.getStandardNodeSet();
+    int standardNodes = standard.getNodeSet().getUAObjectOrUAVariableOrUAMethod().size();
+    int objectsReferences = standard.getReferences(NodeIds.ObjectsFolder).size();
+    List<String> namespaceUris = List.copyOf(standard.getNodeSet().getNamespaceUris().getUri());
+
+    LayeredNodeSet first = LayeredNodeSet.from(List.of(parse("Opc.Ua.Di.NodeSet2.xml")));
+    LayeredNodeSet second = LayeredNodeSet.from(List.of(parse("Opc.Ua.Di.NodeSet2.xml")));
+
+    assertSame(standard, first.getParent());
+    assertSame(standard, second.getParent());
+    assertSame(standard, LayeredNodeSet.getStandardNodeSet());
+
+    // the layers hold only the extension's nodes, plus inverses on standard nodes
+    int diNodes = first.getLayer().getNodeSet().getUAObjectOrUAVariableOrUAMethod().size();
+    assertEquals(
+        standardNodes + diNodes, first.getNodeSet().getUAObjectOrUAVariableOrUAMethod().size());
+    assertNull(first.getLayer().getNode(NodeIds.ObjectsFolder));
+    assertFalse(first.getLayer().getImplicitReferences(NodeIds.ObjectsFolder).isEmpty());
+    assertTrue(first.getReferences(NodeIds.ObjectsFolder).size() > objectsReferences);
+
+    assertEquals(standardNodes, standard.getNodeSet().getUAObjectOrUAVariableOrUAMethod().size());
+    assertEquals(objectsReferences, standard.getReferences(NodeIds.ObjectsFolder).size());
+    assertEquals(namespaceUris, standard.getNodeSet().getNamespaceUris().getUri());
+  }
+
+  @Test
+  void nodeListIsUnmodifiable() throws Exception {
+    LayeredNodeSet layered = LayeredNodeSet.from(List.of(parse("Opc.Ua.Di.NodeSet2.xml")));
+
+    List<UANode> nodes = layered.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+    assertThrows(UnsupportedOperationException.class, () -> nodes.add(nodes.get(0)));
+  }
+
+  @Test
+  void typeInfoTreesBuildFromLayeredContext() throws Exception {
+    NodeSet flat = NodeSet.from(List.of(parse("Opc.Ua.Di.NodeSet2.xml")));
+    LayeredNodeSet layered = LayeredNodeSet.from(List.of(parse("Opc.Ua.Di.NodeSet2.xml")));
+
+    assertEquals(
+        ObjectTypeInfoTree.create(flat).getTypeInfo(NodeIds.BaseObjectType).getChildren().size(),
+        ObjectTypeInfoTree.create(layered)
+            .getTypeInfo(NodeIds.BaseObjectType)
+            .getChildren()
+            .size());
+
+    NodeId deviceSet = NodeId.parse("ns=1;i=5001");
+    assertEquals(flat.getTypeDefinition(deviceSet), layered.getTypeDefinition(deviceSet));
+  }
+
+  private static void assertMatches(NodeSet expected, NodeSetContext actual) {
+    List<UANode> expectedNodes = expected.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+    List<UANode> actualNodes = actual.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+
+    assertEquals(
+        expected.getNodeSet().getNamespaceUris().getUri(),
+        actual.getNodeSet().getNamespaceUris().getUri());
+    assertEquals(expectedNodes.size(), actualNodes.size());
+
+    for (int i = 0; i < expectedNodes.size(); i++) {
+      String nodeId = expectedNodes.get(i).getNodeId();
+      assertEquals(nodeId, actualNodes.get(i).getNodeId());
+
+      UANode node = actual.getNode(nodeId);
+      assertNotNull(node, nodeId);
+      assertEquals(expectedNodes.get(i).getBrowseName(), node.getBrowseName());
+
+      assertReferencesMatch(expected.getReferences(nodeId), actual.getReferences(nodeId));
+      assertReferencesMatch(
+          expected.getExplicitReferences(nodeId), actual.getExplicitReferences(nodeId));
+      assertReferencesMatch(
+          expected.getImplicitReferences(nodeId), actual.getImplicitReferences(nodeId));
+    }
+  }
+
+  private static void assertReferencesMatch(List<Reference> expected, List<Reference> actual) {
+    assertEquals(keys(expected), keys(actual));
+    assertEquals(expected.size(), actual.size());
+  }
+
+  private static Set<List<Object>> keys(List<Reference> references) {
+    var keys = new HashSet<List<Object>>();
+    for (Reference reference : references) {
+      keys.add(
+          List.of(
+              NodeId.parse(reference.getReferenceType()),
+              NodeId.parse(reference.getValue()),
+              reference.isIsForward()));
+    }
+    return keys;
+  }
+
+  private UANodeSet parse(String resource) throws IOException, JAXBException {
+    try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resource)) {
+      return UANodeSetParser.parse(inputStream);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.NodeSetTraversal.Decision;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.UANode;
+
+class NodeSetClosureTest {
+
+  NodeSet nodeSet;
+
+  @BeforeEach
+  void loadNodeSet() throws IOException, JAXBException {
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("Opc.Ua.Di.NodeSet2.xml")) {
+
+      nodeSet = NodeSet.load(inputStream);
+    }
+  }
+
+  @Test
+  void hierarchicalReachability() {
+    NodeSetClosure closure = nodeSet.closure(List.of(NodeIds.HierarchicalReferences));
+
+    assertTrue(closure.isReachable(NodeIds.ObjectsFolder, NodeIds.Server));
+    assertTrue(closure.isReachable(NodeIds.RootFolder, NodeIds.Server_ServerStatus));
+    assertFalse(closure.isReachable(NodeIds.Server, NodeIds.ObjectsFolder));
+    assertFalse(closure.isReachable(NodeIds.ObjectsFolder, NodeIds.ObjectsFolder));
+  }
+
+  @Test
+  void descendantsMatchTraversal() {
+    NodeSetClosure closure = nodeSet.closure(List.of(NodeIds.HierarchicalReferences));
+
+    // Compute a child first so the parent's closure reuses it.
+    int serverCount = closure.getDescendantCount(NodeIds.Server);
+    assertTrue(serverCount > 0);
+
+    var traversed = new HashSet<UANode>();
+    nodeSet
+        .traversal(List.of(NodeIds.HierarchicalReferences))
+        .traverse(
+            NodeIds.ObjectsFolder,
+            (node, depth) -> {
+              if (depth > 0) traversed.add(node);
+              return Decision.CONTINUE;
+            });
+
+    List<UANode> descendants = closure.getDescendants(NodeIds.ObjectsFolder);
+    assertEquals(traversed, Set.copyOf(descendants));
+    assertEquals(descendants.size(), closure.getDescendantCount(NodeIds.ObjectsFolder));
+  }
+
+  @Test
+  void inverseSubtypeClosure() {
+    NodeSetClosure subtypes = nodeSet.closure(List.of(NodeIds.HasSubtype));
+    NodeSetClosure supertypes =
+        NodeSetClosure.create(nodeSet, List.of(NodeIds.HasSubtype), false, false);
+
+    assertTrue(subtypes.isReachable(NodeIds.BaseObjectType, NodeIds.FolderType));
+    assertTrue(supertypes.isReachable(NodeIds.FolderType, NodeIds.BaseObjectType));
+    assertFalse(supertypes.isReachable(NodeIds.BaseObjectType, NodeIds.FolderType));
+    assertEquals(
+        List.of(nodeSet.getNode(NodeIds.BaseObjectType)),
+        supertypes.getDescendants(NodeIds.FolderType));
+  }
+
+  @Test
+  void unknownNodesAreNotReachable() {
+    NodeSetClosure closure = nodeSet.closure(List.of(NodeIds.HierarchicalReferences));
+
+    assertFalse(closure.isReachable(NodeIds.ObjectsFolder, NodeIds.Boolean));
+    assertEquals(0, closure.getDescendantCount(NodeId.parse("ns=1;i=999999")));
+  }
+}
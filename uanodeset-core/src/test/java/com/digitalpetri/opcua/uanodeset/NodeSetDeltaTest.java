@@ -0,0 +1,422 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.util.NodeIdUtil;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.*;
+
+class NodeSetDeltaTest {
+
+  static final NodeId DEVICE = NodeId.parse("ns=1;s=Device");
+  static final NodeId SENSOR = NodeId.parse("ns=1;s=Sensor");
+
+  NodeSet nodeSet;
+
+  @BeforeEach
+  void loadNodeSet() throws IOException, JAXBException {
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("Opc.Ua.Di.NodeSet2.xml")) {
+
+      nodeSet = NodeSet.load(inputStream);
+    }
+  }
+
+  @Test
+  void addNodeWithReferences() {
+    int objectsReferences = nodeSet.getReferences(NodeIds.ObjectsFolder).size();
+
+    NodeSet next =
+        nodeSet.apply(
+            NodeSetDelta.builder()
+                .addNode(object(DEVICE, "1:Device", reference("Organizes", "i=85", false)))
+                .build());
+
+    assertNotNull(next.getNode(DEVICE));
+    assertEquals(List.of(NodeIds.BaseObjectType), next.getTypeHierarchy(DEVICE));
+    assertEquals(objectsReferences + 1, next.getReferences(NodeIds.ObjectsFolder).size());
+    assertEquals(1, next.getNodesByBrowseName("1:Device").size());
+    assertTrue(
+        next.closure(List.of(NodeIds.HierarchicalReferences))
+            .isReachable(NodeIds.ObjectsFolder, DEVICE));
+
+    // the base snapshot is unchanged
+    assertNull(nodeSet.getNode(DEVICE));
+    assertEquals(objectsReferences, nodeSet.getReferences(NodeIds.ObjectsFolder).size());
+    assertTrue(nodeSet.getNodesByBrowseName("1:Device").isEmpty());
+    assertEquals(
+        nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod().size() + 1,
+        next.getNodeSet().getUAObjectOrUAVariableOrUAMethod().size());
+  }
+
+  @Test
+  void removeNodeRemovesReferencesDeclaredByOtherNodes() {
+    NodeSet withDevice =
+        nodeSet.apply(
+            NodeSetDelta.builder()
+                .addNode(object(DEVICE, "1:Device"))
+                .addReference(NodeIds.ObjectsFolder, NodeIds.Organizes, DEVICE, true)
+                .build());
+
+    UANode objectsFolder = withDevice.getNode(NodeIds.ObjectsFolder);
+    assertNotSame(nodeSet.getNode(NodeIds.ObjectsFolder), objectsFolder);
+    assertEquals(
+        nodeSet.getNode(NodeIds.ObjectsFolder).getReferences().getReference().size() + 1,
+        objectsFolder.getReferences().getReference().size());
+
+    NodeSet withoutDevice =
+        withDevice.apply(NodeSetDelta.builder().removeNode(DEVICE).build());
+
+    assertNull(withoutDevice.getNode(DEVICE));
+    assertTrue(withoutDevice.getImplicitReferences(DEVICE).isEmpty());
+    assertEquals(
+        nodeSet.getExplicitReferences(NodeIds.ObjectsFolder).size(),
+        withoutDevice.getExplicitReferences(NodeIds.ObjectsFolder).size());
+    assertEquals(
+        nodeSet.getNode(NodeIds.ObjectsFolder).getReferences().getReference().size(),
+        withoutDevice.getNode(NodeIds.ObjectsFolder).getReferences().getReference().size());
+
+    // the intermediate snapshot still has the device
+    assertNotNull(withDevice.getNode(DEVICE));
+    assertEquals(1, withDevice.getImplicitReferences(DEVICE).size());
+  }
+
+  @Test
+  void nodeListSizeMatchesIterationAfterRemovals() {
+    NodeSet withDevices =
+        nodeSet.apply(
+            NodeSetDelta.builder()
+                .addNode(object(DEVICE, "1:Device"))
+                .addNode(object(SENSOR, "1:Sensor"))
+                .build());
+
+    // remove a node of the base, a node added by the earlier delta, and replace another
+    var server = (UAObject) OffHeapNodeCodec.copy(nodeSet.getNode(NodeIds.Server));
+    server.setBrowseName("Other Server");
+    NodeSet removed =
+        withDevices.apply(
+            NodeSetDelta.builder()
+                .removeNode(NodeIds.Server_ServerStatus)
+                .removeNode(DEVICE)
+                .replaceNode(server)
+                .build());
+
+    List<UANode> nodes = removed.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+    int iterated = 0;
+    for (UANode node : nodes) {
+      assertNotNull(node);
+      iterated++;
+    }
+
+    assertEquals(nodes.size(), iterated);
+    assertEquals(nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod().size(), iterated);
+    assertFalse(nodes.contains(withDevices.getNode(DEVICE)));
+    assertTrue(nodes.contains(removed.getNode(SENSOR)));
+
+    // positional access agrees with iteration
+    assertEquals(iterated, nodes.size());
+    assertSame(nodes.iterator().next(), nodes.get(0));
+  }
+
+  @Test
+  void replaceNodeKeepsPositionAndIncomingReferences() {
+    NodeSet withDevice =
+        nodeSet.apply(
+            NodeSetDelta.builder()
+                .addNode(object(DEVICE, "1:Device", reference("Organizes", "i=85", false)))
+                .addNode(object(SENSOR, "1:Sensor", reference("HasComponent", DEVICE, false)))
+                .build());
+
+    NodeSet replaced =
+        withDevice.apply(
+            NodeSetDelta.builder()
+                .replaceNode(object(DEVICE, "1:Device2", reference("Organizes", "i=85", false)))
+                .build());
+
+    List<UANode> before = withDevice.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+    List<UANode> after = replaced.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+    assertEquals(before.size(), after.size());
+    assertEquals("1:Device2", after.get(before.size() - 2).getBrowseName());
+    assertEquals("1:Device", withDevice.getNode(DEVICE).getBrowseName());
+
+    // HasComponent declared on the sensor still reaches the replaced device
+    assertTrue(
+        replaced.getReferences(DEVICE).stream()
+            .anyMatch(r -> NodeIdUtil.equals(r.getValue(), SENSOR) && r.isIsForward()));
+  }
+
+  @Test
+  void removeReferenceFromEitherSide() {
+    NodeSet withDevice =
+        nodeSet.apply(
+            NodeSetDelta.builder()
+                .addNode(object(DEVICE, "1:Device", reference("Organizes", "i=85", false)))
+                .build());
+
+    // declared inverse on the device, removed as a forward reference from the ObjectsFolder
+    NodeSet removed =
+        withDevice.apply(
+            NodeSetDelta.builder()
+                .removeReference(NodeIds.ObjectsFolder, NodeIds.Organizes, DEVICE, true)
+                .build());
+
+    assertTrue(removed.getExplicitReferences(DEVICE).stream().noneMatch(this::isOrganizes));
+    assertTrue(removed.getReferences(NodeIds.ObjectsFolder).stream().noneMatch(this::isDevice));
+    assertTrue(
+        removed.getNode(DEVICE).getReferences().getReference().stream()
+            .noneMatch(this::isOrganizes));
+  }
+
+  @Test
+  void typeTreesAreReusedUnlessTypesChange() {
+    ObjectTypeInfoTree objectTypeTree = nodeSet.getObjectTypeTree();
+    DataTypeInfoTree dataTypeTree = nodeSet.getDataTypeTree();
+
+    NodeSet withDevice =
+        nodeSet.apply(NodeSetDelta.builder().addNode(object(DEVICE, "1:Device")).build());
+    assertSame(objectTypeTree, withDevice.getObjectTypeTree());
+    assertSame(dataTypeTree, withDevice.getDataTypeTree());
+
+    var deviceType = new UAObjectType();
+    deviceType.setNodeId("ns=1;s=DeviceType");
+    deviceType.setBrowseName("1:DeviceType");
+    deviceType.setReferences(new ListOfReferences());
+    deviceType.getReferences().getReference().add(reference("HasSubtype", "i=58", false));
+
+    NodeSet withType = withDevice.apply(NodeSetDelta.builder().addNode(deviceType).build());
+    assertNotSame(objectTypeTree, withType.getObjectTypeTree());
+    assertNotNull(withType.getObjectTypeTree().getTypeInfo(NodeId.parse("ns=1;s=DeviceType")));
+    assertNull(objectTypeTree.getTypeInfo(NodeId.parse("ns=1;s=DeviceType")));
+  }
+
+  @Test
+  void encodingChangesRebuildDataTypeTree() {
+    DataTypeInfoTree dataTypeTree = nodeSet.getDataTypeTree();
+    NodeId binaryEncodingId = dataTypeTree.getStructureLayout(NodeIds.Argument).binaryEncodingId();
+    assertNotNull(binaryEncodingId);
+
+    NodeSet removed = nodeSet.apply(NodeSetDelta.builder().removeNode(binaryEncodingId).build());
+    assertNotSame(dataTypeTree, removed.getDataTypeTree());
+    assertNull(removed.getDataTypeTree().getStructureLayout(NodeIds.Argument).binaryEncodingId());
+
+    // renaming an encoding Object changes no HasEncoding reference
+    var encoding = (UAObject) OffHeapNodeCodec.copy(nodeSet.getNode(binaryEncodingId));
+    encoding.setBrowseName("Other Binary");
+
+    NodeSet renamed = nodeSet.apply(NodeSetDelta.builder().replaceNode(encoding).build());
+    assertNull(renamed.getDataTypeTree().getStructureLayout(NodeIds.Argument).binaryEncodingId());
+  }
+
+  @Test
+  void deltasInternNodeIdsSeparately() {
+    int interned = nodeSet.getInternedNodeIdCount();
+
+    NodeSet next = nodeSet;
+    for (int i = 0; i < 20; i++) {
+      NodeId nodeId = NodeId.parse("ns=1;s=Device" + i);
+      next = next.apply(NodeSetDelta.builder().addNode(object(nodeId, "1:Device")).build());
+    }
+
+    assertEquals(interned, nodeSet.getInternedNodeIdCount());
+    assertEquals(interned + 20, next.getInternedNodeIdCount());
+    assertSame(nodeSet.parseNodeId("i=85"), next.parseNodeId("i=85"));
+    assertNotNull(next.getNode(NodeId.parse("ns=1;s=Device0")));
+  }
+
+  @Test
+  void indexesAreUpdatedFromTheBase() {
+    // build the base's indexes first, so every delta updates its predecessor's indexes
+    assertIndexesMatchNodeList(nodeSet);
+
+    NodeSet next = nodeSet;
+    for (int i = 0; i < 60; i++) {
+      NodeId nodeId = NodeId.parse("ns=1;s=Device" + i);
+      NodeSetDelta.Builder delta =
+          NodeSetDelta.builder()
+              .addNode(object(nodeId, "1:Device", reference("Organizes", "i=85", false)));
+
+      if (i % 3 == 1) {
+        // rename an earlier node, moving it into an existing BrowseName list
+        NodeId renamed = NodeId.parse("ns=1;s=Device" + (i - 1));
+        delta.replaceNode(object(renamed, "1:Renamed", reference("Organizes", "i=85", false)));
+      } else if (i % 3 == 2) {
+        delta.removeNode(NodeId.parse("ns=1;s=Device" + (i - 1)));
+        delta.addReference(nodeId, NodeIds.HasTypeDefinition, NodeIds.FolderType, true);
+        delta.removeReference(nodeId, NodeIds.HasTypeDefinition, NodeIds.BaseObjectType, true);
+      }
+
+      next = next.apply(delta.build());
+      assertIndexesMatchNodeList(next);
+    }
+
+    assertEquals(20, next.getNodesByBrowseName("1:Renamed").size());
+    assertEquals(20, next.getNodesByBrowseName("1:Device").size());
+    int folders = nodeSet.getInstancesOf(NodeIds.FolderType, TypeMatch.EXACT).size();
+    assertEquals(folders + 20, next.getInstancesOf(NodeIds.FolderType, TypeMatch.EXACT).size());
+
+    // the base snapshot is unchanged
+    assertTrue(nodeSet.getNodesByBrowseName("1:Device").isEmpty());
+    assertIndexesMatchNodeList(nodeSet);
+  }
+
+  @Test
+  void instanceDeclarationsAreSharedUnlessDeclarationsChange() {
+    InstanceDeclarations serverType = nodeSet.getInstanceDeclarations(NodeIds.ServerType);
+    assertNotNull(serverType);
+
+    NodeSet withDevice =
+        nodeSet.apply(
+            NodeSetDelta.builder()
+                .addNode(object(DEVICE, "1:Device", reference("Organizes", "i=85", false)))
+                .build());
+    assertSame(serverType, withDevice.getInstanceDeclarations(NodeIds.ServerType));
+
+    NodeSet withDeclaration =
+        withDevice.apply(
+            NodeSetDelta.builder()
+                .addNode(
+                    object(
+                        SENSOR,
+                        "1:Sensor",
+                        reference("HasComponent", NodeIds.ServerType, false),
+                        reference("HasModellingRule", NodeIds.ModellingRule_Mandatory, true)))
+                .build());
+
+    InstanceDeclarations updated = withDeclaration.getInstanceDeclarations(NodeIds.ServerType);
+    assertNotSame(serverType, updated);
+    assertNotNull(updated.getDeclaration("1:Sensor"));
+    assertNull(serverType.getDeclaration("1:Sensor"));
+  }
+
+  private static void assertIndexesMatchNodeList(NodeSet nodeSet) {
+    List<UANode> nodes = nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+
+    for (String browseName : List.of("1:Device", "1:Renamed", "Objects")) {
+      assertEquals(
+          nodes.stream().filter(n -> browseName.equals(n.getBrowseName())).toList(),
+          nodeSet.getNodesByBrowseName(browseName));
+    }
+    assertEquals(
+        nodes.stream().filter(n -> n.getNodeId().startsWith("ns=1;")).toList(),
+        nodeSet.getNodesInNamespace(1));
+    assertEquals(
+        nodes.stream().filter(UAObject.class::isInstance).toList(),
+        nodeSet.getNodes(UAObject.class));
+
+    for (NodeId typeId : List.of(NodeIds.BaseObjectType, NodeIds.FolderType)) {
+      assertEquals(
+          nodes.stream()
+              .filter(n -> nodeSet.getTypeDefinition(n).filter(typeId::equals).isPresent())
+              .toList(),
+          nodeSet.getInstancesOf(typeId, TypeMatch.EXACT));
+    }
+  }
+
+  @Test
+  void aliasesApplyToLaterChanges() {
+    NodeSet next =
+        nodeSet.apply(
+            NodeSetDelta.builder()
+                .addAlias("MyOrganizes", "i=35")
+                .addNode(object(DEVICE, "1:Device", reference("MyOrganizes", "i=85", false)))
+                .build());
+
+    assertTrue(next.getExplicitReferences(DEVICE).stream().anyMatch(this::isOrganizes));
+    assertTrue(
+        next.getNodeSet().getAliases().getAlias().stream()
+            .anyMatch(a -> a.getAlias().equals("MyOrganizes")));
+    assertNotNull(next.getNode("MyOrganizes"));
+  }
+
+  @Test
+  void versionedNodeSetPublishesSnapshots() {
+    var versioned = new VersionedNodeSet(nodeSet);
+    NodeSet first = versioned.current();
+
+    NodeSet second =
+        versioned.apply(NodeSetDelta.builder().addNode(object(DEVICE, "1:Device")).build());
+
+    assertSame(second, versioned.current());
+    assertNull(first.getNode(DEVICE));
+    assertNotNull(second.getNode(DEVICE));
+
+    // a failing delta publishes nothing
+    NodeSetDelta duplicate = NodeSetDelta.builder().addNode(object(DEVICE, "1:Device")).build();
+    assertThrows(IllegalArgumentException.class, () -> versioned.apply(duplicate));
+    assertSame(second, versioned.current());
+
+    NodeSetDelta unknown = NodeSetDelta.builder().removeNode(SENSOR).build();
+    assertThrows(IllegalArgumentException.class, () -> versioned.apply(unknown));
+    assertSame(second, versioned.current());
+  }
+
+  @Test
+  void readersSeeCompleteSnapshots() throws InterruptedException {
+    var versioned = new VersionedNodeSet(nodeSet);
+    var failure = new AtomicReference<String>();
+
+    Thread reader =
+        new Thread(
+            () -> {
+              for (int i = 0; i < 10_000 && failure.get() == null; i++) {
+                NodeSet snapshot = versioned.current();
+                boolean hasDevice = snapshot.getNode(DEVICE) != null;
+                boolean hasSensor = snapshot.getNode(SENSOR) != null;
+                if (hasDevice != hasSensor) {
+                  failure.set("half-applied delta observed");
+                }
+              }
+            });
+    reader.start();
+
+    for (int i = 0; i < 20; i++) {
+      versioned.apply(
+          NodeSetDelta.builder()
+              .addNode(object(DEVICE, "1:Device"))
+              .addNode(object(SENSOR, "1:Sensor"))
+              .build());
+      versioned.apply(NodeSetDelta.builder().removeNode(DEVICE).removeNode(SENSOR).build());
+    }
+    reader.join();
+
+    assertNull(failure.get());
+  }
+
+  private boolean isOrganizes(Reference reference) {
+    return NodeIdUtil.equals(reference.getReferenceType(), NodeIds.Organizes);
+  }
+
+  private boolean isDevice(Reference reference) {
+    return NodeIdUtil.equals(reference.getValue(), DEVICE);
+  }
+
+  private static UAObject object(NodeId nodeId, String browseName, Reference... references) {
+    var object = new UAObject();
+    object.setNodeId(nodeId.toParseableString());
+    object.setBrowseName(browseName);
+    object.setReferences(new ListOfReferences());
+    object.getReferences().getReference().add(reference("HasTypeDefinition", "i=58", true));
+    object.getReferences().getReference().addAll(List.of(references));
+    return object;
+  }
+
+  private static Reference reference(String referenceType, NodeId target, boolean forward) {
+    return reference(referenceType, target.toParseableString(), forward);
+  }
+
+  private static Reference reference(String referenceType, String target, boolean forward) {
+    var reference = new Reference();
+    reference.setReferenceType(referenceType);
+    reference.setValue(target);
+    reference.setIsForward(forward);
+    return reference;
+  }
+}
@@ -0,0 +1,186 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.NodeSetDiff.ReferenceChange;
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.*;
+
+class NodeSetDiffTest {
+
+  private static final String DI_NAMESPACE_URI = "http://opcfoundation.org/UA/DI/";
+  private static final String GDS_NAMESPACE_URI = "http://opcfoundation.org/UA/GDS/";
+
+  private static final NodeId DEVICE = NodeId.parse("ns=1;s=Device");
+  private static final NodeId DEVICE_TYPE = NodeId.parse("ns=1;i=1002");
+
+  NodeSet nodeSet;
+
+  @BeforeEach
+  void loadNodeSet() throws IOException, JAXBException {
+    nodeSet = NodeSet.from(parse("Opc.Ua.Di.NodeSet2.xml"));
+  }
+
+  @Test
+  void identicalModelsHaveEqualHashes() throws Exception {
+    NodeSetDigest digest = NodeSetDigest.create(nodeSet);
+    NodeSetDigest other = NodeSetDigest.create(NodeSet.from(parse("Opc.Ua.Di.NodeSet2.xml")));
+
+    assertArrayEquals(digest.getRootHash(), other.getRootHash());
+    assertArrayEquals(digest.getNodeHash(DEVICE_TYPE), other.getNodeHash(DEVICE_TYPE));
+    assertEquals(32, digest.getRootHash().length);
+    assertNull(digest.getNodeHash(DEVICE));
+
+    assertTrue(NodeSetDiff.compare(digest, other).isEmpty());
+  }
+
+  @Test
+  void hashesDoNotDependOnNamespaceIndexes() throws Exception {
+    NodeSet diFirst =
+        NodeSet.from(List.of(parse("Opc.Ua.Di.NodeSet2.xml"), parse("Opc.Ua.Gds.NodeSet2.xml")));
+    NodeSet gdsFirst =
+        NodeSet.from(List.of(parse("Opc.Ua.Gds.NodeSet2.xml"), parse("Opc.Ua.Di.NodeSet2.xml")));
+
+    List<String> uris = diFirst.getNodeSet().getNamespaceUris().getUri();
+    assertNotEquals(uris, gdsFirst.getNodeSet().getNamespaceUris().getUri());
+
+    NodeSetDigest a = NodeSetDigest.create(diFirst);
+    NodeSetDigest b = NodeSetDigest.create(gdsFirst);
+
+    assertEquals(Set.of(DI_NAMESPACE_URI, GDS_NAMESPACE_URI), Set.of(uris.get(1), uris.get(2)));
+    assertArrayEquals(a.getNamespaceHash(DI_NAMESPACE_URI), b.getNamespaceHash(DI_NAMESPACE_URI));
+    assertArrayEquals(
+        a.getNamespaceHash(GDS_NAMESPACE_URI), b.getNamespaceHash(GDS_NAMESPACE_URI));
+    assertArrayEquals(a.getRootHash(), b.getRootHash());
+
+    assertTrue(NodeSetDiff.compare(a, b).isEmpty());
+  }
+
+  @Test
+  void addedNodeAndReferences() {
+    NodeSet next =
+        nodeSet.apply(
+            NodeSetDelta.builder()
+                .addNode(object(DEVICE, "1:Device", reference("Organizes", "i=85", false)))
+                .build());
+
+    NodeSetDigest before = NodeSetDigest.create(nodeSet);
+    NodeSetDigest after = NodeSetDigest.create(next);
+
+    assertFalse(
+        Arrays.equals(
+            before.getNamespaceHash(DI_NAMESPACE_URI), after.getNamespaceHash(DI_NAMESPACE_URI)));
+    assertArrayEquals(before.getNodeHash(DEVICE_TYPE), after.getNodeHash(DEVICE_TYPE));
+
+    NodeSetDiff diff = NodeSetDiff.compare(before, after);
+
+    assertEquals(List.of(DEVICE), diff.getAddedNodes());
+    assertTrue(diff.getRemovedNodes().isEmpty());
+    assertTrue(diff.getModifiedNodes().isEmpty());
+    assertTrue(diff.getRemovedReferences().isEmpty());
+    assertEquals(
+        Set.of(
+            new ReferenceChange(NodeIds.ObjectsFolder, NodeIds.Organizes, DEVICE, true),
+            new ReferenceChange(DEVICE, NodeIds.HasTypeDefinition, NodeIds.BaseObjectType, true)),
+        Set.copyOf(diff.getAddedReferences()));
+    assertEquals(2, diff.getAddedReferences().size());
+  }
+
+  @Test
+  void removedNodeAndReferences() {
+    NodeSet next =
+        nodeSet.apply(
+            NodeSetDelta.builder()
+                .addNode(object(DEVICE, "1:Device", reference("Organizes", "i=85", false)))
+                .build());
+
+    NodeSetDiff diff = NodeSetDiff.compare(next, nodeSet);
+
+    assertEquals(List.of(DEVICE), diff.getRemovedNodes());
+    assertTrue(diff.getAddedNodes().isEmpty());
+    assertTrue(diff.getAddedReferences().isEmpty());
+    assertEquals(
+        Set.of(
+            new ReferenceChange(NodeIds.ObjectsFolder, NodeIds.Organizes, DEVICE, true),
+            new ReferenceChange(DEVICE, NodeIds.HasTypeDefinition, NodeIds.BaseObjectType, true)),
+        Set.copyOf(diff.getRemovedReferences()));
+  }
+
+  @Test
+  void modifiedAttributesAndReferences() {
+    UAObjectType deviceType = (UAObjectType) OffHeapNodeCodec.copy(nodeSet.getNode(DEVICE_TYPE));
+    deviceType.getDescription().get(0).setValue("A changed description");
+
+    NodeSet next =
+        nodeSet.apply(
+            NodeSetDelta.builder()
+                .replaceNode(deviceType)
+                .addReference(DEVICE_TYPE, NodeIds.GeneratesEvent, NodeIds.BaseEventType, true)
+                .build());
+
+    NodeSetDiff diff = NodeSetDiff.compare(nodeSet, next);
+
+    assertEquals(List.of(DEVICE_TYPE), diff.getModifiedNodes());
+    assertTrue(diff.getAddedNodes().isEmpty());
+    assertTrue(diff.getRemovedNodes().isEmpty());
+    assertEquals(
+        List.of(
+            new ReferenceChange(DEVICE_TYPE, NodeIds.GeneratesEvent, NodeIds.BaseEventType, true)),
+        diff.getAddedReferences());
+    assertTrue(diff.getRemovedReferences().isEmpty());
+  }
+
+  @Test
+  void referenceOnlyChangesDoNotModifyNodes() {
+    NodeSet next =
+        nodeSet.apply(
+            NodeSetDelta.builder()
+                .addReference(DEVICE_TYPE, NodeIds.GeneratesEvent, NodeIds.BaseEventType, true)
+                .build());
+
+    NodeSetDigest before = NodeSetDigest.create(nodeSet);
+    NodeSetDigest after = NodeSetDigest.create(next);
+
+    assertFalse(
+        Arrays.equals(before.getNodeHash(DEVICE_TYPE), after.getNodeHash(DEVICE_TYPE)));
+
+    NodeSetDiff diff = NodeSetDiff.compare(before, after);
+
+    assertTrue(diff.getModifiedNodes().isEmpty());
+    assertEquals(1, diff.getAddedReferences().size());
+  }
+
+  private static UAObject object(NodeId nodeId, String browseName, Reference... references) {
+    var object = new UAObject();
+    object.setNodeId(nodeId.toParseableString());
+    object.setBrowseName(browseName);
+    object.setReferences(new ListOfReferences());
+    object.getReferences().getReference().add(reference("HasTypeDefinition", "i=58", true));
+    object.getReferences().getReference().addAll(List.of(references));
+    return object;
+  }
+
+  private static Reference reference(String referenceType, String target, boolean forward) {
+    var reference = new Reference();
+    reference.setReferenceType(referenceType);
+    reference.setValue(target);
+    reference.setIsForward(forward);
+    return reference;
+  }
+
+  private UANodeSet parse(String resource) throws IOException, JAXBException {
+    try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resource)) {
+      return UANodeSetParser.parse(inputStream);
+    }
+  }
+}
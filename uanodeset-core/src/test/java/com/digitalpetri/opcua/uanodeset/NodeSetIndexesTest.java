@@ -0,0 +1,100 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import org.eclipse.milo.opcua.stack.core.util.Namespaces;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.UADataType;
+import org.opcfoundation.ua.UANode;
+import org.opcfoundation.ua.UAObjectType;
+import org.opcfoundation.ua.UAType;
+
+class NodeSetIndexesTest {
+
+  private static final String DI_NAMESPACE_URI = "http://opcfoundation.org/UA/DI/";
+
+  NodeSet nodeSet;
+
+  @BeforeEach
+  void loadNodeSet() throws IOException, JAXBException {
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("Opc.Ua.Di.NodeSet2.xml")) {
+
+      nodeSet = NodeSet.load(inputStream);
+    }
+  }
+
+  @Test
+  void getNodesByClassMatchesFullScan() {
+    List<UANode> nodes = nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+
+    assertEquals(
+        nodes.stream().filter(UADataType.class::isInstance).toList(),
+        nodeSet.getNodes(UADataType.class));
+
+    // Abstract classes are served from the same index and keep document order.
+    assertEquals(
+        nodes.stream().filter(UAType.class::isInstance).toList(), nodeSet.getNodes(UAType.class));
+  }
+
+  @Test
+  void getNodesByClassIsImmutable() {
+    List<UAObjectType> objectTypes = nodeSet.getNodes(UAObjectType.class);
+
+    assertThrows(UnsupportedOperationException.class, () -> objectTypes.remove(0));
+  }
+
+  @Test
+  void getNodesByBrowseNameIgnoresNamespaceZeroPrefix() {
+    // The base model spells this BrowseName with an explicit "0:" prefix.
+    List<UANode> metadata = nodeSet.getNodesByBrowseName(Namespaces.OPC_UA);
+
+    assertEquals(List.of(nodeSet.getNode("i=15957")), metadata);
+    assertEquals(metadata, nodeSet.getNodesByBrowseName("0:" + Namespaces.OPC_UA));
+  }
+
+  @Test
+  void getNodesByBrowseNameUsesNamespaceIndex() {
+    assertEquals(
+        List.of(nodeSet.getNode("ns=1;i=1002")), nodeSet.getNodesByBrowseName("1:DeviceType"));
+    assertTrue(nodeSet.getNodesByBrowseName("DeviceType").isEmpty());
+  }
+
+  @Test
+  void getNodesBySymbolicName() {
+    assertEquals(
+        List.of(nodeSet.getNode("ns=1;i=15001")),
+        nodeSet.getNodesBySymbolicName(DI_NAMESPACE_URI, "OPCUADINamespaceMetadata"));
+
+    // Nodes without a SymbolicName fall back to the name part of their BrowseName.
+    assertEquals(
+        List.of(nodeSet.getNode("ns=1;i=1002")),
+        nodeSet.getNodesBySymbolicName(DI_NAMESPACE_URI, "DeviceType"));
+
+    assertTrue(nodeSet.getNodesBySymbolicName("urn:unknown", "DeviceType").isEmpty());
+  }
+
+  @Test
+  void getNodesByDisplayName() {
+    List<UANode> nodes = nodeSet.getNodesByDisplayName("DeviceType");
+
+    assertTrue(nodes.contains(nodeSet.getNode("ns=1;i=1002")));
+  }
+
+  @Test
+  void getNodesInNamespace() {
+    List<UANode> diNodes = nodeSet.getNodesInNamespace(DI_NAMESPACE_URI);
+
+    assertFalse(diNodes.isEmpty());
+    assertEquals(diNodes, nodeSet.getNodesInNamespace(1));
+    assertEquals(
+        nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod().size(),
+        nodeSet.getNodesInNamespace(Namespaces.OPC_UA).size() + diNodes.size());
+    assertTrue(nodeSet.getNodesInNamespace("urn:unknown").isEmpty());
+  }
+}
@@ -0,0 +1,123 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.util.NodeIdUtil;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.UANode;
+import org.opcfoundation.ua.UAObject;
+import org.opcfoundation.ua.UAObjectType;
+import org.opcfoundation.ua.UAType;
+import org.opcfoundation.ua.UAVariable;
+import org.opcfoundation.ua.UAVariableType;
+
+class NodeSetInstancesTest {
+
+  NodeSet nodeSet;
+
+  @BeforeEach
+  void loadNodeSet() throws IOException, JAXBException {
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("Opc.Ua.Di.NodeSet2.xml")) {
+
+      nodeSet = NodeSet.load(inputStream);
+    }
+  }
+
+  @Test
+  void exactMatchesFullScan() {
+    for (UAType type : types()) {
+      NodeId typeId = NodeIdUtil.parse(type.getNodeId());
+
+      List<UANode> expected =
+          instances().stream()
+              .filter(node -> typeId.equals(nodeSet.getTypeDefinition(node).orElse(null)))
+              .toList();
+
+      assertEquals(expected, nodeSet.getInstancesOf(typeId, TypeMatch.EXACT), type.getNodeId());
+    }
+  }
+
+  @Test
+  void includeSubtypesMatchesFullScan() {
+    Map<UANode, List<NodeId>> hierarchies = new IdentityHashMap<>();
+    for (UANode node : instances()) {
+      hierarchies.put(node, nodeSet.getTypeHierarchy(node));
+    }
+
+    for (UAType type : types()) {
+      NodeId typeId = NodeIdUtil.parse(type.getNodeId());
+
+      var expected = new HashSet<UANode>();
+      hierarchies.forEach(
+          (node, hierarchy) -> {
+            if (hierarchy.contains(typeId)) {
+              expected.add(node);
+            }
+          });
+
+      List<UANode> actual = nodeSet.getInstancesOf(typeId, TypeMatch.INCLUDE_SUBTYPES);
+
+      assertEquals(expected.size(), actual.size(), type.getNodeId());
+      assertEquals(expected, new HashSet<>(actual), type.getNodeId());
+    }
+  }
+
+  @Test
+  void directInstancesComeFirst() {
+    List<UANode> direct = nodeSet.getInstancesOf(NodeIds.FolderType, TypeMatch.EXACT);
+    List<UANode> all = nodeSet.getInstancesOf(NodeIds.FolderType, TypeMatch.INCLUDE_SUBTYPES);
+
+    assertFalse(direct.isEmpty());
+    assertTrue(all.size() > direct.size());
+    assertEquals(direct, all.subList(0, direct.size()));
+  }
+
+  @Test
+  void stringAndNodeIdLookupsMatch() {
+    assertEquals(
+        nodeSet.getInstancesOf(NodeIds.BaseObjectType, TypeMatch.INCLUDE_SUBTYPES),
+        nodeSet.getInstancesOf("ns=0;i=58", TypeMatch.INCLUDE_SUBTYPES));
+  }
+
+  @Test
+  void unknownTypeHasNoInstances() {
+    NodeId unknown = NodeId.parse("ns=1;s=DoesNotExist");
+
+    assertTrue(nodeSet.getInstancesOf(unknown, TypeMatch.EXACT).isEmpty());
+    assertTrue(nodeSet.getInstancesOf(unknown, TypeMatch.INCLUDE_SUBTYPES).isEmpty());
+  }
+
+  @Test
+  void resultsAreImmutable() {
+    List<UANode> exact = nodeSet.getInstancesOf(NodeIds.FolderType, TypeMatch.EXACT);
+    List<UANode> all = nodeSet.getInstancesOf(NodeIds.FolderType, TypeMatch.INCLUDE_SUBTYPES);
+
+    assertThrows(UnsupportedOperationException.class, () -> exact.remove(0));
+    assertThrows(UnsupportedOperationException.class, () -> all.remove(0));
+  }
+
+  private List<UAType> types() {
+    var types = new ArrayList<UAType>();
+    types.addAll(nodeSet.getNodes(UAObjectType.class));
+    types.addAll(nodeSet.getNodes(UAVariableType.class));
+    return types;
+  }
+
+  private List<UANode> instances() {
+    return nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod().stream()
+        .filter(node -> node instanceof UAObject || node instanceof UAVariable)
+        .toList();
+  }
+}
@@ -0,0 +1,146 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
+import jakarta.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.UANode;
+
+class NodeSetLoadAsyncTest {
+
+  @Test
+  void loadAsyncMatchesLoad() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    var submitted = new AtomicInteger();
+
+    try (InputStream di = open("Opc.Ua.Di.NodeSet2.xml");
+        InputStream machinery = open("Opc.Ua.Machinery.NodeSet2.xml")) {
+
+      NodeSet nodeSet =
+          NodeSet.loadAsync(
+                  List.of(di, machinery),
+                  command -> {
+                    submitted.incrementAndGet();
+                    executor.execute(command);
+                  })
+              .get(60, TimeUnit.SECONDS);
+
+      NodeSet expected;
+      try (InputStream di2 = open("Opc.Ua.Di.NodeSet2.xml");
+          InputStream machinery2 = open("Opc.Ua.Machinery.NodeSet2.xml")) {
+        expected = NodeSet.load(List.of(di2, machinery2));
+      }
+
+      assertEquals(nodeIds(expected), nodeIds(nodeSet));
+      assertEquals(
+          expected.getTypeHierarchy(NodeIds.Server), nodeSet.getTypeHierarchy(NodeIds.Server));
+
+      assertEquals(
+          expected.getDataTypeTree().getTypeHierarchy(NodeIds.Duration),
+          nodeSet.getDataTypeTree().getTypeHierarchy(NodeIds.Duration));
+
+      // three parses, merge, index, type node collection, and four type trees
+      assertEquals(10, submitted.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void fromAsyncMergesParsedNodeSets() throws Exception {
+    NodeSet nodeSet;
+    try (InputStream di = open("Opc.Ua.Di.NodeSet2.xml")) {
+      nodeSet =
+          NodeSet.fromAsync(List.of(UANodeSetParser.parse(di)), Runnable::run)
+              .get(60, TimeUnit.SECONDS);
+    }
+
+    assertNotNull(nodeSet.getNode(NodeIds.Server));
+    assertFalse(nodeSet.getNodesInNamespace("http://opcfoundation.org/UA/DI/").isEmpty());
+  }
+
+  @Test
+  void loadAsyncWithDefaultExecutor() throws Exception {
+    try (InputStream di = open("Opc.Ua.Di.NodeSet2.xml")) {
+      NodeSet nodeSet = NodeSet.loadAsync(List.of(di)).get(60, TimeUnit.SECONDS);
+
+      assertFalse(nodeSet.getNodesInNamespace("http://opcfoundation.org/UA/DI/").isEmpty());
+    }
+  }
+
+  @Test
+  void parseFailureCompletesExceptionally() {
+    InputStream invalid =
+        new ByteArrayInputStream("<not-a-nodeset".getBytes(StandardCharsets.UTF_8));
+
+    CompletableFuture<NodeSet> future = NodeSet.loadAsync(List.of(invalid), Runnable::run);
+
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertInstanceOf(JAXBException.class, e.getCause());
+  }
+
+  @Test
+  void cancellationStopsAtNextStage() throws Exception {
+    Queue<Runnable> queue = new ArrayDeque<>();
+
+    try (InputStream di = open("Opc.Ua.Di.NodeSet2.xml")) {
+      CompletableFuture<NodeSet> future = NodeSet.loadAsync(List.of(di), queue::add);
+
+      // the base and DI parse tasks are queued, nothing has run yet
+      assertEquals(2, queue.size());
+      assertTrue(future.cancel(false));
+
+      int ran = 0;
+      while (!queue.isEmpty()) {
+        queue.poll().run();
+        ran++;
+      }
+
+      assertEquals(2, ran);
+      assertTrue(future.isCancelled());
+    }
+  }
+
+  @Test
+  void rejectedExecutionCompletesExceptionally() {
+    CompletableFuture<NodeSet> future =
+        NodeSet.fromAsync(
+            List.of(),
+            command -> {
+              throw new RejectedExecutionException("shut down");
+            });
+
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertInstanceOf(RejectedExecutionException.class, e.getCause());
+  }
+
+  private static List<String> nodeIds(NodeSet nodeSet) {
+    return nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod().stream()
+        .map(UANode::getNodeId)
+        .toList();
+  }
+
+  private InputStream open(String resource) throws IOException {
+    InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resource);
+    if (inputStream == null) {
+      throw new IOException("missing resource: " + resource);
+    }
+    return inputStream;
+  }
+}
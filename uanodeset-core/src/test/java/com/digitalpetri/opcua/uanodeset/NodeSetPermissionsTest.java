@@ -0,0 +1,107 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.ListOfRolePermissions;
+import org.opcfoundation.ua.ModelTableEntry;
+import org.opcfoundation.ua.RolePermission;
+import org.opcfoundation.ua.UANode;
+import org.opcfoundation.ua.UANodeSet;
+
+class NodeSetPermissionsTest {
+
+  private static final String DI_NAMESPACE_URI = "http://opcfoundation.org/UA/DI/";
+
+  NodeSet nodeSet;
+
+  @BeforeEach
+  void loadNodeSet() throws IOException, JAXBException {
+    UANodeSet di;
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("Opc.Ua.Di.NodeSet2.xml")) {
+
+      di = UANodeSetParser.parse(inputStream);
+    }
+
+    var rolePermission = new RolePermission();
+    rolePermission.setValue("i=15656");
+    rolePermission.setPermissions(0x1L);
+
+    var rolePermissions = new ListOfRolePermissions();
+    rolePermissions.getRolePermission().add(rolePermission);
+
+    ModelTableEntry model = di.getModels().getModel().get(0);
+    model.setRolePermissions(rolePermissions);
+    model.setAccessRestrictions(2);
+
+    nodeSet = NodeSet.from(di);
+  }
+
+  @Test
+  void modelDefaultsAreSharedAndNotCopiedIntoNodes() {
+    List<UANode> diNodes = nodeSet.getNodesInNamespace(DI_NAMESPACE_URI);
+    ListOfRolePermissions modelRolePermissions = nodeSet.getRolePermissions(diNodes.get(0));
+
+    assertNotNull(modelRolePermissions);
+    assertEquals(1, modelRolePermissions.getRolePermission().size());
+
+    for (UANode node : diNodes) {
+      if (node.getRolePermissions() == null && !node.isHasNoPermissions()) {
+        assertSame(modelRolePermissions, nodeSet.getRolePermissions(node), node.getNodeId());
+      }
+      if (node.getAccessRestrictions() == null) {
+        assertEquals(Integer.valueOf(2), nodeSet.getAccessRestrictions(node), node.getNodeId());
+      }
+    }
+
+    assertTrue(diNodes.stream().allMatch(node -> node.getRolePermissions() == null));
+  }
+
+  @Test
+  void nodeValuesTakePrecedence() {
+    UANode node = nodeSet.getNodesInNamespace(DI_NAMESPACE_URI).get(0);
+
+    var rolePermission = new RolePermission();
+    rolePermission.setValue("i=15644");
+    rolePermission.setPermissions(0x3L);
+
+    var rolePermissions = new ListOfRolePermissions();
+    rolePermissions.getRolePermission().add(rolePermission);
+
+    node.setRolePermissions(rolePermissions);
+    node.setAccessRestrictions(1);
+
+    assertSame(rolePermissions, nodeSet.getRolePermissions(node));
+    assertEquals(Integer.valueOf(1), nodeSet.getAccessRestrictions(node));
+  }
+
+  @Test
+  void hasNoPermissionsSuppressesModelDefault() {
+    UANode node = nodeSet.getNodesInNamespace(DI_NAMESPACE_URI).get(0);
+    node.setHasNoPermissions(true);
+
+    assertNull(nodeSet.getRolePermissions(node));
+  }
+
+  @Test
+  void modelsResolveByNamespaceIndex() {
+    assertEquals(
+        DI_NAMESPACE_URI,
+        nodeSet.getModel(nodeSet.getNodeSet().getNamespaceUris().getUri().indexOf(DI_NAMESPACE_URI))
+            .getModelUri());
+    assertNull(nodeSet.getModel(-1));
+    assertNull(nodeSet.getModel(100));
+
+    // the base model declares no defaults, so base nodes keep their own values
+    UANode server = nodeSet.getNode(NodeIds.Server);
+    assertSame(server.getRolePermissions(), nodeSet.getRolePermissions(server));
+  }
+}
@@ -0,0 +1,91 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
+import com.digitalpetri.opcua.uanodeset.util.NodeIdUtil;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.Reference;
+import org.opcfoundation.ua.UANode;
+import org.opcfoundation.ua.UANodeSet;
+
+class NodeSetReferenceVisitorTest {
+
+  private static final List<Predicate<Reference>> PREDICATES =
+      List.of(
+          reference -> true,
+          reference -> false,
+          reference ->
+              reference.isIsForward()
+                  && NodeIdUtil.equals(NodeIds.HasTypeDefinition, reference.getReferenceType()),
+          reference ->
+              !reference.isIsForward()
+                  && NodeIdUtil.equals(NodeIds.HasSubtype, reference.getReferenceType()),
+          reference -> NodeIdUtil.equals(NodeIds.HasComponent, reference.getReferenceType()));
+
+  @Test
+  void nodeSetVisitorsMatchReferenceLists() throws Exception {
+    NodeSet nodeSet = NodeSet.from(parse("Opc.Ua.Di.NodeSet2.xml"));
+
+    // visit before and after the combined lists are cached
+    assertVisitorsMatch(nodeSet, nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod());
+    assertVisitorsMatch(nodeSet, nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod());
+  }
+
+  @Test
+  void layeredNodeSetVisitorsMatchReferenceLists() throws Exception {
+    LayeredNodeSet nodeSet =
+        LayeredNodeSet.from(
+            List.of(parse("Opc.Ua.Di.NodeSet2.xml"), parse("Opc.Ua.Machinery.NodeSet2.xml")));
+
+    assertVisitorsMatch(nodeSet, nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod());
+  }
+
+  @Test
+  void unknownNodesHaveNoReferences() throws Exception {
+    NodeSet nodeSet = NodeSet.from(parse("Opc.Ua.Di.NodeSet2.xml"));
+    NodeId unknown = NodeId.parse("ns=1;s=DoesNotExist");
+
+    nodeSet.forEachReference(unknown, reference -> true, reference -> fail(reference.getValue()));
+    assertFalse(nodeSet.anyReference(unknown, reference -> true));
+    assertTrue(nodeSet.findReference(unknown, reference -> true).isEmpty());
+  }
+
+  private static void assertVisitorsMatch(NodeSetContext context, List<UANode> nodes) {
+    for (UANode node : nodes) {
+      NodeId nodeId = NodeIdUtil.parse(node.getNodeId());
+
+      for (Predicate<Reference> predicate : PREDICATES) {
+        List<Reference> expected =
+            context.getReferences(nodeId).stream().filter(predicate).toList();
+
+        var visited = new ArrayList<Reference>();
+        context.forEachReference(nodeId, predicate, visited::add);
+
+        assertEquals(expected.size(), visited.size(), node.getNodeId());
+        for (int i = 0; i < expected.size(); i++) {
+          assertSame(expected.get(i), visited.get(i), node.getNodeId());
+        }
+
+        assertEquals(!expected.isEmpty(), context.anyReference(nodeId, predicate));
+        assertEquals(
+            expected.stream().findFirst().orElse(null),
+            context.findReference(nodeId, predicate).orElse(null));
+      }
+    }
+  }
+
+  private UANodeSet parse(String resource) throws IOException, JAXBException {
+    try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resource)) {
+      return UANodeSetParser.parse(inputStream);
+    }
+  }
+}
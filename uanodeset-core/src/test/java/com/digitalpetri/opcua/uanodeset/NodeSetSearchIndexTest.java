@@ -0,0 +1,83 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.NodeSetSearchIndex.Field;
+import com.digitalpetri.opcua.uanodeset.NodeSetSearchIndex.Hit;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NodeSetSearchIndexTest {
+
+  NodeSet nodeSet;
+  NodeSetSearchIndex searchIndex;
+
+  @BeforeEach
+  void loadNodeSet() throws IOException, JAXBException {
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("Opc.Ua.Di.NodeSet2.xml")) {
+
+      nodeSet = NodeSet.load(inputStream);
+      searchIndex = NodeSetSearchIndex.create(nodeSet);
+    }
+  }
+
+  @Test
+  void tokenizeSplitsCamelCaseAcronymsAndDigits() {
+    assertEquals(
+        Set.of("opcuanamespace2", "opcua", "namespace", "2"),
+        NodeSetSearchIndex.tokenize("OPCUANamespace2"));
+    assertEquals(
+        List.of("device", "type", "set"),
+        List.copyOf(NodeSetSearchIndex.tokenize("device-TYPE set")));
+  }
+
+  @Test
+  void searchMatchesWholeWordsAndCamelCaseParts() {
+    assertTrue(containsNode(searchIndex.search("DeviceType"), "ns=1;i=1002"));
+    assertTrue(containsNode(searchIndex.search("device type"), "ns=1;i=1002"));
+  }
+
+  @Test
+  void searchMatchesPrefixes() {
+    List<Hit> hits = searchIndex.search("devicet");
+
+    assertTrue(containsNode(hits, "ns=1;i=1002"));
+  }
+
+  @Test
+  void searchRequiresEveryQueryTerm() {
+    assertTrue(searchIndex.search("device zzzznotaterm").isEmpty());
+    assertTrue(searchIndex.search("").isEmpty());
+  }
+
+  @Test
+  void browseNameMatchesRankAboveDescriptionMatches() {
+    List<Hit> hits = searchIndex.search("devicetype");
+
+    // Exact BrowseName matches outrank nodes that only mention the term elsewhere.
+    Hit first = hits.get(0);
+    assertTrue(first.fields().contains(Field.BROWSE_NAME));
+    for (Hit hit : hits) {
+      assertTrue(first.score() >= hit.score());
+      if (!hit.fields().contains(Field.BROWSE_NAME)) {
+        assertTrue(first.score() > hit.score());
+      }
+    }
+  }
+
+  @Test
+  void searchHonorsLimit() {
+    assertEquals(3, searchIndex.search("type", 3).size());
+    assertThrows(IllegalArgumentException.class, () -> searchIndex.search("type", -1));
+  }
+
+  private boolean containsNode(List<Hit> hits, String nodeId) {
+    return hits.stream().anyMatch(h -> h.node() == nodeSet.getNode(nodeId));
+  }
+}
@@ -0,0 +1,148 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.util.NodeIdUtil;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.Reference;
+import org.opcfoundation.ua.UANode;
+import org.opcfoundation.ua.UANodeSet;
+import org.opcfoundation.ua.UAObject;
+import org.opcfoundation.ua.UAVariable;
+
+class NodeSetSlicerTest {
+
+  private static final NodeId DEVICE_SET = NodeId.parse("ns=1;i=5001");
+  private static final NodeId DEVICE_TYPE = NodeId.parse("ns=1;i=1002");
+
+  NodeSet nodeSet;
+
+  @BeforeEach
+  void loadNodeSet() throws IOException, JAXBException {
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("Opc.Ua.Di.NodeSet2.xml")) {
+
+      nodeSet = NodeSet.load(inputStream);
+    }
+  }
+
+  @Test
+  void subtreeSliceIsSelfContained() {
+    NodeSet slice = nodeSet.slice(List.of(NodeIds.Server));
+
+    assertNotNull(slice.getNode(NodeIds.Server));
+    assertNotNull(slice.getNode(NodeId.parse("i=2258")));
+    assertTrue(size(slice) < size(nodeSet));
+
+    assertSelfContained(slice);
+  }
+
+  @Test
+  void sliceIncludesAncestorsOfRoots() {
+    NodeSet slice = nodeSet.slice(List.of(DEVICE_SET));
+
+    assertNotNull(slice.getNode(DEVICE_SET));
+    assertNotNull(slice.getNode(NodeIds.ObjectsFolder));
+    assertNotNull(slice.getNode(NodeIds.RootFolder));
+    assertNull(slice.getNode(NodeIds.Server));
+    assertTrue(size(slice) < size(nodeSet) / 100);
+
+    assertTrue(
+        slice.getReferences(NodeIds.ObjectsFolder).stream()
+            .anyMatch(reference -> NodeIdUtil.equals(DEVICE_SET, reference.getValue())));
+  }
+
+  @Test
+  void instancesKeepTheirTypeHierarchies() {
+    NodeSet slice = nodeSet.slice(List.of(NodeIds.Server, DEVICE_SET));
+
+    for (UANode node : slice.getNodeSet().getUAObjectOrUAVariableOrUAMethod()) {
+      if (node instanceof UAObject || node instanceof UAVariable) {
+        assertEquals(
+            nodeSet.getTypeHierarchy(node.getNodeId()),
+            slice.getTypeHierarchy(node),
+            node.getNodeId());
+      }
+    }
+  }
+
+  @Test
+  void predicateSliceIncludesInstanceDeclarations() {
+    NodeSet slice = nodeSet.slice(node -> NodeIdUtil.equals(DEVICE_TYPE, node.getNodeId()));
+
+    InstanceDeclarations expected = nodeSet.getInstanceDeclarations(DEVICE_TYPE);
+    InstanceDeclarations actual = slice.getInstanceDeclarations(DEVICE_TYPE);
+
+    assertNotNull(expected);
+    assertNotNull(actual);
+    assertEquals(
+        expected.getDeclarations().stream().map(InstanceDeclaration::getBrowsePath).toList(),
+        actual.getDeclarations().stream().map(InstanceDeclaration::getBrowsePath).toList());
+
+    assertSelfContained(slice);
+  }
+
+  @Test
+  void sourceIsNotModified() {
+    int nodes = size(nodeSet);
+    List<Reference> references = List.copyOf(nodeSet.getExplicitReferences(NodeIds.ObjectsFolder));
+    List<String> namespaceUris = List.copyOf(nodeSet.getNodeSet().getNamespaceUris().getUri());
+
+    UANodeSet slice = NodeSetSlicer.create(nodeSet).slice(List.of(DEVICE_SET));
+    slice.getNamespaceUris().getUri().add("urn:test");
+
+    assertEquals(nodes, size(nodeSet));
+    assertEquals(references, nodeSet.getExplicitReferences(NodeIds.ObjectsFolder));
+    assertEquals(namespaceUris, nodeSet.getNodeSet().getNamespaceUris().getUri());
+  }
+
+  @Test
+  void unknownRootsSliceOnlyRootTypes() {
+    NodeSet slice = nodeSet.slice(List.of(NodeId.parse("ns=1;s=DoesNotExist")));
+
+    assertNotNull(slice.getNode(NodeIds.BaseObjectType));
+    assertNotNull(slice.getNode(NodeIds.BaseDataType));
+    assertNull(slice.getNode(NodeIds.ObjectsFolder));
+
+    assertSelfContained(slice);
+  }
+
+  private static void assertSelfContained(NodeSet slice) {
+    Set<NodeId> nodeIds = new HashSet<>();
+    for (UANode node : slice.getNodeSet().getUAObjectOrUAVariableOrUAMethod()) {
+      nodeIds.add(NodeIdUtil.parse(node.getNodeId()));
+    }
+
+    for (UANode node : slice.getNodeSet().getUAObjectOrUAVariableOrUAMethod()) {
+      for (Reference reference : slice.getReferences(node.getNodeId())) {
+        assertTrue(nodeIds.contains(NodeIdUtil.parse(reference.getValue())), reference.getValue());
+        assertTrue(
+            nodeIds.contains(NodeIdUtil.parse(reference.getReferenceType())),
+            reference.getReferenceType());
+      }
+
+      if (node instanceof UAVariable variable) {
+        assertTrue(nodeIds.contains(NodeIdUtil.parse(variable.getDataType())), node.getNodeId());
+      }
+    }
+
+    // type trees build without missing roots
+    assertNotNull(ObjectTypeInfoTree.create(slice));
+    assertNotNull(VariableTypeInfoTree.create(slice));
+    assertNotNull(DataTypeInfoTree.create(slice));
+    assertNotNull(ReferenceTypeInfoTree.create(slice));
+  }
+
+  private static int size(NodeSet nodeSet) {
+    return nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod().size();
+  }
+}
@@ -0,0 +1,100 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import org.eclipse.milo.opcua.stack.core.util.Namespaces;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.UADataType;
+import org.opcfoundation.ua.UAObjectType;
+
+class NodeSetStatisticsTest {
+
+  NodeSet nodeSet;
+  NodeSetStatistics statistics;
+
+  @BeforeEach
+  void loadNodeSet() throws IOException, JAXBException {
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("Opc.Ua.Di.NodeSet2.xml")) {
+
+      nodeSet = NodeSet.load(inputStream);
+      statistics = NodeSetStatistics.of(nodeSet);
+    }
+  }
+
+  @Test
+  void nodeCountsAddUp() {
+    int nodeCount = nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod().size();
+
+    assertEquals(nodeCount, statistics.getNodeCount());
+    assertEquals(
+        nodeCount,
+        statistics.getNodeCountsByClass().values().stream().mapToInt(Integer::intValue).sum());
+    assertEquals(
+        nodeCount,
+        statistics.getNodeCountsByNamespace().values().stream().mapToInt(Integer::intValue).sum());
+    assertEquals(
+        nodeSet.getNodes(UADataType.class).size(),
+        (int) statistics.getNodeCountsByClass().get(UADataType.class));
+    assertEquals(
+        nodeSet.getNodesInNamespace(Namespaces.OPC_UA).size(),
+        (int) statistics.getNodeCountsByNamespace().get(Namespaces.OPC_UA));
+  }
+
+  @Test
+  void everyExplicitReferenceHasAnImplicitInverse() {
+    assertTrue(statistics.getExplicitReferenceCount() > 0);
+    assertEquals(statistics.getExplicitReferenceCount(), statistics.getImplicitReferenceCount());
+  }
+
+  @Test
+  void valuesAndTypeTreesAreMeasured() {
+    assertTrue(statistics.getValueCount() > 0);
+    assertTrue(statistics.getValueDomNodeCount() >= statistics.getValueCount());
+    assertTrue(statistics.getAliasCount() > 0);
+
+    // BaseObjectType -> BaseEventType -> ... is several levels deep in the base model alone.
+    assertTrue(statistics.getObjectTypeTreeDepth() > 3);
+    assertTrue(statistics.getVariableTypeTreeDepth() > 1);
+    assertTrue(statistics.getDataTypeTreeDepth() > 2);
+    assertTrue(statistics.getReferenceTypeTreeDepth() > 2);
+    assertFalse(nodeSet.getNodes(UAObjectType.class).isEmpty());
+  }
+
+  @Test
+  void typeTreeDepthsMatchTypeTrees() {
+    assertEquals(depth(nodeSet.getObjectTypeTree()), statistics.getObjectTypeTreeDepth());
+    assertEquals(depth(nodeSet.getVariableTypeTree()), statistics.getVariableTypeTreeDepth());
+    assertEquals(depth(nodeSet.getDataTypeTree()), statistics.getDataTypeTreeDepth());
+    assertEquals(depth(nodeSet.getReferenceTypeTree()), statistics.getReferenceTypeTreeDepth());
+  }
+
+  @Test
+  void heapEstimateIsPositiveAndSumsComponents() {
+    NodeSetStatistics.HeapEstimate estimate = statistics.getHeapEstimate();
+
+    assertTrue(estimate.nodes() > 0);
+    assertTrue(estimate.referenceMaps() > 0);
+    assertTrue(estimate.nodeIdCaches() > 0);
+    assertTrue(estimate.values() > 0);
+    assertEquals(
+        estimate.nodes() + estimate.referenceMaps() + estimate.nodeIdCaches() + estimate.values(),
+        estimate.total());
+  }
+
+  private static int depth(TypeInfoTree<?, ?> tree) {
+    return depth(tree.getRootTypeInfo());
+  }
+
+  private static int depth(TypeInfo<?> typeInfo) {
+    int depth = 0;
+    for (TypeInfo<?> child : typeInfo.getChildren()) {
+      depth = Math.max(depth, depth(child));
+    }
+    return depth + 1;
+  }
+}
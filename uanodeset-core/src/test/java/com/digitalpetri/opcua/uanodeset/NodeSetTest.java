@@ -2,16 +2,25 @@ package com.digitalpetri.opcua.uanodeset;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetMerger;
 import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
 import jakarta.xml.bind.JAXBException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.util.Namespaces;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.opcfoundation.ua.Reference;
+import org.opcfoundation.ua.UANode;
 import org.opcfoundation.ua.UANodeSet;
 
 class NodeSetTest {
@@ -68,4 +77,112 @@ class NodeSetTest {
     assertEquals(Namespaces.OPC_UA, nodeSet.getModels().getModel().get(0).getModelUri());
     assertEquals("1.05.07", nodeSet.getModels().getModel().get(0).getVersion());
   }
+
+  @Test
+  void parallelConstructionMatchesSequentialConstruction() throws JAXBException, IOException {
+    // Partitions are merged in node order, so every index and reference list must be identical.
+    NodeSet sequential = new NodeSet(parseMergedDiNodeSet());
+    NodeSet parallel = new NodeSet(parseMergedDiNodeSet(), 4);
+
+    List<UANode> sequentialNodes = sequential.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+    List<UANode> parallelNodes = parallel.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+    assertEquals(sequentialNodes.size(), parallelNodes.size());
+
+    for (int i = 0; i < sequentialNodes.size(); i++) {
+      UANode sequentialNode = sequentialNodes.get(i);
+      UANode parallelNode = parallelNodes.get(i);
+      String nodeId = sequentialNode.getNodeId();
+
+      assertEquals(nodeId, parallelNode.getNodeId());
+      assertSame(parallelNode, parallel.getNode(nodeId));
+      assertEquals(sequentialNode.getAccessRestrictions(), parallelNode.getAccessRestrictions());
+      assertEquals(
+          referenceKeys(sequential.getExplicitReferences(nodeId)),
+          referenceKeys(parallel.getExplicitReferences(nodeId)));
+      assertEquals(
+          referenceKeys(sequential.getImplicitReferences(nodeId)),
+          referenceKeys(parallel.getImplicitReferences(nodeId)));
+    }
+  }
+
+  @Test
+  void nodeIdsAreInternedPerNodeSet() throws JAXBException, IOException {
+    NodeSet first = new NodeSet(parseMergedDiNodeSet());
+    NodeSet second = new NodeSet(parseMergedDiNodeSet());
+
+    int interned = first.getInternedNodeIdCount();
+
+    // every reference to a node shares the instance parsed for the node itself
+    UANode server = first.getNode(NodeIds.Server);
+    assertNotNull(server);
+    NodeId serverId = first.parseNodeId(server.getNodeId());
+    for (Reference reference : first.getImplicitReferences(NodeIds.Server)) {
+      UANode source = first.getNode(reference.getValue());
+      assertNotNull(source);
+      for (Reference forward : first.getExplicitReferences(source.getNodeId())) {
+        if (forward.getValue().equals(server.getNodeId())) {
+          assertSame(serverId, first.parseNodeId(forward.getValue()));
+        }
+      }
+    }
+
+    // NodeSets do not share interned values
+    assertNotSame(serverId, second.parseNodeId(server.getNodeId()));
+
+    // lookups of NodeIds that are not in the model do not grow the interner
+    for (int i = 0; i < 100; i++) {
+      first.getNode("ns=1;s=Missing" + i);
+    }
+    assertEquals(interned, first.getInternedNodeIdCount());
+  }
+
+  @Test
+  void typeTreesAreBuiltOnceAndMatchStandaloneTrees() throws Exception {
+    NodeSet nodeSet = new NodeSet(parseMergedDiNodeSet());
+
+    // racing first calls all see the same published trees
+    List<Thread> threads = new ArrayList<>();
+    List<DataTypeInfoTree> seen = Collections.synchronizedList(new ArrayList<>());
+    for (int i = 0; i < 4; i++) {
+      Thread thread = new Thread(() -> seen.add(nodeSet.getDataTypeTree()));
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (DataTypeInfoTree tree : seen) {
+      assertSame(nodeSet.getDataTypeTree(), tree);
+    }
+
+    assertEquals(
+        ObjectTypeInfoTree.create(nodeSet).getTypeHierarchy(NodeIds.ServerType),
+        nodeSet.getObjectTypeTree().getTypeHierarchy(NodeIds.ServerType));
+    assertEquals(
+        VariableTypeInfoTree.create(nodeSet).getTypeHierarchy(NodeIds.PropertyType),
+        nodeSet.getVariableTypeTree().getTypeHierarchy(NodeIds.PropertyType));
+    assertEquals(
+        ReferenceTypeInfoTree.create(nodeSet).getTypeHierarchy(NodeIds.HasComponent),
+        nodeSet.getReferenceTypeTree().getTypeHierarchy(NodeIds.HasComponent));
+    assertEquals(
+        DataTypeInfoTree.create(nodeSet).getTypeHierarchy(NodeIds.Duration),
+        nodeSet.getDataTypeTree().getTypeHierarchy(NodeIds.Duration));
+  }
+
+  private UANodeSet parseMergedDiNodeSet() throws JAXBException, IOException {
+    try (InputStream baseStream =
+            NodeSet.class.getClassLoader().getResourceAsStream("1.05/Opc.Ua.NodeSet2.xml");
+        InputStream diStream =
+            getClass().getClassLoader().getResourceAsStream("Opc.Ua.Di.NodeSet2.xml")) {
+
+      return UANodeSetMerger.merge(
+          UANodeSetParser.parse(baseStream), UANodeSetParser.parse(diStream));
+    }
+  }
+
+  private static List<String> referenceKeys(List<Reference> references) {
+    return references.stream()
+        .map(r -> r.getReferenceType() + "|" + r.getValue() + "|" + r.isIsForward())
+        .toList();
+  }
 }
@@ -0,0 +1,261 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.NodeSetTraversal.Decision;
+import com.digitalpetri.opcua.uanodeset.NodeSetTraversal.Order;
+import com.digitalpetri.opcua.uanodeset.util.NodeIdUtil;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.ListOfReferences;
+import org.opcfoundation.ua.Reference;
+import org.opcfoundation.ua.UANode;
+import org.opcfoundation.ua.UAObject;
+
+class NodeSetTraversalTest {
+
+  NodeSet nodeSet;
+  NodeSetTraversal hierarchical;
+
+  @BeforeEach
+  void loadNodeSet() throws IOException, JAXBException {
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("Opc.Ua.Di.NodeSet2.xml")) {
+
+      nodeSet = NodeSet.load(inputStream);
+      hierarchical = nodeSet.traversal(List.of(NodeIds.HierarchicalReferences));
+    }
+  }
+
+  @Test
+  void depthFirstMatchesRecursiveWalk() {
+    var visited = new ArrayList<NodeId>();
+    assertTrue(
+        hierarchical.traverse(
+            NodeIds.ObjectsFolder,
+            (node, depth) -> {
+              visited.add(NodeIdUtil.parse(node.getNodeId()));
+              return Decision.CONTINUE;
+            }));
+
+    // A recursive walk over getReferences produces the same pre-order.
+    var expected = new ArrayList<NodeId>();
+    recursiveWalk(
+        NodeIds.ObjectsFolder, ReferenceTypeInfoTree.create(nodeSet), new HashSet<>(), expected);
+
+    assertEquals(expected, visited);
+    assertTrue(visited.contains(NodeIds.Server));
+  }
+
+  @Test
+  void breadthFirstVisitsByDepth() {
+    var depths = new LinkedHashMap<NodeId, Integer>();
+    hierarchical
+        .withOrder(Order.BREADTH_FIRST)
+        .traverse(
+            NodeIds.ObjectsFolder,
+            (node, depth) -> {
+              depths.put(NodeIdUtil.parse(node.getNodeId()), depth);
+              return Decision.CONTINUE;
+            });
+
+    assertEquals(0, depths.get(NodeIds.ObjectsFolder));
+    assertEquals(1, depths.get(NodeIds.Server));
+    assertEquals(2, depths.get(NodeIds.Server_ServerStatus));
+
+    int previous = 0;
+    for (int depth : depths.values()) {
+      assertTrue(depth >= previous);
+      previous = depth;
+    }
+  }
+
+  @Test
+  void maxDepthLimitsTraversal() {
+    var visited = new ArrayList<UANode>();
+    hierarchical
+        .withMaxDepth(0)
+        .traverse(
+            NodeIds.ObjectsFolder,
+            (node, depth) -> {
+              visited.add(node);
+              return Decision.CONTINUE;
+            });
+
+    assertEquals(List.of(nodeSet.getNode(NodeIds.ObjectsFolder)), visited);
+  }
+
+  @Test
+  void maxDepthExpandsNodesReachedAgainAlongShorterPaths() {
+    // A diamond whose long branch A -> B -> C -> D comes before the short branch A -> D.
+    NodeSet diamond =
+        nodeSet.apply(
+            NodeSetDelta.builder()
+                .addNode(object("ns=1;s=A", "ns=1;s=B", "ns=1;s=D"))
+                .addNode(object("ns=1;s=B", "ns=1;s=C"))
+                .addNode(object("ns=1;s=C", "ns=1;s=D"))
+                .addNode(object("ns=1;s=D", "ns=1;s=E"))
+                .addNode(object("ns=1;s=E"))
+                .build());
+
+    var visited = new LinkedHashMap<String, Integer>();
+    diamond
+        .traversal(List.of(NodeIds.HierarchicalReferences))
+        .withMaxDepth(3)
+        .traverse(
+            NodeId.parse("ns=1;s=A"),
+            (node, depth) -> {
+              visited.put(node.getNodeId(), depth);
+              return Decision.CONTINUE;
+            });
+
+    // D is first visited at depth 3, then expanded again from depth 1, so E is reached at depth 2.
+    assertEquals(
+        List.of("ns=1;s=A", "ns=1;s=B", "ns=1;s=C", "ns=1;s=D", "ns=1;s=E"),
+        List.copyOf(visited.keySet()));
+    assertEquals(3, visited.get("ns=1;s=D"));
+    assertEquals(2, visited.get("ns=1;s=E"));
+  }
+
+  @Test
+  void skipSubtreeAndTerminate() {
+    var visited = new HashSet<NodeId>();
+    hierarchical.traverse(
+        NodeIds.ObjectsFolder,
+        (node, depth) -> {
+          NodeId nodeId = NodeIdUtil.parse(node.getNodeId());
+          visited.add(nodeId);
+          return nodeId.equals(NodeIds.Server) ? Decision.SKIP_SUBTREE : Decision.CONTINUE;
+        });
+
+    assertTrue(visited.contains(NodeIds.Server));
+    assertFalse(visited.contains(NodeIds.Server_ServerStatus));
+
+    var count = new int[1];
+    assertFalse(
+        hierarchical.traverse(
+            NodeIds.ObjectsFolder,
+            (node, depth) -> ++count[0] == 3 ? Decision.TERMINATE : Decision.CONTINUE));
+    assertEquals(3, count[0]);
+  }
+
+  @Test
+  void inverseWalksTowardsRoot() {
+    var visited = new HashSet<NodeId>();
+    hierarchical
+        .inverse()
+        .traverse(
+            NodeIds.Server_ServerStatus,
+            (node, depth) -> {
+              visited.add(NodeIdUtil.parse(node.getNodeId()));
+              return Decision.CONTINUE;
+            });
+
+    assertTrue(visited.contains(NodeIds.Server));
+    assertTrue(visited.contains(NodeIds.RootFolder));
+  }
+
+  @Test
+  void nestedTraversalFromVisitor() {
+    // Visitors may start another traversal on the same thread.
+    var nestedCounts = new ArrayList<Integer>();
+    hierarchical
+        .withMaxDepth(1)
+        .traverse(
+            NodeIds.ObjectsFolder,
+            (node, depth) -> {
+              var count = new int[1];
+              hierarchical.traverse(
+                  NodeIdUtil.parse(node.getNodeId()),
+                  (n, d) -> {
+                    count[0]++;
+                    return Decision.CONTINUE;
+                  });
+              nestedCounts.add(count[0]);
+              return Decision.CONTINUE;
+            });
+
+    assertFalse(nestedCounts.isEmpty());
+    assertTrue(nestedCounts.get(0) > nestedCounts.get(1));
+  }
+
+  @Test
+  void parallelTraversalVisitsSameNodes() {
+    var sequential = new HashSet<UANode>();
+    hierarchical.traverse(
+        NodeIds.RootFolder,
+        (node, depth) -> {
+          sequential.add(node);
+          return Decision.CONTINUE;
+        });
+
+    Set<UANode> parallel = ConcurrentHashMap.newKeySet();
+    var duplicates = new int[1];
+    assertTrue(
+        hierarchical.traverseParallel(
+            NodeIds.RootFolder,
+            (node, depth) -> {
+              if (!parallel.add(node)) {
+                synchronized (duplicates) {
+                  duplicates[0]++;
+                }
+              }
+              return Decision.CONTINUE;
+            },
+            ForkJoinPool.commonPool()));
+
+    assertEquals(0, duplicates[0]);
+    assertEquals(sequential, parallel);
+  }
+
+  private static UAObject object(String nodeId, String... organizes) {
+    var object = new UAObject();
+    object.setNodeId(nodeId);
+    object.setBrowseName("1:" + nodeId.substring(nodeId.indexOf("s=") + 2));
+    object.setReferences(new ListOfReferences());
+
+    var typeDefinition = new Reference();
+    typeDefinition.setReferenceType("HasTypeDefinition");
+    typeDefinition.setValue("i=58");
+    object.getReferences().getReference().add(typeDefinition);
+
+    for (String target : organizes) {
+      var reference = new Reference();
+      reference.setReferenceType("Organizes");
+      reference.setValue(target);
+      object.getReferences().getReference().add(reference);
+    }
+    return object;
+  }
+
+  private void recursiveWalk(
+      NodeId nodeId,
+      ReferenceTypeInfoTree referenceTypeTree,
+      Set<NodeId> seen,
+      List<NodeId> visited) {
+
+    if (!seen.add(nodeId)) {
+      return;
+    }
+    visited.add(nodeId);
+
+    for (Reference reference : nodeSet.getReferences(nodeId)) {
+      NodeId target = NodeIdUtil.parse(reference.getValue());
+      if (reference.isIsForward()
+          && nodeSet.getNode(target) != null
+          && referenceTypeTree.isTypeOrSubtypeOf(
+              NodeIdUtil.parse(reference.getReferenceType()), NodeIds.HierarchicalReferences)) {
+
+        recursiveWalk(target, referenceTypeTree, seen, visited);
+      }
+    }
+  }
+}
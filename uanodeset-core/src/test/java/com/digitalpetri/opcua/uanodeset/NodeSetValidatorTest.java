@@ -0,0 +1,191 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.NodeSetValidator.Issue;
+import com.digitalpetri.opcua.uanodeset.NodeSetValidator.Report;
+import com.digitalpetri.opcua.uanodeset.NodeSetValidator.Rule;
+import com.digitalpetri.opcua.uanodeset.NodeSetValidator.Severity;
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.*;
+
+class NodeSetValidatorTest {
+
+  private static final NodeId DANGLING = NodeId.parse("ns=1;s=Dangling");
+  private static final NodeId UNTYPED = NodeId.parse("ns=1;s=Untyped");
+  private static final NodeId MATRIX = NodeId.parse("ns=1;s=Matrix");
+  private static final NodeId ALIASED = NodeId.parse("ns=1;s=Aliased");
+  private static final NodeId STRUCTURE = NodeId.parse("ns=1;s=Structure");
+
+  @Test
+  void standardModelsAreValid() throws Exception {
+    NodeSet nodeSet = NodeSet.from(parse("Opc.Ua.Di.NodeSet2.xml"));
+
+    Report report = NodeSetValidator.create().validate(nodeSet);
+
+    assertTrue(report.isValid(), report.toString());
+    assertTrue(report.getIssues().isEmpty(), report.toString());
+  }
+
+  @Test
+  void defaultRulesReportBrokenNodes() throws Exception {
+    Report report = NodeSetValidator.create().validate(brokenNodeSet());
+
+    assertFalse(report.isValid());
+
+    assertIssue(report, NodeSetValidator.DANGLING_REFERENCES, DANGLING, "ns=1;s=Missing");
+    assertIssue(report, NodeSetValidator.TYPE_DEFINITIONS, UNTYPED, "missing HasTypeDefinition");
+    assertIssue(report, NodeSetValidator.VALUE_RANKS, MATRIX, "but ValueRank is 1");
+    assertIssue(report, NodeSetValidator.ALIASES, ALIASED, "'NotAnAlias'");
+    assertIssue(report, NodeSetValidator.DATA_TYPE_DEFINITIONS, STRUCTURE, "Structure DataType");
+
+    assertEquals(5, report.getIssues().size(), report.getIssues().toString());
+    assertEquals(5, report.getIssues(Severity.ERROR).size());
+  }
+
+  @Test
+  void issuesAreReportedInDocumentOrder() throws Exception {
+    NodeSet nodeSet = brokenNodeSet();
+
+    List<Issue> issues = NodeSetValidator.create().validate(nodeSet).getIssues();
+
+    assertEquals(
+        List.of(DANGLING, UNTYPED, MATRIX, ALIASED, STRUCTURE),
+        issues.stream().map(Issue::nodeId).toList());
+    assertEquals(issues, NodeSetValidator.create().validate(nodeSet).getIssues());
+  }
+
+  @Test
+  void customRulesRunAlongsideDefaultRules() throws Exception {
+    Rule noDescriptions =
+        Rule.of(
+            "descriptions",
+            (node, context) -> {
+              if (node.getDescription().isEmpty() && node instanceof UAObjectType) {
+                context.report(Severity.WARNING, "ObjectType has no Description");
+              }
+            });
+
+    NodeSetValidator validator =
+        NodeSetValidator.builder().addDefaultRules().addRule(noDescriptions).build();
+
+    Report report = validator.validate(brokenNodeSet());
+
+    assertEquals(NodeSetValidator.DEFAULT_RULES.size() + 1, validator.getRules().size());
+    assertFalse(report.getIssues(noDescriptions).isEmpty());
+    assertTrue(
+        report.getIssues(noDescriptions).stream()
+            .allMatch(issue -> issue.severity() == Severity.WARNING));
+    assertEquals(5, report.getIssues(Severity.ERROR).size());
+  }
+
+  @Test
+  void failingRulesAreReportedAsErrors() throws Exception {
+    NodeSet nodeSet = NodeSet.from(parse("Opc.Ua.Di.NodeSet2.xml"));
+
+    Rule failing =
+        Rule.of(
+            "failing",
+            (node, context) -> {
+              throw new IllegalStateException("boom");
+            });
+
+    Report report = NodeSetValidator.builder().addRule(failing).build().validate(nodeSet);
+
+    assertEquals(
+        nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod().size(),
+        report.getIssues(failing).size());
+    assertFalse(report.isValid());
+  }
+
+  @Test
+  void duplicateRuleNamesAreRejected() {
+    NodeSetValidator.Builder builder = NodeSetValidator.builder().addDefaultRules();
+
+    assertThrows(
+        IllegalArgumentException.class, () -> builder.addRule(NodeSetValidator.VALUE_RANKS));
+  }
+
+  private static void assertIssue(Report report, Rule rule, NodeId nodeId, String message) {
+    List<Issue> issues = report.getIssues(rule);
+
+    assertEquals(1, issues.size(), issues.toString());
+    assertEquals(nodeId, issues.get(0).nodeId());
+    assertTrue(issues.get(0).message().contains(message), issues.get(0).message());
+  }
+
+  private NodeSet brokenNodeSet() throws IOException, JAXBException {
+    UANodeSet di = parse("Opc.Ua.Di.NodeSet2.xml");
+    List<UANode> nodes = di.getUAObjectOrUAVariableOrUAMethod();
+
+    // attributes that are not alias-resolved while indexing may still use aliases
+    var objects = new NodeIdAlias();
+    objects.setAlias("Objects");
+    objects.setValue("i=85");
+    di.getAliases().getAlias().add(objects);
+
+    UAObject dangling = object(DANGLING);
+    dangling.getReferences().getReference().add(reference("Organizes", "ns=1;s=Missing", true));
+    nodes.add(dangling);
+
+    UAObject untyped = object(UNTYPED);
+    untyped.getReferences().getReference().clear();
+    nodes.add(untyped);
+
+    UAVariable matrix = variable(MATRIX, "i=11");
+    matrix.setValueRank(1);
+    matrix.setArrayDimensions("2,3");
+    matrix.setParentNodeId("Objects");
+    nodes.add(matrix);
+
+    nodes.add(variable(ALIASED, "NotAnAlias"));
+
+    var structure = new UADataType();
+    structure.setNodeId(STRUCTURE.toParseableString());
+    structure.setBrowseName("1:Structure");
+    structure.setReferences(new ListOfReferences());
+    structure.getReferences().getReference().add(reference("HasSubtype", "i=22", false));
+    nodes.add(structure);
+
+    return NodeSet.from(di);
+  }
+
+  private static UAObject object(NodeId nodeId) {
+    var object = new UAObject();
+    object.setNodeId(nodeId.toParseableString());
+    object.setBrowseName("1:" + nodeId.getIdentifier());
+    object.setReferences(new ListOfReferences());
+    object.getReferences().getReference().add(reference("HasTypeDefinition", "i=58", true));
+    return object;
+  }
+
+  private static UAVariable variable(NodeId nodeId, String dataType) {
+    var variable = new UAVariable();
+    variable.setNodeId(nodeId.toParseableString());
+    variable.setBrowseName("1:" + nodeId.getIdentifier());
+    variable.setDataType(dataType);
+    variable.setReferences(new ListOfReferences());
+    variable.getReferences().getReference().add(reference("HasTypeDefinition", "i=63", true));
+    return variable;
+  }
+
+  private static Reference reference(String referenceType, String target, boolean forward) {
+    var reference = new Reference();
+    reference.setReferenceType(referenceType);
+    reference.setValue(target);
+    reference.setIsForward(forward);
+    return reference;
+  }
+
+  private UANodeSet parse(String resource) throws IOException, JAXBException {
+    try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resource)) {
+      return UANodeSetParser.parse(inputStream);
+    }
+  }
+}
@@ -5,7 +5,10 @@ import static org.junit.jupiter.api.Assertions.*;
 import jakarta.xml.bind.JAXBException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -45,4 +48,106 @@ class ObjectTypeInfoTreeTest {
         NodeIds.BaseObjectType.toParseableString(),
         folderType.getParent().getTypeNode().getNodeId());
   }
+
+  @Test
+  void subtypeChecksMatchParentLinks() {
+    var objectTypeTree = ObjectTypeInfoTree.create(nodeSet);
+
+    var typeIds = new ArrayList<NodeId>();
+    objectTypeTree.traverse(
+        typeInfo -> typeIds.add(NodeId.parse(typeInfo.getTypeNode().getNodeId())));
+
+    for (NodeId typeId : typeIds) {
+      List<NodeId> ancestors = new ArrayList<>();
+      ObjectTypeInfo typeInfo = objectTypeTree.getTypeInfo(typeId);
+      ancestors.add(typeId);
+      for (var parent = typeInfo.getParent(); parent != null; parent = parent.getParent()) {
+        ancestors.add(NodeId.parse(parent.getTypeNode().getNodeId()));
+      }
+
+      assertEquals(ancestors, objectTypeTree.getTypeHierarchy(typeId));
+      assertSame(objectTypeTree.getTypeHierarchy(typeId), objectTypeTree.getTypeHierarchy(typeId));
+
+      for (NodeId superTypeId : typeIds) {
+        boolean expected = !superTypeId.equals(typeId) && ancestors.contains(superTypeId);
+
+        assertEquals(expected, objectTypeTree.isSubtypeOf(typeId, superTypeId));
+        assertEquals(
+            expected || superTypeId.equals(typeId),
+            objectTypeTree.isTypeOrSubtypeOf(typeId, superTypeId));
+      }
+    }
+  }
+
+  @Test
+  void subtypeSlicesMatchTraversal() {
+    var objectTypeTree = ObjectTypeInfoTree.create(nodeSet);
+
+    objectTypeTree.traverse(
+        typeInfo -> {
+          NodeId typeId = NodeId.parse(typeInfo.getTypeNode().getNodeId());
+
+          var expected = new ArrayList<NodeId>();
+          var expectedConcrete = new ArrayList<NodeId>();
+          typeInfo.traverse(
+              subtype -> {
+                if (subtype != typeInfo) {
+                  NodeId subtypeId = NodeId.parse(subtype.getTypeNode().getNodeId());
+                  expected.add(subtypeId);
+                  if (!subtype.isAbstract()) {
+                    expectedConcrete.add(subtypeId);
+                  }
+                }
+              });
+
+          assertEquals(expected, objectTypeTree.getSubtypes(typeId));
+          assertEquals(expectedConcrete, objectTypeTree.getConcreteSubtypes(typeId));
+          assertEquals(expected, objectTypeTree.getSubtypesInNamespace(typeId, 0));
+          assertEquals(List.of(), objectTypeTree.getSubtypesInNamespace(typeId, 1));
+        });
+
+    assertTrue(objectTypeTree.getSubtypes(NodeIds.BaseEventType).contains(NodeIds.SystemEventType));
+    assertFalse(objectTypeTree.getConcreteSubtypes(NodeIds.BaseObjectType).isEmpty());
+  }
+
+  @Test
+  void commonSupertypesMatchAncestry() {
+    var objectTypeTree = ObjectTypeInfoTree.create(nodeSet);
+
+    var typeIds = new ArrayList<NodeId>();
+    objectTypeTree.traverse(
+        typeInfo -> typeIds.add(NodeId.parse(typeInfo.getTypeNode().getNodeId())));
+
+    for (NodeId typeId : typeIds) {
+      List<NodeId> hierarchy = objectTypeTree.getTypeHierarchy(typeId);
+      for (NodeId otherTypeId : typeIds) {
+        List<NodeId> otherHierarchy = objectTypeTree.getTypeHierarchy(otherTypeId);
+        NodeId expected =
+            hierarchy.stream().filter(otherHierarchy::contains).findFirst().orElseThrow();
+
+        assertEquals(expected, objectTypeTree.getCommonSupertype(typeId, otherTypeId));
+      }
+    }
+
+    assertEquals(
+        NodeIds.BaseEventType,
+        objectTypeTree.getCommonSupertype(NodeIds.AuditSecurityEventType, NodeIds.SystemEventType));
+    assertEquals(
+        NodeIds.AuditSecurityEventType,
+        objectTypeTree.getCommonSupertype(
+            NodeIds.AuditChannelEventType, NodeIds.AuditSecurityEventType));
+    assertNull(objectTypeTree.getCommonSupertype(new NodeId(1, "Unknown"), NodeIds.FolderType));
+  }
+
+  @Test
+  void unknownTypesHaveNoAncestry() {
+    var objectTypeTree = ObjectTypeInfoTree.create(nodeSet);
+    var unknown = new NodeId(1, "Unknown");
+
+    assertEquals(List.of(unknown), objectTypeTree.getTypeHierarchy(unknown));
+    assertFalse(objectTypeTree.isSubtypeOf(unknown, NodeIds.BaseObjectType));
+    assertFalse(objectTypeTree.isSubtypeOf(NodeIds.FolderType, unknown));
+    assertTrue(objectTypeTree.isTypeOrSubtypeOf(unknown, unknown));
+    assertEquals(List.of(), objectTypeTree.getSubtypes(unknown));
+  }
 }
@@ -0,0 +1,384 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.*;
+
+class OffHeapNodeSetTest {
+
+  NodeSet nodeSet;
+
+  @BeforeEach
+  void loadNodeSet() throws IOException, JAXBException {
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("Opc.Ua.Di.NodeSet2.xml")) {
+
+      nodeSet = NodeSet.load(inputStream);
+    }
+  }
+
+  @Test
+  void directNodeSetMatchesSource() {
+    assertMatchesSource(OffHeapNodeSet.create(nodeSet));
+  }
+
+  @Test
+  void mappedNodeSetMatchesSource() throws IOException {
+    Path file = Files.createTempFile("uanodeset", ".bin");
+    try {
+      OffHeapNodeSet offHeap = OffHeapNodeSet.create(nodeSet, file);
+
+      assertMatchesSource(offHeap);
+      assertEquals(offHeap.getOffHeapSize(), Files.size(file));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  void streamedNodeSetMatchesSource() throws IOException, JAXBException {
+    UANodeSet extension;
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("Opc.Ua.Di.NodeSet2.xml")) {
+
+      extension = UANodeSetParser.parse(inputStream);
+    }
+
+    OffHeapNodeSet offHeap = OffHeapNodeSet.from(List.of(extension));
+
+    assertMatchesSource(offHeap);
+    assertEquals("i=47", offHeap.getNode("HasComponent").getNodeId());
+    assertTreesEqual(nodeSet.getReferenceTypeTree(), offHeap.getReferenceTypeTree());
+    assertTreesEqual(nodeSet.getObjectTypeTree(), offHeap.getObjectTypeTree());
+    assertTreesEqual(nodeSet.getVariableTypeTree(), offHeap.getVariableTypeTree());
+    assertTreesEqual(nodeSet.getDataTypeTree(), offHeap.getDataTypeTree());
+  }
+
+  @Test
+  void snapshotRoundTrip() throws IOException {
+    Path file = Files.createTempFile("uanodeset", ".snapshot");
+    try {
+      OffHeapNodeSet.create(nodeSet).save(file);
+      OffHeapNodeSet opened = OffHeapNodeSet.open(file);
+
+      assertMatchesSource(opened);
+      assertEquals(Files.size(file), opened.getOffHeapSize());
+
+      UANodeSet expected = nodeSet.getNodeSet();
+      UANodeSet actual = opened.getNodeSet();
+      assertEquals(expected.getModels().getModel().size(), actual.getModels().getModel().size());
+      for (int i = 0; i < expected.getModels().getModel().size(); i++) {
+        ModelTableEntry e = expected.getModels().getModel().get(i);
+        ModelTableEntry a = actual.getModels().getModel().get(i);
+        assertEquals(e.getModelUri(), a.getModelUri());
+        assertEquals(e.getVersion(), a.getVersion());
+        assertEquals(e.getPublicationDate(), a.getPublicationDate());
+        assertEquals(e.getRequiredModel().size(), a.getRequiredModel().size());
+      }
+      assertEquals(
+          expected.getAliases().getAlias().size(), actual.getAliases().getAlias().size());
+      assertEquals("i=47", opened.getNode("HasComponent").getNodeId());
+
+      // a snapshot of a snapshot is identical
+      Path copy = Files.createTempFile("uanodeset", ".snapshot");
+      try {
+        opened.save(copy);
+        assertEquals(-1L, Files.mismatch(file, copy));
+      } finally {
+        Files.deleteIfExists(copy);
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  void snapshotTypeTreesMatchSource() throws IOException {
+    Path file = Files.createTempFile("uanodeset", ".snapshot");
+    try {
+      OffHeapNodeSet.create(nodeSet).save(file);
+      OffHeapNodeSet opened = OffHeapNodeSet.open(file);
+
+      assertTreesEqual(nodeSet.getReferenceTypeTree(), opened.getReferenceTypeTree());
+      assertTreesEqual(nodeSet.getObjectTypeTree(), opened.getObjectTypeTree());
+      assertTreesEqual(nodeSet.getVariableTypeTree(), opened.getVariableTypeTree());
+      assertTreesEqual(nodeSet.getDataTypeTree(), opened.getDataTypeTree());
+      assertSame(opened.getObjectTypeTree(), opened.getObjectTypeTree());
+
+      assertLayoutsEqual(
+          nodeSet.getDataTypeTree().getStructureLayout(NodeIds.Range),
+          opened.getDataTypeTree().getStructureLayout(NodeIds.Range));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  void snapshotConvertsToNodeSet() throws IOException {
+    Path file = Files.createTempFile("uanodeset", ".snapshot");
+    try {
+      OffHeapNodeSet.create(nodeSet).save(file);
+      NodeSet converted = OffHeapNodeSet.open(file).toNodeSet();
+
+      List<UANode> expectedNodes = nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+      List<UANode> actualNodes = converted.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+      assertEquals(expectedNodes.size(), actualNodes.size());
+      for (int i = 0; i < expectedNodes.size(); i++) {
+        assertNodeEquals(expectedNodes.get(i), actualNodes.get(i));
+
+        NodeId nodeId = NodeId.parse(expectedNodes.get(i).getNodeId());
+        assertReferencesEqual(nodeSet.getReferences(nodeId), converted.getReferences(nodeId));
+      }
+
+      assertTreesEqual(nodeSet.getReferenceTypeTree(), converted.getReferenceTypeTree());
+      assertTreesEqual(nodeSet.getObjectTypeTree(), converted.getObjectTypeTree());
+      assertTreesEqual(nodeSet.getVariableTypeTree(), converted.getVariableTypeTree());
+      assertTreesEqual(nodeSet.getDataTypeTree(), converted.getDataTypeTree());
+      assertLayoutsEqual(
+          nodeSet.getDataTypeTree().getStructureLayout(NodeIds.Range),
+          converted.getDataTypeTree().getStructureLayout(NodeIds.Range));
+
+      // the stored trees are linked to the converted NodeSet's own nodes
+      assertSame(
+          converted.getNode(NodeIds.BaseEventType),
+          converted.getObjectTypeTree().getTypeInfo(NodeIds.BaseEventType).getTypeNode());
+      assertEquals(
+          nodeSet.getTypeHierarchy(NodeIds.Server), converted.getTypeHierarchy(NodeIds.Server));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  void openRejectsInvalidSnapshots() throws IOException {
+    Path file = Files.createTempFile("uanodeset", ".snapshot");
+    try {
+      Files.write(file, new byte[64]);
+      assertThrows(IOException.class, () -> OffHeapNodeSet.open(file));
+
+      OffHeapNodeSet.create(nodeSet).save(file);
+      byte[] bytes = Files.readAllBytes(file);
+      Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+      assertThrows(IOException.class, () -> OffHeapNodeSet.open(file));
+
+      // move bytes from the entry table, then the slot table, to the string table so that the
+      // total size still matches the file
+      ByteBuffer header = ByteBuffer.wrap(bytes);
+      int stringsSize = 40 + header.getInt(20) * 8;
+      for (int table = 1; table <= 2; table++) {
+        ByteBuffer corrupt = ByteBuffer.wrap(bytes.clone());
+        corrupt.putLong(stringsSize, corrupt.getLong(stringsSize) + 24);
+        corrupt.putLong(stringsSize + table * 8, corrupt.getLong(stringsSize + table * 8) - 24);
+        Files.write(file, corrupt.array());
+        assertThrows(IOException.class, () -> OffHeapNodeSet.open(file));
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  void lookupsUseSemanticNodeIds() {
+    OffHeapNodeSet offHeap = OffHeapNodeSet.create(nodeSet);
+
+    assertEquals("i=85", offHeap.getNode("ns=0;i=85").getNodeId());
+    assertEquals("i=85", offHeap.getNode(NodeIds.ObjectsFolder).getNodeId());
+    assertEquals(
+        nodeSet.getReferences("HasComponent").size(), offHeap.getReferences("i=47").size());
+    assertNull(offHeap.getNode(new NodeId(0, 999_999_999)));
+    assertTrue(offHeap.getReferences(new NodeId(0, 999_999_999)).isEmpty());
+  }
+
+  @Test
+  void materializedNodesAreDetached() {
+    OffHeapNodeSet offHeap = OffHeapNodeSet.create(nodeSet);
+
+    UANode node = offHeap.getNode(NodeIds.Server);
+    node.setBrowseName("Changed");
+
+    assertNotSame(node, offHeap.getNode(NodeIds.Server));
+    assertEquals("Server", offHeap.getNode(NodeIds.Server).getBrowseName());
+  }
+
+  @Test
+  void typeInfoTreesBuildFromOffHeapContext() {
+    OffHeapNodeSet offHeap = OffHeapNodeSet.create(nodeSet);
+
+    assertEquals(
+        ObjectTypeInfoTree.create(nodeSet).getTypeInfo(NodeIds.BaseEventType).getChildren().size(),
+        ObjectTypeInfoTree.create(offHeap)
+            .getTypeInfo(NodeIds.BaseEventType)
+            .getChildren()
+            .size());
+
+    assertEquals(
+        nodeSet.getTypeDefinition(NodeIds.Server), offHeap.getTypeDefinition(NodeIds.Server));
+  }
+
+  private static void assertTreesEqual(TypeInfoTree<?, ?> expected, TypeInfoTree<?, ?> actual) {
+    var expectedTypes = new ArrayList<String>();
+    var actualTypes = new ArrayList<String>();
+    expected.traverse(t -> expectedTypes.add(t.getTypeNode().getNodeId()));
+    actual.traverse(t -> actualTypes.add(t.getTypeNode().getNodeId()));
+
+    assertEquals(expectedTypes, actualTypes);
+    for (String typeId : expectedTypes) {
+      assertEquals(expected.getTypeHierarchy(typeId), actual.getTypeHierarchy(typeId));
+    }
+  }
+
+  private static void assertLayoutsEqual(StructureLayout expected, StructureLayout actual) {
+    assertEquals(expected.dataTypeId(), actual.dataTypeId());
+    assertEquals(expected.baseDataTypeId(), actual.baseDataTypeId());
+    assertEquals(expected.structureType(), actual.structureType());
+    assertEquals(expected.binaryEncodingId(), actual.binaryEncodingId());
+    assertEquals(expected.xmlEncodingId(), actual.xmlEncodingId());
+    assertEquals(expected.jsonEncodingId(), actual.jsonEncodingId());
+    assertEquals(
+        expected.fields().stream().map(StructureLayout.Field::dataTypeId).toList(),
+        actual.fields().stream().map(StructureLayout.Field::dataTypeId).toList());
+  }
+
+  private void assertMatchesSource(OffHeapNodeSet offHeap) {
+    List<UANode> expectedNodes = nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+    List<UANode> actualNodes = offHeap.getNodeSet().getUAObjectOrUAVariableOrUAMethod();
+
+    assertEquals(expectedNodes.size(), offHeap.getNodeCount());
+    assertEquals(expectedNodes.size(), actualNodes.size());
+    assertEquals(
+        nodeSet.getNodeSet().getNamespaceUris().getUri(),
+        offHeap.getNodeSet().getNamespaceUris().getUri());
+
+    for (int i = 0; i < expectedNodes.size(); i++) {
+      UANode expected = expectedNodes.get(i);
+      UANode actual = actualNodes.get(i);
+
+      assertNodeEquals(expected, actual);
+      assertNodeEquals(
+          nodeSet.getNode(expected.getNodeId()), offHeap.getNode(expected.getNodeId()));
+
+      NodeId nodeId = NodeId.parse(expected.getNodeId());
+      assertReferencesEqual(nodeSet.getReferences(nodeId), offHeap.getReferences(nodeId));
+      assertReferencesEqual(
+          nodeSet.getExplicitReferences(nodeId), offHeap.getExplicitReferences(nodeId));
+      assertReferencesEqual(
+          nodeSet.getImplicitReferences(nodeId), offHeap.getImplicitReferences(nodeId));
+    }
+  }
+
+  private static void assertNodeEquals(UANode expected, UANode actual) {
+    assertEquals(expected.getClass(), actual.getClass());
+    assertEquals(expected.getNodeId(), actual.getNodeId());
+    assertEquals(expected.getBrowseName(), actual.getBrowseName());
+    assertEquals(expected.getSymbolicName(), actual.getSymbolicName());
+    assertEquals(expected.getAccessRestrictions(), actual.getAccessRestrictions());
+    assertEquals(expected.getReleaseStatus(), actual.getReleaseStatus());
+    assertEquals(expected.getDocumentation(), actual.getDocumentation());
+    assertEquals(expected.getCategory(), actual.getCategory());
+    assertTextsEqual(expected.getDisplayName(), actual.getDisplayName());
+    assertTextsEqual(expected.getDescription(), actual.getDescription());
+
+    if (expected.getReferences() != null) {
+      assertReferencesEqual(
+          expected.getReferences().getReference(), actual.getReferences().getReference());
+    } else {
+      assertNull(actual.getReferences());
+    }
+
+    if (expected.getRolePermissions() != null) {
+      List<RolePermission> e = expected.getRolePermissions().getRolePermission();
+      List<RolePermission> a = actual.getRolePermissions().getRolePermission();
+      assertEquals(e.size(), a.size());
+      for (int i = 0; i < e.size(); i++) {
+        assertEquals(e.get(i).getValue(), a.get(i).getValue());
+        assertEquals(e.get(i).getPermissions(), a.get(i).getPermissions());
+      }
+    } else {
+      assertNull(actual.getRolePermissions());
+    }
+
+    if (expected instanceof UAInstance instance) {
+      assertEquals(instance.getParentNodeId(), ((UAInstance) actual).getParentNodeId());
+    }
+    if (expected instanceof UAType type) {
+      assertEquals(type.isIsAbstract(), ((UAType) actual).isIsAbstract());
+    }
+    if (expected instanceof UAVariable variable) {
+      var other = (UAVariable) actual;
+      assertEquals(variable.getDataType(), other.getDataType());
+      assertEquals(variable.getValueRank(), other.getValueRank());
+      assertEquals(variable.getArrayDimensions(), other.getArrayDimensions());
+      assertEquals(variable.getAccessLevel(), other.getAccessLevel());
+      assertEquals(variable.getMinimumSamplingInterval(), other.getMinimumSamplingInterval());
+      assertEquals(variable.getValue() == null, other.getValue() == null);
+      if (variable.getValue() != null && variable.getValue().getAny() != null) {
+        var e = (org.w3c.dom.Node) variable.getValue().getAny();
+        var a = (org.w3c.dom.Node) other.getValue().getAny();
+        assertEquals(e.getLocalName(), a.getLocalName());
+        assertEquals(e.getNamespaceURI(), a.getNamespaceURI());
+        assertEquals(e.getTextContent(), a.getTextContent());
+      }
+    }
+    if (expected instanceof UAMethod method) {
+      var other = (UAMethod) actual;
+      assertEquals(method.isExecutable(), other.isExecutable());
+      assertEquals(method.getArgumentDescription().size(), other.getArgumentDescription().size());
+    }
+    if (expected instanceof UADataType dataType) {
+      var other = (UADataType) actual;
+      assertEquals(dataType.getPurpose(), other.getPurpose());
+      if (dataType.getDefinition() != null) {
+        DataTypeDefinition e = dataType.getDefinition();
+        DataTypeDefinition a = other.getDefinition();
+        assertEquals(e.getName(), a.getName());
+        assertEquals(e.isIsUnion(), a.isIsUnion());
+        assertEquals(e.isIsOptionSet(), a.isIsOptionSet());
+        assertEquals(e.getField().size(), a.getField().size());
+        for (int i = 0; i < e.getField().size(); i++) {
+          assertEquals(e.getField().get(i).getName(), a.getField().get(i).getName());
+          assertEquals(e.getField().get(i).getDataType(), a.getField().get(i).getDataType());
+          assertEquals(e.getField().get(i).getValue(), a.getField().get(i).getValue());
+          assertEquals(e.getField().get(i).getValueRank(), a.getField().get(i).getValueRank());
+        }
+      } else {
+        assertNull(other.getDefinition());
+      }
+    }
+    if (expected instanceof UAReferenceType referenceType) {
+      var other = (UAReferenceType) actual;
+      assertEquals(referenceType.isSymmetric(), other.isSymmetric());
+      assertTextsEqual(referenceType.getInverseName(), other.getInverseName());
+    }
+  }
+
+  private static void assertTextsEqual(List<LocalizedText> expected, List<LocalizedText> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getValue(), actual.get(i).getValue());
+      assertEquals(expected.get(i).getLocale(), actual.get(i).getLocale());
+    }
+  }
+
+  private static void assertReferencesEqual(List<Reference> expected, List<Reference> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getReferenceType(), actual.get(i).getReferenceType());
+      assertEquals(expected.get(i).getValue(), actual.get(i).getValue());
+      assertEquals(expected.get(i).isIsForward(), actual.get(i).isIsForward());
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.digitalpetri.opcua.uanodeset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class OverlayMapTest {
+
+  @Test
+  void layersLeaveLowerMapsUnchanged() {
+    var root = new HashMap<String, Integer>(Map.of("a", 1, "b", 2));
+    for (int i = 0; i < 20; i++) {
+      root.put("k" + i, i);
+    }
+    Map<String, Integer> original = Map.copyOf(root);
+
+    OverlayMap<String, Integer> first = OverlayMap.over(root);
+    first.put("c", 3);
+    first.remove("a");
+
+    OverlayMap<String, Integer> second = OverlayMap.over(first);
+    second.put("a", 4);
+    second.put("b", 5);
+
+    assertNull(first.get("a"));
+    assertEquals(3, first.get("c"));
+    assertEquals(4, second.get("a"));
+    assertEquals(5, second.get("b"));
+    assertEquals(3, second.get("c"));
+    assertEquals(original, root);
+    assertEquals(root.size() + 1, second.size());
+
+    assertTrue(second.isModified("a"));
+    assertFalse(second.isModified("c"));
+    assertTrue(second.isOverridden("c"));
+    assertFalse(second.isNew("a"));
+    assertTrue(first.isNew("c"));
+    assertEquals(List.of("c", "a", "b"), new ArrayList<>(second.getOverriddenKeys()));
+  }
+
+  @Test
+  void mergedAndFlattenedLayersMatchCopies() {
+    var random = new Random(0);
+    var expected = new HashMap<Integer, Integer>();
+    for (int i = 0; i < 1000; i++) {
+      expected.put(i, i);
+    }
+
+    Map<Integer, Integer> map = Map.copyOf(expected);
+    var snapshots = new ArrayList<Map<Integer, Integer>>();
+    var copies = new ArrayList<Map<Integer, Integer>>();
+
+    for (int layer = 0; layer < 200; layer++) {
+      OverlayMap<Integer, Integer> next = OverlayMap.over(map);
+      for (int i = 0; i < 5; i++) {
+        int key = random.nextInt(1100);
+        if (random.nextBoolean()) {
+          next.put(key, layer);
+          expected.put(key, layer);
+        } else {
+          next.remove(key);
+          expected.remove(key);
+        }
+      }
+
+      assertEquals(expected.size(), next.size());
+      snapshots.add(next);
+      copies.add(Map.copyOf(expected));
+      map = next;
+    }
+
+    for (int i = 0; i < snapshots.size(); i++) {
+      assertEquals(copies.get(i), snapshots.get(i));
+    }
+  }
+}
@@ -4,6 +4,9 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import org.eclipse.milo.opcua.stack.core.util.Namespaces;
 import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.DataTypeDefinition;
+import org.opcfoundation.ua.UADataType;
+import org.opcfoundation.ua.UAMethod;
 import org.opcfoundation.ua.UriTable;
 
 class IndexUtilTest {
@@ -59,6 +62,54 @@ class IndexUtilTest {
         IllegalArgumentException.class, () -> IndexUtil.reindexNodeId(nodeId, merged, original));
   }
 
+  @Test
+  public void testReindexUANodeParentAndMethodDeclaration() {
+    var merged = new UriTable();
+    merged.getUri().add(Namespaces.OPC_UA);
+    merged.getUri().add("uri1");
+    merged.getUri().add("uri2");
+
+    var original = new UriTable();
+    original.getUri().add(Namespaces.OPC_UA);
+    original.getUri().add("uri2");
+
+    var method = new UAMethod();
+    method.setNodeId("ns=1;i=2");
+    method.setBrowseName("1:Method");
+    method.setParentNodeId("ns=1;i=1");
+    method.setMethodDeclarationId("ns=1;i=3");
+
+    IndexUtil.reindexUANode(method, merged, original);
+
+    assertEquals("ns=2;i=2", method.getNodeId());
+    assertEquals("ns=2;i=1", method.getParentNodeId());
+    assertEquals("ns=2;i=3", method.getMethodDeclarationId());
+  }
+
+  @Test
+  public void testReindexUANodeDataTypeDefinitionName() {
+    var merged = new UriTable();
+    merged.getUri().add(Namespaces.OPC_UA);
+    merged.getUri().add("uri1");
+    merged.getUri().add("uri2");
+
+    var original = new UriTable();
+    original.getUri().add(Namespaces.OPC_UA);
+    original.getUri().add("uri2");
+
+    var definition = new DataTypeDefinition();
+    definition.setName("1:Foo");
+
+    var dataType = new UADataType();
+    dataType.setNodeId("ns=1;i=1");
+    dataType.setBrowseName("1:Foo");
+    dataType.setDefinition(definition);
+
+    IndexUtil.reindexUANode(dataType, merged, original);
+
+    assertEquals("2:Foo", definition.getName());
+  }
+
   @Test
   public void testReindexQualifiedName() {
     var qualifiedName = "1:Foo";
@@ -0,0 +1,92 @@
+package com.digitalpetri.opcua.uanodeset.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class BoundedCacheTest {
+
+  @Test
+  void hitsReturnCachedValue() {
+    var cache = new BoundedCache<String, String>(16);
+    var computed = new AtomicInteger();
+
+    String first = cache.get("a", k -> k + computed.incrementAndGet());
+    String second = cache.get("a", k -> k + computed.incrementAndGet());
+
+    assertSame(first, second);
+    assertEquals(1, computed.get());
+    assertEquals(new BoundedCache.Stats(16, 1, 1, 1, 0), cache.getStats());
+    assertEquals(0.5, cache.getStats().hitRate());
+  }
+
+  @Test
+  void sizeNeverExceedsCapacity() {
+    var cache = new BoundedCache<Integer, Integer>(1000);
+
+    IntStream.range(0, 10_000).parallel().forEach(i -> cache.get(i, k -> k));
+
+    BoundedCache.Stats stats = cache.getStats();
+    assertTrue(stats.size() <= 1000, stats.toString());
+    assertEquals(10_000, stats.misses());
+    assertEquals(10_000 - stats.size(), stats.evictions());
+  }
+
+  @Test
+  void leastRecentlyUsedEntryIsEvicted() {
+    var cache = new BoundedCache<String, String>(2);
+
+    cache.get("a", k -> k);
+    cache.get("b", k -> k);
+    cache.get("a", k -> k);
+    cache.get("c", k -> k);
+
+    var computed = new AtomicInteger();
+    cache.get("a", k -> k + computed.incrementAndGet());
+    assertEquals(0, computed.get());
+    cache.get("b", k -> k + computed.incrementAndGet());
+    assertEquals(1, computed.get());
+  }
+
+  @Test
+  void entriesReadBetweenEvictionsSurviveAScan() {
+    var cache = new BoundedCache<Integer, Integer>(100);
+    var computed = new AtomicInteger();
+
+    for (int i = 0; i < 10_000; i++) {
+      cache.get(-1, k -> computed.incrementAndGet());
+      cache.get(i, k -> k);
+    }
+
+    assertEquals(1, computed.get());
+    assertEquals(100, cache.size());
+  }
+
+  @Test
+  void zeroCapacityDisablesCaching() {
+    var cache = new BoundedCache<String, String>(0);
+
+    cache.get("a", k -> k);
+    cache.get("a", k -> k);
+
+    assertEquals(new BoundedCache.Stats(0, 0, 0, 2, 0), cache.getStats());
+  }
+
+  @Test
+  void clearRemovesEntriesButKeepsCounters() {
+    var cache = new BoundedCache<String, String>(16);
+    cache.get("a", k -> k);
+    cache.get("a", k -> k);
+
+    cache.clear();
+
+    assertEquals(new BoundedCache.Stats(16, 0, 1, 1, 0), cache.getStats());
+  }
+
+  @Test
+  void negativeCapacityIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new BoundedCache<String, String>(-1));
+  }
+}
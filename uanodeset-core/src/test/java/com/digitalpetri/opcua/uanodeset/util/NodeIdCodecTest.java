@@ -0,0 +1,108 @@
+package com.digitalpetri.opcua.uanodeset.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.UUID;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class NodeIdCodecTest {
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "i=0",
+        "i=58",
+        "i=4294967295",
+        "i=007",
+        "ns=0;i=58",
+        "ns=1;i=1001",
+        "ns=65535;i=1",
+        "s=",
+        "s=Name",
+        "ns=2;s=Folder;With=Separators",
+        "ns=3;s=ns=4;i=5",
+        "g=09087e75-8e5e-499b-954f-f2a9603db28a",
+        "ns=1;g=09087E75-8E5E-499B-954F-F2A9603DB28A",
+        "b=M/RbKBsRVkePCePcx24oRA==",
+        "ns=1;b="
+      })
+  void parseMatchesMilo(String nodeId) {
+    assertEquals(NodeId.parse(nodeId), NodeIdCodec.parse(nodeId));
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "",
+        "i",
+        "i=",
+        "i=-1",
+        "i=+1",
+        "i=4294967296",
+        "i=12a",
+        "x=1",
+        "ns=;i=1",
+        "ns=65536;i=1",
+        "ns=1i=1",
+        "g=not-a-guid",
+        "b=%%%"
+      })
+  void malformedInputIsHandledByMilo(String nodeId) {
+    NodeId expected;
+    try {
+      expected = NodeId.parse(nodeId);
+    } catch (RuntimeException e) {
+      RuntimeException thrown =
+          assertThrows(RuntimeException.class, () -> NodeIdCodec.parse(nodeId));
+      assertEquals(e.getClass(), thrown.getClass());
+      return;
+    }
+    assertEquals(expected, NodeIdCodec.parse(nodeId));
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "i=58",
+        "ns=1;i=1001",
+        "s=Name",
+        "ns=2;s=Name",
+        "g=09087e75-8e5e-499b-954f-f2a9603db28a",
+        "ns=1;b=M/RbKBsRVkePCePcx24oRA=="
+      })
+  void formatMatchesParseableString(String nodeId) {
+    NodeId parsed = NodeId.parse(nodeId);
+
+    assertEquals(nodeId, NodeIdCodec.format(parsed));
+    assertEquals(nodeId, NodeIdCodec.format(NodeIdCodec.parse(nodeId)));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"i=58", "ns=0;i=58"})
+  void formatOmitsNamespaceZero(String nodeId) {
+    assertEquals("i=58", NodeIdCodec.format(NodeId.parse(nodeId)));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 1, 7})
+  void appendToReusesBuilder(int namespaceIndex) {
+    var sb = new StringBuilder("prefix:");
+
+    NodeIdCodec.appendTo(new NodeId(namespaceIndex, UInteger.valueOf(42)), sb);
+    sb.append('|');
+    NodeIdCodec.appendIdentifier(new NodeId(namespaceIndex, "Name"), sb);
+    sb.append('|');
+    NodeIdCodec.appendIdentifier(new NodeId(namespaceIndex, new UUID(0, 1)), sb);
+    sb.append('|');
+    NodeIdCodec.appendIdentifier(new NodeId(namespaceIndex, ByteString.of(new byte[] {1})), sb);
+
+    String prefix = namespaceIndex == 0 ? "" : "ns=" + namespaceIndex + ";";
+    assertEquals(
+        "prefix:" + prefix + "i=42|s=Name|g=00000000-0000-0000-0000-000000000001|b=AQ==",
+        sb.toString());
+  }
+}
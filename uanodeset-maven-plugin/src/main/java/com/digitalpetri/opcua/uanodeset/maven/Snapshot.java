@@ -0,0 +1,43 @@
+package com.digitalpetri.opcua.uanodeset.maven;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of one snapshot produced by {@link SnapshotMojo}.
+ *
+ * <pre>{@code
+ * <snapshot>
+ *   <name>machinery</name>
+ *   <nodeSets>
+ *     <nodeSet>src/main/nodesets/Opc.Ua.Di.NodeSet2.xml</nodeSet>
+ *     <nodeSet>src/main/nodesets/Opc.Ua.Machinery.NodeSet2.xml</nodeSet>
+ *   </nodeSets>
+ * </snapshot>
+ * }</pre>
+ */
+public class Snapshot {
+
+  /** The snapshot file name, without the {@code .snapshot} extension. */
+  private String name;
+
+  /** The NodeSet XML files to merge, in order, with the bundled OPC UA base NodeSet. */
+  private List<File> nodeSets = new ArrayList<>();
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public List<File> getNodeSets() {
+    return nodeSets;
+  }
+
+  public void setNodeSets(List<File> nodeSets) {
+    this.nodeSets = nodeSets;
+  }
+}
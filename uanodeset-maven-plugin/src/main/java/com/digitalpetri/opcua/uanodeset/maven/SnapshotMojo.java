@@ -0,0 +1,196 @@
+package com.digitalpetri.opcua.uanodeset.maven;
+
+import com.digitalpetri.opcua.uanodeset.OffHeapNodeSet;
+import com.digitalpetri.opcua.uanodeset.parser.UANodeSetParser;
+import jakarta.xml.bind.JAXBException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.opcfoundation.ua.UANodeSet;
+
+/**
+ * Writes binary {@link OffHeapNodeSet} snapshots of NodeSet XML files at build time.
+ *
+ * <p>The NodeSet files of each configured {@link Snapshot} are merged, in order, with the bundled
+ * OPC UA base NodeSet and streamed into an {@link OffHeapNodeSet} with {@link
+ * OffHeapNodeSet#from(java.util.Collection)}, which is saved as {@code <name>.snapshot} in the
+ * output directory. A snapshot of the base NodeSet alone can be written as well. At runtime,
+ * {@link OffHeapNodeSet#open(Path)} maps a snapshot without parsing XML, merging, or indexing.
+ *
+ * <p>For each snapshot, a fingerprint of what it was written from is kept in {@code
+ * target/maven-status/uanodeset}: the snapshot format version, the plugin version, and the content
+ * of each NodeSet file in order. A snapshot is rewritten whenever its fingerprint changes, so
+ * adding, removing, reordering, or editing NodeSet files, or upgrading the plugin, is picked up
+ * without a clean build.
+ */
+@Mojo(name = "snapshot", defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
+public class SnapshotMojo extends AbstractMojo {
+
+  static final String EXTENSION = ".snapshot";
+
+  static final String BASE_SNAPSHOT_NAME = "Opc.Ua.NodeSet2";
+
+  static final String FINGERPRINT_EXTENSION = ".fingerprint";
+
+  @Parameter(defaultValue = "${project}", readonly = true, required = true)
+  private MavenProject project;
+
+  @Parameter(defaultValue = "${plugin}", readonly = true, required = true)
+  private PluginDescriptor plugin;
+
+  /** The snapshots to write. */
+  @Parameter private List<Snapshot> snapshots = new ArrayList<>();
+
+  /**
+   * Whether to also write a snapshot of the bundled base NodeSet alone, named {@code
+   * Opc.Ua.NodeSet2}.
+   */
+  @Parameter(property = "uanodeset.snapshot.includeBase", defaultValue = "false")
+  private boolean includeBase;
+
+  /** The directory snapshots are written to. */
+  @Parameter(
+      property = "uanodeset.snapshot.outputDirectory",
+      defaultValue = "${project.build.directory}/generated-resources/uanodeset")
+  private File outputDirectory;
+
+  /** The directory fingerprints of written snapshots are kept in, outside the output directory. */
+  @Parameter(defaultValue = "${project.build.directory}/maven-status/uanodeset", readonly = true)
+  private File statusDirectory;
+
+  /** Whether to add the output directory to the project's resources. */
+  @Parameter(property = "uanodeset.snapshot.addResource", defaultValue = "true")
+  private boolean addResource;
+
+  /** Skip writing snapshots. */
+  @Parameter(property = "uanodeset.snapshot.skip", defaultValue = "false")
+  private boolean skip;
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (skip) {
+      getLog().info("Skipping NodeSet snapshots");
+      return;
+    }
+
+    try {
+      Files.createDirectories(outputDirectory.toPath());
+      Files.createDirectories(statusDirectory.toPath());
+
+      if (includeBase) {
+        write(BASE_SNAPSHOT_NAME, List.of());
+      }
+
+      for (Snapshot snapshot : snapshots) {
+        write(snapshot);
+      }
+    } catch (IOException | JAXBException e) {
+      throw new MojoExecutionException("Failed to write NodeSet snapshot", e);
+    }
+
+    if (addResource) {
+      var resource = new Resource();
+      resource.setDirectory(outputDirectory.getAbsolutePath());
+      project.addResource(resource);
+    }
+  }
+
+  private void write(Snapshot snapshot)
+      throws IOException, JAXBException, MojoExecutionException {
+
+    if (snapshot.getName() == null || snapshot.getName().isBlank()) {
+      throw new MojoExecutionException("Snapshot name is required");
+    }
+    if (snapshot.getNodeSets().isEmpty()) {
+      throw new MojoExecutionException("Snapshot " + snapshot.getName() + " has no NodeSets");
+    }
+
+    write(snapshot.getName(), snapshot.getNodeSets());
+  }
+
+  private void write(String name, List<File> nodeSetFiles) throws IOException, JAXBException {
+    Path file = outputDirectory.toPath().resolve(name + EXTENSION);
+    Path fingerprintFile = statusDirectory.toPath().resolve(name + FINGERPRINT_EXTENSION);
+
+    String fingerprint = fingerprint(nodeSetFiles);
+    if (Files.exists(file)
+        && Files.exists(fingerprintFile)
+        && Files.readString(fingerprintFile).equals(fingerprint)) {
+
+      getLog().debug("NodeSet snapshot is up to date: " + file);
+      return;
+    }
+
+    // a snapshot that fails to be written must not be taken for up to date by the next build
+    Files.deleteIfExists(fingerprintFile);
+
+    var nodeSets = new ArrayList<UANodeSet>();
+    for (File nodeSetFile : nodeSetFiles) {
+      try (InputStream inputStream = Files.newInputStream(nodeSetFile.toPath())) {
+        nodeSets.add(UANodeSetParser.parse(inputStream));
+      }
+    }
+
+    OffHeapNodeSet nodeSet = OffHeapNodeSet.from(nodeSets);
+    nodeSet.save(file);
+    Files.writeString(fingerprintFile, fingerprint);
+
+    getLog()
+        .info(
+            String.format(
+                "Wrote NodeSet snapshot %s (%d nodes, %d bytes)",
+                file.getFileName(), nodeSet.getNodeCount(), Files.size(file)));
+  }
+
+  /**
+   * Describe everything a snapshot's content depends on: the snapshot format version, the plugin
+   * version, which determines the bundled base NodeSet, and the content of each NodeSet file, in
+   * merge order.
+   */
+  private String fingerprint(List<File> nodeSetFiles) throws IOException {
+    var fingerprint = new StringBuilder();
+    fingerprint.append("snapshotVersion=").append(OffHeapNodeSet.SNAPSHOT_VERSION).append('\n');
+    fingerprint.append("pluginVersion=").append(plugin.getVersion()).append('\n');
+
+    for (File nodeSetFile : nodeSetFiles) {
+      fingerprint
+          .append("nodeSet=")
+          .append(sha256(nodeSetFile.toPath()))
+          .append(' ')
+          .append(nodeSetFile.getName())
+          .append('\n');
+    }
+    return fingerprint.toString();
+  }
+
+  private static String sha256(Path file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    try (InputStream inputStream = new DigestInputStream(Files.newInputStream(file), digest)) {
+      inputStream.transferTo(OutputStream.nullOutputStream());
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+}
@@ -0,0 +1,9 @@
+/**
+ * Maven plugin that precompiles NodeSet XML files into binary snapshots at build time.
+ *
+ * <p>The {@code snapshot} goal writes one {@link com.digitalpetri.opcua.uanodeset.OffHeapNodeSet}
+ * snapshot per configured {@link com.digitalpetri.opcua.uanodeset.maven.Snapshot}, and optionally
+ * one of the bundled OPC UA base NodeSet, so applications can map a merged and indexed model at
+ * startup instead of parsing and indexing XML.
+ */
+package com.digitalpetri.opcua.uanodeset.maven;
@@ -0,0 +1,232 @@
+package com.digitalpetri.opcua.uanodeset.maven;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.digitalpetri.opcua.uanodeset.OffHeapNodeSet;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opcfoundation.ua.UriTable;
+
+class SnapshotMojoTest {
+
+  static final FileTime EPOCH = FileTime.fromMillis(0);
+
+  Path directory;
+  Path outputDirectory;
+  Path deviceNodeSet;
+  Path sensorNodeSet;
+  MavenProject project;
+
+  @BeforeEach
+  void createDirectories() throws IOException {
+    directory = Files.createTempDirectory("uanodeset");
+    outputDirectory = directory.resolve("generated-resources");
+    deviceNodeSet = writeNodeSet("Device.NodeSet2.xml", "http://example.com/Device/", "Device");
+    sensorNodeSet = writeNodeSet("Sensor.NodeSet2.xml", "http://example.com/Sensor/", "Sensor");
+    project = new MavenProject();
+  }
+
+  @AfterEach
+  void deleteDirectories() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Test
+  void writtenSnapshotsOpen() throws Exception {
+    mojo(true, snapshot("devices", deviceNodeSet, sensorNodeSet)).execute();
+
+    OffHeapNodeSet nodeSet = OffHeapNodeSet.open(snapshotFile("devices"));
+    assertNotNull(nodeSet.getNode(NodeIds.Server));
+    assertNotNull(nodeSet.getNode(nodeId(nodeSet, "http://example.com/Device/", "Device")));
+    assertNotNull(nodeSet.getNode(nodeId(nodeSet, "http://example.com/Sensor/", "Sensor")));
+
+    OffHeapNodeSet base = OffHeapNodeSet.open(baseSnapshotFile());
+    assertNotNull(base.getNode(NodeIds.Server));
+    assertFalse(namespaceUris(base).contains("http://example.com/Device/"));
+
+    assertEquals(1, project.getResources().size());
+    assertEquals(
+        outputDirectory.toAbsolutePath().toString(), project.getResources().get(0).getDirectory());
+  }
+
+  @Test
+  void upToDateSnapshotsAreNotRewritten() throws Exception {
+    mojo(true, snapshot("devices", deviceNodeSet)).execute();
+    touch(snapshotFile("devices"), baseSnapshotFile());
+
+    // a newer modification time alone does not make a snapshot stale
+    Files.setLastModifiedTime(deviceNodeSet, FileTime.fromMillis(System.currentTimeMillis()));
+    mojo(true, snapshot("devices", deviceNodeSet)).execute();
+
+    assertEquals(EPOCH, Files.getLastModifiedTime(snapshotFile("devices")));
+    assertEquals(EPOCH, Files.getLastModifiedTime(baseSnapshotFile()));
+  }
+
+  @Test
+  void changedNodeSetsRewriteSnapshots() throws Exception {
+    mojo(false, snapshot("devices", deviceNodeSet)).execute();
+
+    // adding a NodeSet
+    assertRewritten(mojo(false, snapshot("devices", deviceNodeSet, sensorNodeSet)));
+
+    // reordering the NodeSets
+    assertRewritten(mojo(false, snapshot("devices", sensorNodeSet, deviceNodeSet)));
+
+    // editing a NodeSet
+    writeNodeSet("Sensor.NodeSet2.xml", "http://example.com/Sensor/", "Thermometer");
+    assertRewritten(mojo(false, snapshot("devices", sensorNodeSet, deviceNodeSet)));
+
+    OffHeapNodeSet edited = OffHeapNodeSet.open(snapshotFile("devices"));
+    assertNotNull(edited.getNode(nodeId(edited, "http://example.com/Sensor/", "Thermometer")));
+
+    // removing a NodeSet
+    assertRewritten(mojo(false, snapshot("devices", deviceNodeSet)));
+
+    OffHeapNodeSet removed = OffHeapNodeSet.open(snapshotFile("devices"));
+    assertFalse(namespaceUris(removed).contains("http://example.com/Sensor/"));
+  }
+
+  @Test
+  void pluginVersionChangeRewritesSnapshots() throws Exception {
+    mojo(true, snapshot("devices", deviceNodeSet)).execute();
+    touch(snapshotFile("devices"), baseSnapshotFile());
+
+    SnapshotMojo upgraded = mojo(true, snapshot("devices", deviceNodeSet));
+    plugin(upgraded).setVersion("2.0.0");
+    upgraded.execute();
+
+    assertNotEquals(EPOCH, Files.getLastModifiedTime(snapshotFile("devices")));
+    assertNotEquals(EPOCH, Files.getLastModifiedTime(baseSnapshotFile()));
+  }
+
+  @Test
+  void missingSnapshotIsRewritten() throws Exception {
+    mojo(false, snapshot("devices", deviceNodeSet)).execute();
+    Files.delete(snapshotFile("devices"));
+
+    mojo(false, snapshot("devices", deviceNodeSet)).execute();
+
+    assertTrue(Files.exists(snapshotFile("devices")));
+  }
+
+  @Test
+  void invalidSnapshotsAreRejected() throws Exception {
+    assertThrows(
+        MojoExecutionException.class, () -> mojo(false, snapshot(" ", deviceNodeSet)).execute());
+    assertThrows(MojoExecutionException.class, () -> mojo(false, snapshot("empty")).execute());
+  }
+
+  private void assertRewritten(SnapshotMojo mojo) throws Exception {
+    touch(snapshotFile("devices"));
+    mojo.execute();
+    assertNotEquals(EPOCH, Files.getLastModifiedTime(snapshotFile("devices")));
+  }
+
+  private SnapshotMojo mojo(boolean includeBase, Snapshot... snapshots) throws Exception {
+    var plugin = new PluginDescriptor();
+    plugin.setVersion("1.0.0");
+
+    var mojo = new SnapshotMojo();
+    set(mojo, "project", project);
+    set(mojo, "plugin", plugin);
+    set(mojo, "snapshots", List.of(snapshots));
+    set(mojo, "includeBase", includeBase);
+    set(mojo, "outputDirectory", outputDirectory.toFile());
+    set(mojo, "statusDirectory", directory.resolve("maven-status").toFile());
+    set(mojo, "addResource", true);
+    return mojo;
+  }
+
+  private Path snapshotFile(String name) {
+    return outputDirectory.resolve(name + SnapshotMojo.EXTENSION);
+  }
+
+  private Path baseSnapshotFile() {
+    return snapshotFile(SnapshotMojo.BASE_SNAPSHOT_NAME);
+  }
+
+  private static Snapshot snapshot(String name, Path... nodeSets) {
+    var snapshot = new Snapshot();
+    snapshot.setName(name);
+    snapshot.setNodeSets(Stream.of(nodeSets).map(Path::toFile).toList());
+    return snapshot;
+  }
+
+  private static void touch(Path... files) throws IOException {
+    for (Path file : files) {
+      Files.setLastModifiedTime(file, EPOCH);
+    }
+  }
+
+  private static List<String> namespaceUris(OffHeapNodeSet nodeSet) {
+    UriTable namespaceUris = nodeSet.getNodeSet().getNamespaceUris();
+    return namespaceUris != null ? namespaceUris.getUri() : List.of();
+  }
+
+  private static NodeId nodeId(OffHeapNodeSet nodeSet, String namespaceUri, String name) {
+    int namespaceIndex = namespaceUris(nodeSet).indexOf(namespaceUri);
+    assertTrue(namespaceIndex > 0, namespaceUri);
+    return NodeId.parse("ns=" + namespaceIndex + ";s=" + name);
+  }
+
+  private static PluginDescriptor plugin(SnapshotMojo mojo) throws Exception {
+    var field = SnapshotMojo.class.getDeclaredField("plugin");
+    field.setAccessible(true);
+    return (PluginDescriptor) field.get(mojo);
+  }
+
+  private static void set(SnapshotMojo mojo, String name, Object value) throws Exception {
+    var field = SnapshotMojo.class.getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(mojo, value);
+  }
+
+  private Path writeNodeSet(String fileName, String namespaceUri, String name)
+      throws IOException {
+
+    String xml =
+        """
+        <?xml version="1.0" encoding="utf-8"?>
+        <UANodeSet xmlns="http://opcfoundation.org/UA/2011/03/UANodeSet.xsd">
+          <NamespaceUris>
+            <Uri>%1$s</Uri>
+          </NamespaceUris>
+          <Models>
+            <Model ModelUri="%1$s" Version="1.00" PublicationDate="2024-01-01T00:00:00Z">
+              <RequiredModel ModelUri="http://opcfoundation.org/UA/" />
+            </Model>
+          </Models>
+          <Aliases>
+            <Alias Alias="Organizes">i=35</Alias>
+          </Aliases>
+          <UAObject NodeId="ns=1;s=%2$s" BrowseName="1:%2$s">
+            <DisplayName>%2$s</DisplayName>
+            <References>
+              <Reference ReferenceType="HasTypeDefinition">i=58</Reference>
+              <Reference ReferenceType="Organizes" IsForward="false">i=85</Reference>
+            </References>
+          </UAObject>
+        </UANodeSet>
+        """
+            .formatted(namespaceUri, name);
+
+    return Files.writeString(directory.resolve(fileName), xml);
+  }
+}
@@ -1,5 +1,6 @@
 package com.digitalpetri.opcua.uanodeset.namespace;
 
+import com.digitalpetri.opcua.uanodeset.TypeMatch;
 import java.util.ArrayList;
 import java.util.List;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
@@ -114,6 +115,25 @@ public final class NodeBehaviorRegistry {
     typeRegistrations.add(new TypeRegistration(typeDefinitionId, typeMatch, callback));
   }
 
+  /**
+   * Register behavior for Object and Variable instances using an explicit type match mode.
+   *
+   * @param typeDefinitionId the type definition to match.
+   * @param typeMatch the rule used to compare the registered and instance type definitions.
+   * @param callback the callback to invoke for each matching post-load instance.
+   * @throws IllegalStateException if loading has begun.
+   * @deprecated use {@link #onType(NodeId, TypeMatch, NodeLoadedCallback)} with a {@link
+   *     TypeMatch}.
+   */
+  @Deprecated
+  public synchronized void onType(
+      NodeId typeDefinitionId,
+      com.digitalpetri.opcua.uanodeset.namespace.TypeMatch typeMatch,
+      NodeLoadedCallback callback) {
+
+    onType(typeDefinitionId, typeMatch.toTypeMatch(), callback);
+  }
+
   /**
    * Register behavior for one node identified by its reindexed NodeId.
    *
@@ -1,5 +1,6 @@
 package com.digitalpetri.opcua.uanodeset.namespace;
 
+import com.digitalpetri.opcua.uanodeset.TypeMatch;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 
 /**
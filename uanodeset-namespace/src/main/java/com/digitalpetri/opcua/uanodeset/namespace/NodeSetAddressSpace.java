@@ -1,9 +1,12 @@
 package com.digitalpetri.opcua.uanodeset.namespace;
 
+import com.digitalpetri.opcua.uanodeset.LayeredNodeSet;
 import com.digitalpetri.opcua.uanodeset.NodeSet;
+import com.digitalpetri.opcua.uanodeset.OffHeapNodeSet;
 import jakarta.xml.bind.JAXBException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
 import org.eclipse.milo.opcua.sdk.server.AddressSpaceFilter;
 import org.eclipse.milo.opcua.sdk.server.ManagedAddressSpaceFragmentWithLifecycle;
@@ -13,6 +16,7 @@ import org.eclipse.milo.opcua.sdk.server.items.DataItem;
 import org.eclipse.milo.opcua.sdk.server.items.MonitoredItem;
 import org.eclipse.milo.opcua.sdk.server.util.SubscriptionModel;
 import org.eclipse.milo.opcua.stack.core.encoding.EncodingContext;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +27,10 @@ import org.slf4j.LoggerFactory;
  * register post-load behavior through {@link #registerNodeBehaviors(NodeBehaviorRegistry)}. The
  * loader installs all selected nodes and references and finishes its value-decoding attempts before
  * those callbacks run. All supplied streams are closed after startup succeeds or fails.
+ *
+ * <p>Subclasses may instead supply a binary snapshot of the merged model through {@link
+ * #getNodeSetSnapshot()}, which is loaded without parsing or merging any XML but is still indexed
+ * on the heap.
  */
 public abstract class NodeSetAddressSpace extends ManagedAddressSpaceFragmentWithLifecycle {
 
@@ -111,6 +119,27 @@ public abstract class NodeSetAddressSpace extends ManagedAddressSpaceFragmentWit
    */
   protected abstract List<InputStream> getNodeSetInputStreams();
 
+  /**
+   * Get the snapshot file to load the NodeSet from instead of the XML streams.
+   *
+   * <p>The default implementation returns {@code null}, so the NodeSet is loaded from {@link
+   * #getNodeSetInputStreams()}. A snapshot written at build time by the {@code snapshot} goal of
+   * the uanodeset Maven plugin already holds the merged model and its type hierarchies, so it is
+   * opened with {@link OffHeapNodeSet#open(Path)} and turned into a {@link NodeSet} with {@link
+   * OffHeapNodeSet#toNodeSet()}, and {@link #getNodeSetInputStreams()} is not called. The file
+   * must be on the default file system, because it is memory-mapped; copy a snapshot packaged as
+   * a resource to a file first.
+   *
+   * <p>A snapshot saves XML parsing, merging, and type hierarchy construction at startup, but not
+   * indexing: the loader needs a {@link NodeSet}, so every node is still materialized onto the
+   * heap and indexed before it is installed, and the model is not kept off-heap.
+   *
+   * @return the snapshot file to load, or {@code null} to load the NodeSet XML streams.
+   */
+  protected @Nullable Path getNodeSetSnapshot() {
+    return null;
+  }
+
   /**
    * Register callbacks that attach behavior after all selected nodes complete the load phases.
    *
@@ -123,11 +152,53 @@ public abstract class NodeSetAddressSpace extends ManagedAddressSpaceFragmentWit
    */
   protected void registerNodeBehaviors(NodeBehaviorRegistry registry) {}
 
+  /**
+   * Check whether the NodeSet XML streams are layered over the standard OPC UA NodeSet shared by
+   * every {@link LayeredNodeSet} in the JVM instead of being merged with a private copy of it.
+   *
+   * <p>The default implementation returns {@code false}, so each address space parses and indexes
+   * its own copy of the bundled base model with {@link NodeSet#load(List)}. Returning {@code true}
+   * lets servers with several address spaces parse and index the base model only once, but the
+   * shared model then stays reachable for the lifetime of the JVM, and the {@link
+   * org.opcfoundation.ua.UANode} instances of base nodes returned by the loaded NodeSet are the
+   * same instances every other layered NodeSet returns. Subclasses that opt in, and the callbacks
+   * they register with {@link #registerNodeBehaviors(NodeBehaviorRegistry)}, must not modify those
+   * nodes, their references, or their values, because the changes would be seen by every address
+   * space in the JVM.
+   *
+   * @return {@code true} to layer the streams over the shared standard NodeSet.
+   */
+  protected boolean shareStandardNodeSet() {
+    return false;
+  }
+
+  /**
+   * Load the NodeSet to materialize from the streams returned by {@link #getNodeSetInputStreams()}.
+   *
+   * <p>The default implementation merges the streams with the standard OPC UA NodeSet using {@link
+   * NodeSet#load(List)}, or layers them over the shared standard NodeSet with {@link
+   * LayeredNodeSet#load(List)} if {@link #shareStandardNodeSet()} returns {@code true}. Overrides
+   * may load the NodeSet another way.
+   *
+   * @param inputStreams the NodeSet XML streams to load, in order. They are closed by the caller.
+   * @return the merged and normalized NodeSet.
+   * @throws JAXBException if a stream cannot be parsed.
+   */
+  protected NodeSet loadNodeSet(List<InputStream> inputStreams) throws JAXBException {
+    if (shareStandardNodeSet()) {
+      return LayeredNodeSet.load(inputStreams).asNodeSet();
+    } else {
+      return NodeSet.load(inputStreams);
+    }
+  }
+
   private void load() {
-    List<InputStream> inputStreams = getNodeSetInputStreams();
+    Path snapshot = getNodeSetSnapshot();
+    List<InputStream> inputStreams = snapshot == null ? getNodeSetInputStreams() : List.of();
 
     try {
-      NodeSet nodeSet = NodeSet.load(inputStreams);
+      NodeSet nodeSet =
+          snapshot != null ? OffHeapNodeSet.open(snapshot).toNodeSet() : loadNodeSet(inputStreams);
 
       nodeSet
           .getNodeSet()
@@ -149,6 +220,8 @@ public abstract class NodeSetAddressSpace extends ManagedAddressSpaceFragmentWit
       loader.loadNodes();
     } catch (JAXBException e) {
       throw new IllegalStateException("Error loading NodeSet", e);
+    } catch (IOException e) {
+      throw new IllegalStateException("Error loading NodeSet snapshot " + snapshot, e);
     } finally {
       for (InputStream inputStream : inputStreams) {
         try {
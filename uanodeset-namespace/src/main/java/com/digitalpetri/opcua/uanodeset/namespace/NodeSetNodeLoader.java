@@ -4,9 +4,9 @@ import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.
 import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
 import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
 
-import com.digitalpetri.opcua.uanodeset.DataTypeInfo;
 import com.digitalpetri.opcua.uanodeset.DataTypeInfoTree;
 import com.digitalpetri.opcua.uanodeset.NodeSet;
+import com.digitalpetri.opcua.uanodeset.StructureLayout;
 import com.digitalpetri.opcua.uanodeset.parser.IndexUtil;
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBElement;
@@ -18,6 +18,7 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.List;
@@ -25,7 +26,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
-import java.util.stream.Stream;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.dom.DOMSource;
@@ -63,7 +63,6 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
 import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
 import org.eclipse.milo.opcua.stack.core.types.builtin.XmlElement;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
-import org.eclipse.milo.opcua.stack.core.types.enumerated.StructureType;
 import org.eclipse.milo.opcua.stack.core.types.structured.AccessLevelExType;
 import org.eclipse.milo.opcua.stack.core.types.structured.AccessRestrictionType;
 import org.eclipse.milo.opcua.stack.core.types.structured.EnumDefinition;
@@ -74,12 +73,10 @@ import org.eclipse.milo.opcua.stack.core.types.structured.StructureDefinition;
 import org.eclipse.milo.opcua.stack.core.types.structured.StructureField;
 import org.eclipse.milo.opcua.stack.core.util.SecureXmlUtil;
 import org.jspecify.annotations.Nullable;
-import org.opcfoundation.ua.AliasTable;
 import org.opcfoundation.ua.DataTypeDefinition;
 import org.opcfoundation.ua.DataTypeField;
 import org.opcfoundation.ua.ListOfRolePermissions;
 import org.opcfoundation.ua.LocalizedText;
-import org.opcfoundation.ua.NodeIdAlias;
 import org.opcfoundation.ua.ObjectFactory;
 import org.opcfoundation.ua.Reference;
 import org.opcfoundation.ua.RolePermission;
@@ -109,8 +106,15 @@ import org.xml.sax.SAXException;
  */
 public class NodeSetNodeLoader {
 
+  private static final RolePermissionType[] NO_ROLE_PERMISSIONS = new RolePermissionType[0];
+
   private final Logger logger = LoggerFactory.getLogger(getClass());
 
+  // Converted RolePermissions and AccessRestrictions, shared by every node with equal values.
+  private final Map<List<RolePermissionKey>, RolePermissionType[]> rolePermissionTypes =
+      new HashMap<>();
+  private final Map<Integer, AccessRestrictionType> accessRestrictionTypes = new HashMap<>();
+
   private final Marshaller marshaller;
 
   private final NodeSet nodeSet;
@@ -186,9 +190,13 @@ public class NodeSetNodeLoader {
 
     // Add references for all nodes.
     for (UANode node : nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod()) {
-      String nodeId = resolveAlias(node.getNodeId());
+      NodeId nodeId = nodeSet.resolveNodeId(node.getNodeId());
       String namespaceUri =
-          nodeSet.getNodeSet().getNamespaceUris().getUri().get(getNamespaceIndex(nodeId));
+          nodeSet
+              .getNodeSet()
+              .getNamespaceUris()
+              .getUri()
+              .get(nodeId.getNamespaceIndex().intValue());
 
       if (namespaceFilter.test(namespaceUri)) {
         for (Reference reference : node.getReferences().getReference()) {
@@ -203,9 +211,13 @@ public class NodeSetNodeLoader {
 
     // Build all type nodes.
     for (UANode node : nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod()) {
-      String nodeId = resolveAlias(node.getNodeId());
+      NodeId nodeId = nodeSet.resolveNodeId(node.getNodeId());
       String namespaceUri =
-          nodeSet.getNodeSet().getNamespaceUris().getUri().get(getNamespaceIndex(nodeId));
+          nodeSet
+              .getNodeSet()
+              .getNamespaceUris()
+              .getUri()
+              .get(nodeId.getNamespaceIndex().intValue());
 
       if (namespaceFilter.test(namespaceUri)) {
         UaNode loadedNode = null;
@@ -229,9 +241,13 @@ public class NodeSetNodeLoader {
 
     // Build all other node types.
     for (UANode node : nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod()) {
-      String nodeId = resolveAlias(node.getNodeId());
+      NodeId nodeId = nodeSet.resolveNodeId(node.getNodeId());
       String namespaceUri =
-          nodeSet.getNodeSet().getNamespaceUris().getUri().get(getNamespaceIndex(nodeId));
+          nodeSet
+              .getNodeSet()
+              .getNamespaceUris()
+              .getUri()
+              .get(nodeId.getNamespaceIndex().intValue());
 
       if (namespaceFilter.test(namespaceUri)) {
         UaNode loadedNode = null;
@@ -257,12 +273,16 @@ public class NodeSetNodeLoader {
     context.getServer().updateReferenceTypeTree();
 
     // Set DataTypeDefinitions for all DataTypes.
-    DataTypeInfoTree dataTypeTree = DataTypeInfoTree.create(nodeSet);
+    DataTypeInfoTree dataTypeTree = nodeSet.getDataTypeTree();
 
     for (UANode node : nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod()) {
-      String nodeId = resolveAlias(node.getNodeId());
+      NodeId nodeId = nodeSet.resolveNodeId(node.getNodeId());
       String namespaceUri =
-          nodeSet.getNodeSet().getNamespaceUris().getUri().get(getNamespaceIndex(nodeId));
+          nodeSet
+              .getNodeSet()
+              .getNamespaceUris()
+              .getUri()
+              .get(nodeId.getNamespaceIndex().intValue());
 
       if (namespaceFilter.test(namespaceUri)) {
         if (node instanceof UADataType dataType) {
@@ -283,9 +303,13 @@ public class NodeSetNodeLoader {
 
     // Set values for all Variable and VariableType nodes.
     for (UANode node : nodeSet.getNodeSet().getUAObjectOrUAVariableOrUAMethod()) {
-      String nodeId = resolveAlias(node.getNodeId());
+      NodeId nodeId = nodeSet.resolveNodeId(node.getNodeId());
       String namespaceUri =
-          nodeSet.getNodeSet().getNamespaceUris().getUri().get(getNamespaceIndex(nodeId));
+          nodeSet
+              .getNodeSet()
+              .getNamespaceUris()
+              .getUri()
+              .get(nodeId.getNamespaceIndex().intValue());
 
       if (namespaceFilter.test(namespaceUri)) {
         if (node instanceof UAVariable variable) {
@@ -370,9 +394,9 @@ public class NodeSetNodeLoader {
         newLocalizedText(dataType.getDescription()),
         uint(dataType.getWriteMask()),
         uint(dataType.getUserWriteMask()),
-        newRolePermissionTypeArray(dataType.getRolePermissions()),
+        newRolePermissionTypeArray(dataType),
         null,
-        newAccessRestrictionType(dataType.getAccessRestrictions()),
+        newAccessRestrictionType(dataType),
         dataType.isIsAbstract(),
         null);
   }
@@ -386,9 +410,9 @@ public class NodeSetNodeLoader {
         newLocalizedText(method.getDescription()),
         uint(method.getWriteMask()),
         uint(method.getUserWriteMask()),
-        newRolePermissionTypeArray(method.getRolePermissions()),
+        newRolePermissionTypeArray(method),
         null,
-        newAccessRestrictionType(method.getAccessRestrictions()),
+        newAccessRestrictionType(method),
         method.isExecutable(),
         method.isUserExecutable());
   }
@@ -414,9 +438,9 @@ public class NodeSetNodeLoader {
               newLocalizedText(object.getDescription()),
               uint(object.getWriteMask()),
               uint(object.getUserWriteMask()),
-              newRolePermissionTypeArray(object.getRolePermissions()),
+              newRolePermissionTypeArray(object),
               null,
-              newAccessRestrictionType(object.getAccessRestrictions()));
+              newAccessRestrictionType(object));
 
       objectNode.setEventNotifier(ubyte(object.getEventNotifier()));
 
@@ -430,9 +454,9 @@ public class NodeSetNodeLoader {
           newLocalizedText(object.getDescription()),
           uint(object.getWriteMask()),
           uint(object.getUserWriteMask()),
-          newRolePermissionTypeArray(object.getRolePermissions()),
+          newRolePermissionTypeArray(object),
           null,
-          newAccessRestrictionType(object.getAccessRestrictions()),
+          newAccessRestrictionType(object),
           ubyte(object.getEventNotifier()));
     }
   }
@@ -446,9 +470,9 @@ public class NodeSetNodeLoader {
         newLocalizedText(objectType.getDescription()),
         uint(objectType.getWriteMask()),
         uint(objectType.getUserWriteMask()),
-        newRolePermissionTypeArray(objectType.getRolePermissions()),
+        newRolePermissionTypeArray(objectType),
         null,
-        newAccessRestrictionType(objectType.getAccessRestrictions()),
+        newAccessRestrictionType(objectType),
         objectType.isIsAbstract());
   }
 
@@ -470,9 +494,9 @@ public class NodeSetNodeLoader {
         newLocalizedText(referenceType.getDescription()),
         uint(referenceType.getWriteMask()),
         uint(referenceType.getUserWriteMask()),
-        newRolePermissionTypeArray(referenceType.getRolePermissions()),
+        newRolePermissionTypeArray(referenceType),
         null,
-        newAccessRestrictionType(referenceType.getAccessRestrictions()),
+        newAccessRestrictionType(referenceType),
         referenceType.isIsAbstract(),
         referenceType.isSymmetric(),
         inverseName);
@@ -499,9 +523,9 @@ public class NodeSetNodeLoader {
               newLocalizedText(variable.getDescription()),
               uint(variable.getWriteMask()),
               uint(variable.getUserWriteMask()),
-              newRolePermissionTypeArray(variable.getRolePermissions()),
+              newRolePermissionTypeArray(variable),
               null,
-              newAccessRestrictionType(variable.getAccessRestrictions()),
+              newAccessRestrictionType(variable),
               new DataValue(
                   Variant.NULL_VALUE, new StatusCode(StatusCodes.Bad_NoValue), DateTime.now()),
               reindexNodeId(variable.getDataType()),
@@ -524,9 +548,9 @@ public class NodeSetNodeLoader {
           newLocalizedText(variable.getDescription()),
           uint(variable.getWriteMask()),
           uint(variable.getUserWriteMask()),
-          newRolePermissionTypeArray(variable.getRolePermissions()),
+          newRolePermissionTypeArray(variable),
           null,
-          newAccessRestrictionType(variable.getAccessRestrictions()),
+          newAccessRestrictionType(variable),
           new DataValue(
               Variant.NULL_VALUE, new StatusCode(StatusCodes.Bad_NoValue), DateTime.now()),
           reindexNodeId(variable.getDataType()),
@@ -549,9 +573,9 @@ public class NodeSetNodeLoader {
         newLocalizedText(variableType.getDescription()),
         uint(variableType.getWriteMask()),
         uint(variableType.getUserWriteMask()),
-        newRolePermissionTypeArray(variableType.getRolePermissions()),
+        newRolePermissionTypeArray(variableType),
         null,
-        newAccessRestrictionType(variableType.getAccessRestrictions()),
+        newAccessRestrictionType(variableType),
         new DataValue(
             Variant.NULL_VALUE,
             new StatusCode(StatusCodes.Bad_NoValue),
@@ -572,9 +596,9 @@ public class NodeSetNodeLoader {
         newLocalizedText(view.getDescription()),
         uint(view.getWriteMask()),
         uint(view.getUserWriteMask()),
-        newRolePermissionTypeArray(view.getRolePermissions()),
+        newRolePermissionTypeArray(view),
         null,
-        newAccessRestrictionType(view.getAccessRestrictions()),
+        newAccessRestrictionType(view),
         view.isContainsNoLoops(),
         ubyte(view.getEventNotifier()));
   }
@@ -762,7 +786,7 @@ public class NodeSetNodeLoader {
    * @return a {@link NodeId} that has been reindexed for the current server.
    */
   protected NodeId reindexNodeId(String nodeIdString) {
-    return reindexNodeId(NodeId.parse(resolveAlias(nodeIdString)));
+    return reindexNodeId(nodeSet.resolveNodeId(nodeIdString));
   }
 
   /**
@@ -840,28 +864,19 @@ public class NodeSetNodeLoader {
             targetNodeId, reference.getReferenceTypeId(), reference.getSourceNodeId());
   }
 
+  private record RolePermissionKey(NodeId roleId, long permissions) {}
+
   private record ReferenceKey(
       NodeId forwardSourceNodeId, NodeId referenceTypeId, NodeId forwardTargetNodeId) {}
 
-  private String resolveAlias(String nodeIdString) {
-    // TODO put these into a map to improve lookup performance
-    AliasTable aliasTable = nodeSet.getNodeSet().getAliases();
-    if (aliasTable != null) {
-      List<NodeIdAlias> aliases = aliasTable.getAlias();
-      for (NodeIdAlias alias : aliases) {
-        if (alias.getAlias().equals(nodeIdString)) {
-          return alias.getValue();
-        }
-      }
-    }
-    return nodeIdString;
-  }
+  /**
+   * Get the effective AccessRestrictions of a node, shared with every node that has the same value.
+   */
+  private AccessRestrictionType newAccessRestrictionType(UANode node) {
+    Integer value = nodeSet.getAccessRestrictions(node);
 
-  private AccessRestrictionType newAccessRestrictionType(@Nullable Integer value) {
-    if (value == null) {
-      value = 0;
-    }
-    return new AccessRestrictionType(ushort(value));
+    return accessRestrictionTypes.computeIfAbsent(
+        value != null ? value : 0, v -> new AccessRestrictionType(ushort(v)));
   }
 
   // package-private visible for testing
@@ -879,48 +894,27 @@ public class NodeSetNodeLoader {
       return null;
     }
 
-    DataTypeInfo typeInfo = dataTypeTree.getTypeInfo(dataType.getNodeId());
-
     if (dataTypeTree.isEnumeration(dataType.getNodeId())) {
       return new EnumDefinition(
           definition.getField().stream().map(this::newEnumField).toArray(EnumField[]::new));
-    } else if (dataTypeTree.isStructure(dataType.getNodeId())) {
-      NodeId baseDataType = NodeId.NULL_VALUE;
-      if (typeInfo != null && typeInfo.getParent() != null) {
-        baseDataType = reindexNodeId(typeInfo.getParent().getTypeNode().getNodeId());
-      }
-
-      if (dataTypeTree.isOptionSet(dataType.getNodeId())) {
-        // OptionSets are a special case and use EnumDefinition.
-        return new EnumDefinition(
-            definition.getField().stream().map(this::newEnumField).toArray(EnumField[]::new));
-      }
-
-      StructureType structureType = StructureType.Structure;
-
-      if (dataTypeTree.isStructureWithOptionalFields(dataType.getNodeId())) {
-        structureType = StructureType.StructureWithOptionalFields;
-      } else if (dataTypeTree.isStructureWithSubtypedValues(dataType.getNodeId())) {
-        structureType = StructureType.StructureWithSubtypedValues;
-      } else if (dataTypeTree.isUnionWithSubtypedValues(dataType.getNodeId())) {
-        structureType = StructureType.UnionWithSubtypedValues;
-      } else if (dataTypeTree.isUnion(dataType.getNodeId())) {
-        structureType = StructureType.Union;
+    } else if (dataTypeTree.isOptionSet(dataType.getNodeId())) {
+      // OptionSets are a special case and use EnumDefinition.
+      return new EnumDefinition(
+          definition.getField().stream().map(this::newEnumField).toArray(EnumField[]::new));
+    } else {
+      StructureLayout layout = dataTypeTree.getStructureLayout(dataType.getNodeId());
+      if (layout == null) {
+        return null;
       }
 
-      // TODO find HasEncoding reference to "Default Binary" encoding?
-      Stream<DataTypeField> fieldStream = definition.getField().stream();
-      if (typeInfo != null) {
-        fieldStream = Stream.concat(typeInfo.getInheritedFields().stream(), fieldStream);
-      }
+      NodeId encodingId = layout.binaryEncodingId();
+      NodeId baseDataType = layout.baseDataTypeId();
 
       return new StructureDefinition(
-          NodeId.NULL_VALUE,
-          baseDataType,
-          structureType,
-          fieldStream.map(this::newStructureField).toArray(StructureField[]::new));
-    } else {
-      return null;
+          encodingId != null ? reindexNodeId(encodingId) : NodeId.NULL_VALUE,
+          baseDataType != null ? reindexNodeId(baseDataType) : NodeId.NULL_VALUE,
+          layout.structureType(),
+          layout.fields().stream().map(this::newStructureField).toArray(StructureField[]::new));
     }
   }
 
@@ -932,11 +926,13 @@ public class NodeSetNodeLoader {
         field.getName());
   }
 
-  private StructureField newStructureField(DataTypeField field) {
+  private StructureField newStructureField(StructureLayout.Field layoutField) {
+    DataTypeField field = layoutField.definition();
+
     return new StructureField(
         field.getName(),
         newLocalizedText(field.getDescription()),
-        reindexNodeId(field.getDataType()),
+        reindexNodeId(layoutField.dataTypeId()),
         field.getValueRank(),
         newArrayDimensions(field.getArrayDimensions()),
         uint(field.getMaxStringLength()),
@@ -974,29 +970,40 @@ public class NodeSetNodeLoader {
     return new org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText(locale, text);
   }
 
-  private RolePermissionType[] newRolePermissionTypeArray(
-      @Nullable ListOfRolePermissions rolePermissions) {
-    var rolePermissionTypes = new ArrayList<RolePermissionType>();
-
-    if (rolePermissions != null) {
-      for (RolePermission rolePermission : rolePermissions.getRolePermission()) {
-        NodeId roleId = reindexNodeId(rolePermission.getValue());
-        PermissionType permissions = new PermissionType(uint(rolePermission.getPermissions()));
-
-        rolePermissionTypes.add(new RolePermissionType(roleId, permissions));
-      }
+  /**
+   * Get the effective RolePermissions of a node, reindexed into the server namespace table.
+   *
+   * <p>Equal permission sets are converted once, keyed by the resolved role NodeIds so an alias and
+   * its NodeId spelling share one entry. Every node with the same RolePermissions, including all
+   * nodes inheriting their model's defaults, shares the converted elements, but gets its own copy
+   * of the array, so a node's array can be modified without affecting other nodes.
+   */
+  private RolePermissionType[] newRolePermissionTypeArray(UANode node) {
+    ListOfRolePermissions rolePermissions = nodeSet.getRolePermissions(node);
+    if (rolePermissions == null || rolePermissions.getRolePermission().isEmpty()) {
+      return NO_ROLE_PERMISSIONS;
     }
 
-    return rolePermissionTypes.toArray(new RolePermissionType[0]);
-  }
-
-  private static int getNamespaceIndex(String nodeId) {
-    Matcher matcher = IndexUtil.PATTERN_NODE_ID.matcher(nodeId);
-    if (matcher.matches()) {
-      return Integer.parseInt(matcher.group(1));
-    } else {
-      return 0;
+    var key = new ArrayList<RolePermissionKey>(rolePermissions.getRolePermission().size());
+    for (RolePermission rolePermission : rolePermissions.getRolePermission()) {
+      key.add(
+          new RolePermissionKey(
+              nodeSet.resolveNodeId(rolePermission.getValue()), rolePermission.getPermissions()));
     }
+
+    RolePermissionType[] shared =
+        rolePermissionTypes.computeIfAbsent(
+            key,
+            k ->
+                k.stream()
+                    .map(
+                        rolePermission ->
+                            new RolePermissionType(
+                                reindexNodeId(rolePermission.roleId()),
+                                new PermissionType(uint(rolePermission.permissions()))))
+                    .toArray(RolePermissionType[]::new));
+
+    return shared.clone();
   }
 
   private static String getParseableIdentifier(String nodeId) {
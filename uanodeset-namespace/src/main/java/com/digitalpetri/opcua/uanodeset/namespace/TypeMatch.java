@@ -3,14 +3,20 @@ package com.digitalpetri.opcua.uanodeset.namespace;
 /**
  * Selects the relationships eligible for a type registration.
  *
- * <p>This is registration-time policy. When a callback runs, {@link NodeMatch.Type#relationship()}
- * reports the actual {@link TypeRelationship}: {@link #EXACT} registrations produce only {@link
- * TypeRelationship#EXACT}, while {@link #INCLUDE_SUBTYPES} can produce either relationship.
+ * @deprecated use {@link com.digitalpetri.opcua.uanodeset.TypeMatch}, which {@link
+ *     NodeBehaviorRegistry} and {@link NodeMatch.Type} now use and which has the same constants.
  */
+@Deprecated
 public enum TypeMatch {
   /** Match only instances whose direct type definition equals the registered type. */
   EXACT,
 
   /** Match instances whose direct type definition is the registered type or any subtype. */
-  INCLUDE_SUBTYPES
+  INCLUDE_SUBTYPES;
+
+  com.digitalpetri.opcua.uanodeset.TypeMatch toTypeMatch() {
+    return this == EXACT
+        ? com.digitalpetri.opcua.uanodeset.TypeMatch.EXACT
+        : com.digitalpetri.opcua.uanodeset.TypeMatch.INCLUDE_SUBTYPES;
+  }
 }
@@ -1,5 +1,7 @@
 package com.digitalpetri.opcua.uanodeset.namespace;
 
+import com.digitalpetri.opcua.uanodeset.TypeMatch;
+
 /**
  * Reports how an instance's direct type definition matched a type registration.
  *